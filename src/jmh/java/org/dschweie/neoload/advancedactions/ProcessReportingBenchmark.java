@@ -0,0 +1,159 @@
+package org.dschweie.neoload.advancedactions;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.dschweie.neoload.advancedactions.process.CaptureBuffer;
+import org.dschweie.neoload.advancedactions.process.StreamCollector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.Context;
+import com.neotys.extensions.action.engine.Logger;
+import com.neotys.extensions.action.engine.SampleResult;
+
+/**
+ *  \brief  Benchmark of the reporting path of AbstractActionEngine.
+ *
+ *  The output capture is fed from synthetic console output between 1 KB
+ *  and 50 MB, once without limit and once with the default capture limit
+ *  of the Robot Framework action.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessReportingBenchmark
+{
+  /**
+   *  \brief  Minimal engine that exposes the reporting methods.
+   */
+  static final class ReportingEngine extends AbstractActionEngine
+  {
+    @Override
+    public SampleResult execute(Context context, List<ActionParameter> parameters)
+    {
+      return null;
+    }
+  }
+
+  /**
+   *  \brief  Creates a context whose logger discards everything.
+   *
+   *  The error path writes the message to the NeoLoad log, so it needs a
+   *  context. A dynamic proxy avoids depending on the details of the API.
+   */
+  static Context createSilentContext()
+  {
+    final InvocationHandler silent = new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args)
+      {
+        return boolean.class.equals(method.getReturnType()) ? Boolean.FALSE : null;
+      }
+    };
+    final Logger logger = (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[] { Logger.class }, silent);
+
+    return (Context) Proxy.newProxyInstance(Context.class.getClassLoader(), new Class<?>[] { Context.class }, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args)
+      {
+        return "getLogger".equals(method.getName()) ? logger : null;
+      }
+    });
+  }
+
+  /**
+   *  \brief  Resets the report of the engine before every invocation of the benchmarks that append to it.
+   *
+   *  Only these benchmarks use this state, since a setup per invocation
+   *  distorts the measurement of short benchmarks like
+   *  buildProcessCallToString().
+   */
+  @State(Scope.Thread)
+  public static class CleanReport
+  {
+    @Setup(Level.Invocation)
+    public void reset(ProcessReportingBenchmark benchmark)
+    {
+      benchmark.engine.resetReport(null);
+    }
+  }
+
+  @Param({"1024", "1048576", "52428800"})
+  public int outputSize;
+
+  @Param({"-1", "1048576"})
+  public int captureLimit;
+
+  private byte[]          output;
+  private List<String>    command;
+  private ReportingEngine engine;
+  private Context         context;
+
+  @Setup(Level.Trial)
+  public void setup()
+  {
+    byte[] line = "------------------------------------------------------------------------------\nBuy Product :: Checkout with a registered customer                     | PASS |\n".getBytes();
+    this.output = new byte[this.outputSize];
+    for(int i = 0; i < this.output.length; ++i)
+      this.output[i] = line[i % line.length];
+
+    this.command = Arrays.asList("python", "-m", "robot", "--outputdir", "/tmp/robot/vu-17", "--output", "output.xml", "--report", "NONE", "--log", "NONE",
+                                 "--listener", "NeoLoadMonitoringListener.py", "--include", "smoke", "--variable", "USER:jdoe", "--variable", "PASSWORD:secret",
+                                 "checkout.robot");
+    this.engine = new ReportingEngine();
+    this.engine.captureLimit = this.captureLimit;
+    this.context = ProcessReportingBenchmark.createSilentContext();
+  }
+
+  @Benchmark
+  public String buildProcessCallToString()
+  {
+    return this.engine.buildProcessCallToString(this.command);
+  }
+
+  @Benchmark
+  public int reportProcessInput(CleanReport report)
+  {
+    StreamCollector stdout = new StreamCollector(new ByteArrayInputStream(this.output), null, this.engine.createCaptureBuffer(null, "stdout"));
+    stdout.run();
+    this.engine.reportProcessInput(null, stdout);
+    return this.engine.responseBuilder.length();
+  }
+
+  @Benchmark
+  public int reportProcessErrors(CleanReport report)
+  {
+    StreamCollector stderr = new StreamCollector(new ByteArrayInputStream(this.output), null, this.engine.createCaptureBuffer(null, "stderr"));
+    stderr.run();
+    this.engine.reportProcessErrors(this.context, stderr);
+    return this.engine.responseBuilder.length();
+  }
+
+  @Benchmark
+  public String captureBufferUnbounded()
+  {
+    CaptureBuffer buffer = new CaptureBuffer(CaptureBuffer.UNLIMITED, null);
+    new StreamCollector(new ByteArrayInputStream(this.output), null, buffer).run();
+    return buffer.toString();
+  }
+}
@@ -0,0 +1,138 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *  \brief  Benchmark of the threads needed to read the output of concurrent processes.
+ *
+ *  Every virtual user is simulated by a process that writes a line every
+ *  100 ms for 5 seconds, like the console output of Robot Framework. Its
+ *  standard output and error output are read either by a thread per
+ *  stream or by the shared ProcessSupervisor.
+ *
+ *  While all processes are running, the benchmark counts the live threads
+ *  of the JVM and the context switches of these threads within one second
+ *  from \c /proc/self/task. The threads \c process reaper of the JDK,
+ *  one per running process, are counted separately, they are needed by
+ *  Process.waitFor() in both modes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ProcessSupervisionBenchmark
+{
+  /**
+   *  \brief  Counters reported by JMH next to the time of an invocation.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Counters
+  {
+    public long threads;
+    public long reapers;
+    public long contextSwitches;
+  }
+
+  private static final String SCRIPT = "i=0; while [ $i -lt 50 ]; do echo \"line $i\"; i=$((i+1)); sleep 0.1; done";
+
+  private static final long   SETTLE = 500L;
+
+  private static final long   WINDOW = 1000L;
+
+  @Param({"10", "100", "500"})
+  public int virtualUsers;
+
+  @Param({"thread", "supervisor"})
+  public String mode;
+
+  @Benchmark
+  public long readOutput(Counters counters) throws Exception
+  {
+    List<StreamCollector> collectors = new ArrayList<StreamCollector>(2 * this.virtualUsers);
+    long characters = 0L;
+
+    for(int i = 0; i < this.virtualUsers; ++i)
+    {
+      Process process = new ProcessBuilder("sh", "-c", SCRIPT).start();
+      collectors.add(this.collect(process, new StreamCollector(process.getInputStream(), null, new CaptureBuffer())));
+      collectors.add(this.collect(process, new StreamCollector(process.getErrorStream(), null, new CaptureBuffer())));
+    }
+
+    Thread.sleep(SETTLE);
+    long before = ProcessSupervisionBenchmark.countContextSwitches();
+    Thread.sleep(WINDOW);
+    counters.contextSwitches = ProcessSupervisionBenchmark.countContextSwitches() - before;
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    for(ThreadInfo thread : threads.getThreadInfo(threads.getAllThreadIds()))
+    {
+      if(null == thread)
+        continue;
+      if(thread.getThreadName().startsWith("process reaper"))
+        ++counters.reapers;
+      else
+        ++counters.threads;
+    }
+
+    for(StreamCollector collector : collectors)
+    {
+      collector.await();
+      characters += collector.getBuffer().getTotal();
+    }
+    return characters;
+  }
+
+  private StreamCollector collect(Process process, StreamCollector collector)
+  {
+    return "supervisor".equals(this.mode) ? collector.supervise(process) : collector.start("benchmark");
+  }
+
+  /**
+   *  \brief  Returns the sum of the voluntary and involuntary context switches of the live threads.
+   */
+  private static long countContextSwitches() throws IOException
+  {
+    long switches = 0L;
+    File[] tasks = new File("/proc/self/task").listFiles();
+
+    for(File task : (null == tasks) ? new File[0] : tasks)
+    {
+      try
+      {
+        for(String line : Files.readAllLines(new File(task, "status").toPath(), StandardCharsets.US_ASCII))
+        {
+          if(line.startsWith("voluntary_ctxt_switches:") || line.startsWith("nonvoluntary_ctxt_switches:"))
+            switches += Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
+        }
+      }
+      catch (IOException e)
+      {
+        //  the thread has ended in the meantime
+      }
+    }
+    return switches;
+  }
+}
@@ -0,0 +1,85 @@
+package org.dschweie.neoload.advancedactions.robotframework.factory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.dschweie.neoload.advancedactions.command.CommandFactory;
+import org.dschweie.neoload.advancedactions.command.ParameterIndex;
+import org.dschweie.neoload.advancedactions.robotframework.RobotFrameworkAction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief  Benchmark of the per-iteration cost of turning the action parameters into a command.
+ *
+ *  The parameter list resembles a typical action definition with output
+ *  options, a listener, test selection and a configurable number of
+ *  \c variable entries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandBuildingBenchmark
+{
+  @Param({"0", "10", "60"})
+  public int variables;
+
+  private List<ActionParameter> parameters;
+
+  @Setup
+  public void setup()
+  {
+    this.parameters = new ArrayList<ActionParameter>();
+    this.parameters.add(new ActionParameter(RobotFrameworkAction.TEST_SOURCE, "/opt/neoload/custom-resources/suites/checkout.robot"));
+    this.parameters.add(new ActionParameter(RobotFrameworkAction.OPTION_LISTENER, "/opt/neoload/custom-resources/NeoLoadMonitoringListener.py:controller:7400"));
+    this.parameters.add(new ActionParameter(RobotFrameworkAction.OUTPUT_OUTPUTDIR, "/tmp/robot/vu-17"));
+    this.parameters.add(new ActionParameter(RobotFrameworkAction.OUTPUT_OUTPUT, "output.xml"));
+    this.parameters.add(new ActionParameter(RobotFrameworkAction.OUTPUT_LOG, "NONE"));
+    this.parameters.add(new ActionParameter(RobotFrameworkAction.OUTPUT_REPORT, "NONE"));
+    this.parameters.add(new ActionParameter(RobotFrameworkAction.OUTPUT_LOGLEVEL, "INFO"));
+    this.parameters.add(new ActionParameter(RobotFrameworkAction.EXECUTION_INCLUDE, "smoke"));
+    this.parameters.add(new ActionParameter(RobotFrameworkAction.EXECUTION_TEST, "Buy Product"));
+    this.parameters.add(new ActionParameter(RobotFrameworkAction.OUTPUT_NOSTATUSCODE, "false"));
+    for(int i = 0; i < this.variables; ++i)
+      this.parameters.add(new ActionParameter("variable", "VARIABLE_".concat(String.valueOf(i)).concat(":value-").concat(String.valueOf(i))));
+  }
+
+  @Benchmark
+  public List<String> buildCommand()
+  {
+    return CommandWorker.buildCommand(this.parameters);
+  }
+
+  @Benchmark
+  public List<String> composeCommandUncached()
+  {
+    return CommandWorker.composeCommand(new ParameterIndex(this.parameters));
+  }
+
+  @Benchmark
+  public String getParameterValue()
+  {
+    return CommandFactory.getParameterValue(this.parameters, RobotFrameworkAction.OUTPUT_OUTPUT, null);
+  }
+
+  @Benchmark
+  public String getParameterValueMissing()
+  {
+    return CommandFactory.getParameterValue(this.parameters, RobotFrameworkAction.OUTPUT_XUNIT, null);
+  }
+}
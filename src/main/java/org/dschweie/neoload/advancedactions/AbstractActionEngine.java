@@ -1,9 +1,23 @@
 package org.dschweie.neoload.advancedactions;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.List;
 
+import org.dschweie.neoload.advancedactions.monitoring.EngineStatistics;
+import org.dschweie.neoload.advancedactions.monitoring.ProcessEvent;
+import org.dschweie.neoload.advancedactions.monitoring.ProcessSpawnEvent;
+import org.dschweie.neoload.advancedactions.monitoring.ProcessWaitEvent;
+import org.dschweie.neoload.advancedactions.monitoring.StreamDrainEvent;
+import org.dschweie.neoload.advancedactions.process.AdmissionController;
+import org.dschweie.neoload.advancedactions.process.CaptureBuffer;
+import org.dschweie.neoload.advancedactions.process.CompletionTracker;
+import org.dschweie.neoload.advancedactions.process.PhaseTimeline;
+import org.dschweie.neoload.advancedactions.process.ProcessWatchdog;
+import org.dschweie.neoload.advancedactions.process.ResourceSampler;
+import org.dschweie.neoload.advancedactions.process.ResourceUsage;
+import org.dschweie.neoload.advancedactions.process.StreamCollector;
+
 import com.neotys.extensions.action.ActionParameter;
 import com.neotys.extensions.action.engine.ActionEngine;
 import com.neotys.extensions.action.engine.Context;
@@ -17,6 +31,11 @@ import com.neotys.extensions.action.engine.SampleResult;
  */
 public abstract class AbstractActionEngine implements ActionEngine 
 {
+  /**
+   *  \brief    Default time in milliseconds between the stages of the termination of a process.
+   */
+  public static final long DEFAULT_KILLGRACE = 10000L;
+
   /**
    *  \brief    The static method creates error entries in NeoLoad and returns a corresponding result.
    *
@@ -84,6 +103,76 @@ public abstract class AbstractActionEngine implements ActionEngine
    */
   protected SampleResult  sampleResult = new SampleResult();
 
+  /**
+   *  \brief    Maximum number of characters per output stream kept in the response.
+   *
+   *  The output of a process beyond this limit is only written to a spill
+   *  file. The value CaptureBuffer.UNLIMITED disables the limit.
+   */
+  protected int           captureLimit = CaptureBuffer.UNLIMITED;
+
+  /**
+   *  \brief    Prefix of the spill files of this engine instance.
+   *
+   *  The prefix is determined once per engine instance, i.e. per virtual user.
+   */
+  protected String        spillPrefix = null;
+
+  /**
+   *  \brief    Observes the processes that were started without waiting for them.
+   */
+  protected final CompletionTracker tracker = new CompletionTracker();
+
+  /**
+   *  \brief    Maximum duration of a process in milliseconds, 0 disables the limit.
+   */
+  protected long          timeout = 0L;
+
+  /**
+   *  \brief    Maximum time in milliseconds a process may run without any output, 0 disables the limit.
+   */
+  protected long          inactivityTimeout = 0L;
+
+  /**
+   *  \brief    Time in milliseconds between the stages of the termination of a process.
+   */
+  protected long          killGrace = DEFAULT_KILLGRACE;
+
+  /**
+   *  \brief    Watchdog of the running main process.
+   */
+  protected ProcessWatchdog watchdog = null;
+
+  /**
+   *  \brief    Interval in milliseconds in which the resources of a process are sampled, 0 disables the sampling.
+   */
+  protected long          resourceInterval = ResourceSampler.DEFAULT_INTERVAL;
+
+  /**
+   *  \brief    Controls whether the duration of a process is reported split into phases.
+   */
+  protected boolean       phases = false;
+
+  /**
+   *  \brief    Controller that admits the main processes, \c null if they are started immediately.
+   */
+  protected AdmissionController admission = null;
+
+  /**
+   *  \brief    Runtime statistics of the processes, shared by all engines of the JVM.
+   */
+  protected final EngineStatistics statistics = EngineStatistics.getInstance();
+
+  /**
+   *  \brief    Test source of the current execution, reported in the Flight Recorder events.
+   */
+  protected String        source = null;
+
+  /**
+   *  \brief    Id of the virtual user of the last process, reported in the Flight Recorder events.
+   */
+  protected String        virtualUser = null;
+
   /**
    *  \brief    Default constructor for engine classes.
    *
@@ -113,15 +202,19 @@ public abstract class AbstractActionEngine implements ActionEngine
    */
   protected String buildProcessCallToString(List<String> command)
   {
-    String str = "";
+    int length = command.size();
 
     for(int i = 0; i < command.size(); ++i)
-      if(0 < i)
-        str = str.concat(" ".concat(command.get(i)));
-      else
-        str = str.concat(command.get(i));
+      length += String.valueOf(command.get(i)).length();
 
-    return str;
+    StringBuilder sb = new StringBuilder(length);
+    for(int i = 0; i < command.size(); ++i)
+    {
+      if(0 < i)
+        sb.append(' ');
+      sb.append(command.get(i));
+    }
+    return sb.toString();
   }
 
   /**
@@ -186,6 +279,10 @@ public abstract class AbstractActionEngine implements ActionEngine
   {
     SampleResult result = new SampleResult();
     Process currentProcess = null;
+    StreamCollector stdout = null;
+    StreamCollector stderr = null;
+    PhaseTimeline timeline = null;
+    AdmissionController admitted = null;
 
     try {
 	        
@@ -195,27 +292,125 @@ public abstract class AbstractActionEngine implements ActionEngine
         this.reportToResponse("<?xml version=\"1.0\"?>");
 
       // run action as a external process
+      ProcessBuilder builder = new ProcessBuilder(command);
+      this.configureProcess(context, builder);
+      this.virtualUser = AbstractActionEngine.getVirtualUserId(context);
+      if(isMainProcess && (null != this.admission))
+      {
+        long queued = this.admission.acquire();
+        admitted = this.admission;
+        this.statistics.recordQueue(queued);
+        this.reportAdmission(context, result, queued);
+      }
       result.sampleStart();
-      currentProcess = new ProcessBuilder(command).start();
+      if(this.phases && waitForProcess)
+        timeline = new PhaseTimeline(System.currentTimeMillis());
+      ProcessSpawnEvent spawned = new ProcessSpawnEvent();
+      spawned.begin();
+      long spawn = System.nanoTime();
+      currentProcess = builder.start();
+      long running = System.nanoTime();
+      spawned.end();
+      if(spawned.shouldCommit())
+      {
+        spawned.setCommand(command.get(0));
+        this.commitEvent(spawned, currentProcess);
+      }
+      AbstractActionEngine.recordStart(this.statistics, currentProcess, running - spawn);
+      if(null != timeline)
+        timeline.mark(PhaseTimeline.PROCESS_START, System.currentTimeMillis());
       if(isMainProcess)
         this.process = currentProcess;
-      if(waitForProcess)
-        currentProcess.waitFor();
-      result.sampleEnd();
 
-      // log the results
+      // drain both pipes while the process is running, otherwise a chatty process blocks on a full pipe;
+      // the supervisor reads them without a thread per stream
+      stdout = new StreamCollector(currentProcess.getInputStream(), this.createLineListener(context, "stdout"), waitForProcess ? this.createCaptureBuffer(context, "stdout") : this.createDeferredCaptureBuffer()).supervise(currentProcess);
+      stderr = new StreamCollector(currentProcess.getErrorStream(), this.createLineListener(context, "stderr"), waitForProcess ? this.createCaptureBuffer(context, "stderr") : this.createDeferredCaptureBuffer()).supervise(currentProcess);
+
       if(waitForProcess)
       {
-            if(null == forceCode)
-              result.setStatusCode(String.valueOf(currentProcess.exitValue()));
-            else
-              result.setStatusCode(forceCode);
+        ProcessWatchdog currentWatchdog = new ProcessWatchdog(currentProcess, this.timeout, this.inactivityTimeout, this.killGrace, stdout, stderr).describe(this.virtualUser, this.source).start();
+        ResourceSampler sampler = this.createResourceSampler(currentProcess);
+        try
+        {
+          if(isMainProcess)
+            this.watchdog = currentWatchdog;
+
+          ProcessWaitEvent waited = new ProcessWaitEvent();
+          waited.begin();
+          currentProcess.waitFor();
+          waited.end();
+          currentWatchdog.cancel();
+          result.sampleEnd();
+          long exited = System.nanoTime();
+          this.statistics.recordExecution(exited - running);
+          this.statistics.recordExitCode(currentProcess.exitValue());
+          if(null != timeline)
+            timeline.mark(PhaseTimeline.PROCESS_EXIT, System.currentTimeMillis());
+          ResourceUsage usage = (null == sampler) ? null : sampler.stop();
+
+          // log the results
+          if(currentWatchdog.isTriggered())
+            result.setStatusCode(currentWatchdog.getStatusCode());
+          else if(null == forceCode)
+            result.setStatusCode(String.valueOf(currentProcess.exitValue()));
+          else
+            result.setStatusCode(forceCode);
+          if(waited.shouldCommit())
+          {
+            waited.setExitCode(currentProcess.exitValue());
+            waited.setStatusCode(result.getStatusCode());
+            this.commitEvent(waited, currentProcess);
+          }
+          // a killed descendant may have inherited the pipe, so the end of the stream is not awaited forever
+          StreamDrainEvent drained = new StreamDrainEvent();
+          drained.begin();
+          boolean complete = true;
+          if(currentWatchdog.isTriggered())
+            complete = stdout.await(this.killGrace) & stderr.await(this.killGrace);
+          else
+          {
+            stdout.await();
+            stderr.await();
+          }
+          this.statistics.recordDrain(System.nanoTime() - exited);
+          //  the totals are final only when both collectors have finished
+          if(complete)
+            this.statistics.recordCaptured(stdout.getBuffer().getTotal() + stderr.getBuffer().getTotal());
+          drained.end();
+          if(null != timeline)
+          {
+            timeline.mark(PhaseTimeline.STREAM_DRAINING, System.currentTimeMillis());
+            this.reportPhases(context, result, timeline);
+          }
+          if(drained.shouldCommit())
+          {
+            drained.setExitCode(currentProcess.exitValue());
+            drained.setStdout(stdout.getBuffer().getTotal());
+            drained.setStderr(stderr.getBuffer().getTotal());
+            this.commitEvent(drained, currentProcess);
+          }
+          this.reportProcessInput(context, stdout);
+          if(null != usage)
+            this.reportResourceUsage(context, usage);
+          if(currentWatchdog.isTriggered())
+            this.reportWatchdog(context, currentWatchdog);
+        }
+        finally
+        { //  a failed wait must not leave the periodic tasks running, the number of the process is reused
+          currentWatchdog.cancel();
+          if(null != sampler)
+            sampler.stop();
+        }
       }
       else
-      { //  in this case the end of process will not be observed, so exit code is set to 0
+      { //  the end of the process is observed by the tracker, its result is reported with a later execution
+        long id = this.tracker.track(command, currentProcess, stdout, stderr, forceCode);
+        result.sampleEnd();
         result.setStatusCode("0");
+        stderr = null;
+        this.responseBuilder.append("\n<deferred>".concat(String.valueOf(id)).concat("</deferred>"));
       }
-      this.reportProcessInput(context, currentProcess);
       this.responseBuilder.append("\n<exitcode>".concat(result.getStatusCode()).concat("</exitcode>"));
     }
     catch (IOException e1)
@@ -230,13 +425,19 @@ public abstract class AbstractActionEngine implements ActionEngine
       result.sampleEnd();
       result.setStatusCode(e.getClass().getSimpleName());
       // this.reportProcessInput(context, currentProcess);
-      this.responseBuilder.append("<exception>".concat(e.getLocalizedMessage()).concat("</exception>"));
+      this.responseBuilder.append("<exception>".concat(String.valueOf(e.getLocalizedMessage())).concat("</exception>"));
+    }
+    finally
+    { //  a leaked slot would stall all virtual users of the load generator
+      if(null != admitted)
+        AbstractActionEngine.releaseAdmission(admitted, waitForProcess ? null : currentProcess);
     }
 
     // update the result object
     result.setError(!("0".equals(result.getStatusCode())));
-    if(result.isError())
-      this.reportProcessErrors(context, currentProcess);
+    if(result.isError() && (null != stderr))
+      this.reportProcessErrors(context, stderr);
+    this.statistics.recordStatusCode(result.getStatusCode());
     result.setRequestContent(this.requestBuilder.toString());
     result.setResponseContent(this.responseBuilder.toString());
 
@@ -246,6 +447,188 @@ public abstract class AbstractActionEngine implements ActionEngine
     return result;
   }
 
+  /**
+   *  \brief    Reporting method that records the time a process waited for its admission.
+   *
+   *  The time is reported as sub-result, the duration of the result itself
+   *  begins with the start of the process.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    result        The result of the execution.
+   *  @param    queued        Time in milliseconds the process has waited.
+   */
+  protected void reportAdmission(Context context, SampleResult result, long queued)
+  {
+    SampleResult admission = new SampleResult();
+    admission.setRequestContent("admission queue");
+    admission.setResponseContent("<admission queued=\"".concat(String.valueOf(queued))
+                                 .concat("\" running=\"").concat(String.valueOf(this.admission.getRunning()))
+                                 .concat("\" waiting=\"").concat(String.valueOf(this.admission.getWaiting()))
+                                 .concat("\" limit=\"").concat(String.valueOf(this.admission.getLimit())).concat("\"/>"));
+    admission.setStatusCode("0");
+    admission.setError(false);
+    admission.setDuration(queued);
+    result.addSubResult(admission);
+  }
+
+  /**
+   *  \brief    Releases the admission of a main process.
+   *
+   *  @param    controller    The controller that has admitted the process.
+   *  @param    running       A process that runs in the background, whose
+   *                          admission is released when it has ended, or
+   *                          \c null to release the admission immediately.
+   */
+  private static void releaseAdmission(final AdmissionController controller, Process running)
+  {
+    if(null == running)
+      controller.release();
+    else
+      running.onExit().thenRun(new Runnable() {
+        @Override
+        public void run()
+        {
+          controller.release();
+        }
+      });
+  }
+
+  /**
+   *  \brief    Records the start of a process and its end when it has exited.
+   *
+   *  @param    statistics    The statistics of the JVM.
+   *  @param    started       The process that has just been started.
+   *  @param    spawn         Duration of the start in nanoseconds.
+   */
+  protected static void recordStart(final EngineStatistics statistics, Process started, long spawn)
+  {
+    statistics.processStarted(spawn);
+    started.onExit().thenRun(new Runnable() {
+      @Override
+      public void run()
+      {
+        statistics.processEnded();
+      }
+    });
+  }
+
+  /**
+   *  \brief    Fills the common fields of a Flight Recorder event and commits it.
+   *
+   *  The method must only be called if ProcessEvent.shouldCommit() has
+   *  returned \c true, so that the fields are not evaluated without a
+   *  recording.
+   *
+   *  @param    event         The ended event.
+   *  @param    subject       The process of the event or \c null.
+   */
+  protected void commitEvent(ProcessEvent event, Process subject)
+  {
+    event.setVirtualUser(this.virtualUser);
+    event.setSource(this.source);
+    if(null != subject)
+      event.setPid(subject.pid());
+    event.commit();
+  }
+
+  /**
+   *  \brief    Returns the id of the current virtual user or \c null outside of NeoLoad.
+   */
+  protected static String getVirtualUserId(Context context)
+  {
+    return ((null != context) && (null != context.getCurrentVirtualUser())) ? context.getCurrentVirtualUser().getId() : null;
+  }
+
+  /**
+   *  \brief    Prepares the process before it is started.
+   *
+   *  Derived classes can override the method, e.g. to set environment
+   *  variables. The implementation of this class does nothing.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    builder       The builder of the process.
+   */
+  protected void configureProcess(Context context, ProcessBuilder builder)
+  {
+  }
+
+  /**
+   *  \brief    Reporting method that adds the phases of an execution as sub-results.
+   *
+   *  Derived classes can override the method to add further marks to the
+   *  timeline, e.g. from the output of the process, before they call this
+   *  implementation.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    result        The result of the execution.
+   *  @param    timeline      The phases observed by the engine.
+   */
+  protected void reportPhases(Context context, SampleResult result, PhaseTimeline timeline)
+  {
+    for(SampleResult phase : timeline.toSampleResults())
+      result.addSubResult(phase);
+  }
+
+  /**
+   *  \brief    Creates the sampler for the resources of a process and its descendants.
+   *
+   *  @param    process       The process that has just been started.
+   *
+   *  @return   The method returns the running sampler or \c null if the
+   *            sampling is disabled or not available on this system.
+   */
+  protected ResourceSampler createResourceSampler(Process process)
+  {
+    if((0 >= this.resourceInterval) || !ResourceSampler.isAvailable())
+      return null;
+    return new ResourceSampler(process).start(this.resourceInterval);
+  }
+
+  /**
+   *  \brief    Reporting method that records the resources used by a process in the response.
+   *
+   *  Derived classes can override the method to publish the usage in
+   *  addition, they should call this implementation.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    usage         The resources used by the process and its
+   *                          descendants.
+   */
+  protected void reportResourceUsage(Context context, ResourceUsage usage)
+  {
+    this.responseBuilder.append("\n").append(usage.toXml());
+  }
+
+  /**
+   *  \brief    Reporting method that records the termination of a process by the watchdog.
+   *
+   *  The response contains the reason, the last signal and the number of
+   *  descendants of the process, the termination is also logged as a warning.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    watchdog      The watchdog that has terminated the process.
+   */
+  protected void reportWatchdog(Context context, ProcessWatchdog watchdog)
+  {
+    String message = "<watchdog reason=\"".concat(watchdog.getReason())
+                     .concat("\" signal=\"").concat(String.valueOf(watchdog.getSignal()))
+                     .concat("\" descendants=\"").concat(String.valueOf(watchdog.getDescendants())).concat("\"/>");
+
+    this.responseBuilder.append("\n").append(message);
+    if(null != context)
+      context.getLogger().warn("process terminated by watchdog: ".concat(watchdog.getStatusCode()));
+  }
+
   /**
    *  \brief    Method for processing a command as a subprocess.
    *
@@ -316,6 +699,161 @@ public abstract class AbstractActionEngine implements ActionEngine
     this.requestBuilder.append(this.buildProcessCallToString(command));
   }
 
+  /**
+   *  \brief    Resets the request and response of the engine.
+   *
+   *  An engine instance is used by a virtual user for all iterations. To
+   *  ensure that every result only contains the information of the
+   *  current iteration and that the memory used does not grow with the
+   *  number of iterations, this method should be called at the beginning
+   *  of every execution.
+   *
+   *  Spill files of the previous iteration are deleted as well.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   */
+  protected void resetReport(Context context)
+  {
+    this.requestBuilder = new StringBuilder();
+    this.responseBuilder = new StringBuilder();
+    this.getSpillFile(context, "stdout").delete();
+    this.getSpillFile(context, "stderr").delete();
+  }
+
+  /**
+   *  \brief    Returns the spill file of this engine for an output stream.
+   *
+   *  The files are created in the directory for temporary files
+   *  and are named after the virtual user.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    channel       Name of the stream, e.g. \c stdout.
+   *
+   *  @return   The method returns the file, which does not need to exist.
+   */
+  protected File getSpillFile(Context context, String channel)
+  {
+    return this.getScratchFile(context, channel.concat(".log"));
+  }
+
+  /**
+   *  \brief    Returns a file of this engine in the directory for temporary files.
+   *
+   *  The name of the file is preceded by the virtual user and the instance
+   *  of the engine, so that parallel virtual users do not interfere.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    name          Name of the file, e.g. \c output.xml.
+   *
+   *  @return   The method returns the file, which does not need to exist.
+   */
+  protected File getScratchFile(Context context, String name)
+  {
+    if(null == this.spillPrefix)
+    {
+      String id = AbstractActionEngine.getVirtualUserId(context);
+      if(null == id)
+        id = "engine";
+      this.spillPrefix = id.replaceAll("[^A-Za-z0-9_.-]", "_").concat("-").concat(Integer.toHexString(System.identityHashCode(this)));
+    }
+    return new File(new File(System.getProperty("java.io.tmpdir"), "neoload-advancedactions"), this.spillPrefix.concat("-").concat(name));
+  }
+
+  /**
+   *  \brief    Creates the buffer that keeps the output of a stream for the response.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    channel       Name of the stream, e.g. \c stdout.
+   *
+   *  @return   The method returns a buffer that is bounded by captureLimit.
+   */
+  protected CaptureBuffer createCaptureBuffer(Context context, String channel)
+  {
+    if(CaptureBuffer.UNLIMITED == this.captureLimit)
+      return new CaptureBuffer();
+    return new CaptureBuffer(this.captureLimit, this.getSpillFile(context, channel));
+  }
+
+  /**
+   *  \brief    Creates the buffer for the output of a process the engine does not wait for.
+   *
+   *  The output of such a process is reported with a later execution, so it
+   *  must not be written to the spill files, which are reset with every
+   *  execution. Only the beginning and the end are kept in memory.
+   */
+  protected CaptureBuffer createDeferredCaptureBuffer()
+  {
+    if(CaptureBuffer.UNLIMITED == this.captureLimit)
+      return new CaptureBuffer();
+    return new CaptureBuffer(this.captureLimit, null);
+  }
+
+  /**
+   *  \brief    Adds the results of the processes that terminated in the background.
+   *
+   *  Processes that were started without waiting for them are observed by
+   *  the CompletionTracker of the engine. Their results are added as
+   *  sub-results to the result of the current execution and are logged.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    result        The result of the current execution.
+   */
+  protected void reportDeferredResults(Context context, SampleResult result)
+  {
+    for(SampleResult deferred : this.tracker.drain())
+    {
+      result.addSubResult(deferred);
+      if(null != context)
+      {
+        String message = deferred.getRequestContent().concat(" => ").concat(deferred.getStatusCode()).concat(" after ").concat(String.valueOf(deferred.getDuration())).concat(" ms");
+        if(deferred.isError())
+          context.getLogger().warn(message);
+        else
+          context.getLogger().info(message);
+      }
+    }
+  }
+
+  /**
+   *  \brief    Creates the callback that forwards the output of a process line by line.
+   *
+   *  Each line that a process writes is passed on to the logger of NeoLoad
+   *  at debug level, so that the progress of long running processes can
+   *  already be followed while they are running.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime. If the
+   *                          value is \c null, no callback is created.
+   *  @param    channel       Name of the stream, which precedes each line.
+   *
+   *  @return   The method returns the callback or \c null.
+   */
+  protected StreamCollector.LineListener createLineListener(final Context context, final String channel)
+  {
+    if((null == context) || (null == context.getLogger()) || !context.getLogger().isDebugEnabled())
+      return null;
+
+    final String prefix = channel.concat(": ");
+    return new StreamCollector.LineListener() {
+      @Override
+      public void onLine(String line)
+      {
+        context.getLogger().debug(prefix.concat(line));
+      }
+    };
+  }
+
   /**
    *  \brief    Reporting method that logs errors from the process directly in NeoLoad.
    *
@@ -335,38 +873,54 @@ public abstract class AbstractActionEngine implements ActionEngine
    *                          output is to be logged via the command line.
    */
   protected void reportProcessErrors(Context context, Process process)
+  {
+    StreamCollector stderr = new StreamCollector(process.getErrorStream(), null);
+    stderr.run();
+    this.reportProcessErrors(context, stderr);
+  }
+
+  /**
+   *  \brief    Reporting method that logs errors from the process directly in NeoLoad.
+   *
+   *  In contrast to reportProcessErrors(Context, Process), the error output
+   *  has already been collected while the process was running.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    stderr        The collector that drained the error output
+   *                          of the process.
+   */
+  protected void reportProcessErrors(Context context, StreamCollector stderr)
   {
     try
     {
-      String message = "";
-      InputStream output = process.getErrorStream();
+      stderr.await();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
 
-      if(null != output)
-      {
-        int c = output.read();
-        while(-1 != c)
-        {
-          message = message.concat(String.valueOf((char) c));
-          c = output.read();
-        }
-        output.close();
+    String message = stderr.getContent();
 
-        //  write message to reponse of the action
-        if(0 < this.responseBuilder.length())
-          this.responseBuilder.append("\n");
-        this.responseBuilder.append("<errormessage>\n".concat(message).concat("</errormessage>"));
+    //  write message to reponse of the action
+    if(0 < this.responseBuilder.length())
+      this.responseBuilder.append("\n");
+    this.responseBuilder.append("<errormessage>\n").append(message).append("</errormessage>");
+    this.reportSpillFile(stderr);
 
-        //  write message to logfile of NeoLoad
-        if(null!=context)
-          context.getLogger().error(message);
-        else
-          System.out.println("reportProcessErrors: ".concat(message));
-      }
-    }
-    catch (IOException e)
+    //  write message to logfile of NeoLoad
+    if(null!=context)
+      context.getLogger().error(message);
+    else
+      System.out.println("reportProcessErrors: ".concat(message));
+
+    if(null != stderr.getFailure())
     {
-      this.responseBuilder.append("<exception>".concat(e.getLocalizedMessage()).concat("</exception>"));
-      context.getLogger().error(e.getLocalizedMessage(), e);
+      this.responseBuilder.append("<exception>".concat(String.valueOf(stderr.getFailure().getLocalizedMessage())).concat("</exception>"));
+      if(null != context)
+        context.getLogger().error(stderr.getFailure().getLocalizedMessage(), stderr.getFailure());
     }
   }
 
@@ -388,31 +942,48 @@ public abstract class AbstractActionEngine implements ActionEngine
    */
   protected void reportProcessInput(Context context, Process process)
   {
-    try
-    {
-      InputStream output = process.getInputStream();
+    StreamCollector stdout = new StreamCollector(process.getInputStream(), this.createLineListener(context, "stdout"));
+    stdout.run();
+    this.reportProcessInput(context, stdout);
+  }
 
-      if(0 < this.responseBuilder.length())
-        this.responseBuilder.append("\n");
+  /**
+   *  \brief    Reporting method for logging output via the command line.
+   *
+   *  In contrast to reportProcessInput(Context, Process), the console output
+   *  has already been collected while the process was running.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    stdout        The collector that drained the standard output
+   *                          of the process.
+   */
+  protected void reportProcessInput(Context context, StreamCollector stdout)
+  {
+    if(0 < this.responseBuilder.length())
+      this.responseBuilder.append("\n");
 
-      this.responseBuilder.append("<console>\n");
-      if(null != output)
-      {
-        int c = output.read();
-        while(-1 != c)
-        {
-          this.responseBuilder.append((char) c);
-          c = output.read();
-        }
-        output.close();
-      }
+    this.responseBuilder.append("<console>\n");
+    this.responseBuilder.append(stdout.getContent());
+    this.responseBuilder.append("</console>");
+    this.reportSpillFile(stdout);
 
-      this.responseBuilder.append("</console>");
-    }
-    catch (IOException e)
-    {
-      this.responseBuilder.append("<exception>".concat(e.getLocalizedMessage()).concat("</exception>"));
-    }
+    if(null != stdout.getFailure())
+      this.responseBuilder.append("<exception>".concat(String.valueOf(stdout.getFailure().getLocalizedMessage())).concat("</exception>"));
+  }
+
+  /**
+   *  \brief    Reporting method that links the spill file of a stream in the response.
+   *
+   *  @param    collector     The collector whose buffer may have been
+   *                          spilled to a file.
+   */
+  protected void reportSpillFile(StreamCollector collector)
+  {
+    File spillFile = collector.getBuffer().getSpillFile();
+    if(null != spillFile)
+      this.responseBuilder.append("\n<spillfile>".concat(spillFile.getAbsolutePath()).concat("</spillfile>"));
   }
 
   /**
@@ -459,11 +1030,19 @@ public abstract class AbstractActionEngine implements ActionEngine
    *  The user can stop tests immediately in the NeoLoad interface. In this
    *  case, Advanced Actions must also be stopped immediately.
    *
-   *  In this method, the running main process is terminated.
+   *  In this method, the running main process and the processes running in
+   *  the background are terminated together with their descendants. The
+   *  termination is performed by a ProcessWatchdog, i.e. the processes
+   *  first receive \c SIGINT and are killed after the grace period.
    */
   @Override
   public void stopExecute()
   {
-    this.process.destroy();
+    if(null != this.watchdog)
+      this.watchdog.terminate(ProcessWatchdog.STOPPED);
+    else if(null != this.process)
+      new ProcessWatchdog(this.process, 0L, 0L, this.killGrace).describe(this.virtualUser, this.source).terminate(ProcessWatchdog.STOPPED);
+    for(Process running : this.tracker.getRunning())
+      new ProcessWatchdog(running, 0L, 0L, this.killGrace).describe(this.virtualUser, this.source).terminate(ProcessWatchdog.STOPPED);
   }
 }
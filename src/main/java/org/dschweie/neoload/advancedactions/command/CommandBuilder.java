@@ -0,0 +1,24 @@
+package org.dschweie.neoload.advancedactions.command;
+
+import java.util.List;
+
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief  Turns the parameters of an action into a command.
+ *
+ *  Implementations are registered in the CommandFactory under the type
+ *  of the action.
+ */
+public interface CommandBuilder
+{
+  /**
+   *  \brief  Builds the command for the current execution.
+   *
+   *  @param  parameters      The list of parameters that the user has
+   *                          configured for the action in NeoLoad.
+   *
+   *  @return The method returns the components of the command.
+   */
+  List<String> buildCommand(List<ActionParameter> parameters);
+}
@@ -1,12 +1,30 @@
 package org.dschweie.neoload.advancedactions.command;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.neotys.extensions.action.ActionParameter;
 
 public class CommandFactory 
 {
+  /**
+   *  \brief  Registry of the command builders by type of action.
+   */
+  private static final Map<String, CommandBuilder> builders = new ConcurrentHashMap<String, CommandBuilder>();
+
+  static
+  {
+    CommandFactory.registerBuilder("RobotFramework-Execute-Test", new CommandBuilder() {
+      @Override
+      public List<String> buildCommand(List<ActionParameter> parameters)
+      {
+        return org.dschweie.neoload.advancedactions.robotframework.factory.CommandWorker.buildCommand(parameters);
+      }
+    });
+  }
+
   /**
    *  \brief  The method returns the corresponding value for a parameter.
    *
@@ -35,17 +53,43 @@ public class CommandFactory
    */
   public static String getParameterValue(List<ActionParameter> parameters, String key, String substitude)
   {
-    String value = substitude;
-
-    for(int i = 0; i < parameters.size(); ++i)
+    //  the last parameter with the name wins, so the search starts at the end
+    for(int i = parameters.size() - 1; 0 <= i; --i)
     {
       if(parameters.get(i).getName().equals(key))
       {
-        value = parameters.get(i).getValue();
+        return parameters.get(i).getValue();
       }
     }
 
-    return value;
+    return substitude;
+  }
+
+  /**
+   *  \brief  The method returns the value of a parameter as a number.
+   *
+   *  @param  parameters      The list of action parameters in which the
+   *                          \b key parameter is to be searched for.
+   *  @param  key             The name of the parameter to be searched for.
+   *  @param  substitude      The value that is returned if the parameter was
+   *                          not found or does not contain a number.
+   *
+   *  @return The method returns the value of the parameter as an integer.
+   */
+  public static int getIntegerParameterValue(List<ActionParameter> parameters, String key, int substitude)
+  {
+    String value = CommandFactory.getParameterValue(parameters, key, null);
+
+    if(null == value)
+      return substitude;
+    try
+    {
+      return Integer.parseInt(value.trim());
+    }
+    catch (NumberFormatException e)
+    {
+      return substitude;
+    }
   }
 
   public static List<String> buildOptionValueArgument(String option, String value, String noshow)
@@ -59,16 +103,31 @@ public class CommandFactory
     return elements;
   }
   
+  /**
+   *  \brief  Registers the builder for a type of action.
+   *
+   *  @param  type            The type of the action, as returned by
+   *                          Action.getType().
+   *  @param  builder         The builder that creates the command.
+   */
+  public static void registerBuilder(String type, CommandBuilder builder)
+  {
+    builders.put(type, builder);
+  }
+
+  /**
+   *  \brief  Creates the command for an action of the given type.
+   *
+   *  @param  type            The type of the action.
+   *  @param  parameters      The list of parameters that the user has
+   *                          configured for the action in NeoLoad.
+   *
+   *  @return The method returns the command or \c null if no builder is
+   *          registered for \b type.
+   */
   public static List<String> buildCommand(String type, List<ActionParameter> parameters)
   {
-    List<String> retval = null;
-    
-    switch(type)
-    { 
-      case "RobotFramework-Execute-Test" :  retval = org.dschweie.neoload.advancedactions.robotframework.factory.CommandWorker.buildCommand(parameters);
-                                            break;
-    }
-    
-    return retval;
+    CommandBuilder builder = builders.get(type);
+    return (null == builder) ? null : builder.buildCommand(parameters);
   }
 }
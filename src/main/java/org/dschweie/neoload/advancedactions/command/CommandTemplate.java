@@ -0,0 +1,199 @@
+package org.dschweie.neoload.advancedactions.command;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief  Immutable, precompiled form of a command.
+ *
+ *  NeoLoad passes the parameters of an action with every iteration. The
+ *  names of the parameters and some values that determine the structure
+ *  of the command (e.g. switches like \c nostatusrc) stay the same for an
+ *  action definition. Only values such as substituted NeoLoad variables
+ *  change from iteration to iteration.
+ *
+ *  A template is compiled once by running the builder with placeholder
+ *  values. Every component of the command that is exactly a placeholder
+ *  becomes a slot referring to the position of the parameter, all other
+ *  components are kept as literals. Binding a template therefore only
+ *  copies literals and reads the values of the slots by position.
+ */
+public final class CommandTemplate
+{
+  private static final char   MARKER = '\u0000';
+
+  private final String[]      literals;
+  private final int[]         slots;
+
+  private CommandTemplate(String[] literals, int[] slots)
+  {
+    this.literals = literals;
+    this.slots = slots;
+  }
+
+  /**
+   *  \brief  Compiles the template for a parameter list.
+   *
+   *  @param  parameters      The list of parameters of the action.
+   *  @param  structural      Names of the parameters whose values influence
+   *                          the structure of the command. These values are
+   *                          passed to the builder unchanged.
+   *  @param  builder         The builder that creates the command.
+   *
+   *  @return The method returns the template or \c null if the builder
+   *          uses a value only as part of a component, so that the command
+   *          cannot be precompiled.
+   */
+  public static CommandTemplate compile(List<ActionParameter> parameters, Collection<String> structural, CommandBuilder builder)
+  {
+    final List<ActionParameter> probe = new ArrayList<ActionParameter>(parameters.size());
+
+    for(int i = 0; i < parameters.size(); ++i)
+    {
+      ActionParameter parameter = parameters.get(i);
+      if(structural.contains(parameter.getName()) || (null == parameter.getValue()))
+        probe.add(parameter);
+      else
+        probe.add(new ActionParameter(parameter.getName(), CommandTemplate.marker(i)));
+    }
+
+    List<String> command = builder.buildCommand(probe);
+    String[] literals = new String[command.size()];
+    int[] slots = new int[command.size()];
+
+    for(int i = 0; i < command.size(); ++i)
+    {
+      String component = command.get(i);
+      int slot = CommandTemplate.slotOf(component);
+
+      if(0 <= slot)
+      {
+        slots[i] = slot;
+      }
+      else if((null != component) && (-1 != component.indexOf(MARKER)))
+      {
+        return null;
+      }
+      else
+      {
+        slots[i] = -1;
+        literals[i] = component;
+      }
+    }
+    return new CommandTemplate(literals, slots);
+  }
+
+  /**
+   *  \brief  Determines the key under which the template of a parameter list is cached.
+   *
+   *  @param  parameters      The list of parameters of the action.
+   *  @param  structural      Names of the parameters whose values influence
+   *                          the structure of the command.
+   *
+   *  @return The method returns a key built from all names and the values
+   *          of the structural parameters.
+   */
+  public static String key(List<ActionParameter> parameters, Collection<String> structural)
+  {
+    StringBuilder sb = new StringBuilder(parameters.size() * 16);
+
+    for(ActionParameter parameter : parameters)
+    {
+      sb.append(parameter.getName()).append(MARKER);
+      if(structural.contains(parameter.getName()))
+        sb.append(parameter.getValue());
+      else if(null == parameter.getValue())
+        sb.append(MARKER);
+      sb.append(MARKER);
+    }
+    return sb.toString();
+  }
+
+  /**
+   *  \brief  Returns the template from a cache and compiles it if necessary.
+   *
+   *  @param  cache           The cache that is shared by all executions.
+   *  @param  limit           Maximum number of templates in the cache. If the
+   *                          limit is reached, the cache is cleared.
+   *  @param  parameters      The list of parameters of the action.
+   *  @param  structural      Names of the parameters whose values influence
+   *                          the structure of the command.
+   *  @param  builder         The builder that creates the command.
+   *
+   *  @return The method returns the command for the current parameters.
+   */
+  public static List<String> build(Map<String, CommandTemplate> cache, int limit, List<ActionParameter> parameters, Collection<String> structural, CommandBuilder builder)
+  {
+    String key = CommandTemplate.key(parameters, structural);
+    CommandTemplate template = cache.get(key);
+
+    if(null == template)
+    {
+      template = CommandTemplate.compile(parameters, structural, builder);
+      if(null == template)
+        return builder.buildCommand(parameters);
+      if(limit <= cache.size())
+        cache.clear();
+      cache.put(key, template);
+    }
+    return template.bind(parameters);
+  }
+
+  /**
+   *  \brief  Creates a cache suitable for build(Map, int, List, Collection, CommandBuilder).
+   */
+  public static Map<String, CommandTemplate> createCache()
+  {
+    return new ConcurrentHashMap<String, CommandTemplate>();
+  }
+
+  /**
+   *  \brief  Creates the command for the current values of the parameters.
+   *
+   *  @param  parameters      The list of parameters of the action. It must
+   *                          have the same structure as the list the
+   *                          template was compiled from.
+   *
+   *  @return The method returns a new, modifiable list.
+   */
+  public List<String> bind(List<ActionParameter> parameters)
+  {
+    final List<String> command = new ArrayList<String>(this.slots.length);
+
+    for(int i = 0; i < this.slots.length; ++i)
+      command.add((0 > this.slots[i]) ? this.literals[i] : parameters.get(this.slots[i]).getValue());
+    return command;
+  }
+
+  /**
+   *  \brief  Returns the number of components of the command.
+   */
+  public int size()
+  {
+    return this.slots.length;
+  }
+
+  private static String marker(int position)
+  {
+    return String.valueOf(MARKER).concat(String.valueOf(position)).concat(String.valueOf(MARKER));
+  }
+
+  private static int slotOf(String component)
+  {
+    if((null == component) || (3 > component.length()) || (MARKER != component.charAt(0)) || (MARKER != component.charAt(component.length() - 1)))
+      return -1;
+    try
+    {
+      return Integer.parseInt(component.substring(1, component.length() - 1));
+    }
+    catch (NumberFormatException e)
+    {
+      return -1;
+    }
+  }
+}
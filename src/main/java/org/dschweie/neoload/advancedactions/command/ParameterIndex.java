@@ -0,0 +1,86 @@
+package org.dschweie.neoload.advancedactions.command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.neotys.extensions.action.ActionParameter;
+
+/**
+ *  \brief  Index of the action parameters by name.
+ *
+ *  CommandFactory.getParameterValue(List, String, String) searches the
+ *  complete list for every key. This class reads the list once and then
+ *  answers each lookup from a hash map. As with the linear search, the
+ *  last parameter with a given name wins.
+ *
+ *  Parameters that may occur several times, e.g. \c variable, can be
+ *  queried in their original order via getAll(String).
+ */
+public class ParameterIndex
+{
+  private final Map<String, String>       values = new HashMap<String, String>();
+  private final Map<String, List<String>> occurrences = new HashMap<String, List<String>>();
+
+  /**
+   *  \brief  Constructor that indexes the parameters.
+   *
+   *  @param  parameters      The list of action parameters as passed by
+   *                          NeoLoad to the engine.
+   */
+  public ParameterIndex(List<ActionParameter> parameters)
+  {
+    for(ActionParameter parameter : parameters)
+    {
+      String normalized = ParameterIndex.normalize(parameter.getName());
+      List<String> list = this.occurrences.get(normalized);
+
+      this.values.put(parameter.getName(), parameter.getValue());
+      if(null == list)
+      {
+        list = new ArrayList<String>(1);
+        this.occurrences.put(normalized, list);
+      }
+      list.add(parameter.getValue());
+    }
+  }
+
+  /**
+   *  \brief  Returns the value of a parameter.
+   *
+   *  @param  key             The exact name of the parameter.
+   *  @param  substitude      The value that is returned if the parameter
+   *                          does not exist.
+   *
+   *  @return The method returns the value of the last parameter with the
+   *          name \b key or \b substitude.
+   */
+  public String get(String key, String substitude)
+  {
+    return this.values.containsKey(key) ? this.values.get(key) : substitude;
+  }
+
+  /**
+   *  \brief  Returns the values of all parameters with a name.
+   *
+   *  In contrast to get(String, String), upper and lower case as well as
+   *  leading and trailing blanks of the names are ignored.
+   *
+   *  @param  name            The name of the parameters.
+   *
+   *  @return The method returns the values in the order of the parameters.
+   */
+  public List<String> getAll(String name)
+  {
+    List<String> list = this.occurrences.get(ParameterIndex.normalize(name));
+    return (null == list) ? Collections.<String>emptyList() : Collections.unmodifiableList(list);
+  }
+
+  private static String normalize(String name)
+  {
+    return (null == name) ? "" : name.toLowerCase(Locale.ROOT).trim();
+  }
+}
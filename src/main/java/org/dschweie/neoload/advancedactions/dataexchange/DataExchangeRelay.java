@@ -0,0 +1,517 @@
+package org.dschweie.neoload.advancedactions.dataexchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ *  \brief  Local relay for the DataExchange API of the NeoLoad controller.
+ *
+ *  The listeners \c NeoLoadMonitoringListener.py and
+ *  \c NeoLoadRecordingListener.py send one request per keyword to the
+ *  controller. With many virtual users this results in thousands of
+ *  requests per second, each with a new connection.
+ *
+ *  The relay is started once per load generator and accepts the requests
+ *  of the listeners on a local port. Entries sent to \c /Entry and
+ *  \c /Entries are answered immediately, collected and forwarded in
+ *  batches: a batch is sent when it is full or when the time window since
+ *  its first entry has elapsed. All other requests, in particular
+ *  \c /Session, are forwarded synchronously because the listeners need
+ *  the answer.
+ *
+ *  The relay uses persistent connections to the controller and repeats a
+ *  batch with increasing delay if the controller is not available. The
+ *  queue is bounded: if the controller cannot keep up, the entries that do
+ *  not fit are discarded instead of consuming the memory of the load
+ *  generator. The listeners receive the status 503 only if none of the
+ *  entries of a request was queued, so that a repeated request does not
+ *  duplicate entries. If the controller rejects a batch, its entries are
+ *  delivered one by one, so that a single invalid entry only discards
+ *  itself.
+ *
+ *  The listeners only have to be configured with the host and port of the
+ *  relay instead of the controller.
+ */
+public class DataExchangeRelay implements Runnable
+{
+  public static final String  SERVICE_PATH = "/DataExchange/v1/Service.svc";
+
+  /**
+   *  \brief  Default port of the relay.
+   */
+  public static final int     DEFAULT_PORT = 7411;
+
+  /**
+   *  \brief  Default maximum number of entries per batch.
+   */
+  public static final int     DEFAULT_BATCHSIZE = 500;
+
+  /**
+   *  \brief  Default time window of a batch in milliseconds.
+   */
+  public static final long    DEFAULT_WINDOW = 1000L;
+
+  /**
+   *  \brief  Default number of entries waiting for forwarding.
+   */
+  public static final int     DEFAULT_CAPACITY = 100000;
+
+  /**
+   *  \brief  Number of attempts to deliver a batch.
+   */
+  public static final int     MAX_ATTEMPTS = 4;
+
+  private static final long   OFFER_TIMEOUT = 50L;
+  private static final long   RETRY_DELAY = 250L;
+  private static final int    TIMEOUT = 10000;
+
+  private static final Map<Integer, DataExchangeRelay> instances = new HashMap<Integer, DataExchangeRelay>();
+
+  private final String                controller;
+  private final int                   batchSize;
+  private final long                  window;
+  private final BlockingQueue<String> queue;
+  private final HttpServer            server;
+  private final Thread                sender;
+  private final AtomicLong            received = new AtomicLong();
+  private final AtomicLong            forwarded = new AtomicLong();
+  private final AtomicLong            dropped = new AtomicLong();
+  private final AtomicLong            batches = new AtomicLong();
+  private final AtomicLong            outstanding = new AtomicLong();
+  private volatile boolean            running = true;
+
+  /**
+   *  \brief  Constructor of the relay.
+   *
+   *  @param  controller      Base URL of the DataExchange service of the
+   *                          controller, e.g.
+   *                          <tt>http://controller:7400/DataExchange/v1/Service.svc</tt>.
+   *  @param  port            Local port of the relay, 0 for a free port.
+   *  @param  batchSize       Maximum number of entries per batch.
+   *  @param  window          Time window of a batch in milliseconds.
+   *  @param  capacity        Maximum number of entries waiting for forwarding.
+   *
+   *  @throws IOException if the port cannot be opened.
+   */
+  public DataExchangeRelay(String controller, int port, int batchSize, long window, int capacity) throws IOException
+  {
+    this.controller = controller.endsWith("/") ? controller.substring(0, controller.length() - 1) : controller;
+    this.batchSize = Math.max(1, batchSize);
+    this.window = Math.max(0L, window);
+    this.queue = new ArrayBlockingQueue<String>(Math.max(1, capacity));
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 50);
+    this.server.createContext(SERVICE_PATH, new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException
+      {
+        DataExchangeRelay.this.handle(exchange);
+      }
+    });
+    this.server.setExecutor(Executors.newFixedThreadPool(4, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable)
+      {
+        Thread thread = new Thread(runnable, "dataexchange relay");
+        thread.setDaemon(true);
+        return thread;
+      }
+    }));
+    this.sender = new Thread(this, "dataexchange relay sender");
+    this.sender.setDaemon(true);
+  }
+
+  /**
+   *  \brief  Returns the relay of this JVM for a port and starts it if necessary.
+   *
+   *  @param  controller      Address of the controller, either as
+   *                          <tt>host:port</tt> or as base URL of the service.
+   *  @param  port            Local port of the relay.
+   *
+   *  @return The method returns the running relay.
+   *
+   *  @throws IOException if the relay cannot be started.
+   */
+  public static synchronized DataExchangeRelay getInstance(String controller, int port) throws IOException
+  {
+    DataExchangeRelay relay = instances.get(port);
+
+    if(null == relay)
+    {
+      relay = new DataExchangeRelay(DataExchangeRelay.toServiceUrl(controller), port, DEFAULT_BATCHSIZE, DEFAULT_WINDOW, DEFAULT_CAPACITY);
+      relay.start();
+      instances.put(port, relay);
+
+      final DataExchangeRelay shutdown = relay;
+      Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+        @Override
+        public void run()
+        {
+          shutdown.stop(TIMEOUT);
+        }
+      }, "dataexchange relay shutdown"));
+    }
+    return relay;
+  }
+
+  /**
+   *  \brief  Converts the address of the controller into the base URL of the service.
+   */
+  public static String toServiceUrl(String controller)
+  {
+    String value = controller.trim();
+    if(value.startsWith("http://") || value.startsWith("https://"))
+      return value;
+    return "http://".concat(value).concat(SERVICE_PATH);
+  }
+
+  /**
+   *  \brief  Starts accepting and forwarding.
+   */
+  public void start()
+  {
+    this.server.start();
+    this.sender.start();
+  }
+
+  /**
+   *  \brief  Stops the relay after the waiting entries have been forwarded.
+   *
+   *  @param  timeout         Maximum time in milliseconds to wait for the
+   *                          forwarding of the waiting entries.
+   */
+  public void stop(long timeout)
+  {
+    this.server.stop(0);
+    this.running = false;
+    try
+    {
+      this.sender.join(timeout);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   *  \brief  Waits until all received entries have been forwarded or discarded.
+   *
+   *  @param  timeout         Maximum waiting time in milliseconds.
+   *
+   *  @return The method returns \c true if no entries are waiting anymore.
+   */
+  public boolean awaitIdle(long timeout) throws InterruptedException
+  {
+    long deadline = System.currentTimeMillis() + timeout;
+
+    while(0 < this.outstanding.get())
+    {
+      if(deadline <= System.currentTimeMillis())
+        return false;
+      Thread.sleep(10L);
+    }
+    return true;
+  }
+
+  public int getPort()
+  {
+    return this.server.getAddress().getPort();
+  }
+
+  /**
+   *  \brief  Returns the number of entries accepted from the listeners.
+   */
+  public long getReceived()
+  {
+    return this.received.get();
+  }
+
+  /**
+   *  \brief  Returns the number of entries delivered to the controller.
+   */
+  public long getForwarded()
+  {
+    return this.forwarded.get();
+  }
+
+  /**
+   *  \brief  Returns the number of entries that were discarded.
+   */
+  public long getDropped()
+  {
+    return this.dropped.get();
+  }
+
+  /**
+   *  \brief  Returns the number of batches delivered to the controller.
+   */
+  public long getBatches()
+  {
+    return this.batches.get();
+  }
+
+  /**
+   *  \brief  Collects the entries into batches and forwards them.
+   */
+  @Override
+  public void run()
+  {
+    final List<String> batch = new ArrayList<String>(this.batchSize);
+
+    while(this.running || !this.queue.isEmpty())
+    {
+      try
+      {
+        String first = this.queue.poll(100L, TimeUnit.MILLISECONDS);
+        if(null == first)
+          continue;
+
+        batch.add(first);
+        long deadline = System.currentTimeMillis() + this.window;
+        while((batch.size() < this.batchSize) && this.running)
+        {
+          this.queue.drainTo(batch, this.batchSize - batch.size());
+          long remaining = deadline - System.currentTimeMillis();
+          if((batch.size() >= this.batchSize) || (0 >= remaining))
+            break;
+          String next = this.queue.poll(remaining, TimeUnit.MILLISECONDS);
+          if(null == next)
+            break;
+          batch.add(next);
+        }
+        this.queue.drainTo(batch, this.batchSize - batch.size());
+        this.deliver(batch);
+      }
+      catch (InterruptedException e)
+      {
+        this.running = false;
+      }
+      finally
+      {
+        this.outstanding.addAndGet(-batch.size());
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   *  \brief  Delivers a batch to the controller.
+   *
+   *  Server errors and connection problems are repeated with increasing
+   *  delay. If the controller rejects a batch of several entries, they are
+   *  delivered one by one. If the controller rejects a single entry or all
+   *  attempts fail, the entries are counted as discarded.
+   */
+  protected void deliver(List<String> batch) throws InterruptedException
+  {
+    byte[] body = JsonSlicer.compose(batch).getBytes(StandardCharsets.UTF_8);
+
+    for(int attempt = 0; attempt < MAX_ATTEMPTS; ++attempt)
+    {
+      if(0 < attempt)
+        Thread.sleep(RETRY_DELAY << (attempt - 1));
+      try
+      {
+        Response response = this.forward("POST", "/Entries", "application/json", body);
+        if((200 <= response.status) && (300 > response.status))
+        {
+          this.forwarded.addAndGet(batch.size());
+          this.batches.incrementAndGet();
+          return;
+        }
+        if((500 > response.status) && (1 < batch.size()))
+        {
+          for(String entry : batch)
+            this.deliver(Collections.singletonList(entry));
+          return;
+        }
+        if(500 > response.status)
+          break;
+      }
+      catch (IOException e)
+      {
+        //  the controller is not reachable, the next attempt follows after a delay
+      }
+    }
+    this.dropped.addAndGet(batch.size());
+  }
+
+  /**
+   *  \brief  Handles a request of a listener.
+   */
+  protected void handle(HttpExchange exchange) throws IOException
+  {
+    try
+    {
+      String operation = exchange.getRequestURI().getPath().substring(SERVICE_PATH.length());
+      byte[] body = DataExchangeRelay.readAll(exchange.getRequestBody());
+
+      if("POST".equals(exchange.getRequestMethod()) && ("/Entry".equals(operation) || "/Entries".equals(operation)))
+      {
+        exchange.sendResponseHeaders(this.enqueue(new String(body, StandardCharsets.UTF_8)), -1);
+      }
+      else
+      {
+        Response response;
+        try
+        {
+          response = this.forward(exchange.getRequestMethod(), operation, exchange.getRequestHeaders().getFirst("Content-Type"), body);
+        }
+        catch (IOException e)
+        {
+          response = new Response(502, new byte[0], null);
+        }
+        if(null != response.contentType)
+          exchange.getResponseHeaders().set("Content-Type", response.contentType);
+        exchange.sendResponseHeaders(response.status, (0 == response.body.length) ? -1 : response.body.length);
+        if(0 < response.body.length)
+          exchange.getResponseBody().write(response.body);
+      }
+    }
+    finally
+    {
+      exchange.close();
+    }
+  }
+
+  /**
+   *  \brief  Puts the entries of a payload into the queue.
+   *
+   *  @return The method returns the HTTP status for the listener: 201 if at
+   *          least one entry was queued, 503 if the queue was full for all
+   *          entries and 400 if the payload cannot be read.
+   */
+  protected int enqueue(String payload)
+  {
+    List<String> entries;
+    try
+    {
+      entries = JsonSlicer.entries(payload);
+    }
+    catch (IllegalArgumentException e)
+    {
+      return 400;
+    }
+
+    int queued = 0;
+    for(String entry : entries)
+    {
+      this.received.incrementAndGet();
+      try
+      {
+        if(this.queue.offer(entry, OFFER_TIMEOUT, TimeUnit.MILLISECONDS))
+        {
+          this.outstanding.incrementAndGet();
+          ++queued;
+        }
+        else
+          this.dropped.incrementAndGet();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        this.dropped.incrementAndGet();
+      }
+    }
+    return ((0 < queued) || entries.isEmpty()) ? 201 : 503;
+  }
+
+  /**
+   *  \brief  Sends a request to the controller.
+   *
+   *  The response is read completely, so that the connection is returned
+   *  to the keep-alive cache of the JVM and reused for the next request.
+   */
+  protected Response forward(String method, String operation, String contentType, byte[] body) throws IOException
+  {
+    return DataExchangeRelay.send(this.controller.concat(operation), method, contentType, body);
+  }
+
+  /**
+   *  \brief  Sends a request to a URL and reads the complete response.
+   */
+  static Response send(String url, String method, String contentType, byte[] body) throws IOException
+  {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    connection.setConnectTimeout(TIMEOUT);
+    connection.setReadTimeout(TIMEOUT);
+    connection.setRequestMethod(method);
+    if(null != contentType)
+      connection.setRequestProperty("Content-Type", contentType);
+    if(("POST".equals(method) || "PUT".equals(method)))
+    {
+      connection.setDoOutput(true);
+      connection.setFixedLengthStreamingMode(body.length);
+      OutputStream stream = connection.getOutputStream();
+      try
+      {
+        stream.write(body);
+      }
+      finally
+      {
+        stream.close();
+      }
+    }
+
+    int status = connection.getResponseCode();
+    InputStream stream = (400 <= status) ? connection.getErrorStream() : connection.getInputStream();
+    byte[] content = (null == stream) ? new byte[0] : DataExchangeRelay.readAll(stream);
+    return new Response(status, content, connection.getContentType());
+  }
+
+  private static byte[] readAll(InputStream stream) throws IOException
+  {
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    try
+    {
+      while(-1 != (read = stream.read(buffer)))
+        content.write(buffer, 0, read);
+    }
+    finally
+    {
+      stream.close();
+    }
+    return content.toByteArray();
+  }
+
+  /**
+   *  \brief  Response of the controller.
+   */
+  protected static final class Response
+  {
+    final int     status;
+    final byte[]  body;
+    final String  contentType;
+
+    Response(int status, byte[] body, String contentType)
+    {
+      this.status = status;
+      this.body = body;
+      this.contentType = contentType;
+    }
+  }
+}
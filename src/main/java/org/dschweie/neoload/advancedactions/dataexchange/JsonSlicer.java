@@ -0,0 +1,177 @@
+package org.dschweie.neoload.advancedactions.dataexchange;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *  \brief  Minimal JSON scanner for the payloads of the DataExchange API.
+ *
+ *  The relay does not need to understand the entries, it only has to cut
+ *  them out of the payloads and put them together again. The scanner
+ *  therefore only determines where values begin and end and returns them
+ *  as unchanged text.
+ */
+public final class JsonSlicer
+{
+  private JsonSlicer()
+  {
+  }
+
+  /**
+   *  \brief  Extracts the entries from an \c /Entry or \c /Entries payload.
+   *
+   *  A single entry is sent as <tt>{"d": {...}}</tt>, several entries as
+   *  <tt>{"d": {"results": [{...}, ...]}}</tt>.
+   *
+   *  @param  payload         The body of the request.
+   *
+   *  @return The method returns the entries as JSON objects.
+   *
+   *  @throws IllegalArgumentException if the payload has a different structure.
+   */
+  public static List<String> entries(String payload)
+  {
+    String data = JsonSlicer.member(payload, "d");
+    if((null == data) || !data.startsWith("{"))
+      throw new IllegalArgumentException("payload without data object");
+
+    String results = JsonSlicer.member(data, "results");
+    if(null == results)
+    {
+      final List<String> single = new ArrayList<String>(1);
+      single.add(data);
+      return single;
+    }
+    return JsonSlicer.elements(results);
+  }
+
+  /**
+   *  \brief  Creates an \c /Entries payload from a list of entries.
+   */
+  public static String compose(List<String> entries)
+  {
+    int length = 24;
+    for(String entry : entries)
+      length += entry.length() + 1;
+
+    StringBuilder sb = new StringBuilder(length);
+    sb.append("{\"d\":{\"results\":[");
+    for(int i = 0; i < entries.size(); ++i)
+    {
+      if(0 < i)
+        sb.append(',');
+      sb.append(entries.get(i));
+    }
+    return sb.append("]}}").toString();
+  }
+
+  /**
+   *  \brief  Returns the value of a member of a JSON object.
+   *
+   *  @param  object          The JSON object.
+   *  @param  name            The name of the member.
+   *
+   *  @return The method returns the value as text or \c null if the
+   *          object does not have the member.
+   */
+  public static String member(String object, String name)
+  {
+    int i = JsonSlicer.skipWhitespace(object, 0);
+    if((i >= object.length()) || ('{' != object.charAt(i)))
+      return null;
+
+    i = JsonSlicer.skipWhitespace(object, i + 1);
+    while((i < object.length()) && ('}' != object.charAt(i)))
+    {
+      if('"' != object.charAt(i))
+        throw new IllegalArgumentException("member name expected at ".concat(String.valueOf(i)));
+      int keyEnd = JsonSlicer.skipValue(object, i);
+      String key = object.substring(i + 1, keyEnd - 1);
+      int valueStart = JsonSlicer.skipWhitespace(object, JsonSlicer.skipWhitespace(object, keyEnd) + 1);
+      int valueEnd = JsonSlicer.skipValue(object, valueStart);
+      if(valueEnd <= valueStart)
+        throw new IllegalArgumentException("value expected at ".concat(String.valueOf(valueStart)));
+
+      if(name.equals(key))
+        return object.substring(valueStart, valueEnd);
+      i = JsonSlicer.skipWhitespace(object, valueEnd);
+      if((i < object.length()) && (',' == object.charAt(i)))
+        i = JsonSlicer.skipWhitespace(object, i + 1);
+    }
+    return null;
+  }
+
+  /**
+   *  \brief  Returns the elements of a JSON array as text.
+   */
+  public static List<String> elements(String array)
+  {
+    final List<String> elements = new ArrayList<String>();
+    int i = JsonSlicer.skipWhitespace(array, 0);
+
+    if((i >= array.length()) || ('[' != array.charAt(i)))
+      throw new IllegalArgumentException("array expected");
+
+    i = JsonSlicer.skipWhitespace(array, i + 1);
+    while((i < array.length()) && (']' != array.charAt(i)))
+    {
+      int end = JsonSlicer.skipValue(array, i);
+      if(end <= i)
+        throw new IllegalArgumentException("value expected at ".concat(String.valueOf(i)));
+      elements.add(array.substring(i, end));
+      i = JsonSlicer.skipWhitespace(array, end);
+      if((i < array.length()) && (',' == array.charAt(i)))
+        i = JsonSlicer.skipWhitespace(array, i + 1);
+    }
+    return elements;
+  }
+
+  /**
+   *  \brief  Returns the position behind the value that begins at \c start.
+   */
+  private static int skipValue(String json, int start)
+  {
+    int depth = 0;
+    boolean string = false;
+
+    for(int i = start; i < json.length(); ++i)
+    {
+      char c = json.charAt(i);
+      if(string)
+      {
+        if('\\' == c)
+          ++i;
+        else if('"' == c)
+        {
+          string = false;
+          if(0 == depth)
+            return i + 1;
+        }
+      }
+      else if('"' == c)
+        string = true;
+      else if(('{' == c) || ('[' == c))
+        ++depth;
+      else if(('}' == c) || (']' == c))
+      {
+        if(0 == --depth)
+          return i + 1;
+        if(0 > depth)
+          return i;
+      }
+      else if((0 == depth) && ((',' == c) || Character.isWhitespace(c)))
+        return i;
+    }
+    if(string || (0 < depth))
+      throw new IllegalArgumentException("incomplete JSON value");
+    return json.length();
+  }
+
+  private static int skipWhitespace(String json, int start)
+  {
+    int i = start;
+    while((i < json.length()) && Character.isWhitespace(json.charAt(i)))
+      ++i;
+    return i;
+  }
+}
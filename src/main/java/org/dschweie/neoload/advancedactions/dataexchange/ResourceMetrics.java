@@ -0,0 +1,267 @@
+package org.dschweie.neoload.advancedactions.dataexchange;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.dschweie.neoload.advancedactions.process.ResourceUsage;
+
+/**
+ *  \brief  Aggregates the resource usage of all executions of the JVM and publishes it as external data.
+ *
+ *  Every execution reports its ResourceUsage. The publisher sums up the
+ *  values over a time window and sends one set of entries per window to
+ *  the DataExchange API, so that the resource consumption of the load
+ *  generator can be compared with the response times in NeoLoad. The
+ *  entries are placed below ROOT_PATH.
+ *
+ *  If the controller is not available, the values of the window are
+ *  discarded and the session is requested again with the next window.
+ */
+public class ResourceMetrics implements Runnable
+{
+  /**
+   *  \brief  Path of the entries in NeoLoad.
+   */
+  public static final String  ROOT_PATH = "Advanced Actions|Resources";
+
+  /**
+   *  \brief  Default time window of the aggregation in milliseconds.
+   */
+  public static final long    DEFAULT_WINDOW = 10000L;
+
+  private static final Map<String, ResourceMetrics> instances = new HashMap<String, ResourceMetrics>();
+
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable)
+    {
+      Thread thread = new Thread(runnable, "resource metrics");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  private final String  controller;
+  private final long    window;
+  private volatile String sessionId = null;
+  private long          executions = 0L;
+  private long          cpuUser = 0L;
+  private long          cpuSystem = 0L;
+  private long          peakRss = 0L;
+  private long          voluntarySwitches = 0L;
+  private long          involuntarySwitches = 0L;
+  private long          readBytes = 0L;
+  private long          writeBytes = 0L;
+  private long          published = 0L;
+  private long          failed = 0L;
+
+  /**
+   *  \brief  Constructor of the publisher.
+   *
+   *  @param  controller      Base URL of the DataExchange service of the
+   *                          controller.
+   *  @param  window          Time window of the aggregation in milliseconds.
+   */
+  public ResourceMetrics(String controller, long window)
+  {
+    this.controller = controller.endsWith("/") ? controller.substring(0, controller.length() - 1) : controller;
+    this.window = Math.max(1L, window);
+  }
+
+  /**
+   *  \brief  Returns the publisher of this JVM for a controller and starts it if necessary.
+   *
+   *  @param  controller      Address of the controller, either as
+   *                          <tt>host:port</tt> or as base URL of the service.
+   */
+  public static synchronized ResourceMetrics getInstance(String controller)
+  {
+    String url = DataExchangeRelay.toServiceUrl(controller);
+    ResourceMetrics metrics = instances.get(url);
+
+    if(null == metrics)
+    {
+      metrics = new ResourceMetrics(url, DEFAULT_WINDOW);
+      SCHEDULER.scheduleWithFixedDelay(metrics, metrics.window, metrics.window, TimeUnit.MILLISECONDS);
+      instances.put(url, metrics);
+    }
+    return metrics;
+  }
+
+  /**
+   *  \brief  Adds the usage of an execution to the current window.
+   */
+  public synchronized void add(ResourceUsage usage)
+  {
+    ++this.executions;
+    this.cpuUser += usage.getCpuUser();
+    this.cpuSystem += usage.getCpuSystem();
+    this.peakRss = Math.max(this.peakRss, usage.getPeakRss());
+    this.voluntarySwitches += usage.getVoluntarySwitches();
+    this.involuntarySwitches += usage.getInvoluntarySwitches();
+    this.readBytes += usage.getReadBytes();
+    this.writeBytes += usage.getWriteBytes();
+  }
+
+  /**
+   *  \brief  Returns the number of windows that were published.
+   */
+  public synchronized long getPublished()
+  {
+    return this.published;
+  }
+
+  /**
+   *  \brief  Returns the number of windows that could not be published.
+   */
+  public synchronized long getFailed()
+  {
+    return this.failed;
+  }
+
+  /**
+   *  \brief  Publishes the current window, called periodically by the scheduler.
+   */
+  @Override
+  public void run()
+  {
+    List<String> entries;
+    String session;
+    synchronized(this)
+    {
+      if(0L == this.executions)
+        return;
+    }
+    //  the session is opened outside of the lock, so that the executions are not blocked by the controller
+    session = this.getSessionId();
+    synchronized(this)
+    {
+      entries = this.createEntries(session, System.currentTimeMillis());
+      this.executions = 0L;
+      this.cpuUser = 0L;
+      this.cpuSystem = 0L;
+      this.peakRss = 0L;
+      this.voluntarySwitches = 0L;
+      this.involuntarySwitches = 0L;
+      this.readBytes = 0L;
+      this.writeBytes = 0L;
+    }
+
+    try
+    {
+      DataExchangeRelay.Response response = DataExchangeRelay.send(this.controller.concat("/Entries"), "POST", "application/json", JsonSlicer.compose(entries).getBytes(StandardCharsets.UTF_8));
+      this.count(300 > response.status);
+    }
+    catch (IOException e)
+    {
+      this.count(false);
+    }
+  }
+
+  private synchronized void count(boolean success)
+  {
+    if(success)
+      ++this.published;
+    else
+    {
+      ++this.failed;
+      this.sessionId = null;
+    }
+  }
+
+  /**
+   *  \brief  Creates the entries of the current window.
+   *
+   *  Besides the sums, the CPU load is reported as percentage of one core
+   *  during the window.
+   *
+   *  @param  session         The session of the DataExchange API.
+   *  @param  timestamp       Time of the entries in milliseconds.
+   */
+  protected synchronized List<String> createEntries(String session, long timestamp)
+  {
+    final List<String> entries = new ArrayList<String>(9);
+
+    entries.add(ResourceMetrics.entry(session, "Executions", this.executions, "", timestamp));
+    entries.add(ResourceMetrics.entry(session, "CPU user", this.cpuUser, "ms", timestamp));
+    entries.add(ResourceMetrics.entry(session, "CPU system", this.cpuSystem, "ms", timestamp));
+    entries.add(ResourceMetrics.entry(session, "CPU load", 100L * (this.cpuUser + this.cpuSystem) / this.window, "%", timestamp));
+    entries.add(ResourceMetrics.entry(session, "Peak RSS", this.peakRss, "kB", timestamp));
+    entries.add(ResourceMetrics.entry(session, "Context switches voluntary", this.voluntarySwitches, "", timestamp));
+    entries.add(ResourceMetrics.entry(session, "Context switches involuntary", this.involuntarySwitches, "", timestamp));
+    entries.add(ResourceMetrics.entry(session, "Read bytes", this.readBytes, "B", timestamp));
+    entries.add(ResourceMetrics.entry(session, "Written bytes", this.writeBytes, "B", timestamp));
+    return entries;
+  }
+
+  /**
+   *  \brief  Returns the session of the publisher and opens it if necessary.
+   *
+   *  @return The method returns an empty text if no session could be opened,
+   *          the controller then rejects the entries.
+   */
+  private String getSessionId()
+  {
+    if(null == this.sessionId)
+    {
+      String host;
+      try
+      {
+        host = InetAddress.getLocalHost().getHostName();
+      }
+      catch (IOException e)
+      {
+        host = "localhost";
+      }
+
+      String context = "{\"d\":{\"Context\":{\"Software\":\"NeoLoad Advanced Actions\",\"Location\":".concat(ResourceMetrics.quote(host)).concat("}}}");
+      try
+      {
+        DataExchangeRelay.Response response = DataExchangeRelay.send(this.controller.concat("/Session"), "POST", "application/json", context.getBytes(StandardCharsets.UTF_8));
+        String data = (300 > response.status) ? JsonSlicer.member(new String(response.body, StandardCharsets.UTF_8), "d") : null;
+        String id = (null == data) ? null : JsonSlicer.member(data, "SessionId");
+        if((null != id) && id.startsWith("\""))
+          this.sessionId = id.substring(1, id.length() - 1);
+      }
+      catch (IOException | IllegalArgumentException e)
+      {
+        //  the entries are sent without session and the session is requested again with the next window
+      }
+    }
+    return (null == this.sessionId) ? "" : this.sessionId;
+  }
+
+  private static String entry(String session, String name, long value, String unit, long timestamp)
+  {
+    return "{\"SessionId\":".concat(ResourceMetrics.quote(session))
+           .concat(",\"Path\":").concat(ResourceMetrics.quote(ROOT_PATH.concat("|").concat(name)))
+           .concat(",\"Value\":").concat(String.valueOf(value))
+           .concat(",\"Unit\":").concat(ResourceMetrics.quote(unit))
+           .concat(",\"Timestamp\":\"").concat(String.valueOf(timestamp)).concat("\"}");
+  }
+
+  private static String quote(String text)
+  {
+    StringBuilder sb = new StringBuilder(text.length() + 2).append('"');
+    for(int i = 0; i < text.length(); ++i)
+    {
+      char c = text.charAt(i);
+      if(('"' == c) || ('\\' == c))
+        sb.append('\\').append(c);
+      else if(' ' > c)
+        sb.append(String.format("\\u%04x", (int) c));
+      else
+        sb.append(c);
+    }
+    return sb.append('"').toString();
+  }
+}
@@ -0,0 +1,226 @@
+package org.dschweie.neoload.advancedactions.monitoring;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ *  \brief  Runtime statistics of the processes started by the engines of the JVM.
+ *
+ *  The statistics are shared by all engines of the JVM and registered once
+ *  as MXBean with the name OBJECT_NAME in the platform MBean server, so
+ *  they can be read with JConsole or a local scraper while a test is
+ *  running.
+ *
+ *  Recording does not lock: durations are recorded in striped histograms,
+ *  counters are LongAdder instances. Reading a snapshot costs a pass over
+ *  the buckets of the histograms.
+ */
+public class EngineStatistics implements EngineStatisticsMXBean
+{
+  /**
+   *  \brief  Name of the MXBean.
+   */
+  public static final String  OBJECT_NAME = "org.dschweie.neoload.advancedactions:type=EngineStatistics";
+
+  /**
+   *  \brief  Maximum number of distinct codes per map, further codes are counted as OTHER.
+   */
+  public static final int     MAX_CODES = 256;
+
+  /**
+   *  \brief  Key of the codes beyond MAX_CODES.
+   */
+  public static final String  OTHER = "other";
+
+  private static EngineStatistics instance = null;
+
+  private final LatencyHistogram  spawn = new LatencyHistogram();
+  private final LatencyHistogram  execution = new LatencyHistogram();
+  private final LatencyHistogram  drain = new LatencyHistogram();
+  private final LatencyHistogram  queue = new LatencyHistogram();
+  private final ConcurrentMap<String, LongAdder> exitCodes = new ConcurrentHashMap<String, LongAdder>();
+  private final ConcurrentMap<String, LongAdder> statusCodes = new ConcurrentHashMap<String, LongAdder>();
+  private final LongAdder         live = new LongAdder();
+  private final LongAdder         captured = new LongAdder();
+
+  /**
+   *  \brief  Returns the statistics of the JVM and registers them with the first call.
+   *
+   *  If the MXBean cannot be registered, e.g. because the name is already
+   *  used by another class loader, the statistics are recorded anyway.
+   */
+  public static synchronized EngineStatistics getInstance()
+  {
+    if(null == instance)
+    {
+      instance = new EngineStatistics();
+      try
+      {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(OBJECT_NAME));
+      }
+      catch (JMException | SecurityException e)
+      {
+        //  the statistics are only additional information
+      }
+    }
+    return instance;
+  }
+
+  /**
+   *  \brief  Records the start of a process.
+   *
+   *  @param  nanos           Duration of ProcessBuilder.start() in
+   *                          nanoseconds.
+   */
+  public void processStarted(long nanos)
+  {
+    this.live.increment();
+    this.spawn.record(nanos / 1000L);
+  }
+
+  /**
+   *  \brief  Records the end of a process that was recorded by processStarted(long).
+   */
+  public void processEnded()
+  {
+    this.live.decrement();
+  }
+
+  /**
+   *  \brief  Records the execution time of a process in nanoseconds.
+   */
+  public void recordExecution(long nanos)
+  {
+    this.execution.record(nanos / 1000L);
+  }
+
+  /**
+   *  \brief  Records the time in nanoseconds that was needed to read the rest of the output.
+   */
+  public void recordDrain(long nanos)
+  {
+    this.drain.record(nanos / 1000L);
+  }
+
+  /**
+   *  \brief  Records the time in milliseconds a process has waited for its admission.
+   */
+  public void recordQueue(long millis)
+  {
+    this.queue.record(millis * 1000L);
+  }
+
+  /**
+   *  \brief  Counts the exit code of a process.
+   */
+  public void recordExitCode(int code)
+  {
+    EngineStatistics.count(this.exitCodes, String.valueOf(code));
+  }
+
+  /**
+   *  \brief  Counts the status code of a result.
+   */
+  public void recordStatusCode(String code)
+  {
+    EngineStatistics.count(this.statusCodes, String.valueOf(code));
+  }
+
+  /**
+   *  \brief  Adds the number of characters read from the output of a process.
+   */
+  public void recordCaptured(long characters)
+  {
+    this.captured.add(characters);
+  }
+
+  private static void count(ConcurrentMap<String, LongAdder> counters, String code)
+  {
+    LongAdder counter = counters.get(code);
+
+    if(null == counter)
+    {
+      LongAdder created = new LongAdder();
+      counter = counters.putIfAbsent((MAX_CODES > counters.size()) ? code : OTHER, created);
+      if(null == counter)
+        counter = created;
+    }
+    counter.increment();
+  }
+
+  private static Map<String, Long> snapshot(ConcurrentMap<String, LongAdder> counters)
+  {
+    final Map<String, Long> result = new TreeMap<String, Long>();
+
+    for(Map.Entry<String, LongAdder> entry : counters.entrySet())
+      result.put(entry.getKey(), entry.getValue().sum());
+    return result;
+  }
+
+  @Override
+  public HistogramSnapshot getSpawnLatency()
+  {
+    return this.spawn.snapshot();
+  }
+
+  @Override
+  public HistogramSnapshot getExecutionTime()
+  {
+    return this.execution.snapshot();
+  }
+
+  @Override
+  public HistogramSnapshot getDrainTime()
+  {
+    return this.drain.snapshot();
+  }
+
+  @Override
+  public HistogramSnapshot getQueueTime()
+  {
+    return this.queue.snapshot();
+  }
+
+  @Override
+  public Map<String, Long> getExitCodes()
+  {
+    return EngineStatistics.snapshot(this.exitCodes);
+  }
+
+  @Override
+  public Map<String, Long> getStatusCodes()
+  {
+    return EngineStatistics.snapshot(this.statusCodes);
+  }
+
+  @Override
+  public long getLiveProcesses()
+  {
+    return this.live.sum();
+  }
+
+  @Override
+  public long getCapturedCharacters()
+  {
+    return this.captured.sum();
+  }
+
+  @Override
+  public void reset()
+  {
+    this.spawn.reset();
+    this.execution.reset();
+    this.drain.reset();
+    this.queue.reset();
+    this.exitCodes.clear();
+    this.statusCodes.clear();
+    this.captured.reset();
+  }
+}
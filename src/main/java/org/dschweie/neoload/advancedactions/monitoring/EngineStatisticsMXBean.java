@@ -0,0 +1,56 @@
+package org.dschweie.neoload.advancedactions.monitoring;
+
+import java.util.Map;
+
+/**
+ *  \brief  Management interface of the EngineStatistics.
+ *
+ *  All durations are in microseconds.
+ */
+public interface EngineStatisticsMXBean
+{
+  /**
+   *  \brief  Time from the call of ProcessBuilder.start() until the process exists.
+   */
+  HistogramSnapshot getSpawnLatency();
+
+  /**
+   *  \brief  Time from the start until the end of the processes the engines wait for.
+   */
+  HistogramSnapshot getExecutionTime();
+
+  /**
+   *  \brief  Time from the end of a process until its output has been read completely.
+   */
+  HistogramSnapshot getDrainTime();
+
+  /**
+   *  \brief  Time the processes have waited for their admission.
+   */
+  HistogramSnapshot getQueueTime();
+
+  /**
+   *  \brief  Number of processes per exit code.
+   */
+  Map<String, Long> getExitCodes();
+
+  /**
+   *  \brief  Number of results per status code, including the codes of the watchdog and of exceptions.
+   */
+  Map<String, Long> getStatusCodes();
+
+  /**
+   *  \brief  Number of processes started by the engines that have not ended yet.
+   */
+  long getLiveProcesses();
+
+  /**
+   *  \brief  Number of characters of standard output and error output read from the processes.
+   */
+  long getCapturedCharacters();
+
+  /**
+   *  \brief  Discards all recorded values except the live processes.
+   */
+  void reset();
+}
@@ -0,0 +1,76 @@
+package org.dschweie.neoload.advancedactions.monitoring;
+
+import javax.management.openmbean.CompositeData;
+
+/**
+ *  \brief  Summary of a LatencyHistogram at one point in time.
+ *
+ *  The values are in the unit of the histogram, i.e. in microseconds. The
+ *  class is an open type of JMX, so JConsole shows a snapshot as composite
+ *  value.
+ */
+public class HistogramSnapshot
+{
+  private final long    count;
+  private final double  mean;
+  private final long    max;
+  private final long    p50;
+  private final long    p90;
+  private final long    p99;
+  private final long    p999;
+
+  public HistogramSnapshot(long count, double mean, long max, long p50, long p90, long p99, long p999)
+  {
+    this.count = count;
+    this.mean = mean;
+    this.max = max;
+    this.p50 = p50;
+    this.p90 = p90;
+    this.p99 = p99;
+    this.p999 = p999;
+  }
+
+  /**
+   *  \brief  Reconstructs a snapshot from its representation in JMX, used by proxies of EngineStatisticsMXBean.
+   */
+  public static HistogramSnapshot from(CompositeData data)
+  {
+    return new HistogramSnapshot((Long) data.get("count"), (Double) data.get("mean"), (Long) data.get("max"),
+                                 (Long) data.get("p50"), (Long) data.get("p90"), (Long) data.get("p99"), (Long) data.get("p999"));
+  }
+
+  public long getCount()
+  {
+    return this.count;
+  }
+
+  public double getMean()
+  {
+    return this.mean;
+  }
+
+  public long getMax()
+  {
+    return this.max;
+  }
+
+  public long getP50()
+  {
+    return this.p50;
+  }
+
+  public long getP90()
+  {
+    return this.p90;
+  }
+
+  public long getP99()
+  {
+    return this.p99;
+  }
+
+  public long getP999()
+  {
+    return this.p999;
+  }
+}
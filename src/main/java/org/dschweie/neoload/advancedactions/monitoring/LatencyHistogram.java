@@ -0,0 +1,153 @@
+package org.dschweie.neoload.advancedactions.monitoring;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *  \brief  Histogram of durations with a bounded relative error, recorded without locks.
+ *
+ *  The buckets are organised like in HdrHistogram: values below
+ *  2^SUB_BITS have a bucket of their own, above that every power of two is
+ *  divided into 2^SUB_BITS buckets of equal width, so the relative error of
+ *  a percentile is at most 1/2^SUB_BITS. Values above MAX_VALUE are counted
+ *  in the last bucket.
+ *
+ *  The counters are striped by thread: a thread increments the counters of
+ *  its stripe with atomic operations, so that concurrent virtual users
+ *  rarely write the same cache line. A snapshot sums up the stripes; it is
+ *  not atomic with respect to concurrent recordings, which is sufficient
+ *  for monitoring.
+ */
+public class LatencyHistogram
+{
+  /**
+   *  \brief  Number of bits that select the bucket within a power of two.
+   */
+  public static final int     SUB_BITS = 4;
+
+  /**
+   *  \brief  Highest value that is distinguished, about 9.5 hours in microseconds.
+   */
+  public static final long    MAX_VALUE = (1L << 35) - 1L;
+
+  private static final int    SUB_COUNT = 1 << SUB_BITS;
+  private static final int    BUCKETS = LatencyHistogram.index(MAX_VALUE) + 1;
+  private static final int    STRIPES = LatencyHistogram.stripes();
+
+  /**
+   *  \brief  Percentiles that are contained in a snapshot.
+   */
+  private static final double[] PERCENTILES = { 50.0, 90.0, 99.0, 99.9 };
+
+  private final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKETS);
+  private final AtomicLongArray sums = new AtomicLongArray(STRIPES);
+  private final AtomicLongArray maxima = new AtomicLongArray(STRIPES);
+
+  /**
+   *  \brief  Records a value, negative values are recorded as 0.
+   */
+  public void record(long value)
+  {
+    long clamped = Math.max(0L, value);
+    int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+    long max;
+
+    this.counts.incrementAndGet(stripe * BUCKETS + LatencyHistogram.index(Math.min(clamped, MAX_VALUE)));
+    this.sums.addAndGet(stripe, clamped);
+    do
+    {
+      max = this.maxima.get(stripe);
+    }
+    while((clamped > max) && !this.maxima.compareAndSet(stripe, max, clamped));
+  }
+
+  /**
+   *  \brief  Returns the summary of the recorded values.
+   */
+  public HistogramSnapshot snapshot()
+  {
+    final long[] buckets = new long[BUCKETS];
+    final long[] percentiles = new long[PERCENTILES.length];
+    long count = 0L;
+    long sum = 0L;
+    long max = 0L;
+
+    for(int stripe = 0; stripe < STRIPES; ++stripe)
+    {
+      for(int bucket = 0; bucket < BUCKETS; ++bucket)
+        buckets[bucket] += this.counts.get(stripe * BUCKETS + bucket);
+      sum += this.sums.get(stripe);
+      max = Math.max(max, this.maxima.get(stripe));
+    }
+    for(long bucket : buckets)
+      count += bucket;
+
+    for(int i = 0; i < PERCENTILES.length; ++i)
+    {
+      long rank = (long) Math.ceil(PERCENTILES[i] / 100.0 * count);
+      long seen = 0L;
+      for(int bucket = 0; (bucket < BUCKETS) && (0 < count); ++bucket)
+      {
+        seen += buckets[bucket];
+        if(seen >= Math.max(1L, rank))
+        {
+          percentiles[i] = Math.min(max, LatencyHistogram.highest(bucket));
+          break;
+        }
+      }
+    }
+    return new HistogramSnapshot(count, (0 == count) ? 0.0 : (double) sum / count, max, percentiles[0], percentiles[1], percentiles[2], percentiles[3]);
+  }
+
+  /**
+   *  \brief  Discards all recorded values.
+   */
+  public void reset()
+  {
+    for(int i = 0; i < this.counts.length(); ++i)
+      this.counts.set(i, 0L);
+    for(int i = 0; i < STRIPES; ++i)
+    {
+      this.sums.set(i, 0L);
+      this.maxima.set(i, 0L);
+    }
+  }
+
+  /**
+   *  \brief  Returns the bucket of a value between 0 and MAX_VALUE.
+   */
+  static int index(long value)
+  {
+    if(SUB_COUNT > value)
+      return (int) value;
+
+    int magnitude = 63 - Long.numberOfLeadingZeros(value);
+    int shift = magnitude - SUB_BITS;
+    return SUB_COUNT + shift * SUB_COUNT + (int) ((value >>> shift) - SUB_COUNT);
+  }
+
+  /**
+   *  \brief  Returns the highest value that is counted in a bucket.
+   */
+  static long highest(int index)
+  {
+    if(SUB_COUNT > index)
+      return index;
+
+    int shift = (index - SUB_COUNT) / SUB_COUNT;
+    long sub = (index - SUB_COUNT) % SUB_COUNT;
+    return ((SUB_COUNT + sub + 1L) << shift) - 1L;
+  }
+
+  /**
+   *  \brief  Returns the power of two above the number of processors, at most 16.
+   */
+  private static int stripes()
+  {
+    int processors = Math.min(16, Runtime.getRuntime().availableProcessors());
+    int stripes = 1;
+
+    while(stripes < processors)
+      stripes <<= 1;
+    return stripes;
+  }
+}
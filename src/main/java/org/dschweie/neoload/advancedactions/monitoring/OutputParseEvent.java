@@ -0,0 +1,35 @@
+package org.dschweie.neoload.advancedactions.monitoring;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ *  \brief  Time needed to read the sub-results from the output file of an execution.
+ */
+@Name("org.dschweie.neoload.advancedactions.OutputParse")
+@Label("Output Parse")
+@Description("Reading the sub-results from an output file")
+public class OutputParseEvent extends ProcessEvent
+{
+  @Label("Size")
+  @DataAmount
+  private long    bytes;
+
+  @Label("Suites")
+  private int     suites;
+
+  /**
+   *  \brief  Sets the size of the output file, 0 if it was read from a named pipe.
+   */
+  public void setBytes(long bytes)
+  {
+    this.bytes = bytes;
+  }
+
+  public void setSuites(int suites)
+  {
+    this.suites = suites;
+  }
+}
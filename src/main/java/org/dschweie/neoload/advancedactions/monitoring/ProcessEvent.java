@@ -0,0 +1,48 @@
+package org.dschweie.neoload.advancedactions.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ *  \brief  Base class of the Flight Recorder events of the processes started by the engines.
+ *
+ *  The events are meant to correlate the latency of the processes with
+ *  garbage collections, thread scheduling and I/O of the JVM. They are
+ *  recorded by JFR only; if no recording is running or the event is
+ *  disabled, shouldCommit() returns \c false and the JIT removes the event
+ *  objects, so the engines fill the fields only after that check.
+ *
+ *  Stack traces are not recorded, they would always point to the engine.
+ *  The fields are protected because JFR ignores private fields of super
+ *  classes.
+ */
+@Category({ "NeoLoad", "Advanced Actions" })
+@StackTrace(false)
+public abstract class ProcessEvent extends Event
+{
+  @Label("Virtual User")
+  protected String  virtualUser;
+
+  @Label("Test Source")
+  protected String  source;
+
+  @Label("Process Id")
+  protected long    pid;
+
+  public void setVirtualUser(String virtualUser)
+  {
+    this.virtualUser = virtualUser;
+  }
+
+  public void setSource(String source)
+  {
+    this.source = source;
+  }
+
+  public void setPid(long pid)
+  {
+    this.pid = pid;
+  }
+}
@@ -0,0 +1,22 @@
+package org.dschweie.neoload.advancedactions.monitoring;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ *  \brief  Duration of ProcessBuilder.start().
+ */
+@Name("org.dschweie.neoload.advancedactions.ProcessSpawn")
+@Label("Process Spawn")
+@Description("Start of a process by an engine")
+public class ProcessSpawnEvent extends ProcessEvent
+{
+  @Label("Command")
+  private String  command;
+
+  public void setCommand(String command)
+  {
+    this.command = command;
+  }
+}
@@ -0,0 +1,41 @@
+package org.dschweie.neoload.advancedactions.monitoring;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ *  \brief  Stage of the termination of a process by a ProcessWatchdog.
+ *
+ *  Every stage is an event of its own, its duration is the time needed to
+ *  send the signal to the process and its descendants.
+ */
+@Name("org.dschweie.neoload.advancedactions.ProcessStop")
+@Label("Process Stop")
+@Description("Signal sent to a process that is stopped or has exceeded its limits")
+public class ProcessStopEvent extends ProcessEvent
+{
+  @Label("Cause")
+  private String  cause;
+
+  @Label("Signal")
+  private String  signal;
+
+  @Label("Descendants")
+  private int     descendants;
+
+  public void setCause(String cause)
+  {
+    this.cause = cause;
+  }
+
+  public void setSignal(String signal)
+  {
+    this.signal = signal;
+  }
+
+  public void setDescendants(int descendants)
+  {
+    this.descendants = descendants;
+  }
+}
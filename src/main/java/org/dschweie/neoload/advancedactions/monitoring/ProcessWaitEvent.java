@@ -0,0 +1,30 @@
+package org.dschweie.neoload.advancedactions.monitoring;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ *  \brief  Time the thread of a virtual user has waited for the end of a process.
+ */
+@Name("org.dschweie.neoload.advancedactions.ProcessWait")
+@Label("Process Wait")
+@Description("Wait of a virtual user for the end of a process")
+public class ProcessWaitEvent extends ProcessEvent
+{
+  @Label("Exit Code")
+  private int     exitCode;
+
+  @Label("Status Code")
+  private String  statusCode;
+
+  public void setExitCode(int exitCode)
+  {
+    this.exitCode = exitCode;
+  }
+
+  public void setStatusCode(String statusCode)
+  {
+    this.statusCode = statusCode;
+  }
+}
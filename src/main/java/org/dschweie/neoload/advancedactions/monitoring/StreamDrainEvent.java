@@ -0,0 +1,41 @@
+package org.dschweie.neoload.advancedactions.monitoring;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ *  \brief  Time from the end of a process until its output has been read completely.
+ *
+ *  The sizes are the characters read from the streams, including the
+ *  characters that were discarded by the capture limit.
+ */
+@Name("org.dschweie.neoload.advancedactions.StreamDrain")
+@Label("Stream Drain")
+@Description("Reading the rest of the output of an ended process")
+public class StreamDrainEvent extends ProcessEvent
+{
+  @Label("Exit Code")
+  private int     exitCode;
+
+  @Label("Standard Output")
+  private long    stdout;
+
+  @Label("Error Output")
+  private long    stderr;
+
+  public void setExitCode(int exitCode)
+  {
+    this.exitCode = exitCode;
+  }
+
+  public void setStdout(long stdout)
+  {
+    this.stdout = stdout;
+  }
+
+  public void setStderr(long stderr)
+  {
+    this.stderr = stderr;
+  }
+}
@@ -0,0 +1,249 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedList;
+
+/**
+ *  \brief  Limits the number of processes that run concurrently on the load generator.
+ *
+ *  If virtual users are started faster than the machine can execute their
+ *  processes, all processes slow down and the measured response times no
+ *  longer describe the system under test. The controller lets the
+ *  processes wait in the order of their arrival until they are admitted.
+ *
+ *  A process is admitted if
+ *  \li   fewer processes than the fixed limit are running and,
+ *  \li   in the adaptive mode, the load average of the last minute is below
+ *        the maximum load and the available memory is above the minimum.
+ *
+ *  The state of the system is read from \c /proc at most once per
+ *  RECHECK_INTERVAL. Since the load average lags behind the processes
+ *  just started, the adaptive mode admits at most one process per
+ *  RECHECK_INTERVAL while others are running, instead of all waiting
+ *  processes at once. Without \c /proc only the fixed limit applies. One
+ *  process is always admitted if none is running, so the load generator
+ *  cannot stall.
+ *
+ *  The controller is shared by all engines of the JVM, the last
+ *  configuration wins.
+ */
+public class AdmissionController
+{
+  /**
+   *  \brief  Interval in milliseconds in which waiting processes check the state of the system again.
+   */
+  public static final long    RECHECK_INTERVAL = 250L;
+
+  /**
+   *  \brief  Default minimum of available memory in the adaptive mode in kB.
+   */
+  public static final long    DEFAULT_MINFREE = 524288L;
+
+  private static final File   LOADAVG = new File("/proc/loadavg");
+  private static final File   MEMINFO = new File("/proc/meminfo");
+
+  private static AdmissionController instance = null;
+
+  private final LinkedList<Object>  waiting = new LinkedList<Object>();
+  private int                       limit = 0;
+  private boolean                   adaptive = false;
+  private double                    maxLoad = Runtime.getRuntime().availableProcessors();
+  private long                      minFree = DEFAULT_MINFREE;
+  private int                       running = 0;
+  private long                      checked = 0L;
+  private long                      admitted = 0L;
+  private boolean                   healthy = true;
+
+  /**
+   *  \brief  Returns the controller that is shared by all engines of the JVM.
+   */
+  public static synchronized AdmissionController getInstance()
+  {
+    if(null == instance)
+      instance = new AdmissionController();
+    return instance;
+  }
+
+  /**
+   *  \brief  Configures the controller.
+   *
+   *  @param  limit           Maximum number of concurrent processes, 0 for
+   *                          no fixed limit.
+   *  @param  adaptive        \c true if the state of the system is taken
+   *                          into account.
+   *  @param  maxLoad         Maximum load average of the last minute in the
+   *                          adaptive mode, 0 for the number of processors.
+   *  @param  minFree         Minimum available memory in the adaptive mode
+   *                          in kB.
+   */
+  public synchronized void configure(int limit, boolean adaptive, double maxLoad, long minFree)
+  {
+    this.limit = Math.max(0, limit);
+    this.adaptive = adaptive;
+    this.maxLoad = (0.0 < maxLoad) ? maxLoad : Runtime.getRuntime().availableProcessors();
+    this.minFree = Math.max(0L, minFree);
+    this.checked = 0L;
+    this.notifyAll();
+  }
+
+  /**
+   *  \brief  Waits until a process may be started.
+   *
+   *  Every successful call must be followed by a call of release() when
+   *  the process has ended.
+   *
+   *  @return The method returns the time in milliseconds the caller has
+   *          waited.
+   *
+   *  @throws InterruptedException if the thread is interrupted while
+   *          waiting, the process must not be started then.
+   */
+  public long acquire() throws InterruptedException
+  {
+    long begin = System.currentTimeMillis();
+    Object ticket = new Object();
+
+    synchronized(this)
+    {
+      this.waiting.addLast(ticket);
+      try
+      {
+        while((this.waiting.getFirst() != ticket) || !this.isAdmissible())
+          this.wait(RECHECK_INTERVAL);
+      }
+      catch (InterruptedException e)
+      {
+        this.waiting.remove(ticket);
+        this.notifyAll();
+        throw e;
+      }
+      this.waiting.removeFirst();
+      ++this.running;
+      this.admitted = System.currentTimeMillis();
+      //  the next caller in the queue may be admissible as well
+      this.notifyAll();
+    }
+    return System.currentTimeMillis() - begin;
+  }
+
+  /**
+   *  \brief  Reports the end of an admitted process.
+   */
+  public synchronized void release()
+  {
+    if(0 < this.running)
+      --this.running;
+    this.notifyAll();
+  }
+
+  /**
+   *  \brief  Returns the number of admitted processes that are running.
+   */
+  public synchronized int getRunning()
+  {
+    return this.running;
+  }
+
+  /**
+   *  \brief  Returns the number of callers that are waiting for admission.
+   */
+  public synchronized int getWaiting()
+  {
+    return this.waiting.size();
+  }
+
+  /**
+   *  \brief  Returns the fixed limit, 0 if there is none.
+   */
+  public synchronized int getLimit()
+  {
+    return this.limit;
+  }
+
+  /**
+   *  \brief  Decides whether one more process may be started, the caller holds the lock.
+   */
+  protected boolean isAdmissible()
+  {
+    if(0 == this.running)
+      return true;
+    if((0 < this.limit) && (this.running >= this.limit))
+      return false;
+    if(!this.adaptive)
+      return true;
+    //  the state of the system does not show the last admission yet
+    return (System.currentTimeMillis() - this.admitted >= RECHECK_INTERVAL) && this.isSystemHealthy();
+  }
+
+  /**
+   *  \brief  Returns \c true if the load and the memory of the system permit another process.
+   */
+  protected boolean isSystemHealthy()
+  {
+    long now = System.currentTimeMillis();
+
+    if(now - this.checked >= RECHECK_INTERVAL)
+    {
+      this.checked = now;
+      try
+      {
+        double load = AdmissionController.parseLoadAverage(AdmissionController.read(LOADAVG));
+        long available = AdmissionController.parseAvailableMemory(AdmissionController.read(MEMINFO));
+        this.healthy = ((0.0 > load) || (load < this.maxLoad)) && ((0L > available) || (available >= this.minFree));
+      }
+      catch (IOException e)
+      {
+        //  without /proc only the fixed limit applies
+        this.healthy = true;
+      }
+    }
+    return this.healthy;
+  }
+
+  private static String read(File file) throws IOException
+  {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII);
+  }
+
+  /**
+   *  \brief  Returns the load average of the last minute from the content of \c /proc/loadavg or -1.
+   */
+  static double parseLoadAverage(String loadavg)
+  {
+    String[] fields = loadavg.trim().split("\\s+");
+    try
+    {
+      return Double.parseDouble(fields[0]);
+    }
+    catch (NumberFormatException e)
+    {
+      return -1.0;
+    }
+  }
+
+  /**
+   *  \brief  Returns \c MemAvailable in kB from the content of \c /proc/meminfo or -1.
+   */
+  static long parseAvailableMemory(String meminfo)
+  {
+    for(String line : meminfo.split("\n"))
+    {
+      if(line.startsWith("MemAvailable:"))
+      {
+        String[] fields = line.substring(13).trim().split("\\s+");
+        try
+        {
+          return Long.parseLong(fields[0]);
+        }
+        catch (NumberFormatException e)
+        {
+          return -1L;
+        }
+      }
+    }
+    return -1L;
+  }
+}
@@ -0,0 +1,233 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *  \brief  Memory-bounded buffer for the output of a process.
+ *
+ *  The console output of a process is part of the response of the action.
+ *  Since the output of a test run can become very large, the buffer only
+ *  keeps a configurable number of characters in memory: the first half
+ *  of the limit as head and the last half as tail in a ring buffer.
+ *
+ *  The limit counts characters, i.e. UTF-16 code units, not the bytes of
+ *  the encoded output: a buffer with the limit \c n uses at most \c 2n
+ *  bytes of memory, independently of how many bytes a character takes in
+ *  the encoding of the process.
+ *
+ *  As soon as the limit is exceeded, the complete output is additionally
+ *  written to a spill file, if one has been configured. The spill file is
+ *  always written in UTF-8. The content of the buffer then contains a hint
+ *  to this file between head and tail.
+ */
+public class CaptureBuffer
+{
+  /**
+   *  \brief  Limit value that disables the restriction of the buffer.
+   */
+  public static final int UNLIMITED = -1;
+
+  private final int           limit;
+  private final int           headLimit;
+  private final File          spillFile;
+  private final StringBuilder head = new StringBuilder();
+  private char[]              tail = null;
+  private long                tailCount = 0;
+  private long                total = 0;
+  private Writer              spill = null;
+  private boolean             spilled = false;
+
+  /**
+   *  \brief  Constructor for a buffer without limit.
+   */
+  public CaptureBuffer()
+  {
+    this(UNLIMITED, null);
+  }
+
+  /**
+   *  \brief  Constructor of the buffer.
+   *
+   *  @param  limit           Maximum number of characters kept in memory,
+   *                          not bytes. Values less than or equal to zero
+   *                          disable the limit.
+   *  @param  spillFile       File to which the complete output is written
+   *                          once the limit has been exceeded. The file is
+   *                          opened in append mode. The value \c null
+   *                          disables spilling.
+   */
+  public CaptureBuffer(int limit, File spillFile)
+  {
+    this.limit = (0 < limit) ? limit : UNLIMITED;
+    this.headLimit = (0 < limit) ? limit / 2 : UNLIMITED;
+    this.spillFile = spillFile;
+  }
+
+  /**
+   *  \brief  Appends text to the buffer.
+   *
+   *  @param  text            The text to be appended.
+   */
+  public synchronized void append(CharSequence text)
+  {
+    int offset = 0;
+    int length = text.length();
+
+    if(UNLIMITED == this.limit)
+    {
+      this.head.append(text);
+      this.total += length;
+      return;
+    }
+
+    if((this.total + length > this.limit) && !this.spilled)
+      this.startSpill();
+
+    this.total += length;
+    if(this.spilled)
+      this.writeSpill(text);
+
+    if(this.head.length() < this.headLimit)
+    {
+      offset = Math.min(length, this.headLimit - this.head.length());
+      this.head.append(text, 0, offset);
+    }
+
+    if(offset < length)
+    {
+      if(null == this.tail)
+        this.tail = new char[this.limit - this.headLimit];
+      for(int i = offset; i < length; ++i)
+      {
+        this.tail[(int) (this.tailCount % this.tail.length)] = text.charAt(i);
+        ++this.tailCount;
+      }
+    }
+  }
+
+  /**
+   *  \brief  Returns the total number of characters appended so far.
+   */
+  public synchronized long getTotal()
+  {
+    return this.total;
+  }
+
+  /**
+   *  \brief  Returns the number of characters that are not kept in memory.
+   */
+  public synchronized long getOmitted()
+  {
+    return this.total - this.head.length() - this.getTailLength();
+  }
+
+  /**
+   *  \brief  Returns the spill file if the output has been written to it.
+   *
+   *  @return The method returns \c null if the limit was never exceeded
+   *          or no spill file is configured.
+   */
+  public synchronized File getSpillFile()
+  {
+    return this.spilled && (null != this.spill) ? this.spillFile : null;
+  }
+
+  /**
+   *  \brief  Closes the spill file if it has been opened.
+   */
+  public synchronized void close()
+  {
+    if(null != this.spill)
+    {
+      try
+      {
+        this.spill.close();
+      }
+      catch (IOException e)
+      {
+        //  the content in memory is still valid, so the error is ignored
+      }
+    }
+  }
+
+  /**
+   *  \brief  Returns the content kept in memory.
+   *
+   *  If characters had to be omitted, a line with the number of omitted
+   *  characters and the path to the spill file is inserted between head
+   *  and tail.
+   */
+  @Override
+  public synchronized String toString()
+  {
+    long omitted = this.getOmitted();
+    StringBuilder sb = new StringBuilder(this.head.length() + this.getTailLength() + 128);
+
+    sb.append(this.head);
+    if(0 < omitted)
+    {
+      sb.append("\n[... ").append(omitted).append(" characters omitted");
+      if(null != this.getSpillFile())
+        sb.append(", complete output in ").append(this.spillFile.getAbsolutePath());
+      sb.append(" ...]\n");
+    }
+    if(null != this.tail)
+    {
+      int size = this.getTailLength();
+      int start = (this.tailCount > this.tail.length) ? (int) (this.tailCount % this.tail.length) : 0;
+      for(int i = 0; i < size; ++i)
+        sb.append(this.tail[(start + i) % this.tail.length]);
+    }
+    return sb.toString();
+  }
+
+  private int getTailLength()
+  {
+    return (null == this.tail) ? 0 : (int) Math.min(this.tailCount, this.tail.length);
+  }
+
+  private void startSpill()
+  {
+    this.spilled = true;
+    if(null == this.spillFile)
+      return;
+
+    try
+    {
+      if(null != this.spillFile.getParentFile())
+        this.spillFile.getParentFile().mkdirs();
+      this.spill = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.spillFile, true), StandardCharsets.UTF_8));
+      //  until now everything is still in memory, so it can be written completely
+      this.spill.append(this.head);
+      if(null != this.tail)
+        for(int i = 0; i < this.getTailLength(); ++i)
+          this.spill.append(this.tail[i]);
+    }
+    catch (IOException e)
+    {
+      this.spill = null;
+    }
+  }
+
+  private void writeSpill(CharSequence text)
+  {
+    if(null == this.spill)
+      return;
+
+    try
+    {
+      this.spill.append(text);
+    }
+    catch (IOException e)
+    {
+      this.close();
+      this.spill = null;
+    }
+  }
+}
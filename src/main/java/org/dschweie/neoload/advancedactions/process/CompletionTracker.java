@@ -0,0 +1,140 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.neotys.extensions.action.engine.SampleResult;
+
+/**
+ *  \brief  Observes processes that run in the background and records their results.
+ *
+ *  If an action does not wait for its process, the virtual user continues
+ *  immediately. The tracker registers a callback for the end of the process
+ *  via Process.onExit(), so no thread is blocked while the process is
+ *  running. When the process has terminated, the tracker creates a result
+ *  with the real exit code, the duration and the captured output and keeps
+ *  it until the engine collects it with drain().
+ */
+public class CompletionTracker
+{
+  /**
+   *  \brief  Milliseconds to wait for the remaining output after a process has terminated.
+   */
+  public static final long    OUTPUT_TIMEOUT = 2000L;
+
+  /**
+   *  \brief  Executor for the completion callbacks, shared by all trackers.
+   *
+   *  The callbacks wait for the remaining output of a process, so they are
+   *  not executed in the common pool.
+   */
+  private static final Executor CALLBACKS = Executors.newCachedThreadPool(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable)
+    {
+      Thread thread = new Thread(runnable, "completion tracker");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  private final AtomicLong              ids = new AtomicLong();
+  private final Map<Long, Process>      running = new ConcurrentHashMap<Long, Process>();
+  private final Queue<SampleResult>     completed = new ConcurrentLinkedQueue<SampleResult>();
+
+  /**
+   *  \brief  Registers a process that was started without waiting for it.
+   *
+   *  @param  command         The command of the process.
+   *  @param  process         The running process.
+   *  @param  stdout          The collector that drains the standard output.
+   *  @param  stderr          The collector that drains the error output.
+   *  @param  forceCode       Optional status code that replaces the exit code.
+   *
+   *  @return The method returns the number under which the result is
+   *          reported later.
+   */
+  public long track(final List<String> command, final Process process, final StreamCollector stdout, final StreamCollector stderr, final String forceCode)
+  {
+    final long id = this.ids.incrementAndGet();
+    final long start = System.currentTimeMillis();
+
+    this.running.put(id, process);
+    process.onExit().thenAcceptAsync(new Consumer<Process>() {
+      @Override
+      public void accept(Process terminated)
+      {
+        long end = System.currentTimeMillis();
+        CompletionTracker.this.running.remove(id);
+        CompletionTracker.this.completed.add(CompletionTracker.createResult(id, command, terminated.exitValue(), forceCode, end - start, stdout, stderr));
+      }
+    }, CALLBACKS);
+    return id;
+  }
+
+  /**
+   *  \brief  Returns the results of the processes that terminated since the last call.
+   */
+  public List<SampleResult> drain()
+  {
+    final List<SampleResult> results = new ArrayList<SampleResult>();
+    SampleResult result;
+
+    while(null != (result = this.completed.poll()))
+      results.add(result);
+    return results;
+  }
+
+  /**
+   *  \brief  Returns the processes that are still running.
+   */
+  public Collection<Process> getRunning()
+  {
+    return new ArrayList<Process>(this.running.values());
+  }
+
+  /**
+   *  \brief  Creates the result of a terminated process.
+   *
+   *  The request contains the number and the command, the response has the
+   *  same structure as the response of a process the engine waited for.
+   */
+  protected static SampleResult createResult(long id, List<String> command, int exitCode, String forceCode, long duration, StreamCollector stdout, StreamCollector stderr)
+  {
+    SampleResult result = new SampleResult();
+    StringBuilder response = new StringBuilder("<?xml version=\"1.0\"?>");
+    String status = (null == forceCode) ? String.valueOf(exitCode) : forceCode;
+
+    try
+    {
+      stdout.await(OUTPUT_TIMEOUT);
+      stderr.await(OUTPUT_TIMEOUT);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+
+    response.append("\n<console>\n").append(stdout.getContent()).append("</console>");
+    if(!"0".equals(status))
+      response.append("\n<errormessage>\n").append(stderr.getContent()).append("</errormessage>");
+    response.append("\n<exitcode>").append(exitCode).append("</exitcode>");
+
+    result.setRequestContent("deferred ".concat(String.valueOf(id)).concat(": ").concat(String.join(" ", command)));
+    result.setResponseContent(response.toString());
+    result.setStatusCode(status);
+    result.setError(!"0".equals(status));
+    result.setDuration(duration);
+    return result;
+  }
+}
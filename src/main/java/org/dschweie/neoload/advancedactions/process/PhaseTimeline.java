@@ -0,0 +1,103 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.neotys.extensions.action.engine.SampleResult;
+
+/**
+ *  \brief  Splits the duration of an execution into consecutive phases.
+ *
+ *  The timeline starts at a point in time and records the end of each
+ *  phase. The marks can be added in any order: the engine marks the
+ *  phases it observes itself (e.g. the start of the process), further
+ *  marks can be derived from the output of the process afterwards. Each
+ *  phase begins where the previous one ends.
+ */
+public class PhaseTimeline
+{
+  /**
+   *  \brief  Phase from the call of ProcessBuilder.start() until the process is running.
+   */
+  public static final String  PROCESS_START = "process start";
+
+  /**
+   *  \brief  Remaining time until the process has exited, e.g. the shutdown of an interpreter.
+   */
+  public static final String  PROCESS_EXIT = "process exit";
+
+  /**
+   *  \brief  Phase from the end of the process until its output has been read completely.
+   */
+  public static final String  STREAM_DRAINING = "stream draining";
+
+  private final long          start;
+  private final List<String>  names = new ArrayList<String>();
+  private final List<Long>    ends = new ArrayList<Long>();
+
+  /**
+   *  \brief  Constructor of the timeline.
+   *
+   *  @param  start           Begin of the first phase in milliseconds.
+   */
+  public PhaseTimeline(long start)
+  {
+    this.start = start;
+  }
+
+  /**
+   *  \brief  Records the end of a phase.
+   *
+   *  @param  phase           Name of the phase.
+   *  @param  end             End of the phase in milliseconds.
+   */
+  public void mark(String phase, long end)
+  {
+    int i = this.ends.size();
+    while((0 < i) && (this.ends.get(i - 1) > end))
+      --i;
+    this.names.add(i, phase);
+    this.ends.add(i, end);
+  }
+
+  /**
+   *  \brief  Returns the end of a phase or -1 if the phase was not marked.
+   */
+  public long getEnd(String phase)
+  {
+    int i = this.names.indexOf(phase);
+    return (0 > i) ? -1L : this.ends.get(i);
+  }
+
+  public long getStart()
+  {
+    return this.start;
+  }
+
+  /**
+   *  \brief  Creates one result per phase.
+   *
+   *  The request contains the name of the phase, the response the begin
+   *  and the end. A mark before the start of the timeline results in a
+   *  phase of length 0.
+   */
+  public List<SampleResult> toSampleResults()
+  {
+    final List<SampleResult> results = new ArrayList<SampleResult>(this.names.size());
+    long begin = this.start;
+
+    for(int i = 0; i < this.names.size(); ++i)
+    {
+      long end = Math.max(begin, this.ends.get(i));
+      SampleResult result = new SampleResult();
+      result.setRequestContent("phase: ".concat(this.names.get(i)));
+      result.setResponseContent("<phase start=\"".concat(String.valueOf(begin)).concat("\" end=\"").concat(String.valueOf(end)).concat("\"/>"));
+      result.setStatusCode("0");
+      result.setError(false);
+      result.setDuration(end - begin);
+      results.add(result);
+      begin = end;
+    }
+    return results;
+  }
+}
@@ -0,0 +1,290 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.monitoring.EngineStatistics;
+
+/**
+ *  \brief  Executes several processes concurrently and waits for all of them.
+ *
+ *  Every member is executed in its own thread like a main process of an
+ *  engine: it waits for its admission if the group has an admission
+ *  control, its pipes are drained while it is running and it is observed
+ *  by its own ProcessWatchdog. The group can be terminated as a whole,
+ *  e.g. when the test is stopped.
+ */
+public class ProcessGroup
+{
+  /**
+   *  \brief  A process of the group and its result.
+   */
+  public static final class Member
+  {
+    private final ProcessBuilder  builder;
+    private final CaptureBuffer   stdoutBuffer;
+    private final CaptureBuffer   stderrBuffer;
+    private StreamCollector       stdout = null;
+    private StreamCollector       stderr = null;
+    private ProcessWatchdog       watchdog = null;
+    private Process               process = null;
+    private long                  queued = 0L;
+    private long                  start = 0L;
+    private long                  end = 0L;
+    private String                statusCode = null;
+    private String                failure = null;
+
+    /**
+     *  \brief  Constructor of a member.
+     *
+     *  @param  builder         The configured builder of the process.
+     *  @param  stdout          The buffer for the standard output.
+     *  @param  stderr          The buffer for the error output.
+     */
+    public Member(ProcessBuilder builder, CaptureBuffer stdout, CaptureBuffer stderr)
+    {
+      this.builder = builder;
+      this.stdoutBuffer = stdout;
+      this.stderrBuffer = stderr;
+    }
+
+    public List<String> getCommand()
+    {
+      return this.builder.command();
+    }
+
+    /**
+     *  \brief  Returns the collector of the standard output or \c null if the process was not started.
+     */
+    public StreamCollector getStdout()
+    {
+      return this.stdout;
+    }
+
+    /**
+     *  \brief  Returns the collector of the error output or \c null if the process was not started.
+     */
+    public StreamCollector getStderr()
+    {
+      return this.stderr;
+    }
+
+    /**
+     *  \brief  Returns the watchdog or \c null if the process was not started.
+     */
+    public ProcessWatchdog getWatchdog()
+    {
+      return this.watchdog;
+    }
+
+    /**
+     *  \brief  Returns the time in milliseconds the member has waited for its admission.
+     */
+    public long getQueued()
+    {
+      return this.queued;
+    }
+
+    public long getStart()
+    {
+      return this.start;
+    }
+
+    public long getEnd()
+    {
+      return this.end;
+    }
+
+    /**
+     *  \brief  Returns the exit code, the status code of the watchdog or the name of the exception.
+     */
+    public String getStatusCode()
+    {
+      return this.statusCode;
+    }
+
+    /**
+     *  \brief  Returns the message of the exception that prevented the execution or \c null.
+     */
+    public String getFailure()
+    {
+      return this.failure;
+    }
+  }
+
+  private final long                  timeout;
+  private final long                  inactivity;
+  private final long                  grace;
+  private final AdmissionController   admission;
+  private final List<Member>          members = new ArrayList<Member>();
+  private volatile boolean            stopped = false;
+
+  /**
+   *  \brief  Constructor of a group.
+   *
+   *  @param  timeout         Maximum duration of a member in milliseconds,
+   *                          0 for no limit.
+   *  @param  inactivity      Maximum time without output of a member in
+   *                          milliseconds, 0 for no limit.
+   *  @param  grace           Time in milliseconds between the stages of the
+   *                          termination.
+   *  @param  admission       The admission control or \c null.
+   */
+  public ProcessGroup(long timeout, long inactivity, long grace, AdmissionController admission)
+  {
+    this.timeout = timeout;
+    this.inactivity = inactivity;
+    this.grace = grace;
+    this.admission = admission;
+  }
+
+  /**
+   *  \brief  Executes the members concurrently and returns when all of them have ended.
+   *
+   *  @param  members         The members to be executed.
+   *
+   *  @throws InterruptedException if the calling thread is interrupted, the
+   *          members are terminated then.
+   */
+  public void run(List<Member> members) throws InterruptedException
+  {
+    final List<Thread> threads = new ArrayList<Thread>(members.size());
+
+    synchronized(this.members)
+    {
+      this.members.addAll(members);
+    }
+    for(int i = 0; i < members.size(); ++i)
+    {
+      final Member member = members.get(i);
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run()
+        {
+          ProcessGroup.this.execute(member);
+        }
+      }, "process-group-".concat(String.valueOf(i + 1)));
+      thread.setDaemon(true);
+      thread.start();
+      threads.add(thread);
+    }
+
+    try
+    {
+      for(Thread thread : threads)
+        thread.join();
+    }
+    catch (InterruptedException e)
+    {
+      this.terminate(ProcessWatchdog.STOPPED);
+      for(Thread thread : threads)
+        thread.join(2L * this.grace + 1000L);
+      throw e;
+    }
+  }
+
+  /**
+   *  \brief  Executes one member in the calling thread.
+   */
+  private void execute(Member member)
+  {
+    AdmissionController admitted = null;
+    EngineStatistics statistics = EngineStatistics.getInstance();
+    long running = 0L;
+
+    try
+    {
+      if(null != this.admission)
+      {
+        member.queued = this.admission.acquire();
+        admitted = this.admission;
+        statistics.recordQueue(member.queued);
+      }
+      synchronized(member)
+      {
+        if(this.stopped)
+          throw new InterruptedException("stopped before start");
+        member.start = System.currentTimeMillis();
+        long spawn = System.nanoTime();
+        member.process = member.builder.start();
+        running = System.nanoTime();
+        statistics.processStarted(running - spawn);
+        member.process.onExit().thenRun(new Runnable() {
+          @Override
+          public void run()
+          {
+            EngineStatistics.getInstance().processEnded();
+          }
+        });
+        member.stdout = new StreamCollector(member.process.getInputStream(), null, member.stdoutBuffer).supervise(member.process);
+        member.stderr = new StreamCollector(member.process.getErrorStream(), null, member.stderrBuffer).supervise(member.process);
+        member.watchdog = new ProcessWatchdog(member.process, this.timeout, this.inactivity, this.grace, member.stdout, member.stderr).start();
+      }
+
+      member.process.waitFor();
+      member.watchdog.cancel();
+      member.end = System.currentTimeMillis();
+      long exited = System.nanoTime();
+      statistics.recordExecution(exited - running);
+      statistics.recordExitCode(member.process.exitValue());
+      member.statusCode = member.watchdog.isTriggered() ? member.watchdog.getStatusCode() : String.valueOf(member.process.exitValue());
+      // a killed descendant may have inherited the pipe, so the end of the stream is not awaited forever
+      boolean complete = true;
+      if(member.watchdog.isTriggered())
+        complete = member.stdout.await(this.grace) & member.stderr.await(this.grace);
+      else
+      {
+        member.stdout.await();
+        member.stderr.await();
+      }
+      statistics.recordDrain(System.nanoTime() - exited);
+      if(complete)
+        statistics.recordCaptured(member.stdout.getBuffer().getTotal() + member.stderr.getBuffer().getTotal());
+    }
+    catch (IOException e)
+    {
+      member.end = System.currentTimeMillis();
+      member.statusCode = e.getClass().getSimpleName();
+      member.failure = String.valueOf(e.getLocalizedMessage());
+    }
+    catch (InterruptedException e)
+    {
+      if(null != member.watchdog)
+        member.watchdog.terminate(ProcessWatchdog.STOPPED);
+      member.end = System.currentTimeMillis();
+      member.statusCode = e.getClass().getSimpleName();
+      member.failure = String.valueOf(e.getLocalizedMessage());
+    }
+    finally
+    {
+      if(null != admitted)
+        admitted.release();
+      statistics.recordStatusCode(member.statusCode);
+    }
+  }
+
+  /**
+   *  \brief  Terminates all members that are running and prevents the start of the others.
+   *
+   *  @param  cause           The reason that is reported by the watchdogs.
+   */
+  public void terminate(String cause)
+  {
+    final List<Member> running;
+
+    this.stopped = true;
+    synchronized(this.members)
+    {
+      running = new ArrayList<Member>(this.members);
+    }
+    for(Member member : running)
+    {
+      synchronized(member)
+      {
+        if(null != member.watchdog)
+          member.watchdog.terminate(cause);
+      }
+    }
+  }
+}
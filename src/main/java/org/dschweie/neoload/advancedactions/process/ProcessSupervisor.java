@@ -0,0 +1,203 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *  \brief  Reads the output streams of all processes of the JVM with a fixed number of threads.
+ *
+ *  Reading a pipe with a blocking reader costs one thread per stream, i.e.
+ *  two threads per process that are idle most of the time. The supervisor
+ *  instead assigns every stream to one of CARRIERS threads. A carrier
+ *  polls its streams with StreamCollector.poll(byte[]), which only reads
+ *  the bytes that are available and therefore never blocks.
+ *
+ *  If a pass over the streams has read nothing, the carrier pauses between
+ *  MIN_PAUSE and MAX_PAUSE, doubling the pause with every idle pass, and
+ *  parks without timeout if it has no streams. The number of threads and
+ *  the number of wake-ups therefore do not depend on the number of
+ *  virtual users; the price is a delay of at most MAX_PAUSE until a line
+ *  is read, e.g. by the inactivity check of the ProcessWatchdog.
+ *
+ *  A carrier only moves the bytes into the bounded queue of the stream,
+ *  see StreamCollector.QUEUE_SIZE. Splitting the lines, the listeners and
+ *  the writes of a CaptureBuffer to its spill file run in one of
+ *  DISPATCHERS threads, so that a slow listener or disk of one virtual
+ *  user does not delay the streams of the others. If the queue of a stream
+ *  is full, its carrier skips the stream until the queue has been
+ *  dispatched, and the process blocks on its pipe as with a slow reader.
+ *
+ *  The supervisor is shared by all engines of the JVM.
+ */
+public class ProcessSupervisor
+{
+  /**
+   *  \brief  Number of carrier threads of the shared supervisor.
+   */
+  public static final int     CARRIERS = 2;
+
+  /**
+   *  \brief  Pause in nanoseconds after the first pass that has read nothing.
+   */
+  public static final long    MIN_PAUSE = TimeUnit.MILLISECONDS.toNanos(1L);
+
+  /**
+   *  \brief  Longest pause in nanoseconds between two passes.
+   */
+  public static final long    MAX_PAUSE = TimeUnit.MILLISECONDS.toNanos(20L);
+
+  /**
+   *  \brief  Number of threads of the shared supervisor that process the bytes read.
+   */
+  public static final int     DISPATCHERS = 4;
+
+  private static ProcessSupervisor instance = null;
+
+  private final Carrier[]     carriers;
+  private final AtomicInteger next = new AtomicInteger();
+  private final ExecutorService dispatchers;
+
+  /**
+   *  \brief  Returns the supervisor that is shared by all engines of the JVM.
+   */
+  public static synchronized ProcessSupervisor getInstance()
+  {
+    if(null == instance)
+      instance = new ProcessSupervisor(CARRIERS);
+    return instance;
+  }
+
+  /**
+   *  \brief  Constructor of a supervisor with its own carrier threads.
+   *
+   *  @param  carriers        Number of carrier threads, at least 1.
+   */
+  public ProcessSupervisor(int carriers)
+  {
+    this(carriers, DISPATCHERS);
+  }
+
+  /**
+   *  \brief  Constructor of a supervisor with its own carrier and dispatcher threads.
+   *
+   *  @param  carriers        Number of carrier threads, at least 1.
+   *  @param  dispatchers     Number of threads that process the bytes read,
+   *                          at least 1.
+   */
+  public ProcessSupervisor(int carriers, int dispatchers)
+  {
+    this.dispatchers = Executors.newFixedThreadPool(Math.max(1, dispatchers), new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable)
+      {
+        Thread thread = new Thread(runnable, "process dispatcher ".concat(String.valueOf(this.count.incrementAndGet())));
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    this.carriers = new Carrier[Math.max(1, carriers)];
+    for(int i = 0; i < this.carriers.length; ++i)
+    {
+      this.carriers[i] = new Carrier();
+      Thread thread = new Thread(this.carriers[i], "process supervisor ".concat(String.valueOf(i + 1)));
+      thread.setDaemon(true);
+      this.carriers[i].thread = thread;
+      thread.start();
+    }
+  }
+
+  /**
+   *  \brief  Reads a stream until it has ended.
+   *
+   *  The streams are distributed round robin over the carriers.
+   *
+   *  @param  collector       A collector that was created with a process.
+   */
+  public void supervise(StreamCollector collector)
+  {
+    Carrier carrier = this.carriers[(this.next.getAndIncrement() & Integer.MAX_VALUE) % this.carriers.length];
+    carrier.added.offer(collector);
+    LockSupport.unpark(carrier.thread);
+  }
+
+  /**
+   *  \brief  Processes the bytes that a carrier has queued for a stream.
+   *
+   *  @param  task            The task of the stream, see StreamCollector.
+   */
+  void dispatch(Runnable task)
+  {
+    this.dispatchers.execute(task);
+  }
+
+  /**
+   *  \brief  Returns the number of streams that are currently read.
+   */
+  public int getStreams()
+  {
+    int streams = 0;
+    for(Carrier carrier : this.carriers)
+      streams += carrier.active;
+    return streams;
+  }
+
+  /**
+   *  \brief  Thread that polls its streams one after the other.
+   */
+  private static final class Carrier implements Runnable
+  {
+    private final ConcurrentLinkedQueue<StreamCollector> added = new ConcurrentLinkedQueue<StreamCollector>();
+    private final List<StreamCollector> streams = new ArrayList<StreamCollector>();
+    private final byte[]        chunk = new byte[StreamCollector.BUFFER_SIZE];
+    private volatile int        active = 0;
+    private Thread              thread = null;
+
+    @Override
+    public void run()
+    {
+      long pause = MIN_PAUSE;
+
+      while(true)
+      {
+        StreamCollector collector = this.added.poll();
+        while(null != collector)
+        {
+          this.streams.add(collector);
+          collector = this.added.poll();
+        }
+
+        boolean progress = false;
+        Iterator<StreamCollector> polled = this.streams.iterator();
+        while(polled.hasNext())
+        {
+          int read = polled.next().poll(this.chunk);
+          if(0 > read)
+            polled.remove();
+          else if(0 < read)
+            progress = true;
+        }
+        this.active = this.streams.size();
+
+        if(progress)
+          pause = MIN_PAUSE;
+        else if(this.streams.isEmpty())
+          LockSupport.park(this);
+        else
+        {
+          LockSupport.parkNanos(this, pause);
+          pause = Math.min(MAX_PAUSE, 2L * pause);
+        }
+      }
+    }
+  }
+}
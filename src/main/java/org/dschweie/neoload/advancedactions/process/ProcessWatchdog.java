@@ -0,0 +1,425 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.dschweie.neoload.advancedactions.monitoring.ProcessStopEvent;
+
+/**
+ *  \brief  Monitors a process and terminates it with all its descendants if it exceeds its limits.
+ *
+ *  Two limits are supported:
+ *  \li   a hard timeout for the total duration of the process and
+ *  \li   an inactivity timeout, i.e. the maximum time without a line on the
+ *        standard output or the error output.
+ *
+ *  When a limit is exceeded or the test is stopped, the process is
+ *  terminated in stages, so that Robot Framework still has the chance to
+ *  write its output files:
+ *  \li   \c SIGINT to the process, which Robot Framework treats like Ctrl-C,
+ *  \li   \c SIGTERM to the process and its descendants after a grace period,
+ *  \li   \c SIGKILL to the process and its descendants after another grace period.
+ *
+ *  Browsers and drivers started by the test are descendants of the process.
+ *  If the process terminates, they are passed to the init process and can
+ *  no longer be found. The watchdog therefore remembers the descendants at
+ *  every stage and finally kills all of them that are still alive.
+ */
+public class ProcessWatchdog
+{
+  public static final String  TIMEOUT = "TIMEOUT";
+  public static final String  INACTIVITY = "INACTIVITY";
+  public static final String  STOPPED = "STOPPED";
+
+  public static final String  SIGINT = "SIGINT";
+  public static final String  SIGTERM = "SIGTERM";
+  public static final String  SIGKILL = "SIGKILL";
+
+  /**
+   *  \brief  Number of threads that send \c SIGINT with the command \c kill.
+   */
+  protected static final int  SIGNAL_THREADS = 4;
+
+  /**
+   *  \brief  Interval in milliseconds in which the limits are checked.
+   */
+  protected static final long CHECK_INTERVAL = 250L;
+
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable)
+    {
+      Thread thread = new Thread(runnable, "process watchdog");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  private static final ExecutorService SIGNALS = Executors.newFixedThreadPool(SIGNAL_THREADS, new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable)
+    {
+      Thread thread = new Thread(runnable, "process signal");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  private final Process           process;
+  private final long              timeout;
+  private final long              inactivity;
+  private final long              grace;
+  private final StreamCollector[] streams;
+  private final Set<ProcessHandle> descendants = new LinkedHashSet<ProcessHandle>();
+  private final long              started = System.currentTimeMillis();
+  private ScheduledFuture<?>      check = null;
+  private volatile String         reason = null;
+  private volatile String         signal = null;
+  private String                  virtualUser = null;
+  private int                     stage = -1;
+  private String                  source = null;
+
+  /**
+   *  \brief  Constructor of the watchdog.
+   *
+   *  @param  process         The process to be monitored.
+   *  @param  timeout         Maximum duration in milliseconds, 0 disables the limit.
+   *  @param  inactivity      Maximum time without output in milliseconds,
+   *                          0 disables the limit.
+   *  @param  grace           Time in milliseconds between the stages of the
+   *                          termination.
+   *  @param  streams         The collectors whose output counts as activity.
+   */
+  public ProcessWatchdog(Process process, long timeout, long inactivity, long grace, StreamCollector... streams)
+  {
+    this.process = process;
+    this.timeout = Math.max(0L, timeout);
+    this.inactivity = Math.max(0L, inactivity);
+    this.grace = Math.max(0L, grace);
+    this.streams = streams;
+  }
+
+  /**
+   *  \brief  Starts monitoring the limits.
+   *
+   *  @return For convenience, the method returns this instance.
+   */
+  public synchronized ProcessWatchdog start()
+  {
+    if(((0 < this.timeout) || (0 < this.inactivity)) && (null == this.check))
+    {
+      this.check = SCHEDULER.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run()
+        {
+          ProcessWatchdog.this.check();
+        }
+      }, CHECK_INTERVAL, CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+    return this;
+  }
+
+  /**
+   *  \brief  Sets the origin of the process that is reported in the ProcessStopEvent.
+   *
+   *  @param  virtualUser     Id of the virtual user or \c null.
+   *  @param  source          Test source of the execution or \c null.
+   *
+   *  @return For convenience, the method returns this instance.
+   */
+  public synchronized ProcessWatchdog describe(String virtualUser, String source)
+  {
+    this.virtualUser = virtualUser;
+    this.source = source;
+    return this;
+  }
+
+  /**
+   *  \brief  Ends the monitoring, e.g. because the process has terminated.
+   *
+   *  A termination that has already begun is completed anyway.
+   */
+  public synchronized void cancel()
+  {
+    if(null != this.check)
+      this.check.cancel(false);
+  }
+
+  /**
+   *  \brief  Starts the termination of the process.
+   *
+   *  The method returns immediately, the further stages are executed in
+   *  the background. Only the first call has an effect.
+   *
+   *  @param  cause           The reason for the termination, e.g. STOPPED.
+   */
+  public synchronized void terminate(String cause)
+  {
+    if((null != this.reason) || (0 <= this.stage))
+      return;
+    this.reason = cause;
+    this.cancel();
+    this.escalate(0);
+  }
+
+  /**
+   *  \brief  Returns \c true if the watchdog has terminated the process.
+   */
+  public boolean isTriggered()
+  {
+    return null != this.reason;
+  }
+
+  /**
+   *  \brief  Returns the reason for the termination or \c null.
+   */
+  public String getReason()
+  {
+    return this.reason;
+  }
+
+  /**
+   *  \brief  Returns the last signal sent to the process or \c null.
+   */
+  public String getSignal()
+  {
+    return this.signal;
+  }
+
+  /**
+   *  \brief  Returns the status code for the result of the execution.
+   *
+   *  The status code contains the reason and the last stage of the
+   *  termination, e.g. \c NL-TIMEOUT-SIGKILL, so that the different kinds
+   *  of terminations can be distinguished in NeoLoad.
+   *
+   *  @return The method returns \c null if the watchdog has not terminated
+   *          the process.
+   */
+  public String getStatusCode()
+  {
+    return (null == this.reason) ? null : "NL-".concat(this.reason).concat("-").concat(String.valueOf(this.signal));
+  }
+
+  /**
+   *  \brief  Returns the number of descendants found during the termination.
+   */
+  public synchronized int getDescendants()
+  {
+    return this.descendants.size();
+  }
+
+  /**
+   *  \brief  Checks the limits, called periodically by the scheduler.
+   */
+  protected void check()
+  {
+    long now = System.currentTimeMillis();
+
+    if(!this.process.isAlive())
+      this.cancel();
+    else if((0 < this.timeout) && (this.started + this.timeout <= now))
+      this.terminate(TIMEOUT);
+    else if((0 < this.inactivity) && (this.getLastActivity() + this.inactivity <= now))
+      this.terminate(INACTIVITY);
+  }
+
+  /**
+   *  \brief  Returns the time of the last output of the process.
+   */
+  protected long getLastActivity()
+  {
+    long last = this.started;
+    for(StreamCollector stream : this.streams)
+      last = Math.max(last, stream.getLastActivity());
+    return last;
+  }
+
+  /**
+   *  \brief  Executes a stage of the termination and schedules the next one.
+   *
+   *  Each stage is executed at most once, a stage that has been overtaken
+   *  by a later one is ignored. If the process has ended before a signal
+   *  was sent, the watchdog is not triggered, so that the exit code of the
+   *  process remains the result.
+   */
+  private synchronized void escalate(final int stage)
+  {
+    if(stage <= this.stage)
+      return;
+    this.stage = stage;
+    this.remember();
+    if(!this.process.isAlive())
+    {
+      if(null == this.signal)
+        this.reason = null;
+      this.killDescendants();
+      return;
+    }
+
+    if(0 == stage)
+    { //  kill is a process of its own, it is not started in the thread of the scheduler
+      this.signal = SIGINT;
+      SIGNALS.execute(new Runnable() {
+        @Override
+        public void run()
+        {
+          ProcessWatchdog.this.sendInterrupt();
+        }
+      });
+    }
+    else
+    {
+      ProcessStopEvent event = new ProcessStopEvent();
+      event.begin();
+      if(1 == stage)
+      {
+        this.signal = SIGTERM;
+        for(ProcessHandle descendant : this.descendants)
+          descendant.destroy();
+        this.process.destroy();
+      }
+      else
+      {
+        this.signal = SIGKILL;
+        this.process.destroyForcibly();
+        this.killDescendants();
+      }
+      this.commit(event);
+      if(1 < stage)
+        return;
+    }
+
+    this.process.onExit().thenRun(new Runnable() {
+      @Override
+      public void run()
+      {
+        ProcessWatchdog.this.killDescendants();
+      }
+    });
+    SCHEDULER.schedule(new Runnable() {
+      @Override
+      public void run()
+      {
+        ProcessWatchdog.this.escalate(stage + 1);
+      }
+    }, this.grace, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   *  \brief  Sends \c SIGINT in a thread of SIGNALS and continues with \c SIGTERM if that fails.
+   */
+  private void sendInterrupt()
+  {
+    ProcessStopEvent event = new ProcessStopEvent();
+    event.begin();
+    boolean sent = ProcessWatchdog.interrupt(this.process);
+    synchronized(this)
+    {
+      if(sent)
+      {
+        this.commit(event);
+        return;
+      }
+      //  a process that has ended in the meantime was not interrupted
+      if(!this.process.isAlive())
+        this.signal = null;
+    }
+    this.escalate(1);
+  }
+
+  /**
+   *  \brief  Commits the event of a stage if it is recorded.
+   */
+  private void commit(ProcessStopEvent event)
+  {
+    event.end();
+    if(event.shouldCommit())
+    {
+      event.setVirtualUser(this.virtualUser);
+      event.setSource(this.source);
+      event.setPid(this.process.pid());
+      event.setCause(this.reason);
+      event.setSignal(this.signal);
+      event.setDescendants(this.descendants.size());
+      event.commit();
+    }
+  }
+
+  /**
+   *  \brief  Remembers the current descendants of the process.
+   */
+  private synchronized void remember()
+  {
+    if(this.process.isAlive())
+    {
+      Iterator<ProcessHandle> found = this.process.descendants().iterator();
+      while(found.hasNext())
+        this.descendants.add(found.next());
+    }
+  }
+
+  /**
+   *  \brief  Kills all remembered descendants that are still alive.
+   */
+  private synchronized void killDescendants()
+  {
+    for(ProcessHandle descendant : this.descendants)
+    {
+      if(descendant.isAlive())
+        descendant.destroyForcibly();
+    }
+  }
+
+  /**
+   *  \brief  Executes a task once after a delay in the thread of the watchdogs.
+   *
+   *  The method can be used to limit executions that are not performed by
+   *  a process of their own, e.g. the runs of a persistent worker.
+   *
+   *  @param  task            The task, which must not block.
+   *  @param  delay           Delay in milliseconds.
+   *
+   *  @return The method returns the future to cancel the task.
+   */
+  public static ScheduledFuture<?> schedule(Runnable task, long delay)
+  {
+    return SCHEDULER.schedule(task, delay, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   *  \brief  Sends \c SIGINT to a process.
+   *
+   *  Java can only send \c SIGTERM and \c SIGKILL, therefore the command
+   *  \c kill is used on POSIX systems.
+   *
+   *  @return The method returns \c false if the signal could not be sent.
+   */
+  protected static boolean interrupt(Process process)
+  {
+    if('/' != File.separatorChar)
+      return false;
+    try
+    {
+      return 0 == new ProcessBuilder("kill", "-INT", String.valueOf(process.pid())).start().waitFor();
+    }
+    catch (IOException e)
+    {
+      return false;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
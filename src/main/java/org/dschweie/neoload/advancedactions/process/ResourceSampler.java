@@ -0,0 +1,443 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  \brief  Samples the resources used by a process tree from \c /proc.
+ *
+ *  If robot iterations slow down, the cause can be the application under
+ *  test or the load generator itself. The sampler reads the files
+ *  \c stat, \c status and \c io of the process and all its descendants
+ *  in a fixed interval and accumulates
+ *  \li   the CPU time in user and kernel mode,
+ *  \li   the highest resident set size of the whole tree,
+ *  \li   the voluntary and involuntary context switches and
+ *  \li   the bytes read from and written to the storage layer.
+ *
+ *  All samplers of the JVM share one thread, and each sampler reads the
+ *  files into the same buffer for every sample, so that sampling is cheap
+ *  enough for every virtual user. The descendants are determined via
+ *  \c /proc/<pid>/task/<tid>/children instead of ProcessHandle.descendants(),
+ *  which scans all processes of the system.
+ *
+ *  The values of a process are only available while it is running, so the
+ *  result reflects the last sample before the process terminated. The CPU
+ *  time of descendants that terminate between two samples is taken from
+ *  the fields \c cutime and \c cstime of their parent, from which the
+ *  last sampled values of these descendants are subtracted. The last
+ *  interval of the sampled process itself is not available, because the
+ *  JVM reaps the process as soon as it ends; a run that is shorter than
+ *  FIRST_SAMPLE therefore reports no CPU time. On systems without
+ *  \c /proc, the sampler is not available.
+ */
+public class ResourceSampler
+{
+  /**
+   *  \brief  Default interval between two samples in milliseconds.
+   */
+  public static final long    DEFAULT_INTERVAL = 1000L;
+
+  /**
+   *  \brief  Delay of the first sample in milliseconds, short runs are sampled at least once.
+   */
+  protected static final long FIRST_SAMPLE = 100L;
+
+  /**
+   *  \brief  Milliseconds per clock tick, Linux reports CPU times with USER_HZ = 100.
+   */
+  protected static final long TICK = 10L;
+
+  protected static final File PROC = new File("/proc");
+
+  /**
+   *  \brief  The files \c children are only available if the kernel was built with CONFIG_PROC_CHILDREN.
+   */
+  protected static final boolean CHILDREN_FILES = new File(PROC, "thread-self/children").exists();
+
+  private static final int    CPU_USER = 0;
+  private static final int    CPU_SYSTEM = 1;
+  private static final int    VOLUNTARY = 2;
+  private static final int    INVOLUNTARY = 3;
+  private static final int    READ = 4;
+  private static final int    WRITE = 5;
+  private static final int    HWM = 6;
+  private static final int    RSS = 7;
+  private static final int    CHILD_USER = 8;
+  private static final int    CHILD_SYSTEM = 9;
+  private static final int    PARENT = 10;
+  private static final int    SEEN = 11;
+  private static final int    VALUES = 12;
+
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable)
+    {
+      Thread thread = new Thread(runnable, "resource sampler");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  private final long                pid;
+  private final byte[]              buffer = new byte[4096];
+  private long[]                    pending = new long[16];
+  private long[]                    parents = new long[16];
+  private final Map<Long, long[]>   processes = new HashMap<Long, long[]>();
+  private ScheduledFuture<?>        task = null;
+  private long                      peakRss = 0L;
+  private int                       samples = 0;
+
+  /**
+   *  \brief  Constructor of the sampler.
+   *
+   *  @param  process         The process whose tree is sampled.
+   */
+  public ResourceSampler(Process process)
+  {
+    this.pid = process.pid();
+  }
+
+  /**
+   *  \brief  Returns \c true if the resources can be sampled on this system.
+   */
+  public static boolean isAvailable()
+  {
+    return new File(PROC, "self/stat").canRead();
+  }
+
+  /**
+   *  \brief  Starts sampling in the shared thread.
+   *
+   *  @param  interval        Interval between two samples in milliseconds.
+   *
+   *  @return For convenience, the method returns this instance.
+   */
+  public synchronized ResourceSampler start(long interval)
+  {
+    if(null == this.task)
+    {
+      this.task = SCHEDULER.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run()
+        {
+          ResourceSampler.this.sample();
+        }
+      }, Math.min(FIRST_SAMPLE, interval), interval, TimeUnit.MILLISECONDS);
+    }
+    return this;
+  }
+
+  /**
+   *  \brief  Ends sampling and returns the accumulated usage.
+   */
+  public synchronized ResourceUsage stop()
+  {
+    if(null != this.task)
+      this.task.cancel(false);
+    return this.getUsage();
+  }
+
+  /**
+   *  \brief  Returns the usage accumulated so far.
+   */
+  public synchronized ResourceUsage getUsage()
+  {
+    final long[] total = new long[VALUES];
+    final Map<Long, long[]> ended = new HashMap<Long, long[]>();
+    long peak = this.peakRss;
+
+    for(long[] values : this.processes.values())
+    {
+      for(int i = 0; i < HWM; ++i)
+        total[i] += values[i];
+      peak = Math.max(peak, values[HWM]);
+      //  a descendant that has ended is contained in the children times of its parent
+      if(values[SEEN] < this.samples)
+      {
+        long[] sampled = ended.get(values[PARENT]);
+        if(null == sampled)
+          ended.put(values[PARENT], sampled = new long[2]);
+        sampled[0] += values[CPU_USER] + values[CHILD_USER];
+        sampled[1] += values[CPU_SYSTEM] + values[CHILD_SYSTEM];
+      }
+    }
+    for(Map.Entry<Long, long[]> entry : this.processes.entrySet())
+    {
+      long[] sampled = ended.get(entry.getKey());
+      long[] values = entry.getValue();
+      total[CPU_USER] += Math.max(0L, values[CHILD_USER] - ((null == sampled) ? 0L : sampled[0]));
+      total[CPU_SYSTEM] += Math.max(0L, values[CHILD_SYSTEM] - ((null == sampled) ? 0L : sampled[1]));
+    }
+    return new ResourceUsage(total[CPU_USER], total[CPU_SYSTEM], peak, total[VOLUNTARY], total[INVOLUNTARY], total[READ], total[WRITE], this.processes.size(), this.samples);
+  }
+
+  /**
+   *  \brief  Takes one sample of the process tree.
+   *
+   *  The counters of every process are cumulative, so the last values of
+   *  each process are kept and summed up by getUsage(). Processes that have
+   *  terminated in the meantime keep their last values.
+   *
+   *  The tree is traversed breadth first with a queue of process numbers
+   *  that is reused for every sample.
+   */
+  public synchronized void sample()
+  {
+    long rss = 0L;
+    int head = 0;
+    int tail = 0;
+
+    this.parents[tail] = 0L;
+    this.pending[tail++] = this.pid;
+    while(head < tail)
+    {
+      long parent = this.parents[head];
+      long current = this.pending[head++];
+      long[] values = this.processes.get(current);
+      boolean known = (null != values);
+      File directory = new File(PROC, String.valueOf(current));
+
+      if(!known)
+        values = new long[VALUES];
+      if(!this.readStat(directory, values))
+      {
+        if(current == this.pid)
+          return;
+        continue;
+      }
+      values[PARENT] = parent;
+      values[SEEN] = this.samples + 1L;
+      this.readStatus(directory, values);
+      this.readIo(directory, values);
+      if(!known)
+        this.processes.put(current, values);
+      rss += values[RSS];
+
+      if(CHILDREN_FILES)
+      {
+        String[] tasks = new File(directory, "task").list();
+        for(int t = 0; (null != tasks) && (t < tasks.length); ++t)
+          tail = this.readChildren(new File(directory, "task/".concat(tasks[t]).concat("/children")), current, tail);
+      }
+      else
+        tail = this.findChildren(current, tail);
+    }
+    this.peakRss = Math.max(this.peakRss, rss);
+    ++this.samples;
+  }
+
+  /**
+   *  \brief  Appends the process numbers of a \c children file to the queue.
+   *
+   *  @return The method returns the new end of the queue.
+   */
+  private int readChildren(File file, long parent, int tail)
+  {
+    int length = this.read(file);
+    int end = tail;
+    long child = 0L;
+    boolean digits = false;
+
+    for(int i = 0; i <= length; ++i)
+    {
+      byte b = (i < length) ? this.buffer[i] : (byte) ' ';
+      if(('0' <= b) && ('9' >= b))
+      {
+        child = 10L * child + (b - '0');
+        digits = true;
+      }
+      else if(digits)
+      {
+        end = this.enqueue(child, parent, end);
+        child = 0L;
+        digits = false;
+      }
+    }
+    return end;
+  }
+
+  /**
+   *  \brief  Appends a process and its parent to the queue.
+   *
+   *  @return The method returns the new end of the queue.
+   */
+  private int enqueue(long child, long parent, int tail)
+  {
+    if(tail == this.pending.length)
+    {
+      this.pending = Arrays.copyOf(this.pending, 2 * tail);
+      this.parents = Arrays.copyOf(this.parents, 2 * tail);
+    }
+    this.parents[tail] = parent;
+    this.pending[tail] = child;
+    return tail + 1;
+  }
+
+  /**
+   *  \brief  Appends the children of a process to the queue via ProcessHandle.children().
+   *
+   *  @return The method returns the new end of the queue.
+   */
+  private int findChildren(long parent, int tail)
+  {
+    int end = tail;
+    Optional<ProcessHandle> handle = ProcessHandle.of(parent);
+
+    if(handle.isPresent())
+    {
+      Iterator<ProcessHandle> children = handle.get().children().iterator();
+      while(children.hasNext())
+        end = this.enqueue(children.next().pid(), parent, end);
+    }
+    return end;
+  }
+
+  /**
+   *  \brief  Reads the CPU times from \c /proc/<pid>/stat.
+   *
+   *  The name of the process in parentheses may contain blanks, so the
+   *  fields are counted from the last closing parenthesis: \c utime,
+   *  \c stime, \c cutime and \c cstime are the 12th to 15th field behind
+   *  it.
+   */
+  private boolean readStat(File directory, long[] values)
+  {
+    int length = this.read(new File(directory, "stat"));
+    int i = length - 1;
+
+    while((0 <= i) && (')' != this.buffer[i]))
+      --i;
+    if(0 > i)
+      return false;
+
+    int field = 0;
+    for(++i; (i < length) && (field < 15); ++i)
+    {
+      if(' ' != this.buffer[i])
+        continue;
+      ++field;
+      if(12 == field)
+        values[CPU_USER] = TICK * this.parseLong(i + 1, length);
+      else if(13 == field)
+        values[CPU_SYSTEM] = TICK * this.parseLong(i + 1, length);
+      else if(14 == field)
+        values[CHILD_USER] = TICK * this.parseLong(i + 1, length);
+      else if(15 == field)
+        values[CHILD_SYSTEM] = TICK * this.parseLong(i + 1, length);
+    }
+    return 15 == field;
+  }
+
+  /**
+   *  \brief  Reads the memory and the context switches from \c /proc/<pid>/status.
+   */
+  private void readStatus(File directory, long[] values)
+  {
+    int length = this.read(new File(directory, "status"));
+
+    for(int line = 0; line < length; line = this.nextLine(line, length))
+    {
+      if(this.startsWith(line, length, "VmHWM:"))
+        values[HWM] = this.parseLong(line + 6, length);
+      else if(this.startsWith(line, length, "VmRSS:"))
+        values[RSS] = this.parseLong(line + 6, length);
+      else if(this.startsWith(line, length, "voluntary_ctxt_switches:"))
+        values[VOLUNTARY] = this.parseLong(line + 24, length);
+      else if(this.startsWith(line, length, "nonvoluntary_ctxt_switches:"))
+        values[INVOLUNTARY] = this.parseLong(line + 27, length);
+    }
+  }
+
+  /**
+   *  \brief  Reads the storage I/O from \c /proc/<pid>/io.
+   *
+   *  The file is only readable for processes of the same user, otherwise
+   *  the values remain unchanged.
+   */
+  private void readIo(File directory, long[] values)
+  {
+    int length = this.read(new File(directory, "io"));
+
+    for(int line = 0; line < length; line = this.nextLine(line, length))
+    {
+      if(this.startsWith(line, length, "read_bytes:"))
+        values[READ] = this.parseLong(line + 11, length);
+      else if(this.startsWith(line, length, "write_bytes:"))
+        values[WRITE] = this.parseLong(line + 12, length);
+    }
+  }
+
+  /**
+   *  \brief  Reads a file into the buffer.
+   *
+   *  @return The method returns the number of bytes read, 0 if the file
+   *          does not exist (anymore) or is not readable.
+   */
+  private int read(File file)
+  {
+    try
+    {
+      FileInputStream in = new FileInputStream(file);
+      try
+      {
+        int length = 0;
+        int count;
+        while((length < this.buffer.length) && (0 < (count = in.read(this.buffer, length, this.buffer.length - length))))
+          length += count;
+        return length;
+      }
+      finally
+      {
+        in.close();
+      }
+    }
+    catch (IOException e)
+    {
+      return 0;
+    }
+  }
+
+  private long parseLong(int start, int length)
+  {
+    long value = 0L;
+    int i = start;
+
+    while((i < length) && ((' ' == this.buffer[i]) || ('\t' == this.buffer[i])))
+      ++i;
+    while((i < length) && ('0' <= this.buffer[i]) && ('9' >= this.buffer[i]))
+      value = 10L * value + (this.buffer[i++] - '0');
+    return value;
+  }
+
+  private boolean startsWith(int start, int length, String prefix)
+  {
+    if(start + prefix.length() > length)
+      return false;
+    for(int i = 0; i < prefix.length(); ++i)
+    {
+      if(prefix.charAt(i) != this.buffer[start + i])
+        return false;
+    }
+    return true;
+  }
+
+  private int nextLine(int start, int length)
+  {
+    int i = start;
+    while((i < length) && ('\n' != this.buffer[i]))
+      ++i;
+    return i + 1;
+  }
+}
@@ -0,0 +1,109 @@
+package org.dschweie.neoload.advancedactions.process;
+
+/**
+ *  \brief  Resources used by a process and its descendants during one execution.
+ *
+ *  The values are determined by a ResourceSampler and therefore reflect
+ *  the state of the last sample before the process terminated.
+ */
+public final class ResourceUsage
+{
+  private final long  cpuUser;
+  private final long  cpuSystem;
+  private final long  peakRss;
+  private final long  voluntarySwitches;
+  private final long  involuntarySwitches;
+  private final long  readBytes;
+  private final long  writeBytes;
+  private final int   processes;
+  private final int   samples;
+
+  /**
+   *  \brief  Constructor of the usage.
+   *
+   *  @param  cpuUser             CPU time in user mode in milliseconds.
+   *  @param  cpuSystem           CPU time in kernel mode in milliseconds.
+   *  @param  peakRss             Highest resident set size of the process
+   *                              tree in kilobytes.
+   *  @param  voluntarySwitches   Number of voluntary context switches.
+   *  @param  involuntarySwitches Number of involuntary context switches.
+   *  @param  readBytes           Bytes read from the storage layer.
+   *  @param  writeBytes          Bytes written to the storage layer.
+   *  @param  processes           Number of processes seen in the tree.
+   *  @param  samples             Number of samples taken.
+   */
+  public ResourceUsage(long cpuUser, long cpuSystem, long peakRss, long voluntarySwitches, long involuntarySwitches, long readBytes, long writeBytes, int processes, int samples)
+  {
+    this.cpuUser = cpuUser;
+    this.cpuSystem = cpuSystem;
+    this.peakRss = peakRss;
+    this.voluntarySwitches = voluntarySwitches;
+    this.involuntarySwitches = involuntarySwitches;
+    this.readBytes = readBytes;
+    this.writeBytes = writeBytes;
+    this.processes = processes;
+    this.samples = samples;
+  }
+
+  public long getCpuUser()
+  {
+    return this.cpuUser;
+  }
+
+  public long getCpuSystem()
+  {
+    return this.cpuSystem;
+  }
+
+  public long getPeakRss()
+  {
+    return this.peakRss;
+  }
+
+  public long getVoluntarySwitches()
+  {
+    return this.voluntarySwitches;
+  }
+
+  public long getInvoluntarySwitches()
+  {
+    return this.involuntarySwitches;
+  }
+
+  public long getReadBytes()
+  {
+    return this.readBytes;
+  }
+
+  public long getWriteBytes()
+  {
+    return this.writeBytes;
+  }
+
+  public int getProcesses()
+  {
+    return this.processes;
+  }
+
+  public int getSamples()
+  {
+    return this.samples;
+  }
+
+  /**
+   *  \brief  Returns the usage as an element for the response of an action.
+   */
+  public String toXml()
+  {
+    return new StringBuilder(192).append("<resources cpuuser=\"").append(this.cpuUser)
+                                 .append("\" cpusystem=\"").append(this.cpuSystem)
+                                 .append("\" peakrss=\"").append(this.peakRss)
+                                 .append("\" ctxvoluntary=\"").append(this.voluntarySwitches)
+                                 .append("\" ctxinvoluntary=\"").append(this.involuntarySwitches)
+                                 .append("\" readbytes=\"").append(this.readBytes)
+                                 .append("\" writebytes=\"").append(this.writeBytes)
+                                 .append("\" processes=\"").append(this.processes)
+                                 .append("\" samples=\"").append(this.samples)
+                                 .append("\"/>").toString();
+  }
+}
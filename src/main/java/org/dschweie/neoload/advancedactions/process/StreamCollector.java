@@ -0,0 +1,488 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ *  \brief  Drains an output stream of a process line by line.
+ *
+ *  A process started via the command line writes to its standard output
+ *  and standard error through pipes of limited size. If nobody reads
+ *  these pipes while the process is running, the process blocks as soon
+ *  as a pipe is full and never terminates.
+ *
+ *  An instance of this class reads one stream, keeps the content for the
+ *  response of the action and forwards each line to an optional listener.
+ *  The stream is read either
+ *  \li   with a buffered reader in a background thread of its own, see
+ *        start(String), or
+ *  \li   without blocking by the shared ProcessSupervisor, see
+ *        supervise(Process). The lines are split at the bytes of \c CR and
+ *        \c LF then, which requires an encoding that is compatible with
+ *        ASCII. The supervisor only queues the bytes read, the lines are
+ *        split and forwarded by a dispatcher thread of the supervisor.
+ */
+public class StreamCollector implements Runnable
+{
+  /**
+   *  \brief  Callback that receives every line read from the stream.
+   */
+  public interface LineListener
+  {
+    void onLine(String line);
+  }
+
+  /**
+   *  \brief  Size of the buffer used when reading the stream.
+   */
+  protected static final int BUFFER_SIZE = 8192;
+
+  /**
+   *  \brief  Maximum number of bytes of a supervised stream that wait for a dispatcher.
+   */
+  protected static final int QUEUE_SIZE = 65536;
+
+  private final InputStream     stream;
+  private final LineListener    listener;
+  private final CaptureBuffer   content;
+  private final Charset         charset;
+  private final CountDownLatch  finished = new CountDownLatch(1);
+  private volatile IOException  failure = null;
+  private volatile long         lastActivity = System.currentTimeMillis();
+  private final AtomicBoolean   scheduled = new AtomicBoolean(false);
+  private volatile boolean      ended = false;
+  private Process               process = null;
+  private ProcessSupervisor     supervisor = null;
+  private byte[]                queue = null;
+  private int                   queueStart = 0;
+  private int                   queueLength = 0;
+  private byte[]                pending = new byte[128];
+  private int                   pendingLength = 0;
+  private boolean               skipLF = false;
+
+  /**
+   *  \brief  Constructor of the collector.
+   *
+   *  @param  stream          The stream to be drained, typically
+   *                          Process.getInputStream() or
+   *                          Process.getErrorStream().
+   *  @param  listener        Optional callback that is informed about every
+   *                          line. The value \c null is permitted.
+   */
+  public StreamCollector(InputStream stream, LineListener listener)
+  {
+    this(stream, listener, new CaptureBuffer());
+  }
+
+  /**
+   *  \brief  Constructor of the collector with a bounded buffer.
+   *
+   *  @param  stream          The stream to be drained.
+   *  @param  listener        Optional callback that is informed about every
+   *                          line. The value \c null is permitted.
+   *  @param  content         The buffer that keeps the content of the
+   *                          stream for the response.
+   */
+  public StreamCollector(InputStream stream, LineListener listener, CaptureBuffer content)
+  {
+    this(stream, listener, content, Charset.defaultCharset());
+  }
+
+  /**
+   *  \brief  Constructor of the collector for a stream with a known encoding.
+   *
+   *  @param  stream          The stream to be drained.
+   *  @param  listener        Optional callback that is informed about every
+   *                          line. The value \c null is permitted.
+   *  @param  content         The buffer that keeps the content of the
+   *                          stream for the response.
+   *  @param  charset         The encoding of the stream.
+   */
+  public StreamCollector(InputStream stream, LineListener listener, CaptureBuffer content, Charset charset)
+  {
+    this.stream = stream;
+    this.listener = listener;
+    this.content = content;
+    this.charset = charset;
+  }
+
+  /**
+   *  \brief  Starts draining the stream in a background thread.
+   *
+   *  @param  name            Name of the thread, which helps to identify
+   *                          it in thread dumps.
+   *
+   *  @return For convenience, the method returns this instance.
+   */
+  public StreamCollector start(String name)
+  {
+    Thread thread = new Thread(this, name);
+    thread.setDaemon(true);
+    thread.start();
+    return this;
+  }
+
+  /**
+   *  \brief  Lets the shared ProcessSupervisor drain the stream without a thread of its own.
+   *
+   *  The stream ends when the process has ended and the bytes it has
+   *  written have been read. Output that descendants of the process write
+   *  after its end is not awaited.
+   *
+   *  @param  owner           The process that writes to the stream.
+   *
+   *  @return For convenience, the method returns this instance.
+   */
+  public StreamCollector supervise(Process owner)
+  {
+    return this.supervise(owner, ProcessSupervisor.getInstance());
+  }
+
+  /**
+   *  \brief  Lets a supervisor drain the stream without a thread of its own.
+   *
+   *  @param  owner           The process that writes to the stream.
+   *  @param  supervisor      The supervisor that reads the stream.
+   *
+   *  @return For convenience, the method returns this instance.
+   */
+  public StreamCollector supervise(Process owner, ProcessSupervisor supervisor)
+  {
+    this.process = owner;
+    this.supervisor = supervisor;
+    this.queue = new byte[QUEUE_SIZE];
+    supervisor.supervise(this);
+    return this;
+  }
+
+  /**
+   *  \brief  Reads the bytes that are available without blocking, called by the ProcessSupervisor.
+   *
+   *  The process is queried before the stream, so that the bytes written
+   *  shortly before the end of the process are still read. The bytes are
+   *  only queued, nothing is read while the queue is full.
+   *
+   *  @param  chunk           Buffer for the bytes read.
+   *
+   *  @return The method returns the number of bytes read or -1 if the
+   *          stream has ended.
+   */
+  int poll(byte[] chunk)
+  {
+    try
+    {
+      int free;
+      synchronized(this.queue)
+      {
+        free = this.queue.length - this.queueLength;
+      }
+      if(0 == free)
+        return 0;
+
+      boolean alive = this.process.isAlive();
+      int available = (null == this.stream) ? 0 : this.stream.available();
+      if(0 < available)
+      {
+        int read = this.stream.read(chunk, 0, Math.min(Math.min(available, chunk.length), free));
+        if(0 <= read)
+        {
+          this.offer(chunk, read);
+          return read;
+        }
+      }
+      else if(alive)
+        return 0;
+    }
+    catch (IOException e)
+    {
+      this.failure = e;
+    }
+    catch (RuntimeException e)
+    {
+      this.failure = new IOException(e);
+    }
+    this.close();
+    this.ended = true;
+    this.schedule();
+    return -1;
+  }
+
+  /**
+   *  \brief  Appends bytes to the queue and schedules their dispatch.
+   */
+  private void offer(byte[] chunk, int read)
+  {
+    synchronized(this.queue)
+    {
+      for(int i = 0; i < read; ++i)
+        this.queue[(this.queueStart + this.queueLength + i) % this.queue.length] = chunk[i];
+      this.queueLength += read;
+    }
+    this.schedule();
+  }
+
+  /**
+   *  \brief  Removes bytes from the queue.
+   *
+   *  @return The method returns the number of bytes copied to the chunk.
+   */
+  private int take(byte[] chunk)
+  {
+    synchronized(this.queue)
+    {
+      int length = Math.min(chunk.length, this.queueLength);
+      for(int i = 0; i < length; ++i)
+        chunk[i] = this.queue[(this.queueStart + i) % this.queue.length];
+      this.queueStart = (this.queueStart + length) % this.queue.length;
+      this.queueLength -= length;
+      return length;
+    }
+  }
+
+  /**
+   *  \brief  Hands the queue to a dispatcher unless a dispatcher is already processing it.
+   */
+  private void schedule()
+  {
+    if(this.scheduled.compareAndSet(false, true))
+      this.supervisor.dispatch(new Runnable() {
+        @Override
+        public void run()
+        {
+          StreamCollector.this.dispatch();
+        }
+      });
+  }
+
+  /**
+   *  \brief  Splits the queued bytes into lines, called by a dispatcher of the ProcessSupervisor.
+   *
+   *  Only one dispatcher processes a stream at a time. The stream is
+   *  completed when its end has been reached and the queue is empty.
+   */
+  private void dispatch()
+  {
+    byte[] chunk = new byte[BUFFER_SIZE];
+
+    while(true)
+    {
+      boolean end = this.ended;
+      int length = this.take(chunk);
+      if(0 < length)
+      {
+        try
+        {
+          this.split(chunk, length);
+        }
+        catch (RuntimeException e)
+        {
+          if(null == this.failure)
+            this.failure = new IOException(e);
+        }
+        continue;
+      }
+      if(end)
+      {
+        this.finish();
+        return;
+      }
+
+      this.scheduled.set(false);
+      boolean waiting;
+      synchronized(this.queue)
+      {
+        waiting = (0 < this.queueLength);
+      }
+      if(!(waiting || this.ended) || !this.scheduled.compareAndSet(false, true))
+        return;
+    }
+  }
+
+  /**
+   *  \brief  Closes a supervised stream after its end.
+   */
+  private void close()
+  {
+    try
+    {
+      if(null != this.stream)
+        this.stream.close();
+    }
+    catch (IOException | RuntimeException e)
+    {
+      if(null == this.failure)
+        this.failure = (e instanceof IOException) ? (IOException) e : new IOException(e);
+    }
+  }
+
+  /**
+   *  \brief  Splits the bytes read into lines like BufferedReader.readLine().
+   */
+  private void split(byte[] chunk, int read)
+  {
+    for(int i = 0; i < read; ++i)
+    {
+      byte current = chunk[i];
+      if(('\n' == current) && this.skipLF)
+        this.skipLF = false;
+      else if(('\n' == current) || ('\r' == current))
+      {
+        this.skipLF = ('\r' == current);
+        this.collect(new String(this.pending, 0, this.pendingLength, this.charset));
+        this.pendingLength = 0;
+      }
+      else
+      {
+        this.skipLF = false;
+        if(this.pendingLength == this.pending.length)
+          this.pending = Arrays.copyOf(this.pending, 2 * this.pending.length);
+        this.pending[this.pendingLength++] = current;
+      }
+    }
+  }
+
+  /**
+   *  \brief  Completes a supervised stream.
+   */
+  private void finish()
+  {
+    try
+    {
+      if(0 < this.pendingLength)
+        this.collect(new String(this.pending, 0, this.pendingLength, this.charset));
+    }
+    catch (RuntimeException e)
+    {
+      if(null == this.failure)
+        this.failure = new IOException(e);
+    }
+    finally
+    {
+      this.content.close();
+      this.finished.countDown();
+    }
+  }
+
+  /**
+   *  \brief  Keeps a line and forwards it to the listener.
+   */
+  private void collect(String text)
+  {
+    this.lastActivity = System.currentTimeMillis();
+    this.content.append(text);
+    this.content.append("\n");
+    if(null != this.listener)
+      this.listener.onLine(text);
+  }
+
+  /**
+   *  \brief  Reads the stream until its end is reached.
+   *
+   *  The method can also be called directly if the stream is to be
+   *  drained in the current thread.
+   */
+  @Override
+  public void run()
+  {
+    try
+    {
+      if(null != this.stream)
+      {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(this.stream, this.charset), BUFFER_SIZE);
+        try
+        {
+          String line = reader.readLine();
+          while(null != line)
+          {
+            this.collect(line);
+            line = reader.readLine();
+          }
+        }
+        finally
+        {
+          reader.close();
+        }
+      }
+    }
+    catch (IOException e)
+    {
+      this.failure = e;
+    }
+    finally
+    {
+      this.content.close();
+      this.finished.countDown();
+    }
+  }
+
+  /**
+   *  \brief  Waits until the end of the stream has been reached.
+   *
+   *  @throws InterruptedException if the current thread is interrupted
+   *                          while waiting.
+   */
+  public void await() throws InterruptedException
+  {
+    this.finished.await();
+  }
+
+  /**
+   *  \brief  Waits for a limited time until the end of the stream has been reached.
+   *
+   *  The end of the stream may never be reached if a descendant of the
+   *  process has inherited the stream and is still running.
+   *
+   *  @param  timeout         Maximum waiting time in milliseconds.
+   *
+   *  @return The method returns \c true if the end of the stream was reached.
+   *
+   *  @throws InterruptedException if the current thread is interrupted
+   *                          while waiting.
+   */
+  public boolean await(long timeout) throws InterruptedException
+  {
+    return this.finished.await(timeout, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   *  \brief  Returns the content read so far.
+   */
+  public String getContent()
+  {
+    return this.content.toString();
+  }
+
+  /**
+   *  \brief  Returns the buffer that keeps the content of the stream.
+   */
+  public CaptureBuffer getBuffer()
+  {
+    return this.content;
+  }
+
+  /**
+   *  \brief  Returns the time in milliseconds at which the last line was read.
+   *
+   *  Before the first line, the time at which the collector was created is
+   *  returned.
+   */
+  public long getLastActivity()
+  {
+    return this.lastActivity;
+  }
+
+  /**
+   *  \brief  Returns the exception that terminated reading, or \c null.
+   */
+  public IOException getFailure()
+  {
+    return this.failure;
+  }
+}
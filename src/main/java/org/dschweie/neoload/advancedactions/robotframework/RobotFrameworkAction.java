@@ -34,6 +34,40 @@ public final class RobotFrameworkAction implements Action{
 	final public static String  EXECUTION_EXCLUDE = "exclude";
 	final public static String  EXECUTION_RANDOMIZE = "randomize";
 	final public static String	TEST_SOURCE = "test source";
+	final public static String  ENGINE_ADAPTIVE = "adaptiveadmission";
+	final public static String  ENGINE_ARGUMENTFILE = "argumentfile";
+	final public static String  ENGINE_ARTIFACTS = "artifacts";
+	final public static String  ENGINE_ASYNC = "async";
+	final public static String  ENGINE_BATCH = "batch";
+	final public static String  ENGINE_BATCHVARIABLE = "batchvariable";
+	final public static String  ENGINE_CAPTURELIMIT = "capturelimit";
+	final public static String  ENGINE_COMPRESSION = "compression";
+	final public static String  ENGINE_ENVIRONMENT = "environment";
+	final public static String  ENGINE_EVENTS = "events";
+	final public static String  ENGINE_INACTIVITY = "inactivitytimeout";
+	final public static String  ENGINE_INPROCESS = "inprocess";
+	final public static String  ENGINE_KEEPFAILURES = "keepfailures";
+	final public static String  ENGINE_KEEPLAST = "keeplast";
+	final public static String  ENGINE_KILLGRACE = "killgrace";
+	final public static String  ENGINE_MAXOUTPUTSIZE = "maxoutputsize";
+	final public static String  ENGINE_MAXLOAD = "maxload";
+	final public static String  ENGINE_MAXPROCESSES = "maxprocesses";
+	final public static String  ENGINE_METRICS = "metrics";
+	final public static String  ENGINE_MINFREEMEMORY = "minfreememory";
+	final public static String  ENGINE_PHASES = "phases";
+	final public static String  ENGINE_PRELOAD = "preload";
+	final public static String  ENGINE_RELAY = "relay";
+	final public static String  ENGINE_RELAYPORT = "relayport";
+	final public static String  ENGINE_RESOURCEINTERVAL = "resourceinterval";
+	final public static String  ENGINE_SAMPLERATE = "samplerate";
+	final public static String  ENGINE_SHARDS = "shards";
+	final public static String  ENGINE_STAGING = "staging";
+	final public static String  ENGINE_STAGINGDIR = "stagingdir";
+	final public static String  ENGINE_SUBRESULTS = "subresults";
+	final public static String  ENGINE_TIMEOUT = "timeout";
+	final public static String  ENGINE_WARMUP = "warmup";
+	final public static String  ENGINE_WARMUPPATH = "warmuppath";
+	final public static String  ENGINE_WORKERRUNS = "workerruns";
 
 	@Override
 	public String getType() {
@@ -1,21 +1,1194 @@
 package org.dschweie.neoload.advancedactions.robotframework;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.dschweie.neoload.advancedactions.command.CommandFactory;
 
 import com.neotys.extensions.action.ActionParameter;
 import com.neotys.extensions.action.engine.Context;
 import com.neotys.extensions.action.engine.SampleResult;
 import org.dschweie.neoload.advancedactions.AbstractActionEngine;
+import org.dschweie.neoload.advancedactions.dataexchange.DataExchangeRelay;
+import org.dschweie.neoload.advancedactions.dataexchange.ResourceMetrics;
+import org.dschweie.neoload.advancedactions.monitoring.OutputParseEvent;
+import org.dschweie.neoload.advancedactions.monitoring.ProcessStopEvent;
+import org.dschweie.neoload.advancedactions.monitoring.ProcessWaitEvent;
+import org.dschweie.neoload.advancedactions.process.AdmissionController;
+import org.dschweie.neoload.advancedactions.process.PhaseTimeline;
+import org.dschweie.neoload.advancedactions.process.ProcessGroup;
+import org.dschweie.neoload.advancedactions.process.ProcessWatchdog;
+import org.dschweie.neoload.advancedactions.process.ResourceSampler;
+import org.dschweie.neoload.advancedactions.process.ResourceUsage;
+import org.dschweie.neoload.advancedactions.process.StreamCollector;
 import org.dschweie.neoload.advancedactions.robotframework.factory.CommandWorker;
+import org.dschweie.neoload.advancedactions.robotframework.factory.LauncherResolver;
+import org.dschweie.neoload.advancedactions.robotframework.factory.ShardPlanner;
+import org.dschweie.neoload.advancedactions.robotframework.output.ArtifactArchiver;
+import org.dschweie.neoload.advancedactions.robotframework.output.RetentionPolicy;
+import org.dschweie.neoload.advancedactions.robotframework.result.EventChannel;
+import org.dschweie.neoload.advancedactions.robotframework.result.EventCollector;
+import org.dschweie.neoload.advancedactions.robotframework.result.ExecutionNode;
+import org.dschweie.neoload.advancedactions.robotframework.result.OutputFile;
+import org.dschweie.neoload.advancedactions.robotframework.result.SyslogPhases;
+import org.dschweie.neoload.advancedactions.robotframework.warmup.WarmUp;
+import org.dschweie.neoload.advancedactions.robotframework.worker.ForkServer;
+import org.dschweie.neoload.advancedactions.robotframework.worker.ForkServerRunner;
+import org.dschweie.neoload.advancedactions.robotframework.worker.InProcessRunner;
+import org.dschweie.neoload.advancedactions.robotframework.worker.PersistentWorker;
+import org.dschweie.neoload.advancedactions.robotframework.worker.RobotRunner;
+import org.dschweie.neoload.advancedactions.robotframework.worker.ScriptResource;
+import org.dschweie.neoload.advancedactions.robotframework.worker.WorkerProtocol;
+import org.dschweie.neoload.advancedactions.robotframework.worker.WorkerResult;
 
 public final class RobotFrameworkActionEngine extends AbstractActionEngine {
 
+  /**
+   *  \brief    Default limit of characters per output stream kept in the response.
+   */
+  public static final int DEFAULT_CAPTURELIMIT = 1048576;
+
+  /**
+   *  \brief    Default number of runs after which a persistent worker is restarted.
+   */
+  public static final int DEFAULT_WORKERRUNS = 100;
+
+  /**
+   *  \brief    Bundled listener that reports the events through the EventChannel.
+   */
+  public static final String EVENT_LISTENER_SCRIPT = "NeoLoadEventListener.py";
+
+  /**
+   *  \brief    Value of the parameter \c artifacts that keeps only failed executions and samples.
+   */
+  public static final String ARTIFACTS_FAILURES = "failures";
+
+  /**
+   *  \brief    Output file of an execution in the sampling mode.
+   */
+  public static final String SAMPLING_OUTPUT = "output.xml";
+
+  /**
+   *  \brief    Bundled pre-run modifier that repeats the tests in the batch mode.
+   */
+  public static final String BATCH_MODIFIER_SCRIPT = "NeoLoadBatch.py";
+
+  /**
+   *  \brief    Suffix that the batch modifier appends to the names of the copies of a test.
+   */
+  private static final Pattern BATCH_SUFFIX = Pattern.compile("^(.*) #(\\d+)$");
+
+  /**
+   *  \brief    Runner of this virtual user if Robot Framework is not started as a process.
+   */
+  private RobotRunner runner = null;
+  private boolean inProcessUnavailable = false;
+
+  /**
+   *  \brief    Channel for the events of the listener, opened with the first iteration that uses it.
+   */
+  private EventChannel eventChannel = null;
+  private String eventListener = null;
+
+  /**
+   *  \brief    DataExchange relay of the load generator, shared by all engines of the JVM.
+   */
+  private DataExchangeRelay relay = null;
+
+  /**
+   *  \brief    Publisher of the resource usage, shared by all engines of the JVM.
+   */
+  private ResourceMetrics metrics = null;
+
+  /**
+   *  \brief    Number of executions of this engine whose outputs were staged.
+   */
+  private long outputs = 0L;
+
+  /**
+   *  \brief    Processes of the current execution in the sharded mode.
+   */
+  private volatile ProcessGroup shards = null;
+
   @Override
   public SampleResult execute(Context context, List<ActionParameter> parameters) {
+    this.resetReport(context);
+    this.source = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.TEST_SOURCE, null);
+    this.captureLimit = CommandFactory.getIntegerParameterValue(parameters, RobotFrameworkAction.ENGINE_CAPTURELIMIT, DEFAULT_CAPTURELIMIT);
+    this.startRelay(context, parameters);
+    this.configureWatchdog(parameters);
+    this.configureResources(parameters);
+    this.configureAdmission(parameters);
+    this.phases = Boolean.parseBoolean(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_PHASES, "false"));
+    SampleResult warmup = this.warmUp(context, parameters);
+    if((null != warmup) && warmup.isError())
+      return warmup;
     //parameters.add(new ActionParameter("-variable", "NEOLOAD-USERPATH=".concat("context.getCurrentVirtualUser().getId()")));
     // SampleResult retval =
-    return this.executeProcess(context, CommandWorker.buildCommand(parameters), true, true, CommandFactory.getParameterValue(parameters, "forceStatusCode", null));
+    SampleResult result;
+    OutputFile output = null;
+    EventCollector events = null;
+    List<ActionParameter> effective = parameters;
+    String environment = CommandWorker.getEnvironment(parameters);
+    if(CommandWorker.AUTO_MODE.equals(environment))
+      this.reportLauncher(context);
+    //  background executions are only supported for processes, runners execute one call after the other
+    boolean async = Boolean.parseBoolean(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_ASYNC, "false"))
+                    && !CommandWorker.PERSISTENT_MODE.equals(environment) && !CommandWorker.FORKSERVER_MODE.equals(environment);
+    //  the batch mode reports its iterations from the output file instead of the events
+    int batch = async ? 1 : CommandFactory.getIntegerParameterValue(parameters, RobotFrameworkAction.ENGINE_BATCH, 1);
+    //  sub-results need the end of the execution, so they are not available in the background
+    if(!async && (1 >= batch) && Boolean.parseBoolean(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_EVENTS, "false")))
+    {
+      events = this.beginEvents(context);
+      if(null != events)
+      {
+        effective = new ArrayList<ActionParameter>(parameters);
+        effective.add(new ActionParameter(CommandWorker.EVENT_LISTENER, this.eventListener));
+      }
+    }
+    //  the outputs of background executions are not complete when the action returns
+    File staging = async ? null : this.stageOutput(context, effective);
+    if(null != staging)
+    {
+      effective = new ArrayList<ActionParameter>(effective);
+      effective.add(new ActionParameter(RobotFrameworkAction.OUTPUT_OUTPUTDIR, staging.getAbsolutePath()));
+      if(this.isSampling(parameters))
+      {
+        effective.add(new ActionParameter(RobotFrameworkAction.OUTPUT_OUTPUT, SAMPLING_OUTPUT));
+        effective.add(new ActionParameter(RobotFrameworkAction.OUTPUT_LOG, "NONE"));
+        effective.add(new ActionParameter(RobotFrameworkAction.OUTPUT_REPORT, "NONE"));
+      }
+    }
+    List<ActionParameter> batched = (1 < batch) ? this.prepareBatch(context, effective, batch) : null;
+    if(null != batched)
+      effective = batched;
+    RobotRunner current = null;
+    List<List<String>> plan = null;
+    if(CommandWorker.PERSISTENT_MODE.equals(environment) || CommandWorker.FORKSERVER_MODE.equals(environment))
+      current = this.getRunner(context, effective);
+    else if(!async && (null == events) && (null == batched))
+      plan = this.planShards(context, effective);
+    if(CommandWorker.JAVA_MODE.equals(environment) && !async && (null == plan))
+      current = this.getInProcessRunner(context, effective);
+
+    if(null != current)
+    {
+      List<String> arguments = CommandWorker.buildArguments(effective);
+      output = (null == events) ? this.prepareOutput(context, effective, arguments) : null;
+      arguments = this.compactCommand(context, effective, arguments, true);
+      result = this.executeRunner(context, current, arguments, CommandFactory.getParameterValue(effective, "forceStatusCode", null));
+    }
+    else if(null != plan)
+      result = this.executeShards(context, effective, plan, CommandFactory.getParameterValue(effective, "forceStatusCode", null));
+    else
+    {
+      List<String> command = CommandWorker.buildCommand(effective);
+      output = ((null == events) && !async) ? this.prepareOutput(context, effective, command) : null;
+      command = this.compactCommand(context, effective, command, false);
+      result = this.executeProcess(context, command, !async, true, CommandFactory.getParameterValue(effective, "forceStatusCode", null));
+    }
+    if(null != warmup)
+      result.addSubResult(warmup);
+    this.reportDeferredResults(context, result);
+    if(null != events)
+      this.addSubResults(result, events.await(EventChannel.DRAIN_TIMEOUT));
+    this.reportSubResults(context, result, output, null != batched);
+    if(null != staging)
+      this.archiveOutput(context, parameters, staging, result);
+    return result;
+  }
+
+  /**
+   *  \brief    Reads the limits of the watchdog from the parameters.
+   *
+   *  The parameters \c timeout and \c inactivitytimeout limit the total
+   *  duration and the time without any output of an execution in seconds,
+   *  \c killgrace defines the seconds between the stages of the termination.
+   *  Without the parameters, executions are not limited.
+   *
+   *  @param    parameters    The list of parameters that the user has
+   *                          configured for the action in NeoLoad.
+   */
+  protected void configureWatchdog(List<ActionParameter> parameters)
+  {
+    this.timeout = 1000L * CommandFactory.getIntegerParameterValue(parameters, RobotFrameworkAction.ENGINE_TIMEOUT, 0);
+    this.inactivityTimeout = 1000L * CommandFactory.getIntegerParameterValue(parameters, RobotFrameworkAction.ENGINE_INACTIVITY, 0);
+    this.killGrace = 1000L * CommandFactory.getIntegerParameterValue(parameters, RobotFrameworkAction.ENGINE_KILLGRACE, (int) (DEFAULT_KILLGRACE / 1000L));
+  }
+
+  /**
+   *  \brief    Reads the configuration of the resource accounting from the parameters.
+   *
+   *  The parameter \c resourceinterval defines the interval in milliseconds
+   *  in which the resources of the process tree are sampled, the value 0
+   *  disables the sampling. If the parameter \c metrics contains the address
+   *  of the DataExchange API, the usage is also published as external data.
+   *
+   *  @param    parameters    The list of parameters that the user has
+   *                          configured for the action in NeoLoad.
+   */
+  protected void configureResources(List<ActionParameter> parameters)
+  {
+    String controller = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_METRICS, null);
+
+    this.resourceInterval = CommandFactory.getIntegerParameterValue(parameters, RobotFrameworkAction.ENGINE_RESOURCEINTERVAL, (int) ResourceSampler.DEFAULT_INTERVAL);
+    if((null != controller) && (null == this.metrics))
+      this.metrics = ResourceMetrics.getInstance(controller);
+  }
+
+  /**
+   *  \brief    Moves the static options of the command into an argument file if it is requested.
+   *
+   *  With the parameter \c argumentfile set to \c true, the options whose
+   *  values do not change between the iterations of the action are passed
+   *  to Robot Framework in a cached argument file, see ArgumentFile. If
+   *  the file cannot be written, the command is used unchanged.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    parameters    The list of parameters from which the command
+   *                          was built.
+   *  @param    command       The command or the arguments for a runner.
+   *  @param    arguments     \c true if \em command contains only arguments.
+   *
+   *  @return   The method returns the command to be executed.
+   */
+  protected List<String> compactCommand(Context context, List<ActionParameter> parameters, List<String> command, boolean arguments)
+  {
+    if(!Boolean.parseBoolean(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_ARGUMENTFILE, "false")))
+      return command;
+    try
+    {
+      return CommandWorker.compactCommand(parameters, command, arguments);
+    }
+    catch (IOException e)
+    {
+      if((null != context) && (null != context.getLogger()))
+        context.getLogger().warn("argument file could not be written: ".concat(String.valueOf(e.getMessage())));
+      return command;
+    }
+  }
+
+  /**
+   *  \brief    Returns \c true if only the artifacts of failed executions and of samples are kept.
+   */
+  protected boolean isSampling(List<ActionParameter> parameters)
+  {
+    return ARTIFACTS_FAILURES.equalsIgnoreCase(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_ARTIFACTS, "all").trim());
+  }
+
+  /**
+   *  \brief    Creates the staging directory of an execution if it is requested.
+   *
+   *  If the parameter \c staging is \c true and \c outputdir is set, Robot
+   *  Framework writes its outputs into a new directory per execution on a
+   *  fast file system instead, by default below \c /dev/shm. The parameter
+   *  \c stagingdir overrides the root of these directories. Afterwards the
+   *  outputs are moved to \c outputdir by archiveOutput().
+   *
+   *  If the parameter \c artifacts is \c failures, every execution is
+   *  staged and writes only its output file, log and report are rendered
+   *  afterwards for the executions that are kept.
+   *
+   *  @return   The method returns the staging directory or \c null if the
+   *            outputs are written directly.
+   */
+  protected File stageOutput(Context context, List<ActionParameter> parameters)
+  {
+    if(!this.isSampling(parameters)
+       && ((null == CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_OUTPUTDIR, null))
+           || !Boolean.parseBoolean(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_STAGING, "false"))))
+      return null;
+
+    String root = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_STAGINGDIR, null);
+    File staging = new File((null == root) ? ArtifactArchiver.getFastPath() : new File(root), this.getScratchFile(context, String.valueOf(++this.outputs)).getName());
+    if(!staging.isDirectory() && !staging.mkdirs())
+    {
+      if((null != context) && (null != context.getLogger()))
+        context.getLogger().warn("staging directory could not be created: ".concat(staging.getPath()));
+      return null;
+    }
+    return staging;
+  }
+
+  /**
+   *  \brief    Hands the outputs of an execution over to the archiver.
+   *
+   *  The outputs are moved in the background into a directory of the same
+   *  name below \c outputdir. The parameter \c compression selects \c gzip
+   *  (default) or \c none, the parameters \c keeplast, \c keepfailures and
+   *  \c maxoutputsize (in MB) define the RetentionPolicy.
+   *
+   *  In the sampling mode, passed executions are only kept if they are one
+   *  of \c samplerate (default 0, i.e. none), and the outputs are archived
+   *  below the directory for temporary files if \c outputdir is not set.
+   */
+  protected void archiveOutput(Context context, List<ActionParameter> parameters, File staging, SampleResult result)
+  {
+    ArtifactArchiver archiver = ArtifactArchiver.getInstance();
+    boolean sampling = this.isSampling(parameters);
+    String outputdir = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_OUTPUTDIR, null);
+    File root = (null != outputdir) ? new File(outputdir) : new File(new File(System.getProperty("java.io.tmpdir"), "neoload-advancedactions"), "artifacts");
+    boolean compress = !"none".equalsIgnoreCase(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_COMPRESSION, "gzip").trim());
+    boolean keep = result.isError() || (sampling && archiver.sample(CommandFactory.getIntegerParameterValue(parameters, RobotFrameworkAction.ENGINE_SAMPLERATE, 0)));
+    RetentionPolicy policy = new RetentionPolicy(CommandFactory.getIntegerParameterValue(parameters, RobotFrameworkAction.ENGINE_KEEPLAST, 0),
+                                                 sampling || Boolean.parseBoolean(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_KEEPFAILURES, "false")),
+                                                 1048576L * CommandFactory.getIntegerParameterValue(parameters, RobotFrameworkAction.ENGINE_MAXOUTPUTSIZE, 0));
+    File output = new File(staging, SAMPLING_OUTPUT);
+    List<String> render = (sampling && output.isFile()) ? CommandWorker.buildRebotCommand(parameters, output) : null;
+
+    archiver.archive(staging, new File(root, staging.getName()), keep, compress, policy, render);
+  }
+
+  /**
+   *  \brief    Splits the tests of the test source into shards if it is requested.
+   *
+   *  The parameter \c shards defines the maximum number of concurrent
+   *  processes, \c auto uses the processors that are not occupied by the
+   *  processes already admitted, see ShardPlanner.getDefaultShards(). The
+   *  test source is not split if it contains fewer than two tests or if the
+   *  user selects tests by \c test, \c task, \c suite or \c include, whose
+   *  combination with the selection of the shards would change the result.
+   *
+   *  @return   The method returns the names of the tests per shard or
+   *            \c null if the execution is not sharded.
+   */
+  protected List<List<String>> planShards(Context context, List<ActionParameter> parameters)
+  {
+    String value = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_SHARDS, null);
+    String source = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.TEST_SOURCE, null);
+
+    if((null == value) || (null == source))
+      return null;
+    for(String selection : Arrays.asList(RobotFrameworkAction.EXECUTION_TEST, RobotFrameworkAction.EXECUTION_TASK, RobotFrameworkAction.EXECUTION_SUITE, RobotFrameworkAction.EXECUTION_INCLUDE))
+    {
+      if(null != CommandFactory.getParameterValue(parameters, selection, null))
+        return null;
+    }
+    int count = "auto".equalsIgnoreCase(value.trim()) ? ShardPlanner.getDefaultShards(this.admission) : CommandFactory.getIntegerParameterValue(parameters, RobotFrameworkAction.ENGINE_SHARDS, 1);
+    if(2 > count)
+      return null;
+    try
+    {
+      List<List<String>> plan = ShardPlanner.split(ShardPlanner.listTests(new File(source), CommandFactory.getParameterValue(parameters, RobotFrameworkAction.EXECUTION_EXTENSION, null)), count);
+      return (1 < plan.size()) ? plan : null;
+    }
+    catch (IOException e)
+    {
+      if((null != context) && (null != context.getLogger()))
+        context.getLogger().warn("tests could not be listed for sharding: ".concat(String.valueOf(e.getMessage())));
+      return null;
+    }
+  }
+
+  /**
+   *  \brief    Executes the shards concurrently and merges them into one result.
+   *
+   *  Every shard is a process of its own with the watchdog and the admission
+   *  control of a main process. If \c outputdir is set, a shard writes its
+   *  outputs into the subdirectory \c shard-<n> and the output files are
+   *  merged by \c rebot into the configured files of \c outputdir.
+   *
+   *  The response contains the console of every shard, each shard is also
+   *  reported as sub-result. The status code is combined by
+   *  ShardPlanner.combine().
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    parameters    The list of parameters of the execution.
+   *  @param    plan          The names of the tests per shard.
+   *  @param    forceCode     A fixed status code or \c null.
+   *
+   *  @return   The method returns the result of the execution.
+   */
+  protected SampleResult executeShards(Context context, List<ActionParameter> parameters, List<List<String>> plan, String forceCode)
+  {
+    SampleResult result = new SampleResult();
+    String outputdir = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_OUTPUTDIR, null);
+    String output = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_OUTPUT, "output.xml");
+    boolean merge = (null != outputdir) && !"NONE".equalsIgnoreCase(output)
+                    && !Boolean.parseBoolean(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_TIMESTAMPS, "false"));
+    List<ProcessGroup.Member> members = new ArrayList<ProcessGroup.Member>(plan.size());
+    List<File> outputs = new ArrayList<File>(plan.size());
+    List<String> codes = new ArrayList<String>(plan.size());
+
+    for(int i = 0; i < plan.size(); ++i)
+    {
+      File directory = (null == outputdir) ? null : new File(outputdir, "shard-".concat(String.valueOf(i + 1)));
+      List<String> command = CommandWorker.buildShardCommand(parameters, plan.get(i), directory);
+      ProcessBuilder builder = new ProcessBuilder(command);
+      this.reportProcessCall(command);
+      this.configureProcess(context, builder);
+      //  the capture buffers append to their spill files, see resetReport()
+      String stdout = "stdout-".concat(String.valueOf(i + 1));
+      String stderr = "stderr-".concat(String.valueOf(i + 1));
+      this.getSpillFile(context, stdout).delete();
+      this.getSpillFile(context, stderr).delete();
+      members.add(new ProcessGroup.Member(builder, this.createCaptureBuffer(context, stdout), this.createCaptureBuffer(context, stderr)));
+      if(merge)
+        outputs.add(new File(directory, output));
+    }
+    this.reportToResponse("<?xml version=\"1.0\"?>");
+
+    ProcessGroup group = new ProcessGroup(this.timeout, this.inactivityTimeout, this.killGrace, this.admission);
+    this.shards = group;
+    result.sampleStart();
+    try
+    {
+      group.run(members);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    result.sampleEnd();
+    this.shards = null;
+
+    for(int i = 0; i < members.size(); ++i)
+    {
+      ProcessGroup.Member member = members.get(i);
+      SampleResult shard = new SampleResult();
+      String code = String.valueOf(member.getStatusCode());
+
+      codes.add(code);
+      shard.setRequestContent(this.buildProcessCallToString(member.getCommand()));
+      shard.setStatusCode(code);
+      shard.setError(!"0".equals(code));
+      shard.setDuration(Math.max(0L, member.getEnd() - member.getStart()));
+      if(null != this.admission)
+        this.reportAdmission(context, shard, member.getQueued());
+
+      this.responseBuilder.append("\n<shard index=\"").append(i + 1).append("\" tests=\"").append(plan.get(i).size()).append("\">");
+      if(null != member.getStdout())
+      {
+        this.reportProcessInput(context, member.getStdout());
+        shard.setResponseContent(member.getStdout().getContent());
+      }
+      if((null != member.getWatchdog()) && member.getWatchdog().isTriggered())
+        this.reportWatchdog(context, member.getWatchdog());
+      if(null != member.getFailure())
+        this.responseBuilder.append("\n<exception>").append(member.getFailure()).append("</exception>");
+      if(shard.isError() && (null != member.getStderr()))
+        this.reportProcessErrors(context, member.getStderr());
+      this.responseBuilder.append("\n<exitcode>").append(code).append("</exitcode>\n</shard>");
+      result.addSubResult(shard);
+    }
+
+    List<File> existing = new ArrayList<File>(outputs.size());
+    for(File file : outputs)
+    {
+      if(file.isFile())
+        existing.add(file);
+    }
+    if(!existing.isEmpty() && !Thread.currentThread().isInterrupted())
+    {
+      List<String> command = CommandWorker.buildMergeCommand(parameters, existing);
+      SampleResult merged = this.executeSubprocess(context, command);
+      merged.setRequestContent(this.buildProcessCallToString(command));
+      merged.setResponseContent("<exitcode>".concat(String.valueOf(merged.getStatusCode())).concat("</exitcode>"));
+      result.addSubResult(merged);
+    }
+
+    result.setStatusCode((null == forceCode) ? ShardPlanner.combine(codes) : forceCode);
+    result.setError(!"0".equals(result.getStatusCode()));
+    this.responseBuilder.append("\n<exitcode>").append(result.getStatusCode()).append("</exitcode>");
+    result.setRequestContent(this.requestBuilder.toString());
+    result.setResponseContent(this.responseBuilder.toString());
+    return result;
+  }
+
+  /**
+   *  \brief    Logs the launcher chosen for the environment \c AUTO once per load generator.
+   *
+   *  The first call determines the launcher, see LauncherResolver. The log
+   *  contains the startup cost of all candidates, so that differences
+   *  between load generators can be explained.
+   */
+  protected void reportLauncher(Context context)
+  {
+    LauncherResolver.Launcher launcher = LauncherResolver.resolve();
+
+    if(launcher.claim() && (null != context) && (null != context.getLogger()))
+      context.getLogger().info("launcher: ".concat(launcher.toString()).concat("\n").concat(launcher.getReport()));
+  }
+
+  /**
+   *  \brief    Executes the warm-up of the suite if it is requested.
+   *
+   *  If the parameter \c warmup is \c true, the directories of the suite
+   *  are byte-compiled and the command is executed once with \c --dryrun
+   *  before the first execution on this load generator (see WarmUp). The
+   *  parameter \c warmuppath adds further directories of resources and
+   *  libraries, separated by the path separator of the platform.
+   *
+   *  @return   The method returns \c null if nothing has to be reported, the
+   *            result of the warm-up for the virtual user that executed it or
+   *            an error result if the dry run failed. In this case the suite
+   *            is not executed until its content changes.
+   */
+  protected SampleResult warmUp(Context context, List<ActionParameter> parameters)
+  {
+    if(!Boolean.parseBoolean(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_WARMUP, "false")))
+      return null;
+
+    final List<File> directories = new ArrayList<File>();
+    String source = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.TEST_SOURCE, null);
+    if(null != source)
+    {
+      File file = new File(source);
+      directories.add((file.isFile() && (null != file.getParentFile())) ? file.getParentFile() : file);
+    }
+    String path = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_WARMUPPATH, null);
+    if(null != path)
+    {
+      for(String entry : path.split(File.pathSeparator))
+      {
+        if(!entry.trim().isEmpty())
+          directories.add(new File(entry.trim()));
+      }
+    }
+
+    try
+    {
+      WarmUp.Outcome outcome = WarmUp.prepare(CommandWorker.getPythonCommand(parameters), directories, CommandWorker.buildDryRunCommand(parameters));
+      boolean claimed = outcome.claim();
+      if(claimed && (null != context) && (null != context.getLogger()))
+        context.getLogger().info("warm-up ".concat(outcome.getKey()).concat(" finished with ").concat(String.valueOf(outcome.getDryRunCode())));
+      return (claimed || !outcome.isSuccessful()) ? outcome.toSampleResult() : null;
+    }
+    catch (IOException e)
+    {
+      if((null != context) && (null != context.getLogger()))
+        context.getLogger().warn("warm-up could not be executed: ".concat(String.valueOf(e.getMessage())));
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    return null;
+  }
+
+  /**
+   *  \brief    Reads the configuration of the admission control from the parameters.
+   *
+   *  The parameter \c maxprocesses limits the number of Robot Framework
+   *  processes that run concurrently on the load generator. With
+   *  \c adaptiveadmission set to \c true, processes are also held back
+   *  while the load average exceeds \c maxload (default: number of
+   *  processors) or the available memory falls below \c minfreememory
+   *  in MB (default 512). Without these parameters, processes are started
+   *  immediately.
+   *
+   *  @param    parameters    The list of parameters that the user has
+   *                          configured for the action in NeoLoad.
+   */
+  protected void configureAdmission(List<ActionParameter> parameters)
+  {
+    int limit = CommandFactory.getIntegerParameterValue(parameters, RobotFrameworkAction.ENGINE_MAXPROCESSES, 0);
+    boolean adaptive = Boolean.parseBoolean(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_ADAPTIVE, "false"));
+    double load = 0.0;
+
+    if((0 >= limit) && !adaptive)
+    {
+      this.admission = null;
+      return;
+    }
+    try
+    {
+      load = Double.parseDouble(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_MAXLOAD, "0").trim());
+    }
+    catch (NumberFormatException e)
+    {
+      //  the number of processors is used
+    }
+    this.admission = AdmissionController.getInstance();
+    this.admission.configure(limit, adaptive, load, 1024L * CommandFactory.getIntegerParameterValue(parameters, RobotFrameworkAction.ENGINE_MINFREEMEMORY, (int) (AdmissionController.DEFAULT_MINFREE / 1024L)));
+  }
+
+  /**
+   *  \brief    Enables the syslog of Robot Framework if the phases are requested.
+   *
+   *  The syslog is written to a scratch file of the virtual user, which is
+   *  replaced with every execution.
+   */
+  @Override
+  protected void configureProcess(Context context, ProcessBuilder builder)
+  {
+    if(!this.phases)
+      return;
+
+    File syslog = this.getScratchFile(context, "syslog.txt");
+    syslog.delete();
+    syslog.getParentFile().mkdirs();
+    builder.environment().put(SyslogPhases.SYSLOG_FILE, syslog.getAbsolutePath());
+    builder.environment().put(SyslogPhases.SYSLOG_LEVEL, "INFO");
+  }
+
+  /**
+   *  \brief    Adds the phases of Robot Framework from the syslog to the timeline.
+   */
+  @Override
+  protected void reportPhases(Context context, SampleResult result, PhaseTimeline timeline)
+  {
+    File syslog = this.getScratchFile(context, "syslog.txt");
+
+    if(syslog.isFile())
+    {
+      try
+      {
+        SyslogPhases.mark(syslog, timeline);
+      }
+      catch (IOException e)
+      {
+        if((null != context) && (null != context.getLogger()))
+          context.getLogger().warn("syslog could not be read: ".concat(String.valueOf(e.getMessage())));
+      }
+    }
+    super.reportPhases(context, result, timeline);
+  }
+
+  @Override
+  protected void reportResourceUsage(Context context, ResourceUsage usage)
+  {
+    super.reportResourceUsage(context, usage);
+    if(null != this.metrics)
+      this.metrics.add(usage);
+  }
+
+  /**
+   *  \brief    Starts the DataExchange relay of the load generator if it is configured.
+   *
+   *  The parameter \c relay contains the address of the DataExchange API of
+   *  the controller (e.g. \c controller:7400). The relay is started once per
+   *  JVM on the port given by \c relayport and is shared by all virtual
+   *  users. The listeners have to be configured with this port instead of
+   *  the port of the controller.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    parameters    The list of parameters that the user has
+   *                          configured for the action in NeoLoad.
+   */
+  protected void startRelay(Context context, List<ActionParameter> parameters)
+  {
+    String controller = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_RELAY, null);
+
+    if((null == controller) || (null != this.relay))
+      return;
+    try
+    {
+      this.relay = DataExchangeRelay.getInstance(controller, CommandFactory.getIntegerParameterValue(parameters, RobotFrameworkAction.ENGINE_RELAYPORT, DataExchangeRelay.DEFAULT_PORT));
+    }
+    catch (IOException e)
+    {
+      if((null != context) && (null != context.getLogger()))
+        context.getLogger().warn("DataExchange relay could not be started: ".concat(String.valueOf(e.getMessage())));
+    }
+  }
+
+  /**
+   *  \brief    Starts the collection of the listener events for an iteration.
+   *
+   *  The event channel is opened with the first iteration and is then used
+   *  for all iterations of the virtual user. The sub-results are created
+   *  from the events while Robot Framework is running, so neither the
+   *  output file has to be parsed nor the NeoLoad controller is contacted
+   *  by the listener.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *
+   *  @return   The method returns the collector of the iteration or \c null
+   *            if the channel could not be opened.
+   */
+  protected EventCollector beginEvents(Context context)
+  {
+    if(null == this.eventChannel)
+    {
+      try
+      {
+        File script = ScriptResource.extract(EVENT_LISTENER_SCRIPT);
+        this.eventChannel = EventChannel.open();
+        this.eventListener = this.eventChannel.getListenerSpecification(script);
+      }
+      catch (IOException e)
+      {
+        if((null != context) && (null != context.getLogger()))
+          context.getLogger().warn("event channel could not be opened: ".concat(String.valueOf(e.getMessage())));
+        return null;
+      }
+    }
+    return this.eventChannel.begin(this.createLineListener(context, "event"));
+  }
+
+  /**
+   *  \brief    Prepares the output file if sub-results are requested.
+   *
+   *  The parameter \c subresults enables the sub-results with the value
+   *  \c true. With the value \c pipe the output is passed through a named
+   *  pipe instead of a scratch file where possible (see OutputFile).
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    parameters    The list of parameters that the user has
+   *                          configured for the action in NeoLoad.
+   *  @param    command       The command or the arguments for Robot Framework,
+   *                          which may be changed by the method.
+   *
+   *  @return   The method returns the output file or \c null if no
+   *            sub-results are requested.
+   */
+  protected OutputFile prepareOutput(Context context, List<ActionParameter> parameters, List<String> command)
+  {
+    String mode = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_SUBRESULTS, "false").trim();
+    boolean pipe = "pipe".equalsIgnoreCase(mode);
+
+    if(!pipe && !Boolean.parseBoolean(mode) && (null == CommandFactory.getParameterValue(parameters, CommandWorker.BATCH_MODIFIER, null)))
+      return null;
+
+    OutputFile output = OutputFile.prepare(command, this.getScratchFile(context, "output.xml"), pipe);
+    output.begin();
+    return output;
+  }
+
+  /**
+   *  \brief    Adds the suites, tests and top-level keywords as sub-results.
+   *
+   *  The sub-results are additional information. If the output file cannot
+   *  be read, a warning is logged and the result remains unchanged.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    result        The result of the execution.
+   *  @param    output        The output file or \c null.
+   *  @param    batch         \c true if the tests were repeated in the
+   *                          batch mode, the sub-results are the iterations
+   *                          then.
+   */
+  protected void reportSubResults(Context context, SampleResult result, OutputFile output, boolean batch)
+  {
+    if(null == output)
+      return;
+    try
+    {
+      OutputParseEvent parsed = new OutputParseEvent();
+      parsed.begin();
+      List<ExecutionNode> suites = output.collect();
+      parsed.end();
+      if(parsed.shouldCommit())
+      {
+        parsed.setBytes(output.isPipe() ? 0L : output.getFile().length());
+        parsed.setSuites(suites.size());
+        this.commitEvent(parsed, this.process);
+      }
+      if(batch)
+        RobotFrameworkActionEngine.addBatchResults(result, suites);
+      else
+        this.addSubResults(result, suites);
+    }
+    catch (IOException e)
+    {
+      if((null != context) && (null != context.getLogger()))
+        context.getLogger().warn("sub-results could not be read: ".concat(String.valueOf(e.getMessage())));
+    }
+    finally
+    {
+      output.close();
+    }
+  }
+
+  /**
+   *  \brief    Adds one sub-result per suite to the result.
+   */
+  private void addSubResults(SampleResult result, List<ExecutionNode> suites)
+  {
+    for(ExecutionNode suite : suites)
+      result.addSubResult(suite.toSampleResult());
+  }
+
+  /**
+   *  \brief    Adds one sub-result per iteration of the batch mode to the result.
+   *
+   *  The copies of the tests are assigned to their iteration by the suffix
+   *  of their names. The duration of an iteration is the sum of the
+   *  durations of its tests, it fails if one of its tests fails. The tests
+   *  are the sub-results of the iteration.
+   */
+  protected static void addBatchResults(SampleResult result, List<ExecutionNode> suites)
+  {
+    TreeMap<Integer, SampleResult> iterations = new TreeMap<Integer, SampleResult>();
+    List<ExecutionNode> pending = new ArrayList<ExecutionNode>(suites);
+
+    while(!pending.isEmpty())
+    {
+      ExecutionNode node = pending.remove(0);
+      if(!ExecutionNode.TEST.equals(node.getType()))
+      {
+        pending.addAll(0, node.getChildren());
+        continue;
+      }
+      Matcher matcher = BATCH_SUFFIX.matcher(node.getName());
+      if(!matcher.matches())
+        continue;
+
+      Integer index = Integer.valueOf(matcher.group(2));
+      SampleResult iteration = iterations.get(index);
+      if(null == iteration)
+      {
+        iteration = new SampleResult();
+        iteration.setRequestContent("iteration ".concat(index.toString()));
+        iteration.setStatusCode("PASS");
+        iteration.setError(false);
+        iteration.setDuration(0L);
+        iterations.put(index, iteration);
+      }
+      iteration.setDuration(iteration.getDuration() + Math.max(0L, node.getDuration()));
+      if(node.isFailed())
+      {
+        iteration.setStatusCode("FAIL");
+        iteration.setError(true);
+      }
+      iteration.addSubResult(node.toSampleResult());
+    }
+    for(SampleResult iteration : iterations.values())
+    {
+      iteration.setResponseContent("<iteration tests=\"".concat(String.valueOf(iteration.getSubResults().size())).concat("\">")
+                                   .concat(iteration.getStatusCode()).concat("</iteration>"));
+      result.addSubResult(iteration);
+    }
+  }
+
+  /**
+   *  \brief    Prepares the batch mode, in which one execution repeats the tests.
+   *
+   *  The bundled modifier NeoLoadBatch.py copies the selected tests
+   *  \em iterations times. The selection by \c test or \c task is passed
+   *  to the modifier, because Robot Framework would apply it to the renamed
+   *  copies. Every parameter \c batchvariable of the form
+   *  <tt>NAME:value1|value2|...</tt> sets the variable \c NAME per
+   *  iteration to the next value, \c NL_ITERATION contains the number of
+   *  the iteration.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    parameters    The list of parameters of the execution.
+   *  @param    iterations    Number of iterations per execution.
+   *
+   *  @return   The method returns the parameters of the batch mode or
+   *            \c null if the modifier cannot be provided.
+   */
+  protected List<ActionParameter> prepareBatch(Context context, List<ActionParameter> parameters, int iterations)
+  {
+    List<ActionParameter> effective = new ArrayList<ActionParameter>(parameters.size() + 1);
+    StringBuilder specification = new StringBuilder("iterations\t").append(iterations).append('\n');
+
+    for(ActionParameter parameter : parameters)
+    {
+      if(RobotFrameworkAction.EXECUTION_TEST.equals(parameter.getName()) || RobotFrameworkAction.EXECUTION_TASK.equals(parameter.getName()))
+        continue;
+      effective.add(parameter);
+      if(RobotFrameworkAction.ENGINE_BATCHVARIABLE.equals(parameter.getName()) && (0 < String.valueOf(parameter.getValue()).indexOf(':')))
+      {
+        String value = parameter.getValue();
+        specification.append("variable\t").append(value.substring(0, value.indexOf(':')).trim());
+        for(String item : value.substring(value.indexOf(':') + 1).split("\\|", -1))
+          specification.append('\t').append(item);
+        specification.append('\n');
+      }
+    }
+    for(String selection : Arrays.asList(RobotFrameworkAction.EXECUTION_TEST, RobotFrameworkAction.EXECUTION_TASK))
+    {
+      String value = CommandFactory.getParameterValue(parameters, selection, null);
+      if(null != value)
+        specification.append("test\t").append(value).append('\n');
+    }
+
+    try
+    {
+      File script = ScriptResource.extract(BATCH_MODIFIER_SCRIPT);
+      File file = this.getScratchFile(context, "batch.txt");
+      Files.createDirectories(file.getParentFile().toPath());
+      Files.write(file.toPath(), specification.toString().getBytes(StandardCharsets.UTF_8));
+      effective.add(new ActionParameter(CommandWorker.BATCH_MODIFIER, script.getAbsolutePath().concat(";").concat(file.getAbsolutePath())));
+      return effective;
+    }
+    catch (IOException e)
+    {
+      if((null != context) && (null != context.getLogger()))
+        context.getLogger().warn("batch mode could not be prepared: ".concat(String.valueOf(e.getMessage())));
+      return null;
+    }
+  }
+
+  /**
+   *  \brief    Returns the runner of this virtual user and creates it if necessary.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    parameters    The list of parameters that the user has
+   *                          configured for the action in NeoLoad.
+   *
+   *  @return   The method returns the runner.
+   */
+  protected RobotRunner getRunner(Context context, List<ActionParameter> parameters)
+  {
+    if(null == this.runner)
+    {
+      String preload = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_PRELOAD, "");
+      List<String> modules = preload.trim().isEmpty() ? new Vector<String>() : Arrays.asList(preload.split(","));
+
+      if(CommandWorker.FORKSERVER_MODE.equals(CommandWorker.getEnvironment(parameters)))
+        this.runner = new ForkServerRunner(ForkServer.getInstance(CommandWorker.getPythonCommand(parameters), modules, this.createLineListener(context, "forkserver")));
+      else
+        this.runner = new PersistentWorker(CommandWorker.getPythonCommand(parameters),
+                                           modules,
+                                           CommandFactory.getIntegerParameterValue(parameters, RobotFrameworkAction.ENGINE_WORKERRUNS, DEFAULT_WORKERRUNS),
+                                           this.createLineListener(context, "worker"));
+    }
+    return this.runner;
+  }
+
+  /**
+   *  \brief    Returns the runner that executes the jar of Robot Framework inside this JVM.
+   *
+   *  The runner is used in the environment \c JAVA if the parameter
+   *  \c inprocess is \c true, see InProcessRunner. If the jar cannot be
+   *  loaded or the runner has failed, the method returns \c null and the
+   *  jar is started as a process as usual.
+   *
+   *  @return   The method returns the runner or \c null.
+   */
+  protected RobotRunner getInProcessRunner(Context context, List<ActionParameter> parameters)
+  {
+    if(this.inProcessUnavailable || !Boolean.parseBoolean(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_INPROCESS, "false")))
+      return null;
+    if((this.runner instanceof InProcessRunner) && !((InProcessRunner) this.runner).isBroken())
+      return this.runner;
+
+    try
+    {
+      this.runner = InProcessRunner.getInstance(new File(LauncherResolver.JAR));
+      return this.runner;
+    }
+    catch (IOException e)
+    {
+      this.inProcessUnavailable = true;
+      this.runner = null;
+      if((null != context) && (null != context.getLogger()))
+        context.getLogger().warn("in-process execution not available, the jar is started as a process: ".concat(String.valueOf(e.getMessage())));
+      return null;
+    }
+  }
+
+  /**
+   *  \brief    Executes Robot Framework via a runner instead of a new process.
+   *
+   *  The method creates the same request and response as
+   *  executeProcess(Context, List, boolean, boolean, String), so that the
+   *  results of both ways can be compared in NeoLoad.
+   *
+   *  A runner returns the output only at the end of a run, so only the
+   *  hard timeout is supported. If it expires, the runner is stopped, which
+   *  terminates the run with \c SIGTERM.
+   *
+   *  @param    context       An instance must be passed in the parameter
+   *                          through which the method has access to
+   *                          information from NeoLoad at runtime.
+   *  @param    runner        The runner that executes Robot Framework.
+   *  @param    arguments     The arguments for Robot Framework.
+   *  @param    forceCode     A fixed return value can be specified via the
+   *                          parameter.
+   *
+   *  @return   The method returns the result of the execution.
+   */
+  protected SampleResult executeRunner(Context context, final RobotRunner runner, List<String> arguments, String forceCode)
+  {
+    final SampleResult result = new SampleResult();
+    StreamCollector stderr = null;
+    final AtomicReference<ScheduledFuture<?>> limit = new AtomicReference<ScheduledFuture<?>>();
+    final AtomicLong started = new AtomicLong(0L);
+    final AtomicLong running = new AtomicLong(0L);
+    final ProcessWaitEvent waited = new ProcessWaitEvent();
+    AdmissionController admitted = null;
+    final AtomicBoolean expired = new AtomicBoolean(false);
+    final List<String> call = new Vector<String>();
+
+    call.add(runner.getName());
+    call.addAll(arguments);
+    try
+    {
+      this.reportProcessCall(call);
+      this.reportToResponse("<?xml version=\"1.0\"?>");
+
+      //  a fork server starts a robot process per run, the other runners execute a run of robot as well
+      if(null != this.admission)
+      {
+        long queued = this.admission.acquire();
+        admitted = this.admission;
+        this.statistics.recordQueue(queued);
+        this.reportAdmission(context, result, queued);
+      }
+      //  the start is set again when the runner is acquired, a run that fails before keeps this one
+      result.sampleStart();
+      final long requested = System.currentTimeMillis();
+      final long limited = this.timeout;
+      WorkerResult outcome = runner.run(arguments, new RobotRunner.StartListener() {
+        @Override
+        public void onStart()
+        {
+          result.sampleStart();
+          waited.begin();
+          running.set(System.nanoTime());
+          started.set(System.currentTimeMillis());
+          if(0 < limited)
+            limit.set(ProcessWatchdog.schedule(new Runnable() {
+              @Override
+              public void run()
+              {
+                expired.set(true);
+                RobotFrameworkActionEngine.this.stopRunner(runner, ProcessWatchdog.TIMEOUT);
+              }
+            }, limited));
+        }
+      });
+      result.sampleEnd();
+      waited.end();
+      if(0L < started.get())
+        this.statistics.recordExecution(System.nanoTime() - running.get());
+      this.statistics.recordExitCode(outcome.getExitCode());
+      if(requested < started.get())
+        this.reportRunnerQueue(result, runner, started.get() - requested);
+
+      if(expired.get())
+        result.setStatusCode(getRunnerTimeoutCode());
+      else if(null == forceCode)
+        result.setStatusCode(String.valueOf(outcome.getExitCode()));
+      else
+        result.setStatusCode(forceCode);
+      if((0L < started.get()) && waited.shouldCommit())
+      {
+        waited.setExitCode(outcome.getExitCode());
+        waited.setStatusCode(result.getStatusCode());
+        this.commitEvent(waited, null);
+      }
+
+      stderr = this.collectOutput(context, "stderr", outcome.getStderr());
+      StreamCollector stdout = this.collectOutput(context, "stdout", outcome.getStdout());
+      this.statistics.recordCaptured(stdout.getBuffer().getTotal() + stderr.getBuffer().getTotal());
+      this.reportProcessInput(context, stdout);
+      this.responseBuilder.append("\n<exitcode>".concat(result.getStatusCode()).concat("</exitcode>"));
+    }
+    catch (IOException e)
+    {
+      result.sampleEnd();
+      result.setStatusCode(expired.get() ? getRunnerTimeoutCode() : e.getClass().getSimpleName());
+      this.responseBuilder.append("<exception>".concat(String.valueOf(e.getLocalizedMessage())).concat("</exception>"));
+    }
+    catch (InterruptedException e)
+    {
+      result.sampleEnd();
+      result.setStatusCode(e.getClass().getSimpleName());
+      this.responseBuilder.append("<exception>".concat(String.valueOf(e.getLocalizedMessage())).concat("</exception>"));
+    }
+    finally
+    {
+      if(null != limit.get())
+        limit.get().cancel(false);
+      if(null != admitted)
+        admitted.release();
+    }
+    if(expired.get() && (null != context))
+      context.getLogger().warn("run terminated by watchdog: ".concat(getRunnerTimeoutCode()));
+
+    result.setError(!("0".equals(result.getStatusCode())));
+    if(result.isError() && (null != stderr))
+      this.reportProcessErrors(context, stderr);
+    this.statistics.recordStatusCode(result.getStatusCode());
+    result.setRequestContent(this.requestBuilder.toString());
+    result.setResponseContent(this.responseBuilder.toString());
+    return result;
+  }
+
+  /**
+   *  \brief    Stops the current run of a runner and emits a ProcessStopEvent for it.
+   *
+   *  @param    current       The runner to be stopped.
+   *  @param    cause         The reason, e.g. ProcessWatchdog.TIMEOUT.
+   */
+  private void stopRunner(RobotRunner current, String cause)
+  {
+    ProcessStopEvent event = new ProcessStopEvent();
+    event.begin();
+    current.stop();
+    event.end();
+    if(event.shouldCommit())
+    {
+      event.setCause(cause);
+      event.setSignal(ProcessWatchdog.SIGTERM);
+      this.commitEvent(event, null);
+    }
+  }
+
+  /**
+   *  \brief    Reporting method that records the time a run waited for a shared runner.
+   *
+   *  The time is reported as sub-result like the time in the admission
+   *  queue, the duration of the result itself begins with the run.
+   *
+   *  @param    result        The result of the execution.
+   *  @param    runner        The runner that was waited for.
+   *  @param    queued        Time in milliseconds the run has waited.
+   */
+  private void reportRunnerQueue(SampleResult result, RobotRunner runner, long queued)
+  {
+    SampleResult waiting = new SampleResult();
+    waiting.setRequestContent("runner queue");
+    waiting.setResponseContent("<runner name=\"".concat(runner.getName()).concat("\" queued=\"").concat(String.valueOf(queued)).concat("\"/>"));
+    waiting.setStatusCode("0");
+    waiting.setError(false);
+    waiting.setDuration(queued);
+    result.addSubResult(waiting);
+  }
+
+  /**
+   *  \brief    Returns the status code of a run that was stopped because of the hard timeout.
+   */
+  private static String getRunnerTimeoutCode()
+  {
+    return "NL-".concat(ProcessWatchdog.TIMEOUT).concat("-").concat(ProcessWatchdog.SIGTERM);
+  }
+
+  /**
+   *  \brief    Feeds output returned by a runner through the regular capture path.
+   */
+  private StreamCollector collectOutput(Context context, String channel, byte[] output)
+  {
+    StreamCollector collector = new StreamCollector(new ByteArrayInputStream(output), this.createLineListener(context, channel), this.createCaptureBuffer(context, channel), WorkerProtocol.UTF8);
+    collector.run();
+    return collector;
   }
 
   private void appendLineToStringBuilder(final StringBuilder sb, final String line)
@@ -39,9 +1212,24 @@ public final class RobotFrameworkActionEngine extends AbstractActionEngine {
     return result;
   }
 
+  /**
+   *  \brief    Method called by NeoLoad when the test is stopped.
+   *
+   *  The runner is stopped and the process of the current execution is
+   *  terminated with all its descendants, e.g. browsers and drivers.
+   */
   @Override
   public void stopExecute() {
-    // TODO add code executed when the test have to stop.
+    ProcessGroup group = this.shards;
+
+    if(null != this.runner)
+      this.stopRunner(this.runner, ProcessWatchdog.STOPPED);
+    if(null != group)
+      group.terminate(ProcessWatchdog.STOPPED);
+    super.stopExecute();
+    if(null != this.eventChannel)
+      this.eventChannel.close();
+    this.eventChannel = null;
   }
 
   protected List<String> buildCommand(List<ActionParameter> parameters)
@@ -0,0 +1,189 @@
+package org.dschweie.neoload.advancedactions.robotframework.factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.dschweie.neoload.advancedactions.robotframework.warmup.SuiteHash;
+
+/**
+ *  \brief  Moves the static options of a command into an argument file of Robot Framework.
+ *
+ *  An action definition with many variables results in a long command,
+ *  although most of the values are the same in every iteration. An
+ *  instance observes the commands of one action definition: an option
+ *  whose value has not changed since the first command is static and is
+ *  written into a file that is passed with \c --argumentfile, all other
+ *  options stay on the command line. The first command is passed
+ *  unchanged, because it is not yet known which values change.
+ *
+ *  The file is named after the hash of its content and is written only
+ *  once, so all virtual users of the definition share it. The relative
+ *  order of the static options and of the dynamic options is kept.
+ *
+ *  Since the argument file is inserted before the dynamic options, a
+ *  static option would precede a dynamic option that came before it. For
+ *  single-valued options and for variables of the same name Robot
+ *  Framework uses the last occurrence, so a static option stays on the
+ *  command line if a dynamic option with the same name, or a dynamic
+ *  variable with the same name, precedes it.
+ */
+public class ArgumentFile
+{
+  /**
+   *  \brief  Options of Robot Framework that are created by CommandWorker without a value.
+   */
+  protected static final Set<String> FLAGS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+      "--timestampoutputs", "--nostatusrc", "--dryrun")));
+
+  /**
+   *  \brief  Option that inserts the content of an argument file.
+   */
+  public static final String  OPTION = "--argumentfile";
+
+  private String[]  previous = null;
+  private boolean[] changed = null;
+  private String    content = null;
+  private File      file = null;
+
+  /**
+   *  \brief  Returns the directory in which the argument files are written.
+   */
+  public static File getDirectory()
+  {
+    return new File(new File(System.getProperty("java.io.tmpdir"), "neoload-advancedactions"), "argumentfiles");
+  }
+
+  /**
+   *  \brief  Replaces the static options of a command by an argument file.
+   *
+   *  @param  command         The command or the arguments of Robot
+   *                          Framework, which are not modified.
+   *  @param  prefix          Number of components at the beginning that
+   *                          start Robot Framework, e.g. \c python \c -m
+   *                          \c robot.
+   *  @param  suffix          Number of components at the end that are no
+   *                          options, e.g. the test source.
+   *
+   *  @return The method returns a new command, which is equal to the
+   *          command if there are no static options.
+   *
+   *  @throws IOException if the argument file cannot be written.
+   */
+  public synchronized List<String> apply(List<String> command, int prefix, int suffix) throws IOException
+  {
+    final int end = command.size() - suffix;
+
+    if((null == this.previous) || (this.previous.length != command.size()))
+    {
+      this.previous = command.toArray(new String[command.size()]);
+      this.changed = new boolean[command.size()];
+      return new ArrayList<String>(command);
+    }
+
+    final StringBuilder sb = new StringBuilder();
+    final List<String> dynamic = new ArrayList<String>();
+    final Set<String> overridden = new HashSet<String>();
+    for(int i = prefix; i < end; ++i)
+    {
+      int width = (FLAGS.contains(command.get(i)) || (i + 1 >= end)) ? 1 : 2;
+      boolean stable = true;
+      for(int j = i; j < i + width; ++j)
+      {
+        this.changed[j] |= !String.valueOf(command.get(j)).equals(this.previous[j]);
+        this.previous[j] = command.get(j);
+        stable &= !this.changed[j];
+      }
+
+      String name = ArgumentFile.getName(command, i, width);
+      if(stable && !overridden.contains(name) && ArgumentFile.isRepresentable(command, i, width))
+      {
+        sb.append(command.get(i));
+        if(2 == width)
+          sb.append(' ').append(command.get(i + 1));
+        sb.append('\n');
+      }
+      else
+      {
+        dynamic.addAll(command.subList(i, i + width));
+        overridden.add(name);
+      }
+      i += width - 1;
+    }
+
+    if(0 == sb.length())
+      return new ArrayList<String>(command);
+
+    final List<String> result = new ArrayList<String>(prefix + 2 + dynamic.size() + suffix);
+    result.addAll(command.subList(0, prefix));
+    result.add(OPTION);
+    result.add(this.write(sb.toString()).getAbsolutePath());
+    result.addAll(dynamic);
+    result.addAll(command.subList(end, command.size()));
+    return result;
+  }
+
+  /**
+   *  \brief  Returns the file of the content and writes it if it does not exist yet.
+   */
+  private File write(String content) throws IOException
+  {
+    if(!content.equals(this.content) || !this.file.isFile())
+    {
+      File target = new File(ArgumentFile.getDirectory(), SuiteHash.hash(content).concat(".args"));
+      if(!target.isFile())
+      {
+        Files.createDirectories(target.getParentFile().toPath());
+        File temporary = File.createTempFile("args", ".tmp", target.getParentFile());
+        Files.write(temporary.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      this.content = content;
+      this.file = target;
+    }
+    return this.file;
+  }
+
+  /**
+   *  \brief  Returns the name under which Robot Framework combines the occurrences of an option.
+   *
+   *  This is the option itself and, for \c --variable, also the name of the
+   *  variable.
+   */
+  private static String getName(List<String> command, int index, int width)
+  {
+    String option = String.valueOf(command.get(index));
+    if((2 == width) && "--variable".equals(option))
+    {
+      String value = String.valueOf(command.get(index + 1));
+      return option.concat(" ").concat((0 > value.indexOf(':')) ? value : value.substring(0, value.indexOf(':')));
+    }
+    return option;
+  }
+
+  /**
+   *  \brief  Returns \c true if an option can be written as a line of an argument file.
+   *
+   *  Robot Framework strips the lines of an argument file and separates the
+   *  value at the first space, so values with line breaks or surrounding
+   *  whitespace and empty values stay on the command line.
+   */
+  private static boolean isRepresentable(List<String> command, int index, int width)
+  {
+    for(int j = index; j < index + width; ++j)
+    {
+      String component = command.get(j);
+      if((null == component) || component.isEmpty() || !component.equals(component.trim()) || (-1 != component.indexOf('\n')) || (-1 != component.indexOf('\r')))
+        return false;
+    }
+    return command.get(index).startsWith("--") && (-1 == command.get(index).indexOf(' ')) && (-1 == command.get(index).indexOf('='));
+  }
+}
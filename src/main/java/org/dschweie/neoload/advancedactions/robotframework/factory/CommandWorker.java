@@ -1,11 +1,21 @@
 package org.dschweie.neoload.advancedactions.robotframework.factory;
 
-import java.util.Iterator;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Vector;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.neotys.extensions.action.ActionParameter;
+import org.dschweie.neoload.advancedactions.command.CommandBuilder;
 import org.dschweie.neoload.advancedactions.command.CommandFactory;
+import org.dschweie.neoload.advancedactions.command.CommandTemplate;
+import org.dschweie.neoload.advancedactions.command.ParameterIndex;
 import org.dschweie.neoload.advancedactions.robotframework.RobotFrameworkAction;
 
 /*
@@ -144,6 +154,97 @@ public class CommandWorker
   public final static String PYTHON_MODE = "PYTHON";
   public final static String JAVA_MODE = "JAVA";
   public final static String UBUNTU = "UBUNTU";
+  public final static String PERSISTENT_MODE = "PERSISTENT";
+  public final static String FORKSERVER_MODE = "FORKSERVER";
+  /**
+   *  \brief  Environment in which the fastest launcher of the load generator is determined, see LauncherResolver.
+   */
+  public final static String AUTO_MODE = "AUTO";
+
+  /**
+   *  \brief  Name of the parameter through which the engine passes the event listener.
+   *
+   *  The engine adds this parameter if the parameter
+   *  RobotFrameworkAction.ENGINE_EVENTS is set. Its value is the complete
+   *  specification of the listener including the address of the channel.
+   */
+  public final static String EVENT_LISTENER = "event listener";
+
+  /**
+   *  \brief  Name of the parameter through which the engine passes the modifier of the batch mode.
+   *
+   *  The engine adds this parameter if the parameter
+   *  RobotFrameworkAction.ENGINE_BATCH is greater than 1. Its value is the
+   *  complete specification of the pre-run modifier.
+   */
+  public final static String BATCH_MODIFIER = "batch modifier";
+
+  /**
+   *  \brief  Parameters whose values change the structure of the command.
+   *
+   *  The values of all other parameters are only inserted into the command,
+   *  so they can change from iteration to iteration without compiling a
+   *  new CommandTemplate.
+   */
+  protected final static Set<String> STRUCTURAL_PARAMETERS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+      RobotFrameworkAction.ENGINE_ENVIRONMENT,
+      RobotFrameworkAction.OUTPUT_TIMESTAMPS,
+      RobotFrameworkAction.OUTPUT_NOSTATUSCODE,
+      RobotFrameworkAction.OUTPUT_LOGLEVEL,
+      RobotFrameworkAction.EXECUTION_RANDOMIZE)));
+
+  /**
+   *  \brief  Maximum number of cached templates per kind.
+   */
+  protected final static int MAX_TEMPLATES = 256;
+
+  private final static Map<String, CommandTemplate> templates = CommandTemplate.createCache();
+  private final static Map<String, CommandTemplate> argumentTemplates = CommandTemplate.createCache();
+  private final static Map<String, ArgumentFile> argumentFiles = new ConcurrentHashMap<String, ArgumentFile>();
+
+  private final static CommandBuilder COMMAND_BUILDER = new CommandBuilder() {
+    @Override
+    public List<String> buildCommand(List<ActionParameter> parameters)
+    {
+      return CommandWorker.composeCommand(new ParameterIndex(parameters));
+    }
+  };
+
+  private final static CommandBuilder ARGUMENTS_BUILDER = new CommandBuilder() {
+    @Override
+    public List<String> buildCommand(List<ActionParameter> parameters)
+    {
+      return CommandWorker.composeArguments(new ParameterIndex(parameters));
+    }
+  };
+
+  /**
+   *  \brief        The method returns the environment in which Robot Framework is executed.
+   *
+   *  @param        parameters          The list of parameters that the user
+   *                                    has configured for the action
+   *                                    in NeoLoad is expected here.
+   *
+   *  @return       The method returns the configured environment in upper
+   *                case, by default PYTHON_MODE.
+   */
+  public static String getEnvironment(List<ActionParameter> parameters)
+  {
+    return CommandFactory.getParameterValue(parameters, RobotFrameworkAction.ENGINE_ENVIRONMENT, PYTHON_MODE).toUpperCase().trim();
+  }
+
+  /**
+   *  \brief        The method returns the environment in which Robot Framework is executed.
+   *
+   *  @param        parameters          The indexed parameters of the action.
+   *
+   *  @return       The method returns the configured environment in upper
+   *                case, by default PYTHON_MODE.
+   */
+  protected static String getEnvironment(ParameterIndex parameters)
+  {
+    return parameters.get(RobotFrameworkAction.ENGINE_ENVIRONMENT, PYTHON_MODE).toUpperCase().trim();
+  }
 
   /**
    *  \brief        The method generates the parts to call Robot Framework
@@ -155,10 +256,10 @@ public class CommandWorker
    *  @return       The method returns a list of arguments to be added
    *                to the call.
    */
-  protected static List<String> getRobotCommand(List<ActionParameter> parameters)
+  protected static List<String> getRobotCommand(ParameterIndex parameters)
   {
-    final List<String>  elements  = new Vector<String>();
-    switch(CommandFactory.getParameterValue(parameters, "environment", PYTHON_MODE).toUpperCase().trim())
+    final List<String>  elements  = new ArrayList<String>();
+    switch(CommandWorker.getEnvironment(parameters))
     {
       case JAVA_MODE:     elements.add("java");
                           elements.add("-jar");
@@ -166,6 +267,15 @@ public class CommandWorker
                           break;
       case UBUNTU:        elements.add("robot");
                           break;
+      case AUTO_MODE:     elements.addAll(LauncherResolver.resolve().getCommand());
+                          break;
+      case PERSISTENT_MODE:
+      case FORKSERVER_MODE:
+                          //  the same interpreter as the runner, which falls back to a process
+                          elements.add(LauncherResolver.findPython());
+                          elements.add("-m");
+                          elements.add("robot");
+                          break;
       case PYTHON_MODE:   
       default:            elements.add("python");
                           elements.add("-m");
@@ -198,15 +308,15 @@ public class CommandWorker
    *  @return       The method returns a list of arguments to be added
    *                to the call.
    */
-  protected static List<String> getOutputOptions(List<ActionParameter> parameters)
+  protected static List<String> getOutputOptions(ParameterIndex parameters)
   {
-    final List<String>  elements = new Vector<String>();
-    String outputdir = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_OUTPUTDIR, null);
-    String xunit = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_XUNIT, null);
-    String debugfile = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_DEBUGFILE, null);
-    String loglevel = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_LOGLEVEL, null);
+    final List<String>  elements = new ArrayList<String>();
+    String outputdir = parameters.get(RobotFrameworkAction.OUTPUT_OUTPUTDIR, null);
+    String xunit = parameters.get(RobotFrameworkAction.OUTPUT_XUNIT, null);
+    String debugfile = parameters.get(RobotFrameworkAction.OUTPUT_DEBUGFILE, null);
+    String loglevel = parameters.get(RobotFrameworkAction.OUTPUT_LOGLEVEL, null);
 
-    if(Boolean.parseBoolean(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_TIMESTAMPS, "false")))
+    if(Boolean.parseBoolean(parameters.get(RobotFrameworkAction.OUTPUT_TIMESTAMPS, "false")))
     {
       elements.add("--timestampoutputs");
     }
@@ -215,33 +325,33 @@ public class CommandWorker
     {
       elements.add("--outputdir");
       elements.add(outputdir);
-      if (null != CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_OUTPUT, null))
+      if (null != parameters.get(RobotFrameworkAction.OUTPUT_OUTPUT, null))
       {
         elements.add("--output");
-        elements.add(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_OUTPUT, null));
+        elements.add(parameters.get(RobotFrameworkAction.OUTPUT_OUTPUT, null));
       }
-      if (null != CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_REPORT, null))
+      if (null != parameters.get(RobotFrameworkAction.OUTPUT_REPORT, null))
       {
         elements.add("--report");
-        elements.add(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_REPORT, null));
+        elements.add(parameters.get(RobotFrameworkAction.OUTPUT_REPORT, null));
       }
-      if (null != CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_LOG, null))
+      if (null != parameters.get(RobotFrameworkAction.OUTPUT_LOG, null))
       {
         elements.add("--log");
-        elements.add(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_LOG, null));
+        elements.add(parameters.get(RobotFrameworkAction.OUTPUT_LOG, null));
       }
     }
     else {
       elements.add("--output");
-      elements.add(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_OUTPUT, "NONE"));
+      elements.add(parameters.get(RobotFrameworkAction.OUTPUT_OUTPUT, "NONE"));
       elements.add("--report");
-      elements.add(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_REPORT, "NONE"));
+      elements.add(parameters.get(RobotFrameworkAction.OUTPUT_REPORT, "NONE"));
       elements.add("--log");
-      elements.add(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_LOG, "NONE"));
+      elements.add(parameters.get(RobotFrameworkAction.OUTPUT_LOG, "NONE"));
     }
 
-    elements.addAll(CommandFactory.buildOptionValueArgument("--xunit", CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_XUNIT, null), null));
-    elements.addAll(CommandFactory.buildOptionValueArgument("--debugfile", CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_DEBUGFILE, null), null));
+    elements.addAll(CommandFactory.buildOptionValueArgument("--xunit", parameters.get(RobotFrameworkAction.OUTPUT_XUNIT, null), null));
+    elements.addAll(CommandFactory.buildOptionValueArgument("--debugfile", parameters.get(RobotFrameworkAction.OUTPUT_DEBUGFILE, null), null));
 
     if (null != loglevel) {
       loglevel = loglevel.toUpperCase();
@@ -256,7 +366,7 @@ public class CommandWorker
       }
     }
 
-    if (Boolean.parseBoolean(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_NOSTATUSCODE, "false")))
+    if (Boolean.parseBoolean(parameters.get(RobotFrameworkAction.OUTPUT_NOSTATUSCODE, "false")))
     {
       elements.add("--nostatusrc");
     }
@@ -267,6 +377,9 @@ public class CommandWorker
   /**
    *  \brief        The method generate arguments to add a listener
    *
+   *  Besides the listener configured by the user, the event listener of
+   *  the engine is added if the engine has passed it (see EVENT_LISTENER).
+   *
    *  @param        parameters          The list of parameters that the user
    *                                    has configured for the action
    *                                    in NeoLoad is expected here.
@@ -274,15 +387,16 @@ public class CommandWorker
    *  @return       The method returns a list of arguments to be added
    *                to the call.
    */
-  protected static List<String> getListenerOptions(List<ActionParameter> parameters)
+  protected static List<String> getListenerOptions(ParameterIndex parameters)
   {
-    final List<String>  elements = new Vector<String>();
-    String optionValue = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OPTION_LISTENER, null);
+    final List<String>  elements = new ArrayList<String>();
+    String optionValue = parameters.get(RobotFrameworkAction.OPTION_LISTENER, null);
 
     if( null != optionValue ) {
       elements.add("--listener");
       elements.add(optionValue);
     }
+    elements.addAll(CommandFactory.buildOptionValueArgument("--listener", parameters.get(CommandWorker.EVENT_LISTENER, null), null));
     return elements;
   }
 
@@ -300,6 +414,7 @@ public class CommandWorker
    *  \li   \c --include <tag><br/>Selects the test cases by tags
    *  \li   \c --exclude <tag><br/>Selects the test cases by tag.
    *  \li   \c --randomize <all|suites|tests><br/>Randomizes test execution order.
+   *  \li   \c --prerunmodifier <name:args><br/>Modifies the tests for the batch mode (see BATCH_MODIFIER).
    *
    *  @param        parameters          The list of parameters that the user
    *                                    has configured for the action
@@ -307,17 +422,17 @@ public class CommandWorker
    *  @return       The method returns a list of arguments to be added
    *                to the call.
    */
-  protected static List<String> getTestExecutionOptions(List<ActionParameter> parameters)
+  protected static List<String> getTestExecutionOptions(ParameterIndex parameters)
   {
-    final List<String>  elements = new Vector<String>();
-    String randomize = CommandFactory.getParameterValue(parameters, RobotFrameworkAction.EXECUTION_RANDOMIZE, null);
+    final List<String>  elements = new ArrayList<String>();
+    String randomize = parameters.get(RobotFrameworkAction.EXECUTION_RANDOMIZE, null);
 
-    elements.addAll(CommandFactory.buildOptionValueArgument("--extension", CommandFactory.getParameterValue(parameters, RobotFrameworkAction.EXECUTION_EXTENSION, null), null));
-    elements.addAll(CommandFactory.buildOptionValueArgument("--test", CommandFactory.getParameterValue(parameters, RobotFrameworkAction.EXECUTION_TEST, null), null));
-    elements.addAll(CommandFactory.buildOptionValueArgument("--task", CommandFactory.getParameterValue(parameters, RobotFrameworkAction.EXECUTION_TASK, null), null));
-    elements.addAll(CommandFactory.buildOptionValueArgument("--suite", CommandFactory.getParameterValue(parameters, RobotFrameworkAction.EXECUTION_SUITE, null), null));
-    elements.addAll(CommandFactory.buildOptionValueArgument("--include", CommandFactory.getParameterValue(parameters, RobotFrameworkAction.EXECUTION_INCLUDE, null), null));
-    elements.addAll(CommandFactory.buildOptionValueArgument("--exclude", CommandFactory.getParameterValue(parameters, RobotFrameworkAction.EXECUTION_EXCLUDE, null), null));
+    elements.addAll(CommandFactory.buildOptionValueArgument("--extension", parameters.get(RobotFrameworkAction.EXECUTION_EXTENSION, null), null));
+    elements.addAll(CommandFactory.buildOptionValueArgument("--test", parameters.get(RobotFrameworkAction.EXECUTION_TEST, null), null));
+    elements.addAll(CommandFactory.buildOptionValueArgument("--task", parameters.get(RobotFrameworkAction.EXECUTION_TASK, null), null));
+    elements.addAll(CommandFactory.buildOptionValueArgument("--suite", parameters.get(RobotFrameworkAction.EXECUTION_SUITE, null), null));
+    elements.addAll(CommandFactory.buildOptionValueArgument("--include", parameters.get(RobotFrameworkAction.EXECUTION_INCLUDE, null), null));
+    elements.addAll(CommandFactory.buildOptionValueArgument("--exclude", parameters.get(RobotFrameworkAction.EXECUTION_EXCLUDE, null), null));
 
     if(null != randomize)
     {
@@ -330,6 +445,7 @@ public class CommandWorker
                         break;
       }
     }
+    elements.addAll(CommandFactory.buildOptionValueArgument("--prerunmodifier", parameters.get(CommandWorker.BATCH_MODIFIER, null), null));
     return elements;
   }
 
@@ -363,25 +479,19 @@ public class CommandWorker
    *  @return       The method returns a list of arguments to be added
    *                to the call.
    */
-  protected static List<String> getVariables(List<ActionParameter> parameters)
+  protected static List<String> getVariables(ParameterIndex parameters)
   {
-    final List<String>  elements = new Vector<String>();
-    Iterator<ActionParameter> it = parameters.iterator();
-
-    while(it.hasNext())
-    {
-      ActionParameter current = it.next();
-      if("variable".equals(current.getName().toLowerCase().trim()))
-      { //  ActionParameter ist Variable und somit muss sie in Kommando eingesetzt werden.
-        elements.add("--variable");
-        elements.add(current.getValue());
-      }
+    final List<String>  elements = new ArrayList<String>();
+    for(String value : parameters.getAll("variable"))
+    { //  ActionParameter ist Variable und somit muss sie in Kommando eingesetzt werden.
+      elements.add("--variable");
+      elements.add(value);
     }
     
-    if( null != CommandFactory.getParameterValue(parameters, "variablefile", null) )
+    if( null != parameters.get("variablefile", null) )
     { //  variableFile is defined
       elements.add("--variablefile");
-      elements.add(CommandFactory.getParameterValue(parameters, "variablefile", null));
+      elements.add(parameters.get("variablefile", null));
     }
     
     return elements;
@@ -399,12 +509,12 @@ public class CommandWorker
    *  @return       The method returns a list of arguments to be added
    *                to the call.
    */
-  protected static List<String> getTestSource(List<ActionParameter> parameters)
+  protected static List<String> getTestSource(ParameterIndex parameters)
   {
-    final List<String>  elements = new Vector<String>();
-    if( null != CommandFactory.getParameterValue(parameters, RobotFrameworkAction.TEST_SOURCE, null) )
+    final List<String>  elements = new ArrayList<String>();
+    if( null != parameters.get(RobotFrameworkAction.TEST_SOURCE, null) )
     {
-      elements.add(CommandFactory.getParameterValue(parameters, RobotFrameworkAction.TEST_SOURCE, null));
+      elements.add(parameters.get(RobotFrameworkAction.TEST_SOURCE, null));
     }
     return elements;
   }
@@ -428,8 +538,242 @@ public class CommandWorker
    */
   public static List<String> buildCommand(List<ActionParameter> parameters)
   {
-    final List<String>  command  = new Vector<String>();
+    return CommandTemplate.build(templates, MAX_TEMPLATES, parameters, STRUCTURAL_PARAMETERS, COMMAND_BUILDER);
+  }
+
+  /**
+   *  \brief  This method turns the configuration into a dry run of the command.
+   *
+   *  The command is built by buildCommand(List) without the listeners,
+   *  which would otherwise report the dry run, and with the options
+   *  \c --dryrun and \c NONE for all output files inserted before the
+   *  test source. Robot Framework uses the last value of an option, so the
+   *  outputs of the user are not overwritten.
+   *
+   *  @param        parameters          The list of parameters that the user
+   *                                    has configured for the action
+   *                                    in NeoLoad is expected here.
+   *  @return       The method returns the command of the dry run.
+   */
+  public static List<String> buildDryRunCommand(List<ActionParameter> parameters)
+  {
+    final List<ActionParameter> effective = new ArrayList<ActionParameter>();
+    for(ActionParameter parameter : parameters)
+    {
+      if(!RobotFrameworkAction.OPTION_LISTENER.equals(parameter.getName()) && !CommandWorker.EVENT_LISTENER.equals(parameter.getName()))
+        effective.add(parameter);
+    }
+
+    final List<String> command = new ArrayList<String>(CommandWorker.buildCommand(effective));
+    int sources = (null == CommandFactory.getParameterValue(effective, RobotFrameworkAction.TEST_SOURCE, null)) ? 0 : 1;
+    command.addAll(command.size() - sources, Arrays.asList("--dryrun", "--output", "NONE", "--log", "NONE", "--report", "NONE", "--xunit", "NONE", "--debugfile", "NONE"));
+    return command;
+  }
+
+  /**
+   *  \brief  The method returns the Python interpreter that executes Robot Framework.
+   *
+   *  @param        parameters          The list of parameters that the user
+   *                                    has configured for the action
+   *                                    in NeoLoad is expected here.
+   *
+   *  @return       The method returns the command of the interpreter or
+   *                \c null if Robot Framework is executed by Java.
+   */
+  public static String getPythonCommand(List<ActionParameter> parameters)
+  {
+    switch(CommandWorker.getEnvironment(parameters))
+    {
+      case JAVA_MODE:     return null;
+      case UBUNTU:        return "python3";
+      case AUTO_MODE:     return LauncherResolver.resolve().getPython();
+      case PERSISTENT_MODE:
+      case FORKSERVER_MODE:
+                          return LauncherResolver.findPython();
+      default:            return "python";
+    }
+  }
+
+  /**
+   *  \brief  The method returns the command that renders log and report from an output file.
+   *
+   *  The files \c log.html and \c report.html are created by \c rebot in
+   *  the directory of the output file.
+   *
+   *  @param        parameters          The list of parameters that the user
+   *                                    has configured for the action
+   *                                    in NeoLoad is expected here.
+   *  @param        output              The output file of an execution.
+   *
+   *  @return       The method returns the command.
+   */
+  public static List<String> buildRebotCommand(List<ActionParameter> parameters, File output)
+  {
+    final List<String> command = new ArrayList<String>();
+    switch(CommandWorker.getEnvironment(parameters))
+    {
+      case JAVA_MODE:     command.addAll(Arrays.asList("java", "-jar", "robotframework.jar", "rebot"));
+                          break;
+      case UBUNTU:        command.add("rebot");
+                          break;
+      case AUTO_MODE:     command.addAll(LauncherResolver.resolve().getRebotCommand());
+                          break;
+      case PERSISTENT_MODE:
+      case FORKSERVER_MODE:
+                          command.addAll(Arrays.asList(LauncherResolver.findPython(), "-m", "robot.rebot"));
+                          break;
+      default:            command.addAll(Arrays.asList("python", "-m", "robot.rebot"));
+                          break;
+    }
+    command.addAll(Arrays.asList("--outputdir", output.getAbsoluteFile().getParent(), "--output", "NONE", "--log", "log.html", "--report", "report.html", "--nostatusrc"));
+    command.add(output.getAbsolutePath());
+    return command;
+  }
+
+  /**
+   *  \brief  This method turns the configuration into the command of one shard.
+   *
+   *  The command is built by buildCommand(List) with the output directory
+   *  of the shard, and with \c --runemptysuite and one \c --test per test
+   *  inserted before the test source, see ShardPlanner.
+   *
+   *  @param        parameters          The list of parameters that the user
+   *                                    has configured for the action
+   *                                    in NeoLoad is expected here.
+   *  @param        tests               The names of the tests of the shard.
+   *  @param        outputdir           The output directory of the shard or
+   *                                    \c null if no outputs are written.
+   *
+   *  @return       The method returns the command of the shard.
+   */
+  public static List<String> buildShardCommand(List<ActionParameter> parameters, List<String> tests, File outputdir)
+  {
+    List<ActionParameter> effective = parameters;
+    if(null != outputdir)
+    {
+      effective = new ArrayList<ActionParameter>(parameters);
+      effective.add(new ActionParameter(RobotFrameworkAction.OUTPUT_OUTPUTDIR, outputdir.getAbsolutePath()));
+    }
+
+    final List<String> command = new ArrayList<String>(CommandWorker.buildCommand(effective));
+    final List<String> selection = new ArrayList<String>(1 + 2 * tests.size());
+    int sources = (null == CommandFactory.getParameterValue(effective, RobotFrameworkAction.TEST_SOURCE, null)) ? 0 : 1;
+    selection.add(ShardPlanner.RUN_EMPTY_SUITE);
+    for(String test : tests)
+    {
+      selection.add("--test");
+      selection.add(ShardPlanner.escape(test));
+    }
+    command.addAll(command.size() - sources, selection);
+    return command;
+  }
+
+  /**
+   *  \brief  The method returns the command that merges the output files of the shards.
+   *
+   *  \c rebot \c --merge adds the tests of the later outputs to the suites
+   *  of the first one, so the result has the structure of a single
+   *  execution. Output file, log and report are written with the names
+   *  configured by the user into the output directory of the action.
+   *
+   *  @param        parameters          The list of parameters that the user
+   *                                    has configured for the action
+   *                                    in NeoLoad is expected here.
+   *  @param        outputs             The output files of the shards.
+   *
+   *  @return       The method returns the command.
+   */
+  public static List<String> buildMergeCommand(List<ActionParameter> parameters, List<File> outputs)
+  {
+    final List<String> command = CommandWorker.buildRebotCommand(parameters, outputs.get(0));
+    final List<String> options = Arrays.asList("--outputdir", CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_OUTPUTDIR, "."),
+                                               "--output", CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_OUTPUT, "output.xml"),
+                                               "--log", CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_LOG, "log.html"),
+                                               "--report", CommandFactory.getParameterValue(parameters, RobotFrameworkAction.OUTPUT_REPORT, "report.html"),
+                                               "--nostatusrc", "--merge");
+    int start = command.indexOf("--outputdir");
+
+    command.subList(start, command.size()).clear();
+    command.addAll(options);
+    for(File output : outputs)
+      command.add(output.getAbsolutePath());
+    return command;
+  }
+
+  /**
+   *  \brief  This method turns the configuration into the arguments for Robot Framework.
+   *
+   *  In contrast to buildCommand(List), the command that starts
+   *  Robot Framework is not part of the result. The arguments can be passed
+   *  to a Robot Framework instance that is already running.
+   *
+   *  @param        parameters          The list of parameters that the user
+   *                                    has configured for the action
+   *                                    in NeoLoad is expected here.
+   *  @return       The method returns a list of arguments for Robot Framework.
+   */
+  public static List<String> buildArguments(List<ActionParameter> parameters)
+  {
+    return CommandTemplate.build(argumentTemplates, MAX_TEMPLATES, parameters, STRUCTURAL_PARAMETERS, ARGUMENTS_BUILDER);
+  }
+
+  /**
+   *  \brief  This method moves the static options of a command into an argument file.
+   *
+   *  The options are observed per action definition, i.e. per structure of
+   *  the parameters, see ArgumentFile.
+   *
+   *  @param        parameters          The list of parameters from which
+   *                                    the command was built.
+   *  @param        command             The command built by
+   *                                    buildCommand(List) or the arguments
+   *                                    built by buildArguments(List).
+   *  @param        arguments           \c true if \em command contains only
+   *                                    the arguments for Robot Framework.
+   *
+   *  @return       The method returns the compacted command.
+   *
+   *  @throws       IOException         if the argument file cannot be written.
+   */
+  public static List<String> compactCommand(List<ActionParameter> parameters, List<String> command, boolean arguments) throws IOException
+  {
+    String key = String.valueOf(arguments).concat(CommandTemplate.key(parameters, STRUCTURAL_PARAMETERS));
+    ArgumentFile file = argumentFiles.get(key);
+
+    if(null == file)
+    {
+      if(MAX_TEMPLATES <= argumentFiles.size())
+        argumentFiles.clear();
+      ArgumentFile created = new ArgumentFile();
+      file = argumentFiles.putIfAbsent(key, created);
+      if(null == file)
+        file = created;
+    }
+    int prefix = arguments ? 0 : CommandWorker.getRobotCommand(new ParameterIndex(parameters)).size();
+    int suffix = (null == CommandFactory.getParameterValue(parameters, RobotFrameworkAction.TEST_SOURCE, null)) ? 0 : 1;
+    return file.apply(command, prefix, suffix);
+  }
+
+  /**
+   *  \brief  This method composes the complete command from the indexed parameters.
+   *
+   *  The method is only called when a template is compiled, the result
+   *  is reused for all iterations with the same structure.
+   */
+  protected static List<String> composeCommand(ParameterIndex parameters)
+  {
+    final List<String>  command  = new ArrayList<String>();
     command.addAll(CommandWorker.getRobotCommand(parameters));
+    command.addAll(CommandWorker.composeArguments(parameters));
+    return command;
+  }
+
+  /**
+   *  \brief  This method composes the arguments for Robot Framework from the indexed parameters.
+   */
+  protected static List<String> composeArguments(ParameterIndex parameters)
+  {
+    final List<String>  command  = new ArrayList<String>();
     command.addAll(CommandWorker.getOutputOptions(parameters));
     command.addAll(CommandWorker.getListenerOptions(parameters));
     command.addAll(CommandWorker.getTestExecutionOptions(parameters));
@@ -0,0 +1,334 @@
+package org.dschweie.neoload.advancedactions.robotframework.factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.dschweie.neoload.advancedactions.process.ProcessWatchdog;
+
+/**
+ *  \brief  Determines the fastest way to start Robot Framework on the load generator.
+ *
+ *  Robot Framework can be started by the script \c robot of a virtual
+ *  environment, by Python with \c -m \c robot or by the Java archive. The
+ *  resolver probes the candidates that exist on the load generator once
+ *  per JVM: every candidate is started with \c --version several times and
+ *  the fastest start is taken as its startup cost. The working candidate
+ *  with the lowest cost is used with the absolute path of its executable,
+ *  so that the \c PATH does not have to be searched for every process.
+ */
+public final class LauncherResolver
+{
+  /**
+   *  \brief  Number of starts per working candidate.
+   */
+  public static final int     PROBE_RUNS = 3;
+
+  /**
+   *  \brief  Maximum duration of a start in milliseconds.
+   */
+  public static final long    PROBE_TIMEOUT = 30000L;
+
+  /**
+   *  \brief  Name of the Java archive of Robot Framework in the working directory.
+   */
+  public static final String  JAR = "robotframework.jar";
+
+  /**
+   *  \brief  A way to start Robot Framework.
+   */
+  public static final class Launcher
+  {
+    private final String        name;
+    private final List<String>  command;
+    private final List<String>  rebot;
+    private final String        python;
+    private final long          startup;
+    private final String        report;
+    private final AtomicBoolean logged = new AtomicBoolean(false);
+
+    /**
+     *  \brief  Constructor of a launcher.
+     *
+     *  @param  name            Short description of the candidate.
+     *  @param  command         The components that start \c robot.
+     *  @param  rebot           The components that start \c rebot.
+     *  @param  python          The Python interpreter or \c null.
+     */
+    public Launcher(String name, List<String> command, List<String> rebot, String python)
+    {
+      this(name, command, rebot, python, -1L, "");
+    }
+
+    private Launcher(String name, List<String> command, List<String> rebot, String python, long startup, String report)
+    {
+      this.name = name;
+      this.command = Collections.unmodifiableList(new ArrayList<String>(command));
+      this.rebot = Collections.unmodifiableList(new ArrayList<String>(rebot));
+      this.python = python;
+      this.startup = startup;
+      this.report = report;
+    }
+
+    public String getName()
+    {
+      return this.name;
+    }
+
+    public List<String> getCommand()
+    {
+      return this.command;
+    }
+
+    public List<String> getRebotCommand()
+    {
+      return this.rebot;
+    }
+
+    /**
+     *  \brief  Returns the Python interpreter of the launcher or \c null if it is not started by Python.
+     */
+    public String getPython()
+    {
+      return this.python;
+    }
+
+    /**
+     *  \brief  Returns the measured startup cost in milliseconds or -1 if it was not measured.
+     */
+    public long getStartup()
+    {
+      return this.startup;
+    }
+
+    /**
+     *  \brief  Returns the results of all probed candidates, one per line.
+     */
+    public String getReport()
+    {
+      return this.report;
+    }
+
+    /**
+     *  \brief  Returns \c true for the first caller only, who logs the choice.
+     */
+    public boolean claim()
+    {
+      return this.logged.compareAndSet(false, true);
+    }
+
+    @Override
+    public String toString()
+    {
+      return this.name.concat(" (").concat(String.join(" ", this.command)).concat(", startup ").concat(String.valueOf(this.startup)).concat(" ms)");
+    }
+  }
+
+  private static Launcher resolved = null;
+
+  private LauncherResolver()
+  {
+  }
+
+  /**
+   *  \brief  Returns the launcher of this JVM and probes the candidates with the first call.
+   *
+   *  If no candidate works, \c python \c -m \c robot is returned, so that
+   *  the error of the execution is reported as usual.
+   */
+  public static synchronized Launcher resolve()
+  {
+    if(null == resolved)
+    {
+      resolved = LauncherResolver.resolve(LauncherResolver.getCandidates());
+      if(null == resolved)
+        resolved = new Launcher("default", Arrays.asList("python", "-m", "robot"), Arrays.asList("python", "-m", "robot.rebot"), "python");
+    }
+    return resolved;
+  }
+
+  /**
+   *  \brief  Returns the Python interpreter for the runners that start Robot Framework themselves.
+   *
+   *  The interpreter of an active virtual environment is preferred, then
+   *  \c python and \c python3 in the \c PATH. Unlike resolve(), nothing is
+   *  started. If no interpreter is found, \c python is returned, so that
+   *  the error of the execution is reported as usual.
+   */
+  public static String findPython()
+  {
+    final boolean windows = '\\' == File.separatorChar;
+    final String suffix = windows ? ".exe" : "";
+
+    String venv = System.getenv("VIRTUAL_ENV");
+    if(null != venv)
+    {
+      File python = new File(new File(venv, windows ? "Scripts" : "bin"), "python".concat(suffix));
+      if(python.isFile())
+        return python.getAbsolutePath();
+    }
+    for(String name : Arrays.asList("python", "python3"))
+    {
+      File python = LauncherResolver.which(name.concat(suffix));
+      if(null != python)
+        return python.getAbsolutePath();
+    }
+    return "python";
+  }
+
+  /**
+   *  \brief  Probes candidates and returns the fastest working one.
+   *
+   *  @param  candidates      The candidates in the order of preference for
+   *                          equal startup costs.
+   *
+   *  @return The method returns the launcher with its measured startup cost
+   *          or \c null if no candidate works.
+   */
+  protected static Launcher resolve(List<Launcher> candidates)
+  {
+    final StringBuilder report = new StringBuilder();
+    Launcher best = null;
+    long fastest = Long.MAX_VALUE;
+
+    for(Launcher candidate : candidates)
+    {
+      long startup = LauncherResolver.probe(candidate.getCommand());
+      report.append(candidate.getName()).append(": ").append(String.join(" ", candidate.getCommand()))
+            .append(" => ").append((0 > startup) ? "not available" : String.valueOf(startup).concat(" ms")).append('\n');
+      if((0 <= startup) && (startup < fastest))
+      {
+        best = candidate;
+        fastest = startup;
+      }
+    }
+    return (null == best) ? null : new Launcher(best.name, best.command, best.rebot, best.python, fastest, report.toString());
+  }
+
+  /**
+   *  \brief  Starts a candidate with \c --version and measures the fastest of PROBE_RUNS starts.
+   *
+   *  @return The method returns the startup cost in milliseconds or -1 if
+   *          the candidate does not start Robot Framework.
+   */
+  protected static long probe(List<String> command)
+  {
+    final List<String> call = new ArrayList<String>(command);
+    long fastest = -1L;
+
+    call.add("--version");
+    for(int run = 0; run < PROBE_RUNS; ++run)
+    {
+      try
+      {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(call).redirectErrorStream(true).start();
+        ProcessWatchdog watchdog = new ProcessWatchdog(process, PROBE_TIMEOUT, 0L, 1000L).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        process.waitFor();
+        watchdog.cancel();
+        long elapsed = (System.nanoTime() - start) / 1000000L;
+
+        if(watchdog.isTriggered() || !output.contains("Robot Framework"))
+          return -1L;
+        fastest = (0 > fastest) ? elapsed : Math.min(fastest, elapsed);
+      }
+      catch (IOException e)
+      {
+        return -1L;
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        return -1L;
+      }
+    }
+    return fastest;
+  }
+
+  /**
+   *  \brief  Returns the candidates that exist on this load generator.
+   */
+  protected static List<Launcher> getCandidates()
+  {
+    final List<Launcher> candidates = new ArrayList<Launcher>();
+    final boolean windows = '\\' == File.separatorChar;
+    final String suffix = windows ? ".exe" : "";
+
+    //  the script of an active virtual environment, then the one found in the PATH
+    String venv = System.getenv("VIRTUAL_ENV");
+    if(null != venv)
+    {
+      File bin = new File(venv, windows ? "Scripts" : "bin");
+      if(new File(bin, "robot".concat(suffix)).isFile())
+        candidates.add(new Launcher("venv script", Arrays.asList(new File(bin, "robot".concat(suffix)).getAbsolutePath()), Arrays.asList(new File(bin, "rebot".concat(suffix)).getAbsolutePath()), null));
+    }
+    File script = LauncherResolver.which("robot".concat(suffix));
+    if(null != script)
+      candidates.add(new Launcher("script", Arrays.asList(script.getAbsolutePath()), Arrays.asList(new File(script.getParentFile(), "rebot".concat(suffix)).getAbsolutePath()), null));
+
+    //  Python with isolation (-I) and without the site module (-S), which shorten the startup if Robot Framework is still found
+    final Set<String> interpreters = new HashSet<String>();
+    for(String name : Arrays.asList("python3", "python"))
+    {
+      File python = LauncherResolver.which(name.concat(suffix));
+      if((null == python) || !interpreters.add(LauncherResolver.canonical(python)))
+        continue;
+      for(List<String> flags : Arrays.asList(Arrays.asList("-I", "-S"), Arrays.asList("-I"), Arrays.asList("-S"), Collections.<String>emptyList()))
+      {
+        final List<String> command = new ArrayList<String>();
+        command.add(python.getAbsolutePath());
+        command.addAll(flags);
+        final List<String> rebot = new ArrayList<String>(command);
+        command.addAll(Arrays.asList("-m", "robot"));
+        rebot.addAll(Arrays.asList("-m", "robot.rebot"));
+        candidates.add(new Launcher(name.concat(flags.isEmpty() ? "" : " ".concat(String.join(" ", flags))), command, rebot, python.getAbsolutePath()));
+      }
+    }
+
+    File jar = new File(JAR);
+    if(jar.isFile())
+    {
+      String java = new File(new File(System.getProperty("java.home"), "bin"), "java".concat(suffix)).getAbsolutePath();
+      candidates.add(new Launcher("java", Arrays.asList(java, "-jar", jar.getAbsolutePath()), Arrays.asList(java, "-jar", jar.getAbsolutePath(), "rebot"), null));
+    }
+    return candidates;
+  }
+
+  /**
+   *  \brief  Searches an executable in the directories of the \c PATH.
+   */
+  private static File which(String name)
+  {
+    String path = System.getenv("PATH");
+
+    if(null == path)
+      return null;
+    for(String directory : path.split(File.pathSeparator))
+    {
+      File file = new File(directory, name);
+      if(!directory.isEmpty() && file.isFile() && file.canExecute())
+        return file;
+    }
+    return null;
+  }
+
+  private static String canonical(File file)
+  {
+    try
+    {
+      return file.getCanonicalPath();
+    }
+    catch (IOException e)
+    {
+      return file.getAbsolutePath();
+    }
+  }
+}
@@ -0,0 +1,235 @@
+package org.dschweie.neoload.advancedactions.robotframework.factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.dschweie.neoload.advancedactions.process.AdmissionController;
+
+/**
+ *  \brief  Splits the tests of a test source into shards that are executed concurrently.
+ *
+ *  The planner reads the names of the tests and tasks from the files of
+ *  the test source without starting Robot Framework. A directory is
+ *  searched like Robot Framework does by default: files with the extension
+ *  \c .robot, without files and directories whose names start with \c . or
+ *  \c _ . The tests are distributed round-robin, every shard selects its
+ *  tests with \c --test.
+ *
+ *  Robot Framework compares names case-insensitively and ignores spaces
+ *  and underscores, so tests with equal names in different suites are
+ *  always assigned to the same shard. Names that contain variables are
+ *  resolved at runtime and cannot be selected, such a source is not split.
+ */
+public final class ShardPlanner
+{
+  /**
+   *  \brief  Option that keeps a shard whose tests are all excluded from failing.
+   */
+  public static final String  RUN_EMPTY_SUITE = "--runemptysuite";
+
+  private static final Pattern  HEADER = Pattern.compile("^\\*+\\s*(test\\s*cases?|tasks?)\\s*(\\*.*)?$", Pattern.CASE_INSENSITIVE);
+  private static final Pattern  SEPARATOR = Pattern.compile("\\t|\\s{2,}|\\s+\\|(\\s|$)");
+
+  private ShardPlanner()
+  {
+  }
+
+  /**
+   *  \brief  Returns the default number of shards.
+   *
+   *  These are the processors of the load generator that are not used by
+   *  the processes already admitted, limited by the free places of the
+   *  fixed limit of the admission control.
+   *
+   *  @param  admission       The admission control of the engine or \c null.
+   */
+  public static int getDefaultShards(AdmissionController admission)
+  {
+    int shards = Runtime.getRuntime().availableProcessors();
+
+    if(null != admission)
+    {
+      shards -= admission.getRunning();
+      if(0 < admission.getLimit())
+        shards = Math.min(shards, admission.getLimit() - admission.getRunning());
+    }
+    return Math.max(1, shards);
+  }
+
+  /**
+   *  \brief  Returns the names of the tests of a file or a directory in the order of the files.
+   *
+   *  @param  source          The test source of the action.
+   *  @param  extensions      The extensions of the files that are parsed in
+   *                          a directory separated by colons, e.g.
+   *                          \c robot:txt, or \c null for \c robot.
+   *
+   *  @return The method returns the names or an empty list if the tests
+   *          cannot be selected by name.
+   *
+   *  @throws IOException if a file cannot be read.
+   */
+  public static List<String> listTests(File source, String extensions) throws IOException
+  {
+    final List<String> names = new ArrayList<String>();
+    final Set<String> accepted = new HashSet<String>();
+
+    for(String extension : String.valueOf(null == extensions ? "robot" : extensions).split(":"))
+    {
+      if(!extension.trim().isEmpty())
+        accepted.add(extension.trim().toLowerCase(Locale.ROOT).replaceFirst("^\\.", ""));
+    }
+    if(source.isDirectory())
+      ShardPlanner.collect(source, accepted, names);
+    else if(source.isFile())
+      names.addAll(ShardPlanner.parse(new String(Files.readAllBytes(source.toPath()), StandardCharsets.UTF_8)));
+
+    for(String name : names)
+    {
+      if(name.contains("${") || name.contains("@{") || name.contains("&{") || name.contains("%{"))
+        return Collections.emptyList();
+    }
+    return names;
+  }
+
+  private static void collect(File directory, Set<String> extensions, List<String> names) throws IOException
+  {
+    File[] children = directory.listFiles();
+
+    if(null == children)
+      return;
+    Arrays.sort(children);
+    for(File child : children)
+    {
+      String name = child.getName();
+      int dot = name.lastIndexOf('.');
+      if(name.startsWith(".") || name.startsWith("_"))
+        continue;
+      if(child.isDirectory())
+        ShardPlanner.collect(child, extensions, names);
+      else if((0 < dot) && extensions.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT)))
+        names.addAll(ShardPlanner.parse(new String(Files.readAllBytes(child.toPath()), StandardCharsets.UTF_8)));
+    }
+  }
+
+  /**
+   *  \brief  Returns the names of the tests and tasks in the content of a suite file.
+   *
+   *  Both the space separated and the pipe separated format are supported.
+   */
+  static List<String> parse(String content)
+  {
+    final List<String> names = new ArrayList<String>();
+    boolean tests = false;
+
+    for(String line : content.split("\r?\n"))
+    {
+      String cell = line.startsWith("| ") ? line.substring(2) : line;
+      if(cell.startsWith("*"))
+      {
+        tests = HEADER.matcher(cell.trim()).matches();
+        continue;
+      }
+      if(!tests || cell.isEmpty() || Character.isWhitespace(cell.charAt(0)) || cell.startsWith("#") || cell.startsWith("..."))
+        continue;
+      String name = SEPARATOR.split(cell, 2)[0].trim();
+      if(!name.isEmpty())
+        names.add(name);
+    }
+    return names;
+  }
+
+  /**
+   *  \brief  Distributes the tests round-robin to at most the given number of shards.
+   *
+   *  @param  names           The names of the tests.
+   *  @param  shards          The maximum number of shards.
+   *
+   *  @return The method returns one list of names per shard, there are no
+   *          empty shards.
+   */
+  public static List<List<String>> split(List<String> names, int shards)
+  {
+    final List<String> distinct = new ArrayList<String>();
+    final Set<String> normalized = new HashSet<String>();
+    final List<List<String>> result = new ArrayList<List<String>>();
+
+    for(String name : names)
+    {
+      if(normalized.add(ShardPlanner.normalize(name)))
+        distinct.add(name);
+    }
+    for(int i = 0; i < Math.min(Math.max(1, shards), distinct.size()); ++i)
+      result.add(new ArrayList<String>());
+    for(int i = 0; i < distinct.size(); ++i)
+      result.get(i % result.size()).add(distinct.get(i));
+    return result;
+  }
+
+  /**
+   *  \brief  Combines the status codes of the shards into the status code of the execution.
+   *
+   *  The exit code of Robot Framework is the number of failed tests up to
+   *  250, higher values report an error of the execution. The failed tests
+   *  of the shards are added up to 250, an error is reported with the
+   *  highest code. A code that is no number, e.g. of the watchdog, is
+   *  returned as it is.
+   */
+  public static String combine(List<String> codes)
+  {
+    int failed = 0;
+    int error = 0;
+
+    for(String code : codes)
+    {
+      try
+      {
+        int value = Integer.parseInt(code);
+        if(250 < value)
+          error = Math.max(error, value);
+        else
+          failed += value;
+      }
+      catch (NumberFormatException e)
+      {
+        return code;
+      }
+    }
+    return String.valueOf((0 < error) ? error : Math.min(250, failed));
+  }
+
+  /**
+   *  \brief  Returns the name in the form Robot Framework uses to compare names.
+   */
+  static String normalize(String name)
+  {
+    return name.toLowerCase(Locale.ROOT).replace(" ", "").replace("_", "");
+  }
+
+  /**
+   *  \brief  Escapes the characters of a name that \c --test interprets as pattern.
+   */
+  public static String escape(String name)
+  {
+    final StringBuilder sb = new StringBuilder(name.length() + 8);
+
+    for(char c : name.toCharArray())
+    {
+      if(('*' == c) || ('?' == c) || ('[' == c))
+        sb.append('[').append(c).append(']');
+      else
+        sb.append(c);
+    }
+    return sb.toString();
+  }
+}
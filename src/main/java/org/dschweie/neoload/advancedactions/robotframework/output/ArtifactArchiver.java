@@ -0,0 +1,364 @@
+package org.dschweie.neoload.advancedactions.robotframework.output;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.dschweie.neoload.advancedactions.process.ProcessWatchdog;
+
+/**
+ *  \brief  Moves the outputs of executions from a fast staging directory to durable storage.
+ *
+ *  Robot Framework writes its outputs into a directory per execution on a
+ *  fast file system, usually a tmpfs. After the execution the archiver
+ *  moves the files in the background into a directory per execution below
+ *  the durable output directory, optionally compressed with gzip, and then
+ *  applies the RetentionPolicy of the durable directory.
+ *
+ *  The work is done by a bounded pool of threads shared by all engines of
+ *  the JVM. If the queue of the pool is full, the execution that submits
+ *  the outputs archives them itself, so that the staging directory cannot
+ *  grow without limit.
+ */
+public class ArtifactArchiver
+{
+  /**
+   *  \brief  Extension of compressed files.
+   */
+  public static final String  GZIP_EXTENSION = ".gz";
+
+  /**
+   *  \brief  Default number of threads of the shared archiver.
+   */
+  public static final int     DEFAULT_THREADS = 2;
+
+  /**
+   *  \brief  Default number of pending executions of the shared archiver.
+   */
+  public static final int     DEFAULT_QUEUE = 64;
+
+  /**
+   *  \brief  Maximum duration of the rendering of log and report in milliseconds.
+   */
+  public static final long    RENDER_TIMEOUT = 120000L;
+
+  private static ArtifactArchiver instance = null;
+
+  /**
+   *  \brief  Archive of one execution in a durable directory.
+   */
+  private static final class Archive
+  {
+    final File  directory;
+    final long  bytes;
+
+    Archive(File directory, long bytes)
+    {
+      this.directory = directory;
+      this.bytes = bytes;
+    }
+  }
+
+  private final ThreadPoolExecutor          pool;
+  private final Map<File, Deque<Archive>>   archives = new HashMap<File, Deque<Archive>>();
+  private final Map<File, Long>             sizes = new HashMap<File, Long>();
+  private long                              archived = 0L;
+  private long                              discarded = 0L;
+  private long                              removed = 0L;
+  private final AtomicLong                  samples = new AtomicLong();
+
+  /**
+   *  \brief  Constructor of the archiver.
+   *
+   *  @param  threads         Number of threads that archive outputs.
+   *  @param  queue           Maximum number of pending executions.
+   */
+  public ArtifactArchiver(int threads, int queue)
+  {
+    final AtomicInteger counter = new AtomicInteger();
+    this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(Math.max(1, queue)), new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable)
+      {
+        Thread thread = new Thread(runnable, "output archiver ".concat(String.valueOf(counter.incrementAndGet())));
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      }
+    }, new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  /**
+   *  \brief  Returns the archiver that is shared by all engines of the JVM.
+   */
+  public static synchronized ArtifactArchiver getInstance()
+  {
+    if(null == instance)
+      instance = new ArtifactArchiver(DEFAULT_THREADS, DEFAULT_QUEUE);
+    return instance;
+  }
+
+  /**
+   *  \brief  Returns the root of the staging directories.
+   *
+   *  The method prefers the tmpfs \c /dev/shm of Linux and otherwise uses
+   *  the directory for temporary files.
+   */
+  public static File getFastPath()
+  {
+    File shm = new File("/dev/shm");
+    File root = (shm.isDirectory() && shm.canWrite()) ? shm : new File(System.getProperty("java.io.tmpdir"));
+    return new File(new File(root, "neoload-advancedactions"), "outputs");
+  }
+
+  /**
+   *  \brief  Archives the outputs of an execution in the background.
+   *
+   *  @param  staging         The staging directory of the execution, which
+   *                          is deleted afterwards.
+   *  @param  target          The directory of the execution in durable
+   *                          storage. Its parent is the directory to which
+   *                          the retention policy is applied.
+   *  @param  failed          \c true if the execution has failed.
+   *  @param  compress        \c true if the files are compressed with gzip.
+   *  @param  policy          The rules of retention.
+   *
+   *  @return The method returns the pending archiving, which yields \c true
+   *          if the outputs were archived and \c false if they were discarded.
+   */
+  public Future<Boolean> archive(File staging, File target, boolean failed, boolean compress, RetentionPolicy policy)
+  {
+    return this.archive(staging, target, failed, compress, policy, null);
+  }
+
+  /**
+   *  \brief  Archives the outputs of an execution in the background and renders them before.
+   *
+   *  @param  staging         The staging directory of the execution, which
+   *                          is deleted afterwards.
+   *  @param  target          The directory of the execution in durable
+   *                          storage.
+   *  @param  failed          \c true if the execution has failed or was
+   *                          selected as sample.
+   *  @param  compress        \c true if the files are compressed with gzip.
+   *  @param  policy          The rules of retention.
+   *  @param  render          Command that creates further files in the
+   *                          staging directory before it is archived, e.g.
+   *                          \c rebot, or \c null. The command is only
+   *                          executed if the outputs are archived.
+   *
+   *  @return The method returns the pending archiving, which yields \c true
+   *          if the outputs were archived and \c false if they were discarded.
+   */
+  public Future<Boolean> archive(final File staging, final File target, final boolean failed, final boolean compress, final RetentionPolicy policy, final List<String> render)
+  {
+    return this.pool.submit(new Callable<Boolean>() {
+      @Override
+      public Boolean call() throws IOException, InterruptedException
+      {
+        return ArtifactArchiver.this.process(staging, target, failed, compress, policy, render);
+      }
+    });
+  }
+
+  /**
+   *  \brief  Decides whether a passed execution is kept as sample.
+   *
+   *  The decision is made per JVM, so that exactly one of \c rate passed
+   *  executions is kept regardless of the virtual user.
+   *
+   *  @param  rate            Keep one of \c rate executions, 0 for none.
+   */
+  public boolean sample(int rate)
+  {
+    return (0 < rate) && (0L == this.samples.getAndIncrement() % rate);
+  }
+
+  /**
+   *  \brief  Returns the number of executions whose outputs were archived.
+   */
+  public synchronized long getArchived()
+  {
+    return this.archived;
+  }
+
+  /**
+   *  \brief  Returns the number of executions whose outputs were discarded by the policy.
+   */
+  public synchronized long getDiscarded()
+  {
+    return this.discarded;
+  }
+
+  /**
+   *  \brief  Returns the number of archives that were removed by the policy.
+   */
+  public synchronized long getRemoved()
+  {
+    return this.removed;
+  }
+
+  protected boolean process(File staging, File target, boolean failed, boolean compress, RetentionPolicy policy, List<String> render) throws IOException, InterruptedException
+  {
+    if(!policy.accepts(failed))
+    {
+      ArtifactArchiver.delete(staging);
+      synchronized(this)
+      {
+        ++this.discarded;
+      }
+      return false;
+    }
+
+    long bytes;
+    try
+    {
+      if(null != render)
+        ArtifactArchiver.render(render);
+      bytes = ArtifactArchiver.transfer(staging, target, compress);
+    }
+    finally
+    {
+      ArtifactArchiver.delete(staging);
+    }
+    this.retain(target, bytes, policy);
+    return true;
+  }
+
+  /**
+   *  \brief  Executes the command that renders the outputs.
+   *
+   *  The outputs are archived even if the rendering fails, so its exit code
+   *  is ignored.
+   */
+  private static void render(List<String> command) throws IOException, InterruptedException
+  {
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+    ProcessWatchdog watchdog = new ProcessWatchdog(process, RENDER_TIMEOUT, 0L, RENDER_TIMEOUT / 10L).start();
+    process.waitFor();
+    watchdog.cancel();
+  }
+
+  /**
+   *  \brief  Records an archive and removes the oldest archives of its directory if the policy is exceeded.
+   */
+  private void retain(File target, long bytes, RetentionPolicy policy)
+  {
+    File root = target.getAbsoluteFile().getParentFile();
+    final Deque<File> expired = new ArrayDeque<File>();
+
+    synchronized(this)
+    {
+      ++this.archived;
+      Deque<Archive> known = this.archives.get(root);
+      if(null == known)
+      {
+        known = new ArrayDeque<Archive>();
+        this.archives.put(root, known);
+      }
+      known.addLast(new Archive(target, bytes));
+      long total = bytes + (this.sizes.containsKey(root) ? this.sizes.get(root) : 0L);
+
+      while(policy.exceeds(known.size(), total))
+      {
+        Archive oldest = known.removeFirst();
+        total -= oldest.bytes;
+        expired.add(oldest.directory);
+        ++this.removed;
+      }
+      this.sizes.put(root, total);
+    }
+
+    //  the files are deleted outside of the lock, the archives are already forgotten
+    for(File directory : expired)
+      ArtifactArchiver.delete(directory);
+  }
+
+  /**
+   *  \brief  Moves or compresses the files of a directory recursively.
+   *
+   *  @return The method returns the number of bytes written to the target.
+   */
+  private static long transfer(File source, File target, boolean compress) throws IOException
+  {
+    long bytes = 0L;
+    String[] names = source.list();
+
+    if(null == names)
+      return 0L;
+    Files.createDirectories(target.toPath());
+    Arrays.sort(names);
+    for(String name : names)
+    {
+      File file = new File(source, name);
+      if(file.isDirectory())
+        bytes += ArtifactArchiver.transfer(file, new File(target, name), compress);
+      else if(compress && !name.endsWith(GZIP_EXTENSION))
+      {
+        File packed = new File(target, name.concat(GZIP_EXTENSION));
+        InputStream in = Files.newInputStream(file.toPath());
+        try
+        {
+          OutputStream out = new GZIPOutputStream(Files.newOutputStream(packed.toPath()), 65536);
+          try
+          {
+            byte[] buffer = new byte[65536];
+            int read;
+            while(-1 != (read = in.read(buffer)))
+              out.write(buffer, 0, read);
+          }
+          finally
+          {
+            out.close();
+          }
+        }
+        finally
+        {
+          in.close();
+        }
+        bytes += packed.length();
+      }
+      else
+      {
+        File moved = new File(target, name);
+        Files.move(file.toPath(), moved.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        bytes += moved.length();
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   *  \brief  Deletes a file or a directory recursively, errors are ignored.
+   */
+  protected static void delete(File file)
+  {
+    //  links are deleted themselves, never the files they point to
+    String[] names = Files.isSymbolicLink(file.toPath()) ? null : file.list();
+
+    if(null != names)
+    {
+      for(String name : names)
+        ArtifactArchiver.delete(new File(file, name));
+    }
+    file.delete();
+  }
+}
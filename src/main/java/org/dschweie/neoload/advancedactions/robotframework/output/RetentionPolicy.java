@@ -0,0 +1,73 @@
+package org.dschweie.neoload.advancedactions.robotframework.output;
+
+/**
+ *  \brief  Rules which archived outputs are kept in the durable directory.
+ *
+ *  The rules are applied by the ArtifactArchiver after every archived
+ *  execution and only to the archives that it has created itself. Other
+ *  files in the directory are never touched.
+ */
+public final class RetentionPolicy
+{
+  /**
+   *  \brief  Policy that keeps every output.
+   */
+  public static final RetentionPolicy KEEP_ALL = new RetentionPolicy(0, false, 0L);
+
+  private final int     keepLast;
+  private final boolean failuresOnly;
+  private final long    maxBytes;
+
+  /**
+   *  \brief  Constructor of the policy.
+   *
+   *  @param  keepLast        Maximum number of archives per directory, 0
+   *                          for no limit.
+   *  @param  failuresOnly    \c true if only the outputs of failed
+   *                          executions are archived.
+   *  @param  maxBytes        Maximum total size of the archives per
+   *                          directory in bytes, 0 for no limit. The newest
+   *                          archive is kept even if it exceeds the limit.
+   */
+  public RetentionPolicy(int keepLast, boolean failuresOnly, long maxBytes)
+  {
+    this.keepLast = Math.max(0, keepLast);
+    this.failuresOnly = failuresOnly;
+    this.maxBytes = Math.max(0L, maxBytes);
+  }
+
+  public int getKeepLast()
+  {
+    return this.keepLast;
+  }
+
+  public boolean isFailuresOnly()
+  {
+    return this.failuresOnly;
+  }
+
+  public long getMaxBytes()
+  {
+    return this.maxBytes;
+  }
+
+  /**
+   *  \brief  Returns \c true if the output of an execution is archived at all.
+   */
+  public boolean accepts(boolean failed)
+  {
+    return failed || !this.failuresOnly;
+  }
+
+  /**
+   *  \brief  Returns \c true if the oldest archive has to be removed.
+   *
+   *  @param  count           Number of archives in the directory.
+   *  @param  bytes           Total size of the archives in bytes.
+   */
+  public boolean exceeds(int count, long bytes)
+  {
+    return ((0 < this.keepLast) && (count > this.keepLast))
+           || ((0L < this.maxBytes) && (bytes > this.maxBytes) && (1 < count));
+  }
+}
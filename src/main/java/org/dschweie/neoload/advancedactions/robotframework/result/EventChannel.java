@@ -0,0 +1,185 @@
+package org.dschweie.neoload.advancedactions.robotframework.result;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+
+import org.dschweie.neoload.advancedactions.process.StreamCollector;
+
+/**
+ *  \brief  Local channel through which the listener reports events while Robot Framework runs.
+ *
+ *  The channel listens on a port of the loopback interface. The bundled
+ *  listener \c NeoLoadEventListener.py connects once per execution of Robot
+ *  Framework, authenticates itself with a random token and then sends one
+ *  line per event (see EventCollector). The listener queues the events and
+ *  sends them from a background thread, so the keywords are not delayed
+ *  by the channel.
+ *
+ *  A channel is opened once per engine and is reused for all iterations.
+ *  Connections are assigned to the collector of the current iteration.
+ */
+public class EventChannel implements Runnable
+{
+  /**
+   *  \brief  Milliseconds to wait for the remaining events after Robot Framework has terminated.
+   */
+  public static final long    DRAIN_TIMEOUT = 5000L;
+
+  private final ServerSocket  server;
+  private final String        token;
+  private volatile EventCollector collector = null;
+
+  protected EventChannel(ServerSocket server, String token)
+  {
+    this.server = server;
+    this.token = token;
+  }
+
+  /**
+   *  \brief  Opens a new channel on a free port of the loopback interface.
+   *
+   *  @throws IOException if no port could be opened.
+   */
+  public static EventChannel open() throws IOException
+  {
+    byte[] secret = new byte[16];
+    StringBuilder token = new StringBuilder(32);
+
+    new SecureRandom().nextBytes(secret);
+    for(byte b : secret)
+      token.append(String.format("%02x", b & 0xff));
+
+    EventChannel channel = new EventChannel(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()), token.toString());
+    Thread acceptor = new Thread(channel, "event channel ".concat(String.valueOf(channel.getPort())));
+    acceptor.setDaemon(true);
+    acceptor.start();
+    return channel;
+  }
+
+  /**
+   *  \brief  Returns the port of the channel.
+   */
+  public int getPort()
+  {
+    return this.server.getLocalPort();
+  }
+
+  /**
+   *  \brief  Returns the value of the \c --listener option that connects a listener to this channel.
+   *
+   *  @param  script          The listener script.
+   */
+  public String getListenerSpecification(File script)
+  {
+    return script.getAbsolutePath().concat(":").concat(this.server.getInetAddress().getHostAddress())
+                                   .concat(":").concat(String.valueOf(this.getPort()))
+                                   .concat(":").concat(this.token);
+  }
+
+  /**
+   *  \brief  Starts a new iteration.
+   *
+   *  @param  listener        Optional callback that is informed about every
+   *                          completed suite, test and keyword.
+   *
+   *  @return The method returns the collector that receives the events of
+   *          the iteration.
+   */
+  public EventCollector begin(StreamCollector.LineListener listener)
+  {
+    EventCollector current = new EventCollector(listener);
+    this.collector = current;
+    return current;
+  }
+
+  /**
+   *  \brief  Closes the channel.
+   */
+  public void close()
+  {
+    try
+    {
+      this.server.close();
+    }
+    catch (IOException e)
+    {
+      //  the channel is no longer used anyway
+    }
+  }
+
+  /**
+   *  \brief  Accepts the connections of the listeners until the channel is closed.
+   */
+  @Override
+  public void run()
+  {
+    while(!this.server.isClosed())
+    {
+      try
+      {
+        final Socket socket = this.server.accept();
+        final EventCollector current = this.collector;
+        if(null == current)
+        {
+          socket.close();
+          continue;
+        }
+
+        final EventCollector.Connection connection = current.connect();
+        Thread reader = new Thread(new Runnable() {
+          @Override
+          public void run()
+          {
+            EventChannel.this.read(socket, connection);
+          }
+        }, "event reader ".concat(String.valueOf(socket.getPort())));
+        reader.setDaemon(true);
+        reader.start();
+      }
+      catch (IOException e)
+      {
+        //  accept fails when the channel is closed, which ends the loop
+      }
+    }
+  }
+
+  /**
+   *  \brief  Reads the events of a single connection.
+   */
+  protected void read(Socket socket, EventCollector.Connection connection)
+  {
+    try
+    {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      if(this.token.equals(reader.readLine()))
+      {
+        String line;
+        while(null != (line = reader.readLine()))
+          connection.onEvent(line);
+      }
+    }
+    catch (IOException e)
+    {
+      //  a broken connection only loses the remaining events
+    }
+    finally
+    {
+      connection.close();
+      try
+      {
+        socket.close();
+      }
+      catch (IOException e)
+      {
+        //  nothing left to do
+      }
+    }
+  }
+}
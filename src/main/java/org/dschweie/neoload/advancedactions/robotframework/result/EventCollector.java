@@ -0,0 +1,191 @@
+package org.dschweie.neoload.advancedactions.robotframework.result;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.process.StreamCollector;
+
+/**
+ *  \brief  Builds the execution tree of one execution from listener events.
+ *
+ *  The bundled listener \c NeoLoadEventListener.py sends one line per event
+ *  with the tab separated fields
+ *  <tt>kind phase timestamp status name message</tt>, where \c kind is
+ *  \c suite, \c test or \c keyword, \c phase is \c start or \c end and
+ *  \c timestamp is given in milliseconds since the epoch.
+ *
+ *  As with the OutputXmlParser, only suites, tests and top-level keywords
+ *  are kept. Nodes are completed as soon as their end event arrives, so
+ *  the tree is available immediately after Robot Framework terminates.
+ */
+public class EventCollector
+{
+  private final List<ExecutionNode>         suites = new ArrayList<ExecutionNode>();
+  private final StreamCollector.LineListener listener;
+  private int                               connections = 0;
+
+  /**
+   *  \brief  Constructor of the collector.
+   *
+   *  @param  listener        Optional callback that is informed about every
+   *                          completed suite, test and keyword.
+   */
+  public EventCollector(StreamCollector.LineListener listener)
+  {
+    this.listener = listener;
+  }
+
+  /**
+   *  \brief  Creates the state for a new connection of a listener.
+   *
+   *  Every instance of Robot Framework opens its own connection, so
+   *  each connection keeps its own stack of open nodes.
+   */
+  public synchronized Connection connect()
+  {
+    ++this.connections;
+    return new Connection();
+  }
+
+  /**
+   *  \brief  Waits until all connections are closed.
+   *
+   *  @param  timeout         Maximum waiting time in milliseconds.
+   *
+   *  @return The method returns the suites received so far.
+   */
+  public synchronized List<ExecutionNode> await(long timeout)
+  {
+    long deadline = System.currentTimeMillis() + timeout;
+    long remaining = timeout;
+
+    try
+    {
+      while((0 < this.connections) && (0 < remaining))
+      {
+        this.wait(remaining);
+        remaining = deadline - System.currentTimeMillis();
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    return new ArrayList<ExecutionNode>(this.suites);
+  }
+
+  /**
+   *  \brief  Returns the number of connections that are still open.
+   */
+  public synchronized int getConnections()
+  {
+    return this.connections;
+  }
+
+  private synchronized void disconnect()
+  {
+    --this.connections;
+    this.notifyAll();
+  }
+
+  /**
+   *  \brief  State of a single connection of a listener.
+   */
+  public class Connection
+  {
+    private final Deque<ExecutionNode> open = new ArrayDeque<ExecutionNode>();
+    private int                        nested = 0;
+    private boolean                    closed = false;
+
+    /**
+     *  \brief  Processes a single event line.
+     *
+     *  Lines that do not match the format are ignored.
+     *
+     *  @param  line            The line without the line break.
+     */
+    public void onEvent(String line)
+    {
+      String[] fields = line.split("\t", 6);
+      if(5 > fields.length)
+        return;
+
+      long timestamp;
+      try
+      {
+        timestamp = Long.parseLong(fields[2]);
+      }
+      catch (NumberFormatException e)
+      {
+        return;
+      }
+
+      if("start".equals(fields[1]))
+        this.start(fields[0], fields[4], timestamp);
+      else if("end".equals(fields[1]))
+        this.end(fields[3], (6 == fields.length) ? fields[5] : "", timestamp);
+    }
+
+    /**
+     *  \brief  Must be called when the connection has been closed.
+     */
+    public void close()
+    {
+      if(!this.closed)
+      {
+        this.closed = true;
+        EventCollector.this.disconnect();
+      }
+    }
+
+    private void start(String kind, String name, long timestamp)
+    {
+      ExecutionNode parent = this.open.peek();
+      ExecutionNode node;
+
+      if(ExecutionNode.SUITE.equals(kind) && (0 == this.nested) && ((null == parent) || ExecutionNode.SUITE.equals(parent.getType())))
+        node = new ExecutionNode(ExecutionNode.SUITE, name);
+      else if(ExecutionNode.TEST.equals(kind) && (0 == this.nested) && (null != parent) && ExecutionNode.SUITE.equals(parent.getType()))
+        node = new ExecutionNode(ExecutionNode.TEST, name);
+      else if(ExecutionNode.KEYWORD.equals(kind) && (0 == this.nested) && (null != parent) && !ExecutionNode.KEYWORD.equals(parent.getType()))
+        node = new ExecutionNode(ExecutionNode.KEYWORD, name);
+      else
+      {
+        ++this.nested;
+        return;
+      }
+
+      node.setStatus(null, "", timestamp, -1);
+      synchronized(EventCollector.this)
+      {
+        if(null == parent)
+          EventCollector.this.suites.add(node);
+        else
+          parent.getChildren().add(node);
+      }
+      this.open.push(node);
+    }
+
+    private void end(String status, String message, long timestamp)
+    {
+      if(0 < this.nested)
+      {
+        --this.nested;
+        return;
+      }
+
+      ExecutionNode node = this.open.poll();
+      if(null == node)
+        return;
+
+      synchronized(EventCollector.this)
+      {
+        node.setStatus(status, message, node.getStart(), timestamp);
+      }
+      if(null != EventCollector.this.listener)
+        EventCollector.this.listener.onLine(node.getType().concat(" ").concat(node.getName()).concat(" ").concat(status).concat(" ").concat(String.valueOf(node.getDuration())).concat(" ms"));
+    }
+  }
+}
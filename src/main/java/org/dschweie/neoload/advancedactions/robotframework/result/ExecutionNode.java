@@ -0,0 +1,124 @@
+package org.dschweie.neoload.advancedactions.robotframework.result;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.neotys.extensions.action.engine.SampleResult;
+
+/**
+ *  \brief  Suite, test or keyword of a Robot Framework execution.
+ *
+ *  The nodes are created by the OutputXmlParser from \c output.xml and
+ *  only contain the information needed to report timed sub-results
+ *  to NeoLoad.
+ */
+public class ExecutionNode
+{
+  public static final String  SUITE = "suite";
+  public static final String  TEST = "test";
+  public static final String  KEYWORD = "keyword";
+
+  private final String              type;
+  private final String              name;
+  private final List<ExecutionNode> children = new ArrayList<ExecutionNode>();
+  private String                    status = null;
+  private String                    message = "";
+  private long                      start = -1;
+  private long                      end = -1;
+
+  public ExecutionNode(String type, String name)
+  {
+    this.type = type;
+    this.name = (null == name) ? "" : name;
+  }
+
+  public String getType()
+  {
+    return this.type;
+  }
+
+  public String getName()
+  {
+    return this.name;
+  }
+
+  public List<ExecutionNode> getChildren()
+  {
+    return this.children;
+  }
+
+  public String getStatus()
+  {
+    return this.status;
+  }
+
+  public String getMessage()
+  {
+    return this.message;
+  }
+
+  /**
+   *  \brief  Returns the start time in milliseconds since the epoch or -1.
+   */
+  public long getStart()
+  {
+    return this.start;
+  }
+
+  /**
+   *  \brief  Returns the end time in milliseconds since the epoch or -1.
+   */
+  public long getEnd()
+  {
+    return this.end;
+  }
+
+  /**
+   *  \brief  Returns the duration in milliseconds or -1 if it is unknown.
+   */
+  public long getDuration()
+  {
+    return ((0 <= this.start) && (this.start <= this.end)) ? this.end - this.start : -1;
+  }
+
+  void setStatus(String status, String message, long start, long end)
+  {
+    this.status = status;
+    this.message = (null == message) ? "" : message.trim();
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   *  \brief  Returns whether the node failed.
+   *
+   *  Robot Framework knows the status \c SKIP in addition to \c PASS and
+   *  \c FAIL. As in the NeoLoad listener, skipped items are not errors.
+   */
+  public boolean isFailed()
+  {
+    return "FAIL".equals(this.status);
+  }
+
+  /**
+   *  \brief  Converts the node and its children into a NeoLoad result.
+   *
+   *  @return The method returns a SampleResult with the duration and
+   *          status of the node and one sub-result per child.
+   */
+  public SampleResult toSampleResult()
+  {
+    SampleResult result = new SampleResult();
+
+    result.setRequestContent(this.type.concat(": ").concat(this.name));
+    result.setResponseContent("<status start=\"".concat(String.valueOf(this.start)).concat("\" end=\"").concat(String.valueOf(this.end)).concat("\">")
+                              .concat(String.valueOf(this.status)).concat("</status>")
+                              .concat(this.message.isEmpty() ? "" : "\n<message>".concat(this.message).concat("</message>")));
+    result.setStatusCode(String.valueOf(this.status));
+    result.setError(this.isFailed());
+    result.setDuration(Math.max(0, this.getDuration()));
+    for(ExecutionNode child : this.children)
+      result.addSubResult(child.toSampleResult());
+    return result;
+  }
+}
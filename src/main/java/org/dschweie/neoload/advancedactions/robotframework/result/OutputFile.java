@@ -0,0 +1,244 @@
+package org.dschweie.neoload.advancedactions.robotframework.result;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+/**
+ *  \brief  The \c output.xml of a single execution of Robot Framework.
+ *
+ *  The class determines from the command where Robot Framework writes its
+ *  output file and reads the file after the execution. If the user has
+ *  disabled the output file (value \c NONE), the command is changed so that
+ *  Robot Framework writes it into a scratch file of the engine.
+ *
+ *  Instead of a scratch file, a named pipe can be used. Robot Framework then
+ *  writes the output directly into the parser, so that the file never
+ *  reaches the disk. Robot Framework has to read its output again for the
+ *  log, the report and the xUnit file, therefore the pipe is only used if
+ *  these files are disabled. In all other cases and on systems without
+ *  \c mkfifo the scratch file is used.
+ *
+ *  @remark The console output cannot be used for piping (e.g. with
+ *          <tt>--output /dev/stdout</tt>), because it is also needed for
+ *          the response of the action.
+ */
+public class OutputFile
+{
+  /**
+   *  \brief  Milliseconds that collect() waits for the parser of a pipe.
+   */
+  public static final long    PIPE_TIMEOUT = 10000L;
+
+  private static final long   PIPE_POLL = 100L;
+
+  private final File          file;
+  private final boolean       scratch;
+  private final boolean       timestamped;
+  private boolean             pipe = false;
+  private long                started = 0L;
+  private Thread              reader = null;
+  private volatile List<ExecutionNode> suites = null;
+  private volatile IOException failure = null;
+
+  protected OutputFile(File file, boolean scratch, boolean timestamped)
+  {
+    this.file = file;
+    this.scratch = scratch;
+    this.timestamped = timestamped;
+  }
+
+  /**
+   *  \brief  Determines the output file of a command and prepares it for reading.
+   *
+   *  @param  command         The command or the arguments for Robot
+   *                          Framework. If the output file is disabled, the
+   *                          value of the option \c --output is replaced.
+   *  @param  scratch         File that is used if the output file is disabled.
+   *  @param  pipe            \c true if a named pipe should be used instead of
+   *                          the scratch file where possible.
+   *
+   *  @return The method returns the output file.
+   */
+  public static OutputFile prepare(List<String> command, File scratch, boolean pipe)
+  {
+    int index = command.lastIndexOf("--output");
+    int outputdir = command.lastIndexOf("--outputdir");
+    boolean timestamped = command.contains("--timestampoutputs");
+    String value = ((0 <= index) && (index + 1 < command.size())) ? command.get(index + 1) : "output.xml";
+
+    if("NONE".equalsIgnoreCase(value) && (0 <= index))
+    {
+      OutputFile output = new OutputFile(scratch, true, timestamped);
+
+      scratch.getParentFile().mkdirs();
+      scratch.delete();
+      command.set(index + 1, scratch.getAbsolutePath());
+      output.pipe = pipe && !timestamped && OutputFile.isPipeable(command) && OutputFile.createPipe(scratch);
+      return output;
+    }
+
+    File file = new File(value);
+    if(!file.isAbsolute() && (0 <= outputdir) && (outputdir + 1 < command.size()))
+      file = new File(command.get(outputdir + 1), value);
+    return new OutputFile(file, false, timestamped);
+  }
+
+  /**
+   *  \brief  Must be called immediately before Robot Framework is started.
+   *
+   *  If a pipe is used, the parser is started in a separate thread, which
+   *  waits until Robot Framework opens the pipe.
+   */
+  public void begin()
+  {
+    this.started = System.currentTimeMillis();
+    if(this.pipe)
+    {
+      this.reader = new Thread(new Runnable() {
+        @Override
+        public void run()
+        {
+          try
+          {
+            OutputFile.this.suites = OutputXmlParser.parse(OutputFile.this.file);
+          }
+          catch (IOException e)
+          {
+            OutputFile.this.failure = e;
+          }
+        }
+      }, "output.xml ".concat(this.file.getName()));
+      this.reader.setDaemon(true);
+      this.reader.start();
+    }
+  }
+
+  /**
+   *  \brief  Reads the results after Robot Framework has terminated.
+   *
+   *  @return The method returns the top-level suites of the execution.
+   *
+   *  @throws IOException if the output file does not exist or cannot be parsed.
+   */
+  public List<ExecutionNode> collect() throws IOException
+  {
+    if(null != this.reader)
+    {
+      long deadline = System.currentTimeMillis() + PIPE_TIMEOUT;
+      try
+      {
+        while(this.reader.isAlive() && (System.currentTimeMillis() < deadline))
+        {
+          //  opening the pipe for reading and writing does not block and releases a parser
+          //  that still waits for a writer, e.g. if Robot Framework failed before writing
+          new RandomAccessFile(this.file, "rw").close();
+          this.reader.join(PIPE_POLL);
+        }
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+      if(this.reader.isAlive())
+      {
+        this.reader.interrupt();
+        throw new IOException("output.xml was not read completely within ".concat(String.valueOf(PIPE_TIMEOUT)).concat(" ms"));
+      }
+      if(null != this.failure)
+        throw this.failure;
+      return this.suites;
+    }
+
+    File current = this.getFile();
+    if(!current.isFile())
+      throw new FileNotFoundException(current.getAbsolutePath());
+    return OutputXmlParser.parse(current);
+  }
+
+  /**
+   *  \brief  Returns the file that Robot Framework has written.
+   *
+   *  With \c --timestampoutputs Robot Framework appends the time of the
+   *  execution to the name of the file. In this case the newest matching
+   *  file that was written since begin() is returned.
+   */
+  public File getFile()
+  {
+    if(!this.timestamped)
+      return this.file;
+
+    String name = this.file.getName();
+    int dot = name.lastIndexOf('.');
+    String prefix = ((0 < dot) ? name.substring(0, dot) : name).concat("-");
+    String suffix = (0 < dot) ? name.substring(dot) : "";
+    File directory = this.file.getAbsoluteFile().getParentFile();
+    File[] candidates = (null == directory) ? null : directory.listFiles();
+    File newest = this.file;
+
+    if(null != candidates)
+    {
+      for(File candidate : candidates)
+      {
+        if(candidate.getName().startsWith(prefix) && candidate.getName().endsWith(suffix)
+            && (this.started - 1000L <= candidate.lastModified())
+            && (!newest.exists() || (newest.lastModified() < candidate.lastModified())))
+          newest = candidate;
+      }
+    }
+    return newest;
+  }
+
+  /**
+   *  \brief  Returns \c true if the output is read from a named pipe.
+   */
+  public boolean isPipe()
+  {
+    return this.pipe;
+  }
+
+  /**
+   *  \brief  Removes the scratch file or the pipe.
+   *
+   *  Output files that the user has configured are kept.
+   */
+  public void close()
+  {
+    if(this.scratch)
+      this.getFile().delete();
+  }
+
+  private static boolean isPipeable(List<String> command)
+  {
+    return !command.contains("--xunit")
+        && OutputFile.isDisabled(command, "--log")
+        && OutputFile.isDisabled(command, "--report");
+  }
+
+  private static boolean isDisabled(List<String> command, String option)
+  {
+    int index = command.lastIndexOf(option);
+    return (0 <= index) && (index + 1 < command.size()) && "NONE".equalsIgnoreCase(command.get(index + 1));
+  }
+
+  private static boolean createPipe(File file)
+  {
+    if('/' != File.separatorChar)
+      return false;
+    try
+    {
+      return 0 == new ProcessBuilder("mkfifo", file.getAbsolutePath()).start().waitFor();
+    }
+    catch (IOException e)
+    {
+      return false;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
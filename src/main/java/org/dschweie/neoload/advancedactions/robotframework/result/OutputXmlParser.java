@@ -0,0 +1,232 @@
+package org.dschweie.neoload.advancedactions.robotframework.result;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ *  \brief  Streaming parser for the \c output.xml of Robot Framework.
+ *
+ *  Long suites produce output files of several hundred megabytes. The
+ *  parser therefore reads the file with StAX and only keeps suites, tests
+ *  and the top-level keywords of tests and suites (including setup and
+ *  teardown) in memory. Deeper keywords, messages and statistics are
+ *  skipped while reading.
+ *
+ *  Both formats of the status element are supported:
+ *  \li   Robot Framework up to 6.x: \c starttime and \c endtime
+ *        in the form <tt>20240115 10:20:30.123</tt>.
+ *  \li   Robot Framework 7.x: \c start in ISO format and \c elapsed
+ *        in seconds.
+ */
+public class OutputXmlParser
+{
+  /**
+   *  \brief  Elements that are reported as keywords if they are top-level items.
+   */
+  protected static final Set<String> KEYWORD_ELEMENTS = new HashSet<String>(Arrays.asList("kw", "for", "while", "if", "try", "group"));
+
+  private static final int    BUFFER_SIZE = 65536;
+
+  /**
+   *  \brief  Parses an output file.
+   *
+   *  Regular files are read sequentially through a file channel. Named
+   *  pipes do not support the positioning of a channel and are read as a
+   *  plain stream.
+   *
+   *  @param  file            The \c output.xml of the execution.
+   *
+   *  @return The method returns the top-level suites.
+   *
+   *  @throws IOException if the file cannot be read or is not valid.
+   */
+  public static List<ExecutionNode> parse(File file) throws IOException
+  {
+    InputStream stream = file.isFile() ? Channels.newInputStream(FileChannel.open(file.toPath(), StandardOpenOption.READ)) : new FileInputStream(file);
+    try
+    {
+      return OutputXmlParser.parse(stream);
+    }
+    finally
+    {
+      stream.close();
+    }
+  }
+
+  /**
+   *  \brief  Parses an output file from a stream.
+   *
+   *  @param  stream          The stream that delivers the \c output.xml.
+   *
+   *  @return The method returns the top-level suites.
+   *
+   *  @throws IOException if the stream cannot be read or is not valid.
+   */
+  public static List<ExecutionNode> parse(InputStream stream) throws IOException
+  {
+    final List<ExecutionNode> suites = new ArrayList<ExecutionNode>();
+    final Deque<ExecutionNode> elements = new ArrayDeque<ExecutionNode>();
+    //  the stack holds the node of every open element, skipped elements are represented by a placeholder
+    final ExecutionNode skipped = new ExecutionNode("", "");
+    int tracked = 0;
+
+    try
+    {
+      XMLStreamReader reader = OutputXmlParser.createFactory().createXMLStreamReader(new BufferedInputStream(stream, BUFFER_SIZE));
+      try
+      {
+        while(reader.hasNext())
+        {
+          int event = reader.next();
+          if(XMLStreamConstants.START_ELEMENT == event)
+          {
+            String element = reader.getLocalName();
+            ExecutionNode parent = elements.isEmpty() ? null : elements.peek();
+            ExecutionNode node = skipped;
+
+            if("status".equals(element))
+            {
+              if((null != parent) && (skipped != parent))
+                OutputXmlParser.applyStatus(parent, reader);
+              else
+                reader.getElementText();
+              continue;
+            }
+
+            if("suite".equals(element) && ((0 == tracked) || ExecutionNode.SUITE.equals(parent.getType())))
+            {
+              node = new ExecutionNode(ExecutionNode.SUITE, reader.getAttributeValue(null, "name"));
+              if(0 == tracked)
+                suites.add(node);
+              else
+                parent.getChildren().add(node);
+            }
+            else if("test".equals(element) && (null != parent) && ExecutionNode.SUITE.equals(parent.getType()))
+            {
+              node = new ExecutionNode(ExecutionNode.TEST, reader.getAttributeValue(null, "name"));
+              parent.getChildren().add(node);
+            }
+            else if(KEYWORD_ELEMENTS.contains(element) && (null != parent) && (ExecutionNode.SUITE.equals(parent.getType()) || ExecutionNode.TEST.equals(parent.getType())))
+            {
+              node = new ExecutionNode(ExecutionNode.KEYWORD, OutputXmlParser.getKeywordName(reader, element));
+              parent.getChildren().add(node);
+            }
+            if(skipped != node)
+              ++tracked;
+            elements.push(node);
+          }
+          else if(XMLStreamConstants.END_ELEMENT == event)
+          {
+            if(!elements.isEmpty() && (skipped != elements.pop()))
+              --tracked;
+          }
+        }
+      }
+      finally
+      {
+        reader.close();
+      }
+    }
+    catch (XMLStreamException e)
+    {
+      throw new IOException("output.xml could not be parsed: ".concat(String.valueOf(e.getMessage())), e);
+    }
+    return suites;
+  }
+
+  /**
+   *  \brief  Converts a time stamp of the status element into milliseconds since the epoch.
+   *
+   *  @param  value           The time stamp in one of the formats of
+   *                          Robot Framework.
+   *
+   *  @return The method returns the time or -1 if it cannot be parsed.
+   */
+  public static long parseTimestamp(String value)
+  {
+    if((null == value) || value.isEmpty() || "N/A".equals(value))
+      return -1;
+    try
+    {
+      if(-1 != value.indexOf('T'))
+        return LocalDateTime.parse(value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+      return new SimpleDateFormat("yyyyMMdd HH:mm:ss.SSS").parse(value).getTime();
+    }
+    catch (DateTimeParseException | ParseException e)
+    {
+      return -1;
+    }
+  }
+
+  private static void applyStatus(ExecutionNode node, XMLStreamReader reader) throws XMLStreamException
+  {
+    String status = reader.getAttributeValue(null, "status");
+    long start = OutputXmlParser.parseTimestamp(reader.getAttributeValue(null, "start"));
+    long end = -1;
+
+    if(0 <= start)
+    {
+      String elapsed = reader.getAttributeValue(null, "elapsed");
+      try
+      {
+        end = (null == elapsed) ? -1 : start + Math.round(Double.parseDouble(elapsed) * 1000.0);
+      }
+      catch (NumberFormatException e)
+      {
+        end = -1;
+      }
+    }
+    else
+    {
+      start = OutputXmlParser.parseTimestamp(reader.getAttributeValue(null, "starttime"));
+      end = OutputXmlParser.parseTimestamp(reader.getAttributeValue(null, "endtime"));
+    }
+    node.setStatus(status, reader.getElementText(), start, end);
+  }
+
+  private static String getKeywordName(XMLStreamReader reader, String element)
+  {
+    String name = reader.getAttributeValue(null, "name");
+    String type = reader.getAttributeValue(null, "type");
+    String library = reader.getAttributeValue(null, "library");
+    String label = (null == name) ? element.toUpperCase() : name;
+
+    if((null != library) && !library.isEmpty())
+      label = library.concat(".").concat(label);
+    if((null != type) && !"kw".equalsIgnoreCase(type) && !"keyword".equalsIgnoreCase(type))
+      label = type.toLowerCase().concat(" ").concat(label);
+    return label;
+  }
+
+  private static XMLInputFactory createFactory()
+  {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+    return factory;
+  }
+}
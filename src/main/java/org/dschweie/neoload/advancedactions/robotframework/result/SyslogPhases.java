@@ -0,0 +1,138 @@
+package org.dschweie.neoload.advancedactions.robotframework.result;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import org.dschweie.neoload.advancedactions.process.PhaseTimeline;
+
+/**
+ *  \brief  Derives the phases of a Robot Framework run from its syslog.
+ *
+ *  Robot Framework writes an internal log if the environment variable
+ *  \c ROBOT_SYSLOG_FILE is set. Every line begins with a timestamp with
+ *  milliseconds, e.g.
+ *
+ *      20240115 10:23:45.123 | INFO  | Started suite 'Shop'.
+ *
+ *  The following lines mark the ends of the phases:
+ *  \li   the first line: interpreter and import startup,
+ *  \li   the first \c Started \c suite: suite parsing,
+ *  \li   the last \c Ended \c suite: test execution,
+ *  \li   \c Output: writing of the output file,
+ *  \li   the last \c Log:, \c Report: or \c XUnit: writing of the reports.
+ */
+public final class SyslogPhases
+{
+  public static final String  INTERPRETER_STARTUP = "interpreter startup";
+  public static final String  SUITE_PARSING = "suite parsing";
+  public static final String  TEST_EXECUTION = "test execution";
+  public static final String  OUTPUT_WRITING = "output writing";
+  public static final String  REPORT_WRITING = "report writing";
+
+  /**
+   *  \brief  Environment variable for the file of the syslog.
+   */
+  public static final String  SYSLOG_FILE = "ROBOT_SYSLOG_FILE";
+
+  /**
+   *  \brief  Environment variable for the level of the syslog.
+   */
+  public static final String  SYSLOG_LEVEL = "ROBOT_SYSLOG_LEVEL";
+
+  private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd HH:mm:ss.SSS");
+  private static final String SEPARATOR = " | ";
+
+  private SyslogPhases()
+  {
+  }
+
+  /**
+   *  \brief  Reads the syslog and adds the phases found to the timeline.
+   *
+   *  Phases whose marks are missing, e.g. the reports if \c --log and
+   *  \c --report are \c NONE, are not added.
+   *
+   *  @param  syslog          The syslog of the run.
+   *  @param  timeline        The timeline of the execution.
+   *
+   *  @throws IOException if the syslog cannot be read.
+   */
+  public static void mark(File syslog, PhaseTimeline timeline) throws IOException
+  {
+    long first = -1L;
+    long parsed = -1L;
+    long executed = -1L;
+    long output = -1L;
+    long reports = -1L;
+
+    BufferedReader reader = Files.newBufferedReader(syslog.toPath(), StandardCharsets.UTF_8);
+    try
+    {
+      String line;
+      while(null != (line = reader.readLine()))
+      {
+        long timestamp = SyslogPhases.getTimestamp(line);
+        if(0 > timestamp)
+          continue;
+
+        String message = SyslogPhases.getMessage(line);
+        if(0 > first)
+          first = timestamp;
+        if(message.startsWith("Started suite '") && (0 > parsed))
+          parsed = timestamp;
+        else if(message.startsWith("Ended suite '"))
+          executed = timestamp;
+        else if(message.startsWith("Output: "))
+          output = timestamp;
+        else if(message.startsWith("Log: ") || message.startsWith("Report: ") || message.startsWith("XUnit: "))
+          reports = timestamp;
+      }
+    }
+    finally
+    {
+      reader.close();
+    }
+
+    SyslogPhases.mark(timeline, INTERPRETER_STARTUP, first);
+    SyslogPhases.mark(timeline, SUITE_PARSING, parsed);
+    SyslogPhases.mark(timeline, TEST_EXECUTION, executed);
+    SyslogPhases.mark(timeline, OUTPUT_WRITING, output);
+    SyslogPhases.mark(timeline, REPORT_WRITING, reports);
+  }
+
+  private static void mark(PhaseTimeline timeline, String phase, long end)
+  {
+    if(0 <= end)
+      timeline.mark(phase, end);
+  }
+
+  /**
+   *  \brief  Returns the timestamp of a line in milliseconds or -1 for continuation lines.
+   */
+  static long getTimestamp(String line)
+  {
+    if((23 > line.length()) || !line.startsWith(SEPARATOR, 21))
+      return -1L;
+    try
+    {
+      return LocalDateTime.parse(line.substring(0, 21), TIMESTAMP).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    catch (DateTimeParseException e)
+    {
+      return -1L;
+    }
+  }
+
+  private static String getMessage(String line)
+  {
+    int i = line.indexOf(SEPARATOR, 24);
+    return (0 > i) ? "" : line.substring(i + SEPARATOR.length());
+  }
+}
@@ -0,0 +1,161 @@
+package org.dschweie.neoload.advancedactions.robotframework.warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ *  \brief  Computes a content hash over the files of a test suite.
+ *
+ *  The hash covers the names and the contents of all files that Robot
+ *  Framework or Python read when the suite is executed, i.e. suites,
+ *  resources, variable files and libraries. Generated files such as
+ *  \c __pycache__ or the outputs of earlier runs are ignored.
+ *
+ *  The digest of every file is kept together with its size and time of
+ *  modification, so a file is only read again if it has changed. Computing
+ *  the hash of an unchanged suite therefore only costs one directory walk.
+ */
+public class SuiteHash
+{
+  /**
+   *  \brief  Extensions of the files that belong to a suite.
+   */
+  protected static final Set<String> EXTENSIONS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+      "robot", "resource", "txt", "tsv", "rst", "rest", "py", "yaml", "yml", "json", "csv")));
+
+  /**
+   *  \brief  Digest of a file together with the attributes it was computed for.
+   */
+  private static final class FileDigest
+  {
+    final long    size;
+    final long    modified;
+    final byte[]  digest;
+
+    FileDigest(long size, long modified, byte[] digest)
+    {
+      this.size = size;
+      this.modified = modified;
+      this.digest = digest;
+    }
+  }
+
+  private final Map<String, FileDigest> digests = new HashMap<String, FileDigest>();
+  private final byte[]                  buffer = new byte[65536];
+
+  /**
+   *  \brief  Computes the hash over files and directories.
+   *
+   *  @param  sources         The files and directories of the suite.
+   *                          Directories are searched recursively.
+   *
+   *  @return The method returns the hash as hexadecimal text.
+   *
+   *  @throws IOException if a file cannot be read.
+   */
+  public synchronized String compute(List<File> sources) throws IOException
+  {
+    MessageDigest total = SuiteHash.createDigest();
+
+    for(File source : sources)
+      this.update(total, source.getAbsoluteFile(), true);
+    return SuiteHash.toHex(total.digest());
+  }
+
+  private void update(MessageDigest total, File file, boolean explicit) throws IOException
+  {
+    if(file.isDirectory())
+    {
+      if("__pycache__".equals(file.getName()) || file.getName().startsWith("."))
+        return;
+      String[] names = file.list();
+      if(null == names)
+        return;
+      Arrays.sort(names);
+      for(String name : names)
+        this.update(total, new File(file, name), false);
+    }
+    else if(file.isFile() && (explicit || SuiteHash.isSuiteFile(file.getName())))
+    {
+      total.update(file.getPath().getBytes(StandardCharsets.UTF_8));
+      total.update((byte) 0);
+      total.update(this.getDigest(file));
+    }
+  }
+
+  /**
+   *  \brief  Returns the digest of a file and reads the file only if it has changed.
+   */
+  private byte[] getDigest(File file) throws IOException
+  {
+    String path = file.getPath();
+    long size = file.length();
+    long modified = file.lastModified();
+    FileDigest known = this.digests.get(path);
+
+    if((null != known) && (known.size == size) && (known.modified == modified))
+      return known.digest;
+
+    MessageDigest digest = SuiteHash.createDigest();
+    InputStream in = Files.newInputStream(file.toPath());
+    try
+    {
+      int read;
+      while(-1 != (read = in.read(this.buffer)))
+        digest.update(this.buffer, 0, read);
+    }
+    finally
+    {
+      in.close();
+    }
+    byte[] value = digest.digest();
+    this.digests.put(path, new FileDigest(size, modified, value));
+    return value;
+  }
+
+  protected static boolean isSuiteFile(String name)
+  {
+    int dot = name.lastIndexOf('.');
+    return (0 < dot) && EXTENSIONS.contains(name.substring(dot + 1).toLowerCase());
+  }
+
+  /**
+   *  \brief  Returns the SHA-256 hash of a text as hexadecimal text.
+   */
+  public static String hash(String text)
+  {
+    return SuiteHash.toHex(SuiteHash.createDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static MessageDigest createDigest()
+  {
+    try
+    {
+      return MessageDigest.getInstance("SHA-256");
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private static String toHex(byte[] bytes)
+  {
+    StringBuilder sb = new StringBuilder(2 * bytes.length);
+    for(byte b : bytes)
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    return sb.toString();
+  }
+}
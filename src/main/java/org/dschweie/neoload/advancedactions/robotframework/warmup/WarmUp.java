@@ -0,0 +1,369 @@
+package org.dschweie.neoload.advancedactions.robotframework.warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.dschweie.neoload.advancedactions.process.CaptureBuffer;
+import org.dschweie.neoload.advancedactions.process.ProcessWatchdog;
+import org.dschweie.neoload.advancedactions.process.StreamCollector;
+
+import com.neotys.extensions.action.engine.SampleResult;
+
+/**
+ *  \brief  Prepares a test suite once per load generator before it is executed.
+ *
+ *  If many virtual users start at the same time, each Robot Framework
+ *  process compiles the Python libraries of the suite and parses the suite
+ *  on its own. This results in a storm of \c .pyc files being written and,
+ *  if the suite contains an error, in a wave of identical failures.
+ *
+ *  The warm-up
+ *  \li   byte-compiles the directories of the suite with \c compileall and
+ *  \li   executes the command of the action with \c --dryrun to detect
+ *        errors in the suite without executing keywords.
+ *
+ *  The outcome is kept per JVM, keyed by a content hash of the suite files
+ *  and the structure of the command, i.e. the launcher, the test source and
+ *  the options that select tests or locate libraries. The values of
+ *  \c --variable are resolved by NeoLoad per virtual user and iteration
+ *  and are therefore not part of the key, only their names are. At most
+ *  MAX_OUTCOMES outcomes are kept. All virtual users that start while the warm-up is
+ *  running wait for it; later iterations only check whether the hash has
+ *  changed. A successful warm-up is also recorded in the directory for
+ *  temporary files, so that it is not repeated after a restart of the
+ *  load generator.
+ */
+public final class WarmUp
+{
+  /**
+   *  \brief  Minimum time in milliseconds between two computations of the hash of the same suite.
+   */
+  public static final long    RECHECK_INTERVAL = 5000L;
+
+  /**
+   *  \brief  Maximum duration of a step of the warm-up in milliseconds.
+   */
+  public static final long    TIMEOUT = 300000L;
+
+  /**
+   *  \brief  Time in milliseconds between the stages of the termination of a step that exceeds TIMEOUT.
+   */
+  protected static final long KILL_GRACE = 5000L;
+
+  /**
+   *  \brief  Maximum number of characters of the output kept per warm-up.
+   */
+  protected static final int  OUTPUT_LIMIT = 65536;
+
+  /**
+   *  \brief  Maximum number of outcomes kept per JVM, the least recently used is discarded first.
+   */
+  public static final int     MAX_OUTCOMES = 64;
+
+  /**
+   *  \brief  Options of the command that take a value and determine the structure of the suite.
+   */
+  protected static final List<String> STRUCTURE = Arrays.asList("--extension", "--test", "--task", "--suite", "--include", "--exclude",
+                                                                "--pythonpath", "--variablefile", "--prerunmodifier", "--argumentfile");
+
+  /**
+   *  \brief  Outcome of a warm-up.
+   */
+  public static final class Outcome
+  {
+    private final String        key;
+    private final List<String>  command;
+    private final int           compileCode;
+    private final int           dryRunCode;
+    private final String        output;
+    private final long          duration;
+    private final boolean       recorded;
+    private final AtomicBoolean claimed = new AtomicBoolean(false);
+
+    Outcome(String key, List<String> command, int compileCode, int dryRunCode, String output, long duration, boolean recorded)
+    {
+      this.key = key;
+      this.command = command;
+      this.compileCode = compileCode;
+      this.dryRunCode = dryRunCode;
+      this.output = output;
+      this.duration = duration;
+      this.recorded = recorded;
+    }
+
+    /**
+     *  \brief  Returns \c true if the dry run did not find any errors.
+     */
+    public boolean isSuccessful()
+    {
+      return 0 == this.dryRunCode;
+    }
+
+    /**
+     *  \brief  Returns \c true for the first caller only.
+     *
+     *  The virtual user that claims the outcome reports it, all others
+     *  only evaluate it.
+     */
+    public boolean claim()
+    {
+      return this.claimed.compareAndSet(false, true);
+    }
+
+    public String getKey()
+    {
+      return this.key;
+    }
+
+    public int getDryRunCode()
+    {
+      return this.dryRunCode;
+    }
+
+    /**
+     *  \brief  Returns \c true if the outcome was taken from an earlier run of the load generator.
+     */
+    public boolean isRecorded()
+    {
+      return this.recorded;
+    }
+
+    /**
+     *  \brief  Creates the result that reports the warm-up in NeoLoad.
+     */
+    public SampleResult toSampleResult()
+    {
+      SampleResult result = new SampleResult();
+      String status = this.isSuccessful() ? "0" : "NL-WARMUP-FAILED";
+
+      result.setRequestContent("warm-up ".concat(this.key).concat(": ").concat(String.join(" ", this.command)));
+      result.setResponseContent("<warmup recorded=\"".concat(String.valueOf(this.recorded))
+                                .concat("\" compileall=\"").concat(String.valueOf(this.compileCode))
+                                .concat("\" dryrun=\"").concat(String.valueOf(this.dryRunCode)).concat("\">\n")
+                                .concat(this.output).concat("</warmup>"));
+      result.setStatusCode(status);
+      result.setError(!this.isSuccessful());
+      result.setDuration(this.duration);
+      return result;
+    }
+  }
+
+  private static final SuiteHash                                hasher = new SuiteHash();
+  private static final Map<String, FutureTask<Outcome>>         outcomes = WarmUp.createCache();
+  private static final Map<String, String>                      keys = WarmUp.createCache();
+  private static final Map<String, Long>                        checked = WarmUp.createCache();
+
+  private WarmUp()
+  {
+  }
+
+  /**
+   *  \brief  Executes the warm-up for a suite unless it was already executed for the same content.
+   *
+   *  @param  python          The Python interpreter for \c compileall or
+   *                          \c null if the suite is not executed by Python.
+   *  @param  directories     The directories of the suite, its resources
+   *                          and its libraries.
+   *  @param  dryRun          The command of the action with \c --dryrun.
+   *
+   *  @return The method returns the outcome, which may have been determined
+   *          by another virtual user.
+   *
+   *  @throws IOException if the suite cannot be read or the warm-up
+   *          cannot be executed.
+   *  @throws InterruptedException if the current thread is interrupted
+   *          while waiting for the warm-up.
+   */
+  public static Outcome prepare(final String python, final List<File> directories, final List<String> dryRun) throws IOException, InterruptedException
+  {
+    final String key = WarmUp.getKey(directories, dryRun);
+    FutureTask<Outcome> task = new FutureTask<Outcome>(new Callable<Outcome>() {
+      @Override
+      public Outcome call() throws Exception
+      {
+        return WarmUp.execute(key, python, directories, dryRun);
+      }
+    });
+
+    FutureTask<Outcome> existing;
+    synchronized(outcomes)
+    {
+      existing = outcomes.putIfAbsent(key, task);
+    }
+    if(null == existing)
+    {
+      task.run();
+      existing = task;
+    }
+    try
+    {
+      return existing.get();
+    }
+    catch (ExecutionException e)
+    {
+      synchronized(outcomes)
+      {
+        outcomes.remove(key, existing);
+      }
+      if(e.getCause() instanceof IOException)
+        throw (IOException) e.getCause();
+      throw new IOException("warm-up failed", e.getCause());
+    }
+  }
+
+  /**
+   *  \brief  Creates a map that keeps the MAX_OUTCOMES most recently used entries.
+   *
+   *  The map is not synchronized.
+   */
+  private static <T> Map<String, T> createCache()
+  {
+    return new LinkedHashMap<String, T>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, T> eldest)
+      {
+        return MAX_OUTCOMES < this.size();
+      }
+    };
+  }
+
+  /**
+   *  \brief  Returns the parts of a dry run command that determine the outcome of the warm-up.
+   *
+   *  These are the launcher, the options in STRUCTURE with their values,
+   *  the names of the variables and the last argument, i.e. the test source.
+   *
+   *  @param  dryRun          The command of the action with \c --dryrun.
+   *
+   *  @return The method returns the structure of the command.
+   */
+  protected static List<String> getStructure(List<String> dryRun)
+  {
+    final List<String> structure = new ArrayList<String>();
+
+    if(!dryRun.isEmpty())
+      structure.add(dryRun.get(0));
+    for(int i = 1; i < dryRun.size() - 1; ++i)
+    {
+      String argument = dryRun.get(i);
+      if(STRUCTURE.contains(argument))
+      {
+        structure.add(argument);
+        structure.add(dryRun.get(++i));
+      }
+      else if("--variable".equals(argument))
+      {
+        String variable = dryRun.get(++i);
+        structure.add(argument);
+        structure.add((0 > variable.indexOf(':')) ? variable : variable.substring(0, variable.indexOf(':')));
+      }
+    }
+    if(1 < dryRun.size())
+      structure.add(dryRun.get(dryRun.size() - 1));
+    return structure;
+  }
+
+  /**
+   *  \brief  Returns the key of the warm-up for the current content of the suite.
+   *
+   *  The hash of a suite is computed at most once per RECHECK_INTERVAL, so
+   *  that not every iteration of every virtual user walks the directories.
+   */
+  protected static String getKey(List<File> directories, List<String> dryRun) throws IOException
+  {
+    String call = String.join("\u0000", WarmUp.getStructure(dryRun)).concat("\u0001").concat(directories.toString());
+    long now = System.currentTimeMillis();
+
+    synchronized(keys)
+    {
+      Long last = checked.get(call);
+      if((null != last) && (now - last < RECHECK_INTERVAL))
+        return keys.get(call);
+    }
+
+    String key = SuiteHash.hash(hasher.compute(directories).concat("\n").concat(call));
+    synchronized(keys)
+    {
+      keys.put(call, key);
+      checked.put(call, now);
+    }
+    return key;
+  }
+
+  /**
+   *  \brief  Returns the file that records a successful warm-up.
+   */
+  protected static File getRecord(String key)
+  {
+    return new File(new File(new File(System.getProperty("java.io.tmpdir"), "neoload-advancedactions"), "warmup"), key.concat(".ok"));
+  }
+
+  private static Outcome execute(String key, String python, List<File> directories, List<String> dryRun) throws IOException, InterruptedException
+  {
+    File record = WarmUp.getRecord(key);
+    if(record.isFile())
+      return new Outcome(key, dryRun, 0, 0, "", 0L, true);
+
+    long start = System.currentTimeMillis();
+    CaptureBuffer output = new CaptureBuffer(OUTPUT_LIMIT, null);
+    int compileCode = 0;
+
+    if(null != python)
+    {
+      final List<String> compile = new ArrayList<String>();
+      compile.add(python);
+      compile.add("-m");
+      compile.add("compileall");
+      compile.add("-q");
+      for(File directory : directories)
+        compile.add(directory.getPath());
+      compileCode = WarmUp.run(compile, output);
+    }
+    int dryRunCode = WarmUp.run(dryRun, output);
+    output.close();
+
+    Outcome outcome = new Outcome(key, dryRun, compileCode, dryRunCode, output.toString(), System.currentTimeMillis() - start, false);
+    if(outcome.isSuccessful())
+    {
+      Files.createDirectories(record.getParentFile().toPath());
+      Files.write(record.toPath(), String.join(" ", dryRun).getBytes(StandardCharsets.UTF_8));
+    }
+    return outcome;
+  }
+
+  /**
+   *  \brief  Executes a step of the warm-up and appends its output.
+   *
+   *  @return The method returns the exit code of the step.
+   */
+  private static int run(List<String> command, CaptureBuffer output) throws IOException, InterruptedException
+  {
+    output.append("$ ".concat(String.join(" ", command)).concat("\n"));
+
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    StreamCollector collector = new StreamCollector(process.getInputStream(), null, output).supervise(process);
+    ProcessWatchdog watchdog = new ProcessWatchdog(process, TIMEOUT, 0L, KILL_GRACE, collector).start();
+    int code = process.waitFor();
+    watchdog.cancel();
+    collector.await(TIMEOUT);
+    if(watchdog.isTriggered())
+    {
+      output.append(watchdog.getStatusCode().concat("\n"));
+      return -1;
+    }
+    return code;
+  }
+}
@@ -0,0 +1,196 @@
+package org.dschweie.neoload.advancedactions.robotframework.worker;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dschweie.neoload.advancedactions.process.CaptureBuffer;
+import org.dschweie.neoload.advancedactions.process.StreamCollector;
+
+/**
+ *  \brief  Python fork server that is shared by all virtual users of a load generator.
+ *
+ *  The fork server imports Robot Framework and the configured libraries
+ *  once and then forks a fresh child process for every request. Every
+ *  iteration is therefore isolated in its own process without paying
+ *  for the start of the interpreter.
+ *
+ *  There is one server per JVM and configuration. The server listens on a
+ *  port of the loopback interface and only accepts connections that know
+ *  the token it reported at startup (see WorkerProtocol).
+ */
+public class ForkServer
+{
+  public static final String  SCRIPT = "robot_forkserver.py";
+
+  private static final Map<String, ForkServer> servers = new HashMap<String, ForkServer>();
+
+  private final String        python;
+  private final List<String>  preload;
+  private final StreamCollector.LineListener listener;
+
+  private Process             process = null;
+  private StreamCollector     diagnostics = null;
+  private int                 port = -1;
+  private String              token = null;
+
+  /**
+   *  \brief  Returns the fork server of this JVM for a configuration.
+   *
+   *  Engines with a different interpreter or different modules to preload
+   *  get a server of their own.
+   *
+   *  @param  python          Command of the Python interpreter.
+   *  @param  preload         Modules that the server imports at startup.
+   *  @param  listener        Optional callback for the diagnostic output
+   *                          that the server writes to standard error.
+   *
+   *  @return The method returns the server, which is started with the
+   *          first request.
+   */
+  public static synchronized ForkServer getInstance(String python, List<String> preload, StreamCollector.LineListener listener)
+  {
+    String key = python.concat("\n").concat(String.join(",", preload));
+    ForkServer server = servers.get(key);
+
+    if(null == server)
+    {
+      server = new ForkServer(python, preload, listener);
+      servers.put(key, server);
+    }
+    return server;
+  }
+
+  protected ForkServer(String python, List<String> preload, StreamCollector.LineListener listener)
+  {
+    this.python = python;
+    this.preload = preload;
+    this.listener = listener;
+  }
+
+  /**
+   *  \brief  Returns the command that starts the fork server.
+   *
+   *  @throws IOException if the scripts cannot be provided.
+   */
+  public List<String> getCommand() throws IOException
+  {
+    final List<String> command = new ArrayList<String>();
+    ScriptResource.extract(PersistentWorker.SCRIPT);
+    command.add(this.python);
+    command.add(ScriptResource.extract(SCRIPT).getAbsolutePath());
+    for(String module : this.preload)
+    {
+      command.add("--preload");
+      command.add(module);
+    }
+    return command;
+  }
+
+  /**
+   *  \brief  Opens a connection to the server and starts it if necessary.
+   *
+   *  The token is already sent, so that the caller can continue with the
+   *  request.
+   *
+   *  @return The method returns the connected socket.
+   *
+   *  @throws IOException if the server could not be started or reached.
+   */
+  public Socket connect() throws IOException
+  {
+    int currentPort;
+    String currentToken;
+
+    synchronized(this)
+    {
+      if((null == this.process) || !this.process.isAlive())
+        this.start();
+      currentPort = this.port;
+      currentToken = this.token;
+    }
+
+    Socket socket = new Socket(InetAddress.getLoopbackAddress(), currentPort);
+    socket.setTcpNoDelay(true);
+    WorkerProtocol.writeLine(socket.getOutputStream(), currentToken);
+    return socket;
+  }
+
+  /**
+   *  \brief  Asks the server to terminate a child process.
+   *
+   *  @param  pid             The process id that the child has reported.
+   */
+  public void kill(int pid)
+  {
+    try
+    {
+      Socket socket = this.connect();
+      try
+      {
+        WorkerProtocol.writeLine(socket.getOutputStream(), WorkerProtocol.KILL.concat(" ").concat(String.valueOf(pid)));
+      }
+      finally
+      {
+        socket.close();
+      }
+    }
+    catch (IOException e)
+    {
+      //  if the server is not reachable, its children are gone as well
+    }
+  }
+
+  /**
+   *  \brief  Returns the last diagnostic output of the server.
+   */
+  public synchronized String getDiagnostics()
+  {
+    return (null == this.diagnostics) ? "" : this.diagnostics.getContent();
+  }
+
+  /**
+   *  \brief  Terminates the server process.
+   */
+  public synchronized void shutdown()
+  {
+    if(null != this.process)
+    {
+      this.process.destroy();
+      this.process = null;
+    }
+  }
+
+  private void start() throws IOException
+  {
+    this.shutdown();
+    this.process = new ProcessBuilder(this.getCommand()).start();
+    this.diagnostics = new StreamCollector(this.process.getErrorStream(), this.listener, new CaptureBuffer(PersistentWorker.DIAGNOSTICS_LIMIT, null)).supervise(this.process);
+
+    try
+    {
+      String[] header = WorkerProtocol.readHeader(new BufferedInputStream(this.process.getInputStream(), 64), WorkerProtocol.PORT, 3);
+      this.port = Integer.parseInt(header[1]);
+      this.token = header[2];
+    }
+    catch (IOException | NumberFormatException e)
+    {
+      this.shutdown();
+      throw new IOException("fork server could not be started: ".concat(this.getDiagnostics()), e);
+    }
+
+    final Process started = this.process;
+    Runtime.getRuntime().addShutdownHook(new Thread("robot forkserver shutdown") {
+      @Override
+      public void run()
+      {
+        started.destroy();
+      }
+    });
+  }
+}
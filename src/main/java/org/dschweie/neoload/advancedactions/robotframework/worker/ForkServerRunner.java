@@ -0,0 +1,79 @@
+package org.dschweie.neoload.advancedactions.robotframework.worker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ *  \brief  Runner of a virtual user that delegates the executions to the shared ForkServer.
+ *
+ *  Every run opens a connection to the fork server, whose child process
+ *  executes Robot Framework and reports the result. If the execution is
+ *  stopped, the child is terminated via the server.
+ */
+public class ForkServerRunner implements RobotRunner
+{
+  private final ForkServer  server;
+  private volatile Socket   socket = null;
+  private volatile int      pid = -1;
+
+  public ForkServerRunner(ForkServer server)
+  {
+    this.server = server;
+  }
+
+  @Override
+  public String getName()
+  {
+    return "robot-forkserver";
+  }
+
+  @Override
+  public WorkerResult run(List<String> arguments, StartListener listener) throws IOException
+  {
+    if(null != listener)
+      listener.onStart();
+    Socket current = this.server.connect();
+
+    this.socket = current;
+    try
+    {
+      OutputStream requests = new BufferedOutputStream(current.getOutputStream());
+      InputStream results = new BufferedInputStream(current.getInputStream());
+      WorkerProtocol.writeRequest(requests, arguments);
+      this.pid = WorkerProtocol.readPid(results);
+      return WorkerProtocol.readResult(results);
+    }
+    finally
+    {
+      this.pid = -1;
+      this.socket = null;
+      current.close();
+    }
+  }
+
+  @Override
+  public void stop()
+  {
+    int child = this.pid;
+    Socket current = this.socket;
+
+    if(0 < child)
+      this.server.kill(child);
+    if(null != current)
+    {
+      try
+      {
+        current.close();
+      }
+      catch (IOException e)
+      {
+        //  nothing left to release
+      }
+    }
+  }
+}
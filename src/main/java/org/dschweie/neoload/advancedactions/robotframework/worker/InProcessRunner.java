@@ -0,0 +1,255 @@
+package org.dschweie.neoload.advancedactions.robotframework.worker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+
+/**
+ *  \brief  Runner that executes the standalone jar of Robot Framework inside the JVM of NeoLoad.
+ *
+ *  Starting \c java \c -jar \c robotframework.jar costs a JVM startup and
+ *  the initialisation of Jython for every iteration. This runner loads the
+ *  jar once per JVM into an isolated class loader, whose parent is the
+ *  platform class loader, and calls the static method \c run(String[]) of
+ *  the main class of the jar.
+ *
+ *  Standard output and standard error are replaced once per JVM by streams
+ *  that write into the buffers of the calling thread, or into the original
+ *  streams outside of a run. Robot Framework keeps global state in its
+ *  interpreter, so the runs of a jar are executed one after the other.
+ *
+ *  If a run fails with an error of the runtime instead of a result, the jar
+ *  is marked as broken and getInstance(File) refuses it from then on, so
+ *  that the engine falls back to a process.
+ */
+public class InProcessRunner implements RobotRunner
+{
+  /**
+   *  \brief  Entry point of a loaded jar, shared by all runners of the jar.
+   */
+  private static final class LoadedJar
+  {
+    final Method        run;
+    final Object        lock = new Object();
+    volatile boolean    broken = false;
+
+    LoadedJar(Method run)
+    {
+      this.run = run;
+    }
+  }
+
+  /**
+   *  \brief  Stream that writes into the buffer of the current run or into the original stream.
+   */
+  private static final class Router extends OutputStream
+  {
+    private final PrintStream                               original;
+    private final InheritableThreadLocal<OutputStream>      target;
+
+    Router(PrintStream original, InheritableThreadLocal<OutputStream> target)
+    {
+      this.original = original;
+      this.target = target;
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+      OutputStream current = this.target.get();
+      if(null == current)
+        this.original.write(b);
+      else
+        current.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      OutputStream current = this.target.get();
+      if(null == current)
+        this.original.write(b, off, len);
+      else
+        current.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+      if(null == this.target.get())
+        this.original.flush();
+    }
+  }
+
+  private static final Map<String, LoadedJar>                 jars = new HashMap<String, LoadedJar>();
+  private static final InheritableThreadLocal<OutputStream>   stdout = new InheritableThreadLocal<OutputStream>();
+  private static final InheritableThreadLocal<OutputStream>   stderr = new InheritableThreadLocal<OutputStream>();
+  private static boolean                                      routed = false;
+
+  private final LoadedJar   jar;
+  private volatile Thread   current = null;
+
+  private InProcessRunner(LoadedJar jar)
+  {
+    this.jar = jar;
+  }
+
+  /**
+   *  \brief  Returns a runner for a jar and loads the jar with the first call.
+   *
+   *  @param  jar             The standalone jar of Robot Framework.
+   *
+   *  @return The method returns a new runner that shares the loaded jar.
+   *
+   *  @throws IOException if the jar cannot be loaded, has no suitable entry
+   *          point or has failed before.
+   */
+  public static InProcessRunner getInstance(File jar) throws IOException
+  {
+    String path = jar.getCanonicalPath();
+    LoadedJar loaded;
+
+    synchronized(jars)
+    {
+      loaded = jars.get(path);
+      if(null == loaded)
+      {
+        loaded = new LoadedJar(InProcessRunner.load(jar));
+        InProcessRunner.route();
+        jars.put(path, loaded);
+      }
+    }
+    if(loaded.broken)
+      throw new IOException("in-process execution of ".concat(path).concat(" has failed before"));
+    return new InProcessRunner(loaded);
+  }
+
+  /**
+   *  \brief  Loads the jar and returns the method \c run(String[]) of its main class.
+   */
+  private static Method load(File jar) throws IOException
+  {
+    String main;
+    JarFile file = new JarFile(jar);
+    try
+    {
+      main = (null == file.getManifest()) ? null : file.getManifest().getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
+    }
+    finally
+    {
+      file.close();
+    }
+    if(null == main)
+      throw new IOException("no main class in ".concat(jar.getPath()));
+
+    URLClassLoader loader = new URLClassLoader(new URL[] { jar.toURI().toURL() }, ClassLoader.getPlatformClassLoader());
+    try
+    {
+      Method run = loader.loadClass(main.trim()).getMethod("run", String[].class);
+      if(!Modifier.isStatic(run.getModifiers()) || (int.class != run.getReturnType()))
+        throw new IOException(main.concat(".run(String[]) is not a static method returning int"));
+      return run;
+    }
+    catch (ClassNotFoundException | NoSuchMethodException | LinkageError e)
+    {
+      loader.close();
+      throw new IOException("entry point of ".concat(jar.getPath()).concat(" not found"), e);
+    }
+  }
+
+  /**
+   *  \brief  Replaces the standard streams once by streams that route per thread.
+   */
+  private static void route()
+  {
+    if(!routed)
+    {
+      System.setOut(new PrintStream(new Router(System.out, stdout), true));
+      System.setErr(new PrintStream(new Router(System.err, stderr), true));
+      routed = true;
+    }
+  }
+
+  @Override
+  public String getName()
+  {
+    return "robot-inprocess";
+  }
+
+  @Override
+  public WorkerResult run(List<String> arguments, StartListener listener) throws IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    synchronized(this.jar.lock)
+    {
+      if(this.jar.broken)
+        throw new IOException("in-process execution has failed before");
+      this.current = Thread.currentThread();
+      stdout.set(out);
+      stderr.set(err);
+      try
+      {
+        if(null != listener)
+          listener.onStart();
+        int code = (Integer) this.jar.run.invoke(null, (Object) arguments.toArray(new String[arguments.size()]));
+        System.out.flush();
+        System.err.flush();
+        return new WorkerResult(code, out.toByteArray(), err.toByteArray());
+      }
+      catch (InvocationTargetException e)
+      {
+        this.jar.broken = !(e.getCause() instanceof InterruptedException);
+        throw new IOException("in-process execution failed", e.getCause());
+      }
+      catch (IllegalAccessException e)
+      {
+        this.jar.broken = true;
+        throw new IOException("in-process execution failed", e);
+      }
+      finally
+      {
+        stdout.remove();
+        stderr.remove();
+        this.current = null;
+        //  an interrupt by stop() must not affect the next iteration of the virtual user
+        Thread.interrupted();
+      }
+    }
+  }
+
+  /**
+   *  \brief  Interrupts the current run of this runner.
+   *
+   *  The loaded jar is kept for the other virtual users.
+   */
+  @Override
+  public void stop()
+  {
+    Thread thread = this.current;
+
+    if(null != thread)
+      thread.interrupt();
+  }
+
+  /**
+   *  \brief  Returns \c true if the jar has failed and is no longer used.
+   */
+  public boolean isBroken()
+  {
+    return this.jar.broken;
+  }
+}
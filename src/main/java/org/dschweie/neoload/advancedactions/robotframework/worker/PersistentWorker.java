@@ -0,0 +1,169 @@
+package org.dschweie.neoload.advancedactions.robotframework.worker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.process.CaptureBuffer;
+import org.dschweie.neoload.advancedactions.process.StreamCollector;
+
+/**
+ *  \brief  Long-lived Python process that executes Robot Framework in-process.
+ *
+ *  Starting Robot Framework via the command line means that the Python
+ *  interpreter has to be started and all libraries have to be imported
+ *  again for every iteration. The persistent worker is started once per
+ *  virtual user and receives the arguments of every call via its standard
+ *  input. It executes them with the \c robot.run_cli API and returns exit
+ *  code and console output (see WorkerProtocol).
+ *
+ *  The worker is restarted if it has terminated or after a configurable
+ *  number of runs, so that leaks in libraries do not accumulate endlessly.
+ */
+public class PersistentWorker implements RobotRunner
+{
+  public static final String  SCRIPT = "robot_worker.py";
+
+  /**
+   *  \brief  Number of characters of the diagnostic output of the worker kept in memory.
+   */
+  protected static final int  DIAGNOSTICS_LIMIT = 65536;
+
+  private final String        python;
+  private final List<String>  preload;
+  private final int           maxRuns;
+  private final StreamCollector.LineListener listener;
+
+  private volatile Process    process = null;
+  private OutputStream        requests = null;
+  private InputStream         results = null;
+  private StreamCollector     diagnostics = null;
+  private int                 runs = 0;
+
+  /**
+   *  \brief  Constructor of the worker.
+   *
+   *  The worker process is started with the first call of run(List).
+   *
+   *  @param  python          Command of the Python interpreter.
+   *  @param  preload         Modules that are imported when the worker starts.
+   *  @param  maxRuns         Number of runs after which the worker is
+   *                          restarted. Values less than or equal to zero
+   *                          disable the restart.
+   *  @param  listener        Optional callback for the diagnostic output
+   *                          that the worker writes to standard error.
+   */
+  public PersistentWorker(String python, List<String> preload, int maxRuns, StreamCollector.LineListener listener)
+  {
+    this.python = python;
+    this.preload = preload;
+    this.maxRuns = maxRuns;
+    this.listener = listener;
+  }
+
+  /**
+   *  \brief  Returns the command that starts the worker process.
+   *
+   *  @throws IOException if the worker script cannot be provided.
+   */
+  public List<String> getCommand() throws IOException
+  {
+    final List<String> command = new ArrayList<String>();
+    command.add(this.python);
+    command.add(ScriptResource.extract(SCRIPT).getAbsolutePath());
+    for(String module : this.preload)
+    {
+      command.add("--preload");
+      command.add(module);
+    }
+    return command;
+  }
+
+  @Override
+  public String getName()
+  {
+    return "robot-worker";
+  }
+
+  @Override
+  public synchronized WorkerResult run(List<String> arguments, StartListener listener) throws IOException
+  {
+    if(null != listener)
+      listener.onStart();
+    if((null == this.process) || !this.process.isAlive() || ((0 < this.maxRuns) && (this.maxRuns <= this.runs)))
+      this.restart();
+
+    ++this.runs;
+    try
+    {
+      WorkerProtocol.writeRequest(this.requests, arguments);
+      return WorkerProtocol.readResult(this.results);
+    }
+    catch (IOException e)
+    {
+      //  the state of the worker is unknown, so it is replaced with the next run
+      this.stop();
+      throw e;
+    }
+  }
+
+  /**
+   *  \brief  Returns the number of runs of the current worker process.
+   */
+  public synchronized int getRuns()
+  {
+    return this.runs;
+  }
+
+  /**
+   *  \brief  Returns the last diagnostic output of the worker.
+   */
+  public synchronized String getDiagnostics()
+  {
+    return (null == this.diagnostics) ? "" : this.diagnostics.getContent();
+  }
+
+  /**
+   *  \brief  Terminates the worker process.
+   *
+   *  The method is not synchronized, because it must be able to terminate
+   *  a worker that is currently executing a run in another thread.
+   *
+   *  Browsers and drivers started by the current run are terminated as
+   *  well, otherwise they would survive the worker.
+   */
+  @Override
+  public void stop()
+  {
+    Process current = this.process;
+
+    this.process = null;
+    if(null != current)
+    {
+      Iterator<ProcessHandle> descendants = current.descendants().iterator();
+      while(descendants.hasNext())
+        descendants.next().destroy();
+      current.destroy();
+    }
+  }
+
+  /**
+   *  \brief  Replaces the worker process by a new one.
+   *
+   *  @throws IOException if the process could not be started.
+   */
+  protected void restart() throws IOException
+  {
+    this.stop();
+    this.runs = 0;
+    this.process = new ProcessBuilder(this.getCommand()).start();
+    this.requests = new BufferedOutputStream(this.process.getOutputStream());
+    this.results = new BufferedInputStream(this.process.getInputStream());
+    this.diagnostics = new StreamCollector(this.process.getErrorStream(), this.listener, new CaptureBuffer(DIAGNOSTICS_LIMIT, null)).supervise(this.process);
+  }
+}
@@ -0,0 +1,53 @@
+package org.dschweie.neoload.advancedactions.robotframework.worker;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ *  \brief  Executes Robot Framework without starting a new process per call.
+ *
+ *  The standard way of the action is to start Robot Framework via the
+ *  command line for every iteration. Implementations of this interface
+ *  keep a prepared runtime environment instead and only pass the
+ *  arguments of the call to it.
+ */
+public interface RobotRunner
+{
+  /**
+   *  \brief  Callback that is informed when a run begins.
+   *
+   *  Runners that are shared by several virtual users execute one run after
+   *  the other. The callback separates the time a run waited for the
+   *  runner from the duration of the run itself.
+   */
+  interface StartListener
+  {
+    void onStart();
+  }
+
+  /**
+   *  \brief  Executes Robot Framework with the given arguments.
+   *
+   *  @param  arguments       The command line arguments for Robot Framework
+   *                          without the command that starts Robot Framework.
+   *  @param  listener        Optional callback that is informed when the run
+   *                          begins, after the runner has been acquired.
+   *                          The value \c null is permitted.
+   *
+   *  @return The method returns exit code and output of the execution.
+   *
+   *  @throws IOException if the communication with the runtime environment
+   *                      failed.
+   */
+  WorkerResult run(List<String> arguments, StartListener listener) throws IOException;
+
+  /**
+   *  \brief  Returns a short name of the runner that is logged in the request.
+   */
+  String getName();
+
+  /**
+   *  \brief  Releases the runtime environment.
+   */
+  void stop();
+}
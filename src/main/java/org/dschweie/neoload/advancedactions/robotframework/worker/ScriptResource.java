@@ -0,0 +1,67 @@
+package org.dschweie.neoload.advancedactions.robotframework.worker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *  \brief  Provides the Python scripts bundled with the action as files.
+ *
+ *  The scripts are part of the jar file. Since the Python interpreter can
+ *  only execute files, the scripts are extracted once per JVM into the
+ *  directory for temporary files.
+ */
+public final class ScriptResource
+{
+  private static final String           RESOURCE_PATH = "/org/dschweie/neoload/advancedactions/robotframework/worker/";
+  private static final Map<String, File> extracted = new HashMap<String, File>();
+
+  private ScriptResource()
+  {
+  }
+
+  /**
+   *  \brief  Returns the directory into which the scripts are extracted.
+   */
+  public static File getDirectory()
+  {
+    return new File(new File(System.getProperty("java.io.tmpdir"), "neoload-advancedactions"), "scripts");
+  }
+
+  /**
+   *  \brief  Extracts a bundled script and returns the file.
+   *
+   *  @param  name            Name of the script, e.g. \c robot_worker.py.
+   *
+   *  @return The method returns the extracted file.
+   *
+   *  @throws IOException if the script is not bundled or cannot be written.
+   */
+  public static synchronized File extract(String name) throws IOException
+  {
+    File file = extracted.get(name);
+
+    if((null == file) || !file.isFile())
+    {
+      InputStream resource = ScriptResource.class.getResourceAsStream(RESOURCE_PATH.concat(name));
+      if(null == resource)
+        throw new IOException("script not found: ".concat(name));
+      try
+      {
+        file = new File(ScriptResource.getDirectory(), name);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.copy(resource, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        extracted.put(name, file);
+      }
+      finally
+      {
+        resource.close();
+      }
+    }
+    return file;
+  }
+}
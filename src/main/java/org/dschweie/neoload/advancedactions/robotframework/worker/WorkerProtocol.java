@@ -0,0 +1,202 @@
+package org.dschweie.neoload.advancedactions.robotframework.worker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ *  \brief  Protocol between the action engine and the Python worker scripts.
+ *
+ *  A request is a single line containing the arguments for Robot Framework
+ *  as a JSON array of strings. The line \c QUIT terminates the worker.
+ *
+ *  A result starts with the header line
+ *  <tt>RESULT &lt;exitcode&gt; &lt;stdout bytes&gt; &lt;stderr bytes&gt;</tt>
+ *  followed by the UTF-8 encoded content of both streams.
+ *
+ *  The fork server additionally expects a secret token as first line of
+ *  every connection and precedes the result with the line
+ *  <tt>PID &lt;pid&gt;</tt> of the child that executes the request.
+ */
+public final class WorkerProtocol
+{
+  public static final Charset UTF8 = Charset.forName("UTF-8");
+  public static final String  RESULT = "RESULT";
+  public static final String  QUIT = "QUIT";
+  public static final String  PID = "PID";
+  public static final String  PORT = "PORT";
+  public static final String  KILL = "KILL";
+
+  private static final int    MAX_HEADER = 256;
+
+  private WorkerProtocol()
+  {
+  }
+
+  /**
+   *  \brief  Writes a request to the worker.
+   *
+   *  @param  stream          The stream connected to the worker.
+   *  @param  arguments       The arguments for Robot Framework.
+   *
+   *  @throws IOException if the request could not be written.
+   */
+  public static void writeRequest(OutputStream stream, List<String> arguments) throws IOException
+  {
+    WorkerProtocol.writeLine(stream, WorkerProtocol.toJson(arguments));
+  }
+
+  /**
+   *  \brief  Asks the worker to terminate.
+   *
+   *  @param  stream          The stream connected to the worker.
+   *
+   *  @throws IOException if the request could not be written.
+   */
+  public static void writeQuit(OutputStream stream) throws IOException
+  {
+    WorkerProtocol.writeLine(stream, QUIT);
+  }
+
+  /**
+   *  \brief  Writes a single line to the worker.
+   *
+   *  @param  stream          The stream connected to the worker.
+   *  @param  line            The line without line break.
+   *
+   *  @throws IOException if the line could not be written.
+   */
+  public static void writeLine(OutputStream stream, String line) throws IOException
+  {
+    stream.write(line.concat("\n").getBytes(UTF8));
+    stream.flush();
+  }
+
+  /**
+   *  \brief  Reads a header line and checks its keyword and number of fields.
+   *
+   *  @param  stream          The stream connected to the worker.
+   *  @param  keyword         The expected first field of the line.
+   *  @param  fields          The expected number of fields including the keyword.
+   *
+   *  @return The method returns the fields of the line.
+   *
+   *  @throws IOException if the worker terminated or sent an unexpected line.
+   */
+  public static String[] readHeader(InputStream stream, String keyword, int fields) throws IOException
+  {
+    String[] header = WorkerProtocol.readLine(stream).trim().split(" ");
+
+    if((fields != header.length) || !keyword.equals(header[0]))
+      throw new IOException("unexpected answer from worker: ".concat(String.join(" ", header)));
+    return header;
+  }
+
+  /**
+   *  \brief  Reads the process id of the child that executes the request.
+   *
+   *  @param  stream          The stream connected to the fork server.
+   *
+   *  @return The method returns the process id.
+   *
+   *  @throws IOException if the server sent an unexpected line.
+   */
+  public static int readPid(InputStream stream) throws IOException
+  {
+    String[] header = WorkerProtocol.readHeader(stream, PID, 2);
+    try
+    {
+      return Integer.parseInt(header[1]);
+    }
+    catch (NumberFormatException e)
+    {
+      throw new IOException("unexpected answer from worker: ".concat(String.join(" ", header)), e);
+    }
+  }
+
+  /**
+   *  \brief  Reads a result from the worker.
+   *
+   *  @param  stream          The stream connected to the worker.
+   *
+   *  @return The method returns the result of the execution.
+   *
+   *  @throws IOException if the worker terminated or sent an invalid result.
+   */
+  public static WorkerResult readResult(InputStream stream) throws IOException
+  {
+    String[] header = WorkerProtocol.readHeader(stream, RESULT, 4);
+
+    try
+    {
+      DataInputStream input = new DataInputStream(stream);
+      byte[] stdout = new byte[Integer.parseInt(header[2])];
+      byte[] stderr = new byte[Integer.parseInt(header[3])];
+      input.readFully(stdout);
+      input.readFully(stderr);
+      return new WorkerResult(Integer.parseInt(header[1]), stdout, stderr);
+    }
+    catch (NumberFormatException e)
+    {
+      throw new IOException("unexpected answer from worker: ".concat(String.join(" ", header)), e);
+    }
+  }
+
+  /**
+   *  \brief  Converts the arguments into a JSON array of strings.
+   */
+  public static String toJson(List<String> arguments)
+  {
+    StringBuilder sb = new StringBuilder(256);
+
+    sb.append('[');
+    for(int i = 0; i < arguments.size(); ++i)
+    {
+      if(0 < i)
+        sb.append(',');
+      sb.append('"');
+      String value = arguments.get(i);
+      for(int j = 0; j < value.length(); ++j)
+      {
+        char c = value.charAt(j);
+        switch(c)
+        {
+          case '"':   sb.append("\\\""); break;
+          case '\\':  sb.append("\\\\"); break;
+          case '\n':  sb.append("\\n"); break;
+          case '\r':  sb.append("\\r"); break;
+          case '\t':  sb.append("\\t"); break;
+          default:    if(c < 0x20)
+                        sb.append(String.format("\\u%04x", (int) c));
+                      else
+                        sb.append(c);
+        }
+      }
+      sb.append('"');
+    }
+    sb.append(']');
+    return sb.toString();
+  }
+
+  private static String readLine(InputStream stream) throws IOException
+  {
+    ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+    int c = stream.read();
+
+    while('\n' != c)
+    {
+      if(-1 == c)
+        throw new EOFException("worker terminated unexpectedly");
+      if(MAX_HEADER < line.size())
+        throw new IOException("unexpected answer from worker");
+      line.write(c);
+      c = stream.read();
+    }
+    return new String(line.toByteArray(), UTF8);
+  }
+}
@@ -0,0 +1,37 @@
+package org.dschweie.neoload.advancedactions.robotframework.worker;
+
+/**
+ *  \brief  Result of an execution of Robot Framework by a RobotRunner.
+ *
+ *  The result contains the same information that is available when
+ *  Robot Framework is started as a process: the exit code and the
+ *  content of standard output and standard error.
+ */
+public class WorkerResult
+{
+  private final int     exitCode;
+  private final byte[]  stdout;
+  private final byte[]  stderr;
+
+  public WorkerResult(int exitCode, byte[] stdout, byte[] stderr)
+  {
+    this.exitCode = exitCode;
+    this.stdout = stdout;
+    this.stderr = stderr;
+  }
+
+  public int getExitCode()
+  {
+    return this.exitCode;
+  }
+
+  public byte[] getStdout()
+  {
+    return this.stdout;
+  }
+
+  public byte[] getStderr()
+  {
+    return this.stderr;
+  }
+}
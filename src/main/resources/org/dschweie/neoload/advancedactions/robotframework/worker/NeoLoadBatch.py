@@ -0,0 +1,99 @@
+import io
+
+from robot.api import SuiteVisitor
+from robot.running.model import Keyword
+from robot.utils import escape
+
+
+class NeoLoadBatch(SuiteVisitor):
+    """!
+        @brief    Pre-Run-Modifier, der die ausgewählten Tests mehrfach in einem Prozess ausführt
+
+        Bei kurzen Tests kostet der Start von Robot Framework mehr Zeit als
+        der Test selbst. Die Advanced Action bindet diesen Modifier ein, wenn
+        der Parameter "batch" größer als 1 ist. Der Modifier vervielfältigt
+        die Tests jeder Suite, so dass ein Prozess mehrere Iterationen
+        ausführt. Die Kopien heißen "<Name> #<Iteration>", daran ordnet die
+        Advanced Action die Ergebnisse den Iterationen zu.
+
+        Zu Beginn jeder Kopie wird die Variable ${NL_ITERATION} mit der
+        Nummer der Iteration gesetzt, außerdem die Variablen mit einem Wert
+        pro Iteration. Die Variablen stehen im Rumpf des Tests zur
+        Verfügung, nicht im Setup.
+
+        Die Auswahl der Tests über --test und --task wendet der Modifier vor
+        dem Vervielfältigen selbst an, da Robot Framework sie erst nach den
+        Modifiern und damit auf die umbenannten Kopien anwenden würde.
+
+        Die Beschreibung wird aus einer Datei gelesen, deren Zeilen durch
+        Tabulatoren getrennte Felder enthalten:
+
+            iterations  <Anzahl>
+            test        <Name oder Muster>
+            variable    <Name>  <Wert der 1. Iteration>  <Wert der 2. Iteration> ...
+    """
+
+    ##  Variable mit der Nummer der Iteration, beginnend mit 1
+    ITERATION_VARIABLE = "${NL_ITERATION}"
+
+    def __init__(self, specification):
+        """!
+            @brief    Konstruktor des Modifiers
+
+            @param  specification   Pfad der Datei mit der Beschreibung
+        """
+        self.iterations = 1
+        self.tests = []
+        self.variables = []
+        with io.open(specification, encoding="utf-8") as stream:
+            for line in stream.read().splitlines():
+                fields = line.split("\t")
+                if ("iterations" == fields[0]) and (1 < len(fields)):
+                    self.iterations = max(1, int(fields[1]))
+                elif ("test" == fields[0]) and (1 < len(fields)):
+                    self.tests.append(fields[1])
+                elif ("variable" == fields[0]) and (2 < len(fields)):
+                    name = fields[1] if fields[1].startswith("${") else "${" + fields[1] + "}"
+                    self.variables.append((name, fields[2:]))
+
+    def start_suite(self, suite):
+        """!
+            @brief    Die Methode ersetzt die Tests der Suite durch ihre Kopien
+
+            Die Kopien werden Iteration für Iteration angeordnet, so dass
+            jede Iteration alle Tests der Suite in der ursprünglichen
+            Reihenfolge ausführt.
+        """
+        if (suite.parent is None) and self.tests:
+            suite.filter(included_tests=self.tests)
+        originals = list(suite.tests)
+        if not originals:
+            return
+        copies = []
+        for iteration in range(1, self.iterations + 1):
+            for test in originals:
+                copy = test.deepcopy()
+                copy.name = "%s #%d" % (test.name, iteration)
+                self.assign(copy, iteration)
+                copies.append(copy)
+        suite.tests = copies
+
+    def assign(self, test, iteration):
+        """!
+            @brief    Die Methode setzt die Variablen der Iteration zu Beginn des Tests
+
+            Robot Framework ab Version 4 verwaltet die Schritte im Attribut
+            body, ältere Versionen in keywords.
+        """
+        steps = [Keyword(name="Set Test Variable", args=(self.ITERATION_VARIABLE, str(iteration)))]
+        for name, values in self.variables:
+            steps.append(Keyword(name="Set Test Variable", args=(name, escape(values[(iteration - 1) % len(values)]))))
+        body = test.body if hasattr(test, "body") else test.keywords
+        for index, step in enumerate(steps):
+            body.insert(index, step)
+
+    def visit_test(self, test):
+        """!
+            @brief    Die Tests selbst werden nicht besucht
+        """
+        pass
@@ -0,0 +1,150 @@
+import queue
+import socket
+import threading
+import time
+
+
+class NeoLoadEventListener:
+    """!
+        @brief    Listener, der die Ereignisse der Ausführung an die Advanced Action meldet
+
+        Der NeoLoadMonitoringListener sendet für jedes Keyword synchron einen
+        HTTP Request an den Controller. Die Wartezeit auf die Antwort fällt
+        dabei in die gemessene Transaktion.
+
+        Dieser Listener wird von der Advanced Action automatisch eingebunden,
+        wenn der Parameter "events" gesetzt ist. Er verbindet sich über einen
+        lokalen Port mit der Advanced Action und schreibt für jeden Start und
+        jedes Ende einer Suite, eines Test Case oder eines Keywords eine Zeile
+        mit den durch Tabulatoren getrennten Feldern
+
+            Art  Phase  Zeitstempel  Status  Name  Nachricht
+
+        Die Zeilen werden in eine Queue gestellt und von einem eigenen Thread
+        gesendet, so dass die Ausführung der Keywords nicht blockiert wird.
+        Ist die Queue voll oder die Verbindung gestört, werden Ereignisse
+        verworfen.
+    """
+
+    ##  Vorgaben vom Robot Framework zur Kennzeichnung der Art des Listeners
+    ROBOT_LISTENER_API_VERSION = 2
+
+    ##  Maximale Anzahl der Ereignisse, die auf das Senden warten dürfen
+    QUEUE_SIZE = 10000
+
+    def __init__(self, host="127.0.0.1", port=0, token=""):
+        """!
+            @brief    Konstruktor des Listeners
+
+            @param  host    Adresse, auf der die Advanced Action horcht
+            @param  port    Port des Kanals der Advanced Action
+            @param  token   Geheimnis, mit dem sich der Listener ausweist
+        """
+        self.events = queue.Queue(self.QUEUE_SIZE)
+        self.depth = 0
+        self.sender = threading.Thread(target=self.send, args=(host, int(port), token))
+        self.sender.daemon = True
+        self.sender.start()
+
+    def send(self, host, port, token):
+        """!
+            @brief    Die Methode sendet die Ereignisse aus der Queue an die Advanced Action
+
+            Die Methode läuft in einem eigenen Thread und endet, wenn sie
+            das Ende der Queue (None) erhält.
+        """
+        stream = None
+        connection = None
+        try:
+            connection = socket.create_connection((host, port), timeout=5)
+            connection.settimeout(None)
+            stream = connection.makefile("wb")
+            stream.write((token + "\n").encode("ascii"))
+        except OSError:
+            stream = None
+        while True:
+            line = self.events.get()
+            if line is None:
+                break
+            if stream is None:
+                continue
+            try:
+                stream.write(line.encode("utf-8"))
+                if self.events.empty():
+                    stream.flush()
+            except OSError:
+                stream = None
+        try:
+            if stream is not None:
+                stream.flush()
+                stream.close()
+            if connection is not None:
+                connection.close()
+        except OSError:
+            pass
+
+    def post(self, kind, phase, name, status="", message=""):
+        """!
+            @brief    Die Methode stellt ein Ereignis in die Queue, ohne zu blockieren
+        """
+        line = "%s\t%s\t%d\t%s\t%s\t%s\n" % (kind, phase, int(round(time.time() * 1000)), status, clean(name), clean(message))
+        try:
+            self.events.put_nowait(line)
+        except queue.Full:
+            pass
+
+    def start_suite(self, name, attrs):
+        self.post("suite", "start", name)
+
+    def end_suite(self, name, attrs):
+        self.post("suite", "end", name, attrs["status"], attrs.get("message", ""))
+
+    def start_test(self, name, attrs):
+        self.post("test", "start", name)
+
+    def end_test(self, name, attrs):
+        self.post("test", "end", name, attrs["status"], attrs.get("message", ""))
+
+    def start_keyword(self, name, attrs):
+        """!
+            @brief    Die Methode meldet nur Keywords, die direkt in einer Suite oder einem Test Case stehen
+        """
+        self.depth += 1
+        if 1 == self.depth:
+            self.post("keyword", "start", keyword_name(name, attrs))
+
+    def end_keyword(self, name, attrs):
+        if 1 == self.depth:
+            self.post("keyword", "end", keyword_name(name, attrs), attrs["status"])
+        self.depth -= 1
+
+    def close(self):
+        """!
+            @brief    Die Methode sendet die restlichen Ereignisse und beendet die Verbindung
+
+            Robot Framework ruft die Methode am Ende der Ausführung auf. Sie
+            wartet, bis alle Ereignisse gesendet sind, damit die Advanced
+            Action nach dem Ende des Prozesses vollständige Daten hat.
+        """
+        try:
+            self.events.put(None, timeout=5)
+        except queue.Full:
+            pass
+        self.sender.join(5)
+
+
+def keyword_name(name, attrs):
+    """!
+        @brief    Die Funktion kennzeichnet Setup, Teardown und Kontrollstrukturen wie im output.xml
+    """
+    kind = str(attrs.get("type", "Keyword"))
+    if "keyword" == kind.lower():
+        return name
+    return kind.lower() + " " + name
+
+
+def clean(text):
+    """!
+        @brief    Die Funktion entfernt Trennzeichen des Protokolls aus einem Text
+    """
+    return str(text).replace("\t", " ").replace("\r", " ").replace("\n", " ")
@@ -0,0 +1,121 @@
+"""!
+    @brief    Fork Server, der für jeden Aufruf einen vorbereiteten Kindprozess abspaltet
+
+    Manche Libraries hinterlassen globalen Zustand, so dass jede Iteration in
+    einem eigenen Prozess laufen sollte. Ein Kaltstart des Interpreters ist
+    jedoch teuer.
+
+    Der Fork Server wird einmal je Lastgenerator gestartet, importiert Robot
+    Framework und die konfigurierten Libraries und wartet dann auf einem
+    lokalen Port auf Aufrufe. Für jeden Aufruf wird mit fork() ein Kindprozess
+    erzeugt, der die bereits importierten Module erbt.
+
+    Beim Start schreibt der Server die Zeile "PORT <port> <token>". Jede
+    Verbindung beginnt mit dem Token, danach folgt entweder ein Aufruf als
+    JSON Array oder die Zeile "KILL <pid>". Der Kindprozess antwortet mit
+    "PID <pid>" und anschließend mit dem Ergebnis wie robot_worker.py.
+
+    @remark   Der Fork Server setzt ein POSIX Betriebssystem voraus.
+"""
+import binascii
+import json
+import os
+import signal
+import socket
+import sys
+import traceback
+
+import robot_worker
+
+
+def run_child(connection, line):
+    """!
+        @brief    Die Funktion führt einen Aufruf im Kindprozess aus
+
+        Der Kindprozess meldet zuerst seine Prozess-ID, damit die Advanced
+        Action ihn bei Bedarf beenden kann. Die Funktion kehrt nicht zurück.
+
+        @param  connection  Verbindung zur Advanced Action
+        @param  line        Aufruf als JSON Array
+    """
+    try:
+        stream = connection.makefile("wb")
+        stream.write(("PID %d\n" % os.getpid()).encode("ascii"))
+        stream.flush()
+        rc, out, err = robot_worker.run_request(json.loads(line))
+        robot_worker.write_result(stream, rc, out, err)
+    except BaseException:
+        traceback.print_exc()
+    finally:
+        os._exit(0)
+
+
+def serve(server, token):
+    """!
+        @brief    Die Funktion nimmt Verbindungen an und verteilt die Aufrufe
+
+        @param  server      Socket, auf dem der Server lauscht
+        @param  token       Geheimnis, das jede Verbindung mitsenden muss
+    """
+    signal.signal(signal.SIGCHLD, signal.SIG_IGN)
+    while True:
+        connection, _ = server.accept()
+        reader = None
+        try:
+            connection.settimeout(10)
+            reader = connection.makefile("rb")
+            if token != reader.readline().decode("ascii", "replace").strip():
+                continue
+            line = reader.readline().decode("utf-8").strip()
+            if line.startswith("KILL "):
+                kill_group(line[5:])
+                continue
+            if "QUIT" == line:
+                break
+            if 0 == os.fork():
+                # eigene Prozessgruppe, damit KILL auch Browser und Treiber des Laufs beendet
+                os.setpgid(0, 0)
+                server.close()
+                signal.signal(signal.SIGCHLD, signal.SIG_DFL)
+                connection.settimeout(None)
+                run_child(connection, line)
+        except Exception:
+            traceback.print_exc()
+        finally:
+            if reader is not None:
+                reader.close()
+            connection.close()
+
+
+def kill_group(pid):
+    """!
+        @brief    Die Funktion beendet einen Lauf mit allen Prozessen, die er gestartet hat
+
+        Jeder Lauf bildet eine eigene Prozessgruppe, deren Nummer die
+        Prozessnummer des Laufs ist.
+
+        @param  pid     Prozessnummer des Laufs als Text
+    """
+    try:
+        os.killpg(int(pid), signal.SIGTERM)
+    except (OSError, ValueError):
+        try:
+            os.kill(int(pid), signal.SIGTERM)
+        except (OSError, ValueError):
+            pass
+
+
+def main():
+    channel = robot_worker.open_channel()
+    robot_worker.preload(robot_worker.parse_options(sys.argv[1:]))
+    token = binascii.hexlify(os.urandom(16)).decode("ascii")
+    server = socket.socket(socket.AF_INET, socket.SOCK_STREAM)
+    server.bind(("127.0.0.1", 0))
+    server.listen(128)
+    channel.write(("PORT %d %s\n" % (server.getsockname()[1], token)).encode("ascii"))
+    channel.flush()
+    serve(server, token)
+
+
+if __name__ == "__main__":
+    main()
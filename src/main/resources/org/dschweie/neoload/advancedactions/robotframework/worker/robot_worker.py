@@ -0,0 +1,139 @@
+"""!
+    @brief    Persistenter Worker, der Robot Framework innerhalb eines Python Prozesses ausführt
+
+    Die Advanced Action startet Robot Framework normalerweise für jede
+    Iteration über die Kommandozeile. Dabei muss jedes Mal der Interpreter
+    gestartet und alle Libraries müssen erneut importiert werden.
+
+    Dieser Worker wird einmal je virtuellem Benutzer gestartet und liest die
+    Aufrufe von der Standardeingabe. Jede Zeile enthält die Argumente für
+    Robot Framework als JSON Array. Die Zeile QUIT beendet den Worker.
+
+    Für jeden Aufruf wird eine Antwort mit dem Kopf
+    "RESULT <exitcode> <bytes stdout> <bytes stderr>" und den anschließend
+    folgenden Ausgaben in UTF-8 geschrieben.
+"""
+import io
+import json
+import os
+import sys
+import traceback
+
+
+def open_channel():
+    """!
+        @brief    Die Funktion reserviert die Standardausgabe für das Protokoll
+
+        Libraries oder gestartete Prozesse können direkt auf den Dateideskriptor
+        der Standardausgabe schreiben. Damit diese Ausgaben das Protokoll nicht
+        stören, wird der Deskriptor dupliziert und die Standardausgabe danach
+        auf die Standardfehlerausgabe umgeleitet.
+
+        @return   Die Funktion liefert den Kanal für die Antworten zurück.
+    """
+    channel = os.fdopen(os.dup(1), "wb")
+    os.dup2(2, 1)
+    sys.stdout = sys.__stdout__ = io.TextIOWrapper(os.fdopen(1, "wb", closefd=False), line_buffering=True)
+    return channel
+
+
+def preload(modules):
+    """!
+        @brief    Die Funktion importiert Module bereits beim Start des Workers
+
+        @param  modules   Liste mit den Namen der Module, z.B. SeleniumLibrary
+    """
+    import robot
+    for module in modules:
+        try:
+            __import__(module)
+        except Exception:
+            traceback.print_exc(file=sys.stderr)
+
+
+def run_request(arguments):
+    """!
+        @brief    Die Funktion führt Robot Framework mit den übergebenen Argumenten aus
+
+        Robot Framework schreibt die Konsolenausgabe auf sys.__stdout__ und
+        sys.__stderr__. Für die Dauer der Ausführung werden diese Ströme
+        ausgetauscht, damit die Ausgaben an die Advanced Action übergeben
+        werden können.
+
+        @param  arguments   Liste mit den Argumenten der Kommandozeile
+
+        @return   Die Funktion liefert Exit Code, Standardausgabe und
+                  Standardfehlerausgabe zurück.
+    """
+    import robot
+    out = io.StringIO()
+    err = io.StringIO()
+    saved = (sys.stdout, sys.stderr, sys.__stdout__, sys.__stderr__)
+    sys.stdout = sys.__stdout__ = out
+    sys.stderr = sys.__stderr__ = err
+    try:
+        rc = robot.run_cli(arguments, exit=False)
+    except SystemExit as e:
+        rc = e.code if isinstance(e.code, int) else 255
+    except BaseException:
+        traceback.print_exc(file=err)
+        rc = 255
+    finally:
+        sys.stdout, sys.stderr, sys.__stdout__, sys.__stderr__ = saved
+    return rc, out.getvalue(), err.getvalue()
+
+
+def write_result(channel, rc, out, err):
+    """!
+        @brief    Die Funktion schreibt das Ergebnis einer Ausführung in den Kanal
+
+        @param  channel   Binärer Strom zur Advanced Action
+        @param  rc        Exit Code von Robot Framework
+        @param  out       Inhalt der Standardausgabe
+        @param  err       Inhalt der Standardfehlerausgabe
+    """
+    out = out.encode("utf-8", "replace")
+    err = err.encode("utf-8", "replace")
+    channel.write(("RESULT %d %d %d\n" % (rc, len(out), len(err))).encode("ascii"))
+    channel.write(out)
+    channel.write(err)
+    channel.flush()
+
+
+def parse_options(argv):
+    """!
+        @brief    Die Funktion wertet die Optionen des Workers aus
+
+        @param  argv      Argumente des Aufrufs ohne den Namen des Skripts
+
+        @return   Die Funktion liefert die Liste der vorab zu ladenden Module.
+    """
+    modules = []
+    i = 0
+    while i < len(argv):
+        if "--preload" == argv[i] and i + 1 < len(argv):
+            modules.extend([m.strip() for m in argv[i + 1].split(",") if m.strip()])
+            i += 1
+        i += 1
+    return modules
+
+
+def main():
+    channel = open_channel()
+    preload(parse_options(sys.argv[1:]))
+    for line in sys.stdin.buffer:
+        line = line.decode("utf-8").strip()
+        if not line:
+            continue
+        if "QUIT" == line:
+            break
+        try:
+            arguments = json.loads(line)
+            rc, out, err = run_request(arguments)
+        except Exception:
+            rc, out, err = 255, "", traceback.format_exc()
+        write_result(channel, rc, out, err)
+
+
+if __name__ == "__main__":
+    main()
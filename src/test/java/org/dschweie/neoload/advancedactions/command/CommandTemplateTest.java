@@ -0,0 +1,67 @@
+package org.dschweie.neoload.advancedactions.command;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.neotys.extensions.action.ActionParameter;
+
+public class CommandTemplateTest
+{
+  private static final CommandBuilder ECHO = new CommandBuilder() {
+    @Override
+    public List<String> buildCommand(List<ActionParameter> parameters)
+    {
+      final List<String> command = new ArrayList<String>();
+      ParameterIndex index = new ParameterIndex(parameters);
+      command.add("echo");
+      command.addAll(CommandFactory.buildOptionValueArgument("--name", index.get("name", null), null));
+      for(String value : index.getAll("variable"))
+      {
+        command.add("--variable");
+        command.add(value);
+      }
+      return command;
+    }
+  };
+
+  @Test
+  public void indexKeepsLastValue()
+  {
+    ParameterIndex index = new ParameterIndex(Arrays.asList(new ActionParameter("name", "first"), new ActionParameter("name", "second"), new ActionParameter(" Variable", "a:1")));
+
+    assertEquals("second", index.get("name", null));
+    assertEquals("default", index.get("other", "default"));
+    assertEquals(Arrays.asList("a:1"), index.getAll("variable"));
+  }
+
+  @Test
+  public void bindsCurrentValues()
+  {
+    CommandTemplate template = CommandTemplate.compile(Arrays.asList(new ActionParameter("name", "x"), new ActionParameter("variable", "a:1"), new ActionParameter("variable", "b:2")), Collections.<String>emptySet(), ECHO);
+
+    assertEquals(Arrays.asList("echo", "--name", "y", "--variable", "a:3", "--variable", "b:4"),
+                 template.bind(Arrays.asList(new ActionParameter("name", "y"), new ActionParameter("variable", "a:3"), new ActionParameter("variable", "b:4"))));
+  }
+
+  @Test
+  public void refusesPartialValues()
+  {
+    CommandBuilder concat = new CommandBuilder() {
+      @Override
+      public List<String> buildCommand(List<ActionParameter> parameters)
+      {
+        return Arrays.asList("--name=".concat(parameters.get(0).getValue()));
+      }
+    };
+
+    assertNull(CommandTemplate.compile(Arrays.asList(new ActionParameter("name", "x")), Collections.<String>emptySet(), concat));
+    assertEquals(Arrays.asList("--name=x"), CommandTemplate.build(CommandTemplate.createCache(), 1, Arrays.asList(new ActionParameter("name", "x")), Collections.<String>emptySet(), concat));
+  }
+}
@@ -0,0 +1,179 @@
+package org.dschweie.neoload.advancedactions.dataexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class DataExchangeRelayTest
+{
+  @Test
+  public void slicesSingleAndMultipleEntries()
+  {
+    List<String> single = JsonSlicer.entries("{\"d\": {\"Path\": \"a|b\", \"Value\": 1.5, \"Status\": {\"State\": \"PASS\"}}}");
+    assertEquals(1, single.size());
+    assertEquals("{\"Path\": \"a|b\", \"Value\": 1.5, \"Status\": {\"State\": \"PASS\"}}", single.get(0));
+
+    List<String> multiple = JsonSlicer.entries("{\"d\": {\"results\": [{\"Path\": \"x]\\\"}\"}, {\"Path\": \"y\"}]}}");
+    assertEquals(2, multiple.size());
+    assertEquals("{\"Path\": \"y\"}", multiple.get(1));
+    assertEquals("{\"d\":{\"results\":[{\"Path\": \"y\"},{\"Path\": \"y\"}]}}", JsonSlicer.compose(Arrays.asList(multiple.get(1), multiple.get(1))));
+  }
+
+  @Test
+  public void batchesEntriesAndRetries() throws Exception
+  {
+    final AtomicInteger requests = new AtomicInteger();
+    final AtomicInteger entries = new AtomicInteger();
+    final AtomicInteger failures = new AtomicInteger(1);
+    HttpServer controller = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    controller.createContext(DataExchangeRelay.SERVICE_PATH, new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException
+      {
+        String body = read(exchange.getRequestBody());
+        if(exchange.getRequestURI().getPath().endsWith("/Session"))
+        {
+          byte[] answer = "{\"d\":{\"SessionId\":\"s1\"}}".getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(201, answer.length);
+          exchange.getResponseBody().write(answer);
+        }
+        else if(0 <= failures.decrementAndGet())
+          exchange.sendResponseHeaders(503, -1);
+        else
+        {
+          requests.incrementAndGet();
+          entries.addAndGet(JsonSlicer.entries(body).size());
+          exchange.sendResponseHeaders(201, -1);
+        }
+        exchange.close();
+      }
+    });
+    controller.start();
+
+    DataExchangeRelay relay = new DataExchangeRelay("http://127.0.0.1:" + controller.getAddress().getPort() + DataExchangeRelay.SERVICE_PATH, 0, 25, 200L, 1000);
+    relay.start();
+    try
+    {
+      String base = "http://127.0.0.1:" + relay.getPort() + DataExchangeRelay.SERVICE_PATH;
+      assertEquals(201, post(base + "/Session", "{\"d\": {\"Context\": {}}}"));
+      for(int i = 0; i < 40; ++i)
+        assertEquals(201, post(base + "/Entry", "{\"d\": {\"SessionId\": \"s1\", \"Value\": " + i + "}}"));
+      for(int i = 0; i < 5; ++i)
+        assertEquals(201, post(base + "/Entries", "{\"d\": {\"results\": [{\"Value\": 1}, {\"Value\": 2}]}}"));
+
+      assertTrue(relay.awaitIdle(10000L));
+      assertEquals(50, entries.get());
+      assertEquals(50, relay.getForwarded());
+      assertEquals(0, relay.getDropped());
+      assertTrue(requests.get() < 10);
+    }
+    finally
+    {
+      relay.stop(1000L);
+      controller.stop(0);
+    }
+  }
+
+  @Test
+  public void rejectsRequestOnlyIfNothingWasQueued() throws Exception
+  {
+    //  without start() nothing takes the entries from the queue
+    DataExchangeRelay relay = new DataExchangeRelay("http://127.0.0.1:1" + DataExchangeRelay.SERVICE_PATH, 0, 25, 200L, 2);
+    try
+    {
+      assertEquals(201, relay.enqueue("{\"d\": {\"results\": [{\"Value\": 1}, {\"Value\": 2}, {\"Value\": 3}]}}"));
+      assertEquals(503, relay.enqueue("{\"d\": {\"Value\": 4}}"));
+      assertEquals(4, relay.getReceived());
+      assertEquals(2, relay.getDropped());
+    }
+    finally
+    {
+      relay.stop(0L);
+    }
+  }
+
+  @Test
+  public void deliversRejectedBatchEntryByEntry() throws Exception
+  {
+    final AtomicInteger entries = new AtomicInteger();
+    HttpServer controller = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    controller.createContext(DataExchangeRelay.SERVICE_PATH, new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException
+      {
+        String body = read(exchange.getRequestBody());
+        if(body.contains("invalid"))
+          exchange.sendResponseHeaders(400, -1);
+        else
+        {
+          entries.addAndGet(JsonSlicer.entries(body).size());
+          exchange.sendResponseHeaders(201, -1);
+        }
+        exchange.close();
+      }
+    });
+    controller.start();
+
+    DataExchangeRelay relay = new DataExchangeRelay("http://127.0.0.1:" + controller.getAddress().getPort() + DataExchangeRelay.SERVICE_PATH, 0, 25, 200L, 1000);
+    relay.start();
+    try
+    {
+      String base = "http://127.0.0.1:" + relay.getPort() + DataExchangeRelay.SERVICE_PATH;
+      assertEquals(201, post(base + "/Entries", "{\"d\": {\"results\": [{\"Value\": 1}, {\"Value\": \"invalid\"}, {\"Value\": 3}, {\"Value\": 4}]}}"));
+
+      assertTrue(relay.awaitIdle(10000L));
+      assertEquals(3, entries.get());
+      assertEquals(3, relay.getForwarded());
+      assertEquals(1, relay.getDropped());
+    }
+    finally
+    {
+      relay.stop(1000L);
+      controller.stop(0);
+    }
+  }
+
+  private static int post(String url, String body) throws IOException
+  {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setRequestProperty("Content-Type", "application/json");
+    OutputStream stream = connection.getOutputStream();
+    stream.write(body.getBytes(StandardCharsets.UTF_8));
+    stream.close();
+    int status = connection.getResponseCode();
+    if(400 > status)
+      read(connection.getInputStream());
+    return status;
+  }
+
+  private static String read(InputStream stream) throws IOException
+  {
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    int read;
+    while(-1 != (read = stream.read(buffer)))
+      content.write(buffer, 0, read);
+    stream.close();
+    return new String(content.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
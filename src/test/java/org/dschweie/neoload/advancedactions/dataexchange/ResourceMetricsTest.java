@@ -0,0 +1,29 @@
+package org.dschweie.neoload.advancedactions.dataexchange;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.process.ResourceUsage;
+import org.junit.jupiter.api.Test;
+
+public class ResourceMetricsTest
+{
+  @Test
+  public void aggregatesUsageOfWindow()
+  {
+    ResourceMetrics metrics = new ResourceMetrics("http://localhost:7400/DataExchange/v1/Service.svc", 1000L);
+    metrics.add(new ResourceUsage(300L, 100L, 2048L, 10L, 1L, 4096L, 0L, 2, 5));
+    metrics.add(new ResourceUsage(200L, 0L, 1024L, 5L, 2L, 0L, 512L, 1, 3));
+
+    List<String> entries = metrics.createEntries("abc", 1700000000000L);
+
+    assertEquals(9, entries.size());
+    assertEquals("{\"SessionId\":\"abc\",\"Path\":\"Advanced Actions|Resources|Executions\",\"Value\":2,\"Unit\":\"\",\"Timestamp\":\"1700000000000\"}", entries.get(0));
+    assertTrue(entries.get(1).contains("\"Value\":500,\"Unit\":\"ms\""));
+    assertTrue(entries.get(3).contains("CPU load\",\"Value\":60,"));
+    assertTrue(entries.get(4).contains("Peak RSS\",\"Value\":2048,"));
+    assertEquals(9, JsonSlicer.entries(JsonSlicer.compose(entries)).size());
+  }
+}
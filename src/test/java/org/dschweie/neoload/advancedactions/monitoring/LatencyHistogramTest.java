@@ -0,0 +1,73 @@
+package org.dschweie.neoload.advancedactions.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest
+{
+  @Test
+  public void bucketsHaveBoundedRelativeError()
+  {
+    for(long value : new long[] { 0L, 15L, 16L, 17L, 1000L, 123456L, LatencyHistogram.MAX_VALUE })
+    {
+      long highest = LatencyHistogram.highest(LatencyHistogram.index(value));
+      assertTrue(highest >= value);
+      assertTrue(highest - value <= value / (1L << LatencyHistogram.SUB_BITS));
+    }
+  }
+
+  @Test
+  public void reportsPercentilesOfConcurrentRecordings() throws Exception
+  {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    final List<Thread> threads = new ArrayList<Thread>();
+
+    for(int t = 0; t < 4; ++t)
+    {
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run()
+        {
+          for(long value = 1L; value <= 1000L; ++value)
+            histogram.record(value);
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    for(Thread thread : threads)
+      thread.join();
+
+    HistogramSnapshot snapshot = histogram.snapshot();
+    assertEquals(4000L, snapshot.getCount());
+    assertEquals(500.5, snapshot.getMean(), 0.001);
+    assertEquals(1000L, snapshot.getMax());
+    assertTrue(Math.abs(snapshot.getP50() - 500L) <= 500L / 16L);
+    assertTrue(Math.abs(snapshot.getP99() - 990L) <= 990L / 16L);
+
+    histogram.reset();
+    assertEquals(0L, histogram.snapshot().getCount());
+  }
+
+  @Test
+  public void registersStatisticsAsMXBean() throws Exception
+  {
+    EngineStatistics statistics = EngineStatistics.getInstance();
+    statistics.recordQueue(5L);
+    statistics.recordStatusCode("IOException");
+
+    ObjectName name = new ObjectName(EngineStatistics.OBJECT_NAME);
+    CompositeData queue = (CompositeData) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "QueueTime");
+    assertTrue(1L <= (Long) queue.get("count"));
+    assertTrue(1L <= statistics.getStatusCodes().get("IOException"));
+  }
+}
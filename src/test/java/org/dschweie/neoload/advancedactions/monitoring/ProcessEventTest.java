@@ -0,0 +1,119 @@
+package org.dschweie.neoload.advancedactions.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.dschweie.neoload.advancedactions.AbstractActionEngine;
+import org.dschweie.neoload.advancedactions.process.ProcessWatchdog;
+import org.junit.jupiter.api.Test;
+
+import com.neotys.extensions.action.ActionParameter;
+import com.neotys.extensions.action.engine.Context;
+import com.neotys.extensions.action.engine.SampleResult;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class ProcessEventTest
+{
+  @Test
+  public void recordsEventsOfExecutedProcess() throws Exception
+  {
+    if('/' != File.separatorChar)
+      return;
+
+    assertFalse(new ProcessSpawnEvent().shouldCommit());
+
+    AbstractActionEngine engine = new AbstractActionEngine() {
+      {
+        this.source = "suite.robot";
+      }
+
+      @Override
+      public SampleResult execute(Context context, List<ActionParameter> parameters)
+      {
+        return this.executeProcess(context, Arrays.asList("sh", "-c", "echo hello; exit 3"));
+      }
+    };
+    Map<String, RecordedEvent> events = new HashMap<String, RecordedEvent>();
+
+    try(Recording recording = ProcessEventTest.start())
+    {
+      assertEquals("3", engine.execute(null, null).getStatusCode());
+      for(RecordedEvent event : ProcessEventTest.stop(recording))
+        events.put(event.getEventType().getName(), event);
+    }
+
+    RecordedEvent spawn = events.get("org.dschweie.neoload.advancedactions.ProcessSpawn");
+    RecordedEvent wait = events.get("org.dschweie.neoload.advancedactions.ProcessWait");
+    RecordedEvent drain = events.get("org.dschweie.neoload.advancedactions.StreamDrain");
+    assertEquals("sh", spawn.getString("command"));
+    assertEquals("suite.robot", spawn.getString("source"));
+    assertTrue(0L < spawn.getLong("pid"));
+    assertEquals(3, wait.getInt("exitCode"));
+    assertEquals("3", wait.getString("statusCode"));
+    assertEquals(6L, drain.getLong("stdout"));
+    assertEquals(0L, drain.getLong("stderr"));
+  }
+
+  @Test
+  public void recordsStagesOfTermination() throws Exception
+  {
+    if('/' != File.separatorChar)
+      return;
+
+    Process process = new ProcessBuilder("sleep", "30").start();
+    List<RecordedEvent> events;
+
+    try(Recording recording = ProcessEventTest.start())
+    {
+      new ProcessWatchdog(process, 0L, 0L, 5000L).describe("User-1", "suite.robot").terminate(ProcessWatchdog.STOPPED);
+      assertTrue(process.waitFor(10L, TimeUnit.SECONDS));
+      events = ProcessEventTest.stop(recording);
+    }
+
+    assertEquals(1, events.size());
+    assertEquals("User-1", events.get(0).getString("virtualUser"));
+    assertEquals(ProcessWatchdog.STOPPED, events.get(0).getString("cause"));
+    assertEquals(ProcessWatchdog.SIGINT, events.get(0).getString("signal"));
+    assertEquals(process.pid(), events.get(0).getLong("pid"));
+  }
+
+  private static Recording start()
+  {
+    Recording recording = new Recording();
+    recording.enable(ProcessSpawnEvent.class);
+    recording.enable(ProcessWaitEvent.class);
+    recording.enable(StreamDrainEvent.class);
+    recording.enable(ProcessStopEvent.class);
+    recording.start();
+    return recording;
+  }
+
+  private static List<RecordedEvent> stop(Recording recording) throws Exception
+  {
+    Path file = Files.createTempFile("events", ".jfr");
+
+    try
+    {
+      recording.stop();
+      recording.dump(file);
+      return RecordingFile.readAllEvents(file);
+    }
+    finally
+    {
+      Files.delete(file);
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class AdmissionControllerTest
+{
+  @Test
+  public void queuesBeyondFixedLimit() throws Exception
+  {
+    final AdmissionController controller = new AdmissionController();
+    final AtomicLong queued = new AtomicLong(-1L);
+    controller.configure(1, false, 0.0, 0L);
+
+    assertTrue(100L > controller.acquire());
+    Thread second = new Thread(new Runnable() {
+      @Override
+      public void run()
+      {
+        try
+        {
+          queued.set(controller.acquire());
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    second.start();
+
+    long deadline = System.currentTimeMillis() + 5000L;
+    while((1 != controller.getWaiting()) && (System.currentTimeMillis() < deadline))
+      Thread.sleep(10L);
+    Thread.sleep(300L);
+    assertEquals(1, controller.getWaiting());
+    assertEquals(-1L, queued.get());
+
+    controller.release();
+    second.join(5000L);
+    assertTrue(300L <= queued.get());
+    assertEquals(1, controller.getRunning());
+    assertEquals(0, controller.getWaiting());
+    controller.release();
+    assertEquals(0, controller.getRunning());
+  }
+
+  @Test
+  public void admitsOneProcessPerIntervalInAdaptiveMode() throws Exception
+  {
+    final AdmissionController controller = new AdmissionController() {
+      @Override
+      protected boolean isSystemHealthy()
+      {
+        return true;
+      }
+    };
+    controller.configure(0, true, 0.0, 0L);
+
+    long start = System.currentTimeMillis();
+    for(int i = 0; i < 4; ++i)
+      controller.acquire();
+    //  the first process is admitted immediately, the others one per interval
+    assertTrue(3L * AdmissionController.RECHECK_INTERVAL <= System.currentTimeMillis() - start + 10L);
+    assertEquals(4, controller.getRunning());
+  }
+
+  @Test
+  public void parsesStateOfSystem()
+  {
+    assertEquals(3.25, AdmissionController.parseLoadAverage("3.25 2.10 1.05 4/812 12345\n"), 0.0001);
+    assertEquals(2048000L, AdmissionController.parseAvailableMemory("MemTotal:       16000000 kB\nMemFree:         1000000 kB\nMemAvailable:    2048000 kB\n"));
+    assertEquals(-1L, AdmissionController.parseAvailableMemory("MemTotal:       16000000 kB\n"));
+  }
+}
@@ -0,0 +1,62 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+
+public class CaptureBufferTest
+{
+  @Test
+  public void keepsEverythingBelowLimit()
+  {
+    CaptureBuffer buffer = new CaptureBuffer(20, null);
+    buffer.append("0123456789");
+    buffer.append("abcdefghij");
+
+    assertEquals("0123456789abcdefghij", buffer.toString());
+    assertEquals(0, buffer.getOmitted());
+    assertNull(buffer.getSpillFile());
+  }
+
+  @Test
+  public void keepsHeadAndTailAndSpillsEverything() throws Exception
+  {
+    File spill = File.createTempFile("capture", ".log");
+    spill.delete();
+    CaptureBuffer buffer = new CaptureBuffer(10, spill);
+    buffer.append("01234");
+    buffer.append("56");
+    buffer.append("789abcdefg");
+    buffer.close();
+
+    assertEquals(17, buffer.getTotal());
+    assertEquals(7, buffer.getOmitted());
+    assertTrue(buffer.toString().startsWith("01234\n[... 7 characters omitted"));
+    assertTrue(buffer.toString().endsWith(" ...]\ncdefg"));
+    assertNotNull(buffer.getSpillFile());
+    assertEquals("0123456789abcdefg", new String(Files.readAllBytes(spill.toPath())));
+    spill.delete();
+  }
+
+  @Test
+  public void spillsInUtf8() throws Exception
+  {
+    File spill = File.createTempFile("capture", ".log");
+    spill.delete();
+    CaptureBuffer buffer = new CaptureBuffer(4, spill);
+    buffer.append("Gr\u00fc\u00dfe \u20ac");
+    buffer.close();
+
+    //  the limit counts characters, not the bytes of the encoding
+    assertEquals(7, buffer.getTotal());
+    assertEquals("Gr\u00fc\u00dfe \u20ac", new String(Files.readAllBytes(spill.toPath()), StandardCharsets.UTF_8));
+    spill.delete();
+  }
+}
@@ -0,0 +1,41 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class CompletionTrackerTest
+{
+  @Test
+  public void reportsExitCodeAfterTermination() throws Exception
+  {
+    List<String> command = Arrays.asList("java", "-version");
+    Process process = new ProcessBuilder(command).start();
+    StreamCollector stdout = new StreamCollector(process.getInputStream(), null).start("stdout");
+    StreamCollector stderr = new StreamCollector(process.getErrorStream(), null).start("stderr");
+    CompletionTracker tracker = new CompletionTracker();
+
+    long id = tracker.track(command, process, stdout, stderr, null);
+    assertEquals(1, id);
+
+    List<SampleResult> results = tracker.drain();
+    for(int i = 0; results.isEmpty() && (i < 500); ++i)
+    {
+      Thread.sleep(20L);
+      results = tracker.drain();
+    }
+
+    assertEquals(1, results.size());
+    assertEquals("0", results.get(0).getStatusCode());
+    assertTrue(results.get(0).getRequestContent().startsWith("deferred 1: java -version"));
+    assertTrue(results.get(0).getResponseContent().endsWith("<exitcode>0</exitcode>"));
+    assertTrue(tracker.getRunning().isEmpty());
+    assertTrue(tracker.drain().isEmpty());
+  }
+}
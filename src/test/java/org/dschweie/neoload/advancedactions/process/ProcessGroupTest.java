@@ -0,0 +1,46 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class ProcessGroupTest
+{
+  @Test
+  public void executesMembersConcurrently() throws Exception
+  {
+    if('/' != File.separatorChar)
+      return;
+
+    ProcessGroup group = new ProcessGroup(0L, 0L, 1000L, null);
+    ProcessGroup.Member first = new ProcessGroup.Member(new ProcessBuilder("sh", "-c", "sleep 1; echo first"), new CaptureBuffer(), new CaptureBuffer());
+    ProcessGroup.Member second = new ProcessGroup.Member(new ProcessBuilder("sh", "-c", "sleep 1; echo second; exit 3"), new CaptureBuffer(), new CaptureBuffer());
+
+    long begin = System.currentTimeMillis();
+    group.run(Arrays.asList(first, second));
+
+    assertTrue(1900L > System.currentTimeMillis() - begin);
+    assertEquals("0", first.getStatusCode());
+    assertEquals("3", second.getStatusCode());
+    assertEquals("first\n", first.getStdout().getContent());
+    assertEquals("second\n", second.getStdout().getContent());
+  }
+
+  @Test
+  public void terminatesMembersWithWatchdog() throws Exception
+  {
+    if('/' != File.separatorChar)
+      return;
+
+    ProcessGroup group = new ProcessGroup(300L, 0L, 500L, null);
+    ProcessGroup.Member member = new ProcessGroup.Member(new ProcessBuilder("sh", "-c", "sleep 30"), new CaptureBuffer(), new CaptureBuffer());
+
+    group.run(Arrays.asList(member));
+    assertTrue(member.getStatusCode().startsWith("NL-TIMEOUT-"));
+    assertTrue(2000L > member.getEnd() - member.getStart());
+  }
+}
@@ -0,0 +1,94 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class ProcessWatchdogTest
+{
+  @Test
+  public void interruptsInactiveProcessAndKillsDescendants() throws Exception
+  {
+    if('/' != File.separatorChar)
+      return;
+
+    Process process = new ProcessBuilder("sh", "-c", "echo started; sleep 30 & wait").start();
+    StreamCollector stdout = new StreamCollector(process.getInputStream(), null).start("stdout");
+    ProcessWatchdog watchdog = new ProcessWatchdog(process, 0L, 500L, 1000L, stdout).start();
+
+    ProcessHandle child = this.awaitDescendant(process);
+    assertTrue(process.waitFor(10L, TimeUnit.SECONDS));
+    watchdog.cancel();
+
+    assertEquals("NL-INACTIVITY-SIGINT", watchdog.getStatusCode());
+    assertEquals(1, watchdog.getDescendants());
+    assertTrue(child.onExit().get(5L, TimeUnit.SECONDS) != null);
+    assertFalse(child.isAlive());
+  }
+
+  @Test
+  public void escalatesIfInterruptIsIgnored() throws Exception
+  {
+    if('/' != File.separatorChar)
+      return;
+
+    Process process = new ProcessBuilder("sh", "-c", "trap '' INT; sleep 30").start();
+    ProcessWatchdog watchdog = new ProcessWatchdog(process, 300L, 0L, 500L).start();
+
+    ProcessHandle child = this.awaitDescendant(process);
+    assertTrue(process.waitFor(10L, TimeUnit.SECONDS));
+
+    assertEquals(ProcessWatchdog.TIMEOUT, watchdog.getReason());
+    assertEquals("NL-TIMEOUT-SIGTERM", watchdog.getStatusCode());
+    assertTrue(child.onExit().get(5L, TimeUnit.SECONDS) != null);
+  }
+
+  @Test
+  public void leavesProcessWithinLimitsAlone() throws Exception
+  {
+    Process process = new ProcessBuilder("java", "-version").start();
+    StreamCollector stderr = new StreamCollector(process.getErrorStream(), null).start("stderr");
+    ProcessWatchdog watchdog = new ProcessWatchdog(process, 30000L, 30000L, 1000L, stderr).start();
+
+    assertEquals(0, process.waitFor());
+    watchdog.cancel();
+
+    assertFalse(watchdog.isTriggered());
+    assertNull(watchdog.getStatusCode());
+  }
+
+  @Test
+  public void ignoresTerminationOfEndedProcess() throws Exception
+  {
+    if('/' != File.separatorChar)
+      return;
+
+    Process process = new ProcessBuilder("sh", "-c", "exit 3").start();
+    assertEquals(3, process.waitFor());
+    ProcessWatchdog watchdog = new ProcessWatchdog(process, 0L, 0L, 500L);
+
+    watchdog.terminate(ProcessWatchdog.STOPPED);
+
+    assertFalse(watchdog.isTriggered());
+    assertNull(watchdog.getStatusCode());
+  }
+
+  private ProcessHandle awaitDescendant(Process process) throws InterruptedException
+  {
+    for(int i = 0; i < 100; ++i)
+    {
+      Iterator<ProcessHandle> descendants = process.descendants().iterator();
+      if(descendants.hasNext())
+        return descendants.next();
+      Thread.sleep(20L);
+    }
+    throw new AssertionError("process without descendants");
+  }
+}
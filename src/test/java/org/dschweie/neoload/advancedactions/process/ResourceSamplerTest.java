@@ -0,0 +1,46 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class ResourceSamplerTest
+{
+  @Test
+  public void samplesProcessTree() throws Exception
+  {
+    if(!ResourceSampler.isAvailable())
+      return;
+
+    Process process = new ProcessBuilder("sh", "-c", "sleep 2 & i=0; while [ $i -lt 100000 ]; do i=$((i+1)); done; wait").start();
+    ResourceSampler sampler = new ResourceSampler(process).start(50L);
+
+    assertEquals(0, process.waitFor());
+    ResourceUsage usage = sampler.stop();
+
+    assertTrue(1 < usage.getSamples());
+    assertEquals(2, usage.getProcesses());
+    assertTrue(0 < usage.getCpuUser() + usage.getCpuSystem());
+    assertTrue(0 < usage.getPeakRss());
+    assertTrue(0 < usage.getVoluntarySwitches() + usage.getInvoluntarySwitches());
+    assertTrue(usage.toXml().startsWith("<resources cpuuser=\""));
+  }
+
+  @Test
+  public void countsDescendantsEndedBetweenSamples() throws Exception
+  {
+    if(!ResourceSampler.isAvailable())
+      return;
+
+    //  the busy child runs between the first and the second sample
+    Process process = new ProcessBuilder("sh", "-c", "sleep 0.3; sh -c 'i=0; while [ $i -lt 300000 ]; do i=$((i+1)); done'; sleep 2").start();
+    ResourceSampler sampler = new ResourceSampler(process).start(2000L);
+
+    assertEquals(0, process.waitFor());
+    ResourceUsage usage = sampler.stop();
+
+    assertEquals(2, usage.getSamples());
+    assertTrue(100L <= usage.getCpuUser() + usage.getCpuSystem());
+  }
+}
@@ -0,0 +1,127 @@
+package org.dschweie.neoload.advancedactions.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+public class StreamCollectorTest
+{
+  @Test
+  public void collectsLinesAndForwardsThem() throws Exception
+  {
+    final List<String> lines = new ArrayList<String>();
+    StreamCollector collector = new StreamCollector(new ByteArrayInputStream("first\nsecond\r\nthird".getBytes()), new StreamCollector.LineListener() {
+      @Override
+      public void onLine(String line)
+      {
+        lines.add(line);
+      }
+    });
+
+    collector.start("test").await();
+
+    assertEquals("first\nsecond\nthird\n", collector.getContent());
+    assertEquals(3, lines.size());
+    assertEquals("second", lines.get(1));
+    assertNull(collector.getFailure());
+  }
+
+  @Test
+  public void drainsLargeStream() throws Exception
+  {
+    StringBuilder sb = new StringBuilder();
+    for(int i = 0; i < 100000; ++i)
+      sb.append("line ").append(i).append('\n');
+
+    StreamCollector collector = new StreamCollector(new ByteArrayInputStream(sb.toString().getBytes()), null);
+    collector.run();
+
+    assertEquals(sb.length(), collector.getContent().length());
+  }
+
+  @Test
+  public void supervisesManyProcessesWithOneThread() throws Exception
+  {
+    if('/' != File.separatorChar)
+      return;
+
+    ProcessSupervisor supervisor = new ProcessSupervisor(1);
+    List<StreamCollector> collectors = new ArrayList<StreamCollector>();
+    for(int i = 0; i < 20; ++i)
+    {
+      Process process = new ProcessBuilder("sh", "-c", "printf 'first\\nsecond\\r\\nthird'; sleep 0.2; seq 1 5000").start();
+      collectors.add(new StreamCollector(process.getInputStream(), null, new CaptureBuffer()).supervise(process, supervisor));
+    }
+
+    StringBuilder expected = new StringBuilder("first\nsecond\nthird");
+    for(int i = 1; i <= 5000; ++i)
+      expected.append(i).append('\n');
+    for(StreamCollector collector : collectors)
+    {
+      assertTrue(collector.await(10000L));
+      assertEquals(expected.toString(), collector.getContent());
+      assertNull(collector.getFailure());
+    }
+    //  the number of streams is updated after the pass of the carrier
+    for(int i = 0; (i < 100) && (0 < supervisor.getStreams()); ++i)
+      Thread.sleep(10L);
+    assertEquals(0, supervisor.getStreams());
+  }
+
+  @Test
+  public void keepsListenersOffTheCarrier() throws Exception
+  {
+    if('/' != File.separatorChar)
+      return;
+
+    ProcessSupervisor supervisor = new ProcessSupervisor(1, 2);
+    final CountDownLatch release = new CountDownLatch(1);
+    Process slow = new ProcessBuilder("sh", "-c", "echo blocked").start();
+    StreamCollector blocked = new StreamCollector(slow.getInputStream(), new StreamCollector.LineListener() {
+      @Override
+      public void onLine(String line)
+      {
+        try
+        {
+          release.await();
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }, new CaptureBuffer()).supervise(slow, supervisor);
+    Process fast = new ProcessBuilder("sh", "-c", "sleep 0.2; seq 1 1000").start();
+    StreamCollector other = new StreamCollector(fast.getInputStream(), null, new CaptureBuffer()).supervise(fast, supervisor);
+
+    //  the carrier is shared, but the blocked listener runs in another thread
+    assertTrue(other.await(5000L));
+    assertFalse(blocked.await(100L));
+    release.countDown();
+    assertTrue(blocked.await(5000L));
+    assertEquals("blocked\n", blocked.getContent());
+  }
+
+  @Test
+  public void endsSupervisedStreamWithProcess() throws Exception
+  {
+    if('/' != File.separatorChar)
+      return;
+
+    //  the descendant inherits the pipe, a blocking reader would wait for its end
+    Process process = new ProcessBuilder("sh", "-c", "echo started; sleep 3 &").start();
+    StreamCollector collector = new StreamCollector(process.getInputStream(), null, new CaptureBuffer()).supervise(process);
+
+    assertTrue(collector.await(2000L));
+    assertEquals("started\n", collector.getContent());
+  }
+}
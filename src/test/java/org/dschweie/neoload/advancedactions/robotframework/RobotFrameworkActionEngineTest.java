@@ -0,0 +1,121 @@
+package org.dschweie.neoload.advancedactions.robotframework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.robotframework.result.OutputXmlParser;
+import org.dschweie.neoload.advancedactions.robotframework.worker.RobotRunner;
+import org.dschweie.neoload.advancedactions.robotframework.worker.WorkerResult;
+import org.junit.jupiter.api.Test;
+
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class RobotFrameworkActionEngineTest
+{
+  private static final String BATCH =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+    + "<robot generator=\"Robot 7.0\">\n"
+    + "<suite id=\"s1\" name=\"Api\">\n"
+    + "<suite id=\"s1-s1\" name=\"Orders\">\n"
+    + "<test id=\"s1-s1-t1\" name=\"Create #1\"><status status=\"PASS\" start=\"2024-01-15T10:20:30.000000\" elapsed=\"0.200\"/></test>\n"
+    + "<test id=\"s1-s1-t2\" name=\"Read #1\"><status status=\"PASS\" start=\"2024-01-15T10:20:30.200000\" elapsed=\"0.100\"/></test>\n"
+    + "<test id=\"s1-s1-t3\" name=\"Create #2\"><status status=\"PASS\" start=\"2024-01-15T10:20:30.300000\" elapsed=\"0.250\"/></test>\n"
+    + "<test id=\"s1-s1-t4\" name=\"Read #2\"><status status=\"FAIL\" start=\"2024-01-15T10:20:30.550000\" elapsed=\"0.050\">not found</status></test>\n"
+    + "<status status=\"FAIL\" start=\"2024-01-15T10:20:30.000000\" elapsed=\"0.600\"/>\n"
+    + "</suite>\n"
+    + "<status status=\"FAIL\" start=\"2024-01-15T10:20:30.000000\" elapsed=\"0.600\"/>\n"
+    + "</suite>\n"
+    + "</robot>\n";
+
+  @Test
+  public void splitsBatchIntoIterations() throws Exception
+  {
+    SampleResult result = new SampleResult();
+
+    RobotFrameworkActionEngine.addBatchResults(result, OutputXmlParser.parse(new ByteArrayInputStream(BATCH.getBytes(StandardCharsets.UTF_8))));
+
+    assertEquals(2, result.getSubResults().size());
+    SampleResult first = result.getSubResults().get(0);
+    SampleResult second = result.getSubResults().get(1);
+    assertEquals("iteration 1", first.getRequestContent());
+    assertEquals(300L, first.getDuration());
+    assertFalse(first.isError());
+    assertEquals(2, first.getSubResults().size());
+    assertEquals("iteration 2", second.getRequestContent());
+    assertEquals(300L, second.getDuration());
+    assertTrue(second.isError());
+    assertEquals("FAIL", second.getStatusCode());
+  }
+
+  @Test
+  public void reportsWaitForSharedRunnerSeparately() throws Exception
+  {
+    final Object lock = new Object();
+    final RobotRunner runner = new RobotRunner() {
+      @Override
+      public WorkerResult run(List<String> arguments, StartListener listener)
+      {
+        synchronized(lock)
+        {
+          listener.onStart();
+          try
+          {
+            Thread.sleep(300L);
+          }
+          catch (InterruptedException e)
+          {
+            Thread.currentThread().interrupt();
+          }
+          return new WorkerResult(0, new byte[0], new byte[0]);
+        }
+      }
+
+      @Override
+      public String getName()
+      {
+        return "robot-test";
+      }
+
+      @Override
+      public void stop()
+      {
+      }
+    };
+    final SampleResult[] results = new SampleResult[2];
+    Thread[] threads = new Thread[2];
+
+    for(int i = 0; i < threads.length; ++i)
+    {
+      final int index = i;
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run()
+        {
+          results[index] = new RobotFrameworkActionEngine().executeRunner(null, runner, Arrays.asList("suite.robot"), null);
+        }
+      });
+      threads[i].start();
+    }
+    for(Thread thread : threads)
+      thread.join();
+
+    long queued = 0L;
+    for(SampleResult result : results)
+    {
+      assertEquals("0", result.getStatusCode());
+      assertTrue(result.getDuration() < 550L);
+      for(SampleResult sub : result.getSubResults())
+      {
+        assertEquals("runner queue", sub.getRequestContent());
+        queued += sub.getDuration();
+      }
+    }
+    assertTrue(200L <= queued);
+  }
+}
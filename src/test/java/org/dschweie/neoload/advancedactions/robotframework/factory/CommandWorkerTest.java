@@ -1,12 +1,18 @@
 package org.dschweie.neoload.advancedactions.robotframework.factory;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.dschweie.neoload.advancedactions.command.CommandFactory;
 import org.junit.jupiter.api.Test;
 
 import com.neotys.extensions.action.ActionParameter;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Vector;
 
@@ -33,4 +39,80 @@ public class CommandWorkerTest
     assertEquals(1 + offset, result.size());
     assertEquals("--nostatusrc", result.get(0+offset) );
   }
+
+  @Test
+  public void usesSameInterpreterForWorkerAndFallback() {
+    List<ActionParameter> configuration = new Vector<ActionParameter>();
+    configuration.add(new ActionParameter("environment", "persistent"));
+    configuration.add(new ActionParameter("test source", "suite.robot"));
+
+    String python = CommandWorker.getPythonCommand(configuration);
+    assertEquals(LauncherResolver.findPython(), python);
+    assertEquals(Arrays.asList(python, "-m", "robot"), CommandWorker.buildCommand(configuration).subList(0, 3));
+  }
+
+  @Test
+  public void rebindsChangingValues() {
+    List<ActionParameter> configuration = new Vector<ActionParameter>();
+    configuration.add(new ActionParameter("test source", "suite.robot"));
+    configuration.add(new ActionParameter("variable", "USER:one"));
+
+    List<String> first = CommandFactory.buildCommand(RBTFRMWRK_ACTION, configuration);
+    configuration.set(1, new ActionParameter("variable", "USER:two"));
+    List<String> second = CommandFactory.buildCommand(RBTFRMWRK_ACTION, configuration);
+
+    assertEquals(first.size(), second.size());
+    assertEquals("USER:one", first.get(first.size() - 2));
+    assertEquals("USER:two", second.get(second.size() - 2));
+    assertEquals("suite.robot", second.get(second.size() - 1));
+  }
+
+  @Test
+  public void movesStaticOptionsIntoArgumentFile() throws Exception {
+    List<ActionParameter> configuration = new Vector<ActionParameter>();
+    configuration.add(new ActionParameter("test source", "suite.robot"));
+    configuration.add(new ActionParameter("variable", "HOST:shop.example.com"));
+    configuration.add(new ActionParameter("variable", "USER:one"));
+    configuration.add(new ActionParameter("nostatusrc", "true"));
+
+    List<String> first = CommandWorker.compactCommand(configuration, CommandWorker.buildCommand(configuration), false);
+    assertEquals(CommandWorker.buildCommand(configuration), first);
+
+    configuration.set(2, new ActionParameter("variable", "USER:two"));
+    List<String> second = CommandWorker.compactCommand(configuration, CommandWorker.buildCommand(configuration), false);
+    int index = second.indexOf(ArgumentFile.OPTION);
+    File file = new File(second.get(index + 1));
+    try
+    {
+      assertEquals(3, index);
+      assertEquals(Arrays.asList("--variable", "USER:two", "suite.robot"), second.subList(index + 2, second.size()));
+      String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+      assertTrue(content.contains("--variable HOST:shop.example.com\n"));
+      assertTrue(content.contains("--nostatusrc\n"));
+      assertFalse(content.contains("USER"));
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void keepsStaticOptionBehindDynamicOptionOfSameName() throws Exception {
+    ArgumentFile arguments = new ArgumentFile();
+    arguments.apply(Arrays.asList("--variable", "USER:one", "--variable", "HOST:shop", "--variable", "USER:fixed", "--loglevel", "INFO", "suite.robot"), 0, 1);
+
+    List<String> second = arguments.apply(Arrays.asList("--variable", "USER:two", "--variable", "HOST:shop", "--variable", "USER:fixed", "--loglevel", "INFO", "suite.robot"), 0, 1);
+    File file = new File(second.get(1));
+    try
+    {
+      //  the last occurrence of USER wins, as in the original command
+      assertEquals(Arrays.asList("--variable", "USER:two", "--variable", "USER:fixed", "suite.robot"), second.subList(2, second.size()));
+      assertEquals("--variable HOST:shop\n--loglevel INFO\n", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
 }
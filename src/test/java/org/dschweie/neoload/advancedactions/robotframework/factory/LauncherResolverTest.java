@@ -0,0 +1,32 @@
+package org.dschweie.neoload.advancedactions.robotframework.factory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+public class LauncherResolverTest
+{
+  @Test
+  public void choosesFastestWorkingCandidate()
+  {
+    if('/' != File.separatorChar)
+      return;
+
+    LauncherResolver.Launcher broken = new LauncherResolver.Launcher("broken", Arrays.asList("sh", "-c", "echo command not found; exit 127"), Collections.<String>emptyList(), null);
+    LauncherResolver.Launcher slow = new LauncherResolver.Launcher("slow", Arrays.asList("sh", "-c", "sleep 0.3; echo 'Robot Framework 7.0 (Python 3.11.4 on linux)'"), Collections.<String>emptyList(), null);
+    LauncherResolver.Launcher fast = new LauncherResolver.Launcher("fast", Arrays.asList("sh", "-c", "echo 'Robot Framework 7.0 (Python 3.11.4 on linux)'; exit 251"), Collections.<String>emptyList(), "python3");
+
+    LauncherResolver.Launcher launcher = LauncherResolver.resolve(Arrays.asList(broken, slow, fast));
+
+    assertEquals("fast", launcher.getName());
+    assertEquals("python3", launcher.getPython());
+    assertTrue((0L <= launcher.getStartup()) && (300L > launcher.getStartup()));
+    assertTrue(launcher.getReport().contains("broken: sh -c echo command not found; exit 127 => not available\n"));
+    assertTrue(launcher.claim());
+  }
+}
@@ -0,0 +1,81 @@
+package org.dschweie.neoload.advancedactions.robotframework.factory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.robotframework.RobotFrameworkAction;
+import org.junit.jupiter.api.Test;
+
+import com.neotys.extensions.action.ActionParameter;
+
+public class ShardPlannerTest
+{
+  @Test
+  public void listsTestsOfSuiteFiles() throws Exception
+  {
+    File directory = Files.createTempDirectory("shards").toFile();
+    File nested = new File(directory, "b_nested");
+    nested.mkdirs();
+    Files.write(new File(directory, "a.robot").toPath(), ("*** Settings ***\nLibrary    OperatingSystem\n\n"
+                + "*** Test Cases ***\nFirst Test\n    Log    one\nSecond Test    [Documentation]    two\n    Log    two\n# comment\n\n"
+                + "*** Keywords ***\nNot A Test\n    No Operation\n").getBytes(StandardCharsets.UTF_8));
+    Files.write(new File(nested, "c.robot").toPath(), "| *** Tasks *** |\n| Pipe Task | Log | three |\n|   | No Operation |\n".getBytes(StandardCharsets.UTF_8));
+    Files.write(new File(directory, "_ignored.robot").toPath(), "*** Test Cases ***\nIgnored\n    Log    x\n".getBytes(StandardCharsets.UTF_8));
+    Files.write(new File(directory, "d.txt").toPath(), "*** Test Cases ***\nText Test\n    Log    x\n".getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(Arrays.asList("First Test", "Second Test", "Pipe Task"), ShardPlanner.listTests(directory, null));
+    assertEquals(Arrays.asList("First Test", "Second Test", "Pipe Task", "Text Test"), ShardPlanner.listTests(directory, "robot:txt"));
+
+    Files.write(new File(directory, "e.robot").toPath(), "*** Test Cases ***\nTest ${name}\n    Log    x\n".getBytes(StandardCharsets.UTF_8));
+    assertTrue(ShardPlanner.listTests(directory, null).isEmpty());
+  }
+
+  @Test
+  public void splitsRoundRobin()
+  {
+    List<List<String>> plan = ShardPlanner.split(Arrays.asList("A", "B", "C", "D", "E", "my_test", "My Test"), 3);
+
+    assertEquals(3, plan.size());
+    assertEquals(Arrays.asList("A", "D"), plan.get(0));
+    assertEquals(Arrays.asList("B", "E"), plan.get(1));
+    assertEquals(Arrays.asList("C", "my_test"), plan.get(2));
+    assertEquals(2, ShardPlanner.split(Arrays.asList("A", "B"), 8).size());
+  }
+
+  @Test
+  public void combinesStatusCodes()
+  {
+    assertEquals("0", ShardPlanner.combine(Arrays.asList("0", "0")));
+    assertEquals("5", ShardPlanner.combine(Arrays.asList("2", "0", "3")));
+    assertEquals("250", ShardPlanner.combine(Arrays.asList("200", "100")));
+    assertEquals("252", ShardPlanner.combine(Arrays.asList("3", "252", "251")));
+    assertEquals("TIMEOUT", ShardPlanner.combine(Arrays.asList("0", "TIMEOUT")));
+  }
+
+  @Test
+  public void buildsCommandOfShard()
+  {
+    List<ActionParameter> parameters = new ArrayList<ActionParameter>();
+    parameters.add(new ActionParameter(RobotFrameworkAction.OUTPUT_OUTPUTDIR, "/tmp/results"));
+    parameters.add(new ActionParameter(RobotFrameworkAction.TEST_SOURCE, "suite.robot"));
+
+    List<String> command = CommandWorker.buildShardCommand(parameters, Arrays.asList("Login", "Search [fast]*"), new File("/tmp/results/shard-2"));
+    int size = command.size();
+
+    assertEquals("suite.robot", command.get(size - 1));
+    assertEquals(Arrays.asList(ShardPlanner.RUN_EMPTY_SUITE, "--test", "Login", "--test", "Search [[]fast][*]"), command.subList(size - 6, size - 1));
+    assertEquals(new File("/tmp/results/shard-2").getAbsolutePath(), command.get(command.indexOf("--outputdir") + 1));
+
+    List<String> merge = CommandWorker.buildMergeCommand(parameters, Arrays.asList(new File("/tmp/results/shard-1/output.xml"), new File("/tmp/results/shard-2/output.xml")));
+    assertEquals("/tmp/results", merge.get(merge.indexOf("--outputdir") + 1));
+    assertTrue(merge.contains("--merge"));
+    assertEquals(new File("/tmp/results/shard-2/output.xml").getAbsolutePath(), merge.get(merge.size() - 1));
+  }
+}
@@ -0,0 +1,111 @@
+package org.dschweie.neoload.advancedactions.robotframework.output;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+public class ArtifactArchiverTest
+{
+  private static File stage(File root, String name, String content) throws Exception
+  {
+    File staging = new File(root, name);
+    new File(staging, "screenshots").mkdirs();
+    Files.write(new File(staging, "output.xml").toPath(), content.getBytes(StandardCharsets.UTF_8));
+    Files.write(new File(new File(staging, "screenshots"), "page.png").toPath(), new byte[] { 1, 2, 3 });
+    return staging;
+  }
+
+  @Test
+  public void movesCompressesAndRetains() throws Exception
+  {
+    File root = Files.createTempDirectory("archiver").toFile();
+    File fast = new File(root, "fast");
+    File durable = new File(root, "durable");
+    ArtifactArchiver archiver = new ArtifactArchiver(1, 4);
+    RetentionPolicy policy = new RetentionPolicy(2, false, 0L);
+    try
+    {
+      for(int i = 1; i <= 3; ++i)
+      {
+        File staging = ArtifactArchiverTest.stage(fast, "vu-" + i, "<robot run=\"" + i + "\"/>");
+        assertTrue(archiver.archive(staging, new File(durable, "vu-" + i), true, true, policy).get());
+        assertFalse(staging.exists());
+      }
+
+      assertFalse(new File(durable, "vu-1").exists());
+      assertTrue(new File(new File(new File(durable, "vu-3"), "screenshots"), "page.png.gz").isFile());
+      InputStream in = new GZIPInputStream(Files.newInputStream(new File(new File(durable, "vu-3"), "output.xml.gz").toPath()));
+      try
+      {
+        assertEquals("<robot run=\"3\"/>", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+      }
+      finally
+      {
+        in.close();
+      }
+
+      File passed = ArtifactArchiverTest.stage(fast, "vu-4", "<robot/>");
+      assertFalse(archiver.archive(passed, new File(durable, "vu-4"), false, false, new RetentionPolicy(0, true, 0L)).get());
+      assertFalse(passed.exists());
+      assertFalse(new File(durable, "vu-4").exists());
+
+      assertEquals(3L, archiver.getArchived());
+      assertEquals(1L, archiver.getRemoved());
+      assertEquals(1L, archiver.getDiscarded());
+    }
+    finally
+    {
+      ArtifactArchiver.delete(root);
+    }
+  }
+
+  @Test
+  public void rendersOnlyKeptExecutions() throws Exception
+  {
+    if('/' != File.separatorChar)
+      return;
+
+    File root = Files.createTempDirectory("archiver").toFile();
+    ArtifactArchiver archiver = new ArtifactArchiver(1, 4);
+    try
+    {
+      File staging = ArtifactArchiverTest.stage(root, "fast", "<robot/>");
+      List<String> render = Arrays.asList("sh", "-c", "echo '<html/>' > '" + new File(staging, "log.html").getPath() + "'");
+      assertTrue(archiver.archive(staging, new File(root, "kept"), true, false, new RetentionPolicy(0, true, 0L), render).get());
+      assertTrue(new File(new File(root, "kept"), "log.html").isFile());
+      assertTrue(new File(new File(root, "kept"), "output.xml").isFile());
+
+      boolean[] samples = new boolean[6];
+      for(int i = 0; i < samples.length; ++i)
+        samples[i] = archiver.sample(3);
+      assertTrue(samples[0] && samples[3]);
+      assertFalse(samples[1] || samples[2] || samples[4] || samples[5]);
+      assertFalse(archiver.sample(0));
+    }
+    finally
+    {
+      ArtifactArchiver.delete(root);
+    }
+  }
+
+  @Test
+  public void sizeLimitKeepsNewestArchive()
+  {
+    RetentionPolicy policy = new RetentionPolicy(0, false, 100L);
+
+    assertFalse(policy.exceeds(1, 500L));
+    assertTrue(policy.exceeds(2, 150L));
+    assertFalse(policy.exceeds(2, 100L));
+    assertTrue(policy.accepts(false));
+  }
+}
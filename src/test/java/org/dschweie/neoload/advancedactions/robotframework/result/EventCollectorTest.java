@@ -0,0 +1,44 @@
+package org.dschweie.neoload.advancedactions.robotframework.result;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class EventCollectorTest
+{
+  @Test
+  public void buildsTreeFromEvents()
+  {
+    EventCollector collector = new EventCollector(null);
+    EventCollector.Connection connection = collector.connect();
+
+    connection.onEvent("suite\tstart\t1000\t\tShop\t");
+    connection.onEvent("keyword\tstart\t1000\t\tsetup Prepare\t");
+    connection.onEvent("keyword\tend\t1010\tPASS\tsetup Prepare\t");
+    connection.onEvent("test\tstart\t1020\t\tLogin\t");
+    connection.onEvent("keyword\tstart\t1020\t\tOpen\t");
+    connection.onEvent("keyword\tstart\t1021\t\tNested\t");
+    connection.onEvent("keyword\tend\t1022\tPASS\tNested\t");
+    connection.onEvent("keyword\tend\t1120\tFAIL\tOpen\t");
+    connection.onEvent("garbage");
+    connection.onEvent("test\tend\t1200\tFAIL\tLogin\tElement not found");
+    connection.onEvent("suite\tend\t1300\tFAIL\tShop\t");
+    connection.close();
+
+    assertEquals(0, collector.getConnections());
+    List<ExecutionNode> suites = collector.await(0);
+    assertEquals(1, suites.size());
+    assertEquals(300, suites.get(0).getDuration());
+    assertEquals(2, suites.get(0).getChildren().size());
+
+    ExecutionNode test = suites.get(0).getChildren().get(1);
+    assertEquals("Element not found", test.getMessage());
+    assertEquals(180, test.getDuration());
+    assertEquals(1, test.getChildren().size());
+    assertEquals(100, test.getChildren().get(0).getDuration());
+    assertTrue(test.getChildren().get(0).isFailed());
+  }
+}
@@ -0,0 +1,108 @@
+package org.dschweie.neoload.advancedactions.robotframework.result;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class OutputXmlParserTest
+{
+  private static final String ROBOT6 =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+    + "<robot generator=\"Robot 6.1\">\n"
+    + "<suite id=\"s1\" name=\"Shop\">\n"
+    + "<test id=\"s1-t1\" name=\"Login\">\n"
+    + "<kw name=\"Open Browser\" library=\"SeleniumLibrary\">\n"
+    + "<kw name=\"Nested\"><status status=\"PASS\" starttime=\"20240115 10:20:30.200\" endtime=\"20240115 10:20:30.300\"/></kw>\n"
+    + "<msg timestamp=\"20240115 10:20:30.250\" level=\"INFO\">opened</msg>\n"
+    + "<status status=\"PASS\" starttime=\"20240115 10:20:30.123\" endtime=\"20240115 10:20:31.123\"/>\n"
+    + "</kw>\n"
+    + "<status status=\"FAIL\" starttime=\"20240115 10:20:30.100\" endtime=\"20240115 10:20:32.100\">Element not found</status>\n"
+    + "</test>\n"
+    + "<status status=\"FAIL\" starttime=\"20240115 10:20:30.000\" endtime=\"20240115 10:20:33.000\"/>\n"
+    + "</suite>\n"
+    + "<statistics/>\n"
+    + "</robot>\n";
+
+  private static final String ROBOT7 =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+    + "<robot generator=\"Robot 7.0\">\n"
+    + "<suite id=\"s1\" name=\"Shop\">\n"
+    + "<kw name=\"Prepare\" type=\"SETUP\"><status status=\"PASS\" start=\"2024-01-15T10:20:30.000000\" elapsed=\"0.050\"/></kw>\n"
+    + "<suite id=\"s1-s1\" name=\"Cart\">\n"
+    + "<test id=\"s1-s1-t1\" name=\"Add\">\n"
+    + "<for flavor=\"IN\"><iter><kw name=\"Click\"/></iter><status status=\"PASS\" start=\"2024-01-15T10:20:30.100000\" elapsed=\"0.200\"/></for>\n"
+    + "<status status=\"PASS\" start=\"2024-01-15T10:20:30.100000\" elapsed=\"0.500\"/>\n"
+    + "</test>\n"
+    + "<status status=\"PASS\" start=\"2024-01-15T10:20:30.090000\" elapsed=\"0.600\"/>\n"
+    + "</suite>\n"
+    + "<status status=\"PASS\" start=\"2024-01-15T10:20:30.000000\" elapsed=\"1.000\"/>\n"
+    + "</suite>\n"
+    + "</robot>\n";
+
+  @Test
+  public void parsesRobot6Format() throws Exception
+  {
+    List<ExecutionNode> suites = OutputXmlParser.parse(new ByteArrayInputStream(ROBOT6.getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(1, suites.size());
+    ExecutionNode suite = suites.get(0);
+    assertEquals("Shop", suite.getName());
+    assertEquals(3000, suite.getDuration());
+    assertTrue(suite.isFailed());
+
+    ExecutionNode test = suite.getChildren().get(0);
+    assertEquals(ExecutionNode.TEST, test.getType());
+    assertEquals("Element not found", test.getMessage());
+
+    assertEquals(1, test.getChildren().size());
+    ExecutionNode keyword = test.getChildren().get(0);
+    assertEquals("SeleniumLibrary.Open Browser", keyword.getName());
+    assertEquals(1000, keyword.getDuration());
+    assertFalse(keyword.isFailed());
+    assertTrue(keyword.getChildren().isEmpty());
+  }
+
+  @Test
+  public void parsesRobot7Format() throws Exception
+  {
+    List<ExecutionNode> suites = OutputXmlParser.parse(new ByteArrayInputStream(ROBOT7.getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(1, suites.size());
+    ExecutionNode suite = suites.get(0);
+    assertEquals(1000, suite.getDuration());
+    assertEquals(2, suite.getChildren().size());
+    assertEquals("setup Prepare", suite.getChildren().get(0).getName());
+    assertEquals(50, suite.getChildren().get(0).getDuration());
+
+    ExecutionNode test = suite.getChildren().get(1).getChildren().get(0);
+    assertEquals("Add", test.getName());
+    assertEquals(500, test.getDuration());
+    assertEquals("FOR", test.getChildren().get(0).getName());
+    assertEquals(200, test.getChildren().get(0).getDuration());
+  }
+
+  @Test
+  public void replacesDisabledOutputWithScratchFile() throws Exception
+  {
+    File scratch = File.createTempFile("output", ".xml");
+    List<String> command = new ArrayList<String>(Arrays.asList("--output", "NONE", "--report", "NONE", "--log", "NONE", "tests"));
+    OutputFile output = OutputFile.prepare(command, scratch, false);
+
+    assertEquals(scratch.getAbsolutePath(), command.get(1));
+    assertEquals(scratch, output.getFile());
+    assertFalse(output.isPipe());
+
+    command = new ArrayList<String>(Arrays.asList("--outputdir", "results", "--output", "out.xml", "tests"));
+    assertEquals(new File("results", "out.xml"), OutputFile.prepare(command, scratch, true).getFile());
+    assertEquals("out.xml", command.get(3));
+  }
+}
@@ -0,0 +1,60 @@
+package org.dschweie.neoload.advancedactions.robotframework.result;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.dschweie.neoload.advancedactions.process.PhaseTimeline;
+import org.junit.jupiter.api.Test;
+
+import com.neotys.extensions.action.engine.SampleResult;
+
+public class SyslogPhasesTest
+{
+  private static final String SYSLOG =
+      "20240115 10:20:30.400 | INFO  | Robot Framework 6.1 (Python 3.11.4 on linux)\n"
+    + "20240115 10:20:30.410 | INFO  | Settings:\n"
+    + "Output:     /tmp/output.xml\n"
+    + "20240115 10:20:30.700 | INFO  | Started suite 'Shop'.\n"
+    + "20240115 10:20:30.710 | INFO  | Started suite 'Cart'.\n"
+    + "20240115 10:20:32.000 | INFO  | Ended suite 'Cart'.\n"
+    + "20240115 10:20:32.100 | INFO  | Ended suite 'Shop'.\n"
+    + "20240115 10:20:32.300 | INFO  | Output: /tmp/output.xml\n"
+    + "20240115 10:20:32.350 | INFO  | Tests execution ended. Statistics:\n"
+    + "20240115 10:20:32.900 | INFO  | Log: /tmp/log.html\n"
+    + "20240115 10:20:33.500 | INFO  | Report: /tmp/report.html\n";
+
+  @Test
+  public void splitsExecutionIntoPhases() throws Exception
+  {
+    File syslog = File.createTempFile("syslog", ".txt");
+    try
+    {
+      Files.write(syslog.toPath(), SYSLOG.getBytes(StandardCharsets.UTF_8));
+      long base = SyslogPhases.getTimestamp("20240115 10:20:30.000 | INFO  | x");
+      PhaseTimeline timeline = new PhaseTimeline(base);
+      timeline.mark(PhaseTimeline.PROCESS_EXIT, base + 3600L);
+      timeline.mark(PhaseTimeline.PROCESS_START, base + 20L);
+      timeline.mark(PhaseTimeline.STREAM_DRAINING, base + 3610L);
+
+      SyslogPhases.mark(syslog, timeline);
+      List<SampleResult> phases = timeline.toSampleResults();
+
+      String[] names = { "process start", "interpreter startup", "suite parsing", "test execution", "output writing", "report writing", "process exit", "stream draining" };
+      long[] durations = { 20L, 380L, 300L, 1400L, 200L, 1200L, 100L, 10L };
+      assertEquals(names.length, phases.size());
+      for(int i = 0; i < names.length; ++i)
+      {
+        assertEquals("phase: ".concat(names[i]), phases.get(i).getRequestContent());
+        assertEquals(durations[i], phases.get(i).getDuration());
+      }
+    }
+    finally
+    {
+      syslog.delete();
+    }
+  }
+}
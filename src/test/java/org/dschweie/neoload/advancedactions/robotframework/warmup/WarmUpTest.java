@@ -0,0 +1,90 @@
+package org.dschweie.neoload.advancedactions.robotframework.warmup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class WarmUpTest
+{
+  @Test
+  public void hashFollowsContentOfSuite() throws Exception
+  {
+    File directory = Files.createTempDirectory("suite").toFile();
+    File suite = new File(directory, "shop.robot");
+    File cache = new File(new File(directory, "__pycache__"), "lib.cpython-311.pyc");
+    try
+    {
+      Files.write(suite.toPath(), "*** Test Cases ***\nOpen\n    No Operation\n".getBytes(StandardCharsets.UTF_8));
+      SuiteHash hasher = new SuiteHash();
+      String first = hasher.compute(Collections.singletonList(directory));
+
+      cache.getParentFile().mkdirs();
+      Files.write(cache.toPath(), new byte[] { 1, 2, 3 });
+      assertEquals(first, hasher.compute(Collections.singletonList(directory)));
+
+      Files.write(suite.toPath(), "*** Test Cases ***\nOpen\n    Log    changed\n".getBytes(StandardCharsets.UTF_8));
+      suite.setLastModified(suite.lastModified() + 2000L);
+      assertNotEquals(first, hasher.compute(Collections.singletonList(directory)));
+    }
+    finally
+    {
+      cache.delete();
+      cache.getParentFile().delete();
+      suite.delete();
+      directory.delete();
+    }
+  }
+
+  @Test
+  public void keyIgnoresValuesOfVariables()
+  {
+    List<String> first = Arrays.asList("python", "-m", "robot", "--variable", "USER:one", "--include", "smoke", "--outputdir", "vu1", "--dryrun", "suite.robot");
+    List<String> second = Arrays.asList("python", "-m", "robot", "--variable", "USER:two", "--include", "smoke", "--outputdir", "vu2", "--dryrun", "suite.robot");
+    List<String> other = Arrays.asList("python", "-m", "robot", "--variable", "USER:one", "--include", "regression", "--outputdir", "vu1", "--dryrun", "suite.robot");
+
+    assertEquals(Arrays.asList("python", "--variable", "USER", "--include", "smoke", "suite.robot"), WarmUp.getStructure(first));
+    assertEquals(WarmUp.getStructure(first), WarmUp.getStructure(second));
+    assertNotEquals(WarmUp.getStructure(first), WarmUp.getStructure(other));
+  }
+
+  @Test
+  public void warmUpIsExecutedOnce() throws Exception
+  {
+    File directory = Files.createTempDirectory("suite").toFile();
+    File suite = new File(directory, "shop.robot");
+    List<String> dryRun = Arrays.asList(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath(), "-version");
+    WarmUp.Outcome outcome = null;
+    try
+    {
+      Files.write(suite.toPath(), "*** Test Cases ***\nOpen\n    No Operation\n".getBytes(StandardCharsets.UTF_8));
+      outcome = WarmUp.prepare(null, Collections.singletonList(directory), dryRun);
+
+      assertTrue(outcome.isSuccessful());
+      assertFalse(outcome.isRecorded());
+      assertTrue(WarmUp.getRecord(outcome.getKey()).isFile());
+      assertTrue(outcome.toSampleResult().getResponseContent().contains("-version"));
+      assertTrue(outcome.claim());
+
+      assertSame(outcome, WarmUp.prepare(null, Collections.singletonList(directory), dryRun));
+      assertFalse(outcome.claim());
+    }
+    finally
+    {
+      if(null != outcome)
+        WarmUp.getRecord(outcome.getKey()).delete();
+      suite.delete();
+      directory.delete();
+    }
+  }
+}
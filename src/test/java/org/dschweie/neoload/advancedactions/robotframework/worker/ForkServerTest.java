@@ -0,0 +1,23 @@
+package org.dschweie.neoload.advancedactions.robotframework.worker;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+public class ForkServerTest
+{
+  @Test
+  public void sharesServerPerInterpreterAndModules()
+  {
+    //  the servers are started with the first request only
+    ForkServer server = ForkServer.getInstance("python3", Arrays.asList("SeleniumLibrary"), null);
+
+    assertSame(server, ForkServer.getInstance("python3", Arrays.asList("SeleniumLibrary"), null));
+    assertNotSame(server, ForkServer.getInstance("/opt/venv/bin/python", Arrays.asList("SeleniumLibrary"), null));
+    assertNotSame(server, ForkServer.getInstance("python3", Collections.<String>emptyList(), null));
+  }
+}
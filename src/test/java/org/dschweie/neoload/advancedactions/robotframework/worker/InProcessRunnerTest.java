@@ -0,0 +1,110 @@
+package org.dschweie.neoload.advancedactions.robotframework.worker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.junit.jupiter.api.Test;
+
+public class InProcessRunnerTest
+{
+  /**
+   *  \brief  Creates a jar that contains only StubRobotFramework as main class.
+   */
+  private static File createStubJar() throws IOException
+  {
+    File jar = File.createTempFile("robotframework", ".jar");
+    String name = StubRobotFramework.class.getName().replace('.', '/').concat(".class");
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, StubRobotFramework.class.getName());
+
+    JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()), manifest);
+    InputStream in = StubRobotFramework.class.getClassLoader().getResourceAsStream(name);
+    try
+    {
+      out.putNextEntry(new JarEntry(name));
+      out.write(in.readAllBytes());
+      out.closeEntry();
+    }
+    finally
+    {
+      in.close();
+      out.close();
+    }
+    return jar;
+  }
+
+  @Test
+  public void runsJarInIsolatedClassLoader() throws Exception
+  {
+    File jar = InProcessRunnerTest.createStubJar();
+    try
+    {
+      InProcessRunner runner = InProcessRunner.getInstance(jar);
+      WorkerResult first = runner.run(Arrays.asList("--variable", "USER:one", "suite.robot"), null);
+      WorkerResult second = InProcessRunner.getInstance(jar).run(Arrays.asList("suite.robot"), null);
+
+      assertEquals(3, first.getExitCode());
+      assertEquals("run 1: --variable USER:one suite.robot" + System.lineSeparator(), new String(first.getStdout()));
+      assertEquals("warning" + System.lineSeparator(), new String(first.getStderr()));
+      //  the class loader is kept warm, but isolated from the classes of the test
+      assertEquals("run 2: suite.robot" + System.lineSeparator(), new String(second.getStdout()));
+      assertEquals(0, StubRobotFramework.runs);
+    }
+    finally
+    {
+      jar.delete();
+    }
+  }
+
+  @Test
+  public void refusesJarAfterFailure() throws Exception
+  {
+    File jar = InProcessRunnerTest.createStubJar();
+    try
+    {
+      InProcessRunner runner = InProcessRunner.getInstance(jar);
+      try
+      {
+        runner.run(Arrays.asList("--crash"), null);
+        assertTrue(false);
+      }
+      catch (IOException e)
+      {
+        assertTrue(runner.isBroken());
+      }
+      try
+      {
+        InProcessRunner.getInstance(jar);
+        assertTrue(false);
+      }
+      catch (IOException e)
+      {
+        assertTrue(e.getMessage().contains("has failed before"));
+      }
+      try
+      {
+        InProcessRunner.getInstance(new File(jar.getPath().concat(".missing")));
+        assertTrue(false);
+      }
+      catch (IOException e)
+      {
+        //  the engine falls back to a process
+      }
+    }
+    finally
+    {
+      jar.delete();
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package org.dschweie.neoload.advancedactions.robotframework.worker;
+
+/**
+ *  \brief  Stand-in for the main class of the standalone jar of Robot Framework.
+ *
+ *  InProcessRunnerTest packs this class into a jar, so that the runner can
+ *  be tested without Robot Framework.
+ */
+public class StubRobotFramework
+{
+  public static int runs = 0;
+
+  public static int run(String[] arguments)
+  {
+    ++runs;
+    if((0 < arguments.length) && "--crash".equals(arguments[0]))
+      throw new IllegalStateException("crashed");
+    System.out.println("run " + runs + ": " + String.join(" ", arguments));
+    System.err.println("warning");
+    return arguments.length;
+  }
+}
@@ -0,0 +1,29 @@
+package org.dschweie.neoload.advancedactions.robotframework.worker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class WorkerProtocolTest
+{
+  @Test
+  public void encodesArgumentsAsJson()
+  {
+    assertEquals("[\"--variable\",\"a:\\\"b\\\"\",\"c:\\\\d\\n\"]", WorkerProtocol.toJson(Arrays.asList("--variable", "a:\"b\"", "c:\\d\n")));
+  }
+
+  @Test
+  public void readsResult() throws IOException
+  {
+    byte[] answer = "RESULT 2 5 3\nhelloerr".getBytes(WorkerProtocol.UTF8);
+    WorkerResult result = WorkerProtocol.readResult(new ByteArrayInputStream(answer));
+
+    assertEquals(2, result.getExitCode());
+    assertEquals("hello", new String(result.getStdout(), WorkerProtocol.UTF8));
+    assertEquals("err", new String(result.getStderr(), WorkerProtocol.UTF8));
+  }
+}